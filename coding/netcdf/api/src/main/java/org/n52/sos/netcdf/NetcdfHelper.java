@@ -77,6 +77,8 @@ public class NetcdfHelper {
 
     private Set<String> z = Collections.emptySet();
 
+    private boolean streaming = true;
+
     /**
      * @param version
      *
@@ -282,4 +284,20 @@ public class NetcdfHelper {
         }
     }
 
+    /**
+     * @param streaming
+     *            if encoded files should be streamed to the response
+     */
+    @Setting(NetcdfSettingsProvider.NETCDF_STREAMING)
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * @return <code>true</code>, if encoded files should be streamed to the response
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
 }
@@ -31,6 +31,8 @@ package org.n52.sos.encode;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -86,6 +88,7 @@ import org.n52.shetland.ogc.sos.response.AbstractObservationResponse;
 import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
 import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
 import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.coding.encode.FileAttachmentResponse;
 import org.n52.sos.coding.encode.ProcedureDescriptionFormatRepository;
 import org.n52.sos.ds.AbstractDescribeSensorHandler;
 import org.n52.sos.netcdf.Nc4ForceTimeChunkingStategy;
@@ -108,6 +111,7 @@ import com.axiomalaska.cf4j.CFStandardNames;
 import com.axiomalaska.cf4j.constants.ACDDConstants;
 import com.axiomalaska.cf4j.constants.CFConstants;
 import com.axiomalaska.cf4j.constants.NODCConstants;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
@@ -144,6 +148,8 @@ import ucar.nc2.jni.netcdf.Nc4Iosp;
 public abstract class AbstractNetcdfEncoder
         implements ObservationEncoder<BinaryAttachmentResponse, Object>, NetCDFUtil {
 
+    private static final String TEMP_DIRECTORY_PREFIX = "52n-sos-netcdf";
+
     private final Set<SupportedType> SUPPORTED_TYPES =
             ImmutableSet.<SupportedType>builder().add(OmConstants.OBS_TYPE_TRUTH_OBSERVATION_TYPE).build();
 
@@ -321,6 +327,74 @@ public abstract class AbstractNetcdfEncoder
     protected abstract void addProfileSpecificGlobalAttributes(NetcdfFileWriter writer,
             AbstractSensorDataset sensorDataset) throws EncodingException;
 
+    /**
+     * Encode the sensor dataset to a netCDF file in a temporary directory.
+     *
+     * @param sensorDataset
+     *            the sensor dataset to encode
+     * @param version
+     *            the netCDF version
+     * @return the response, backed by the file if streaming is enabled
+     * @throws EncodingException
+     *             if the file could not be created
+     */
+    protected BinaryAttachmentResponse encodeSensorDataset(AbstractSensorDataset sensorDataset, Version version)
+            throws EncodingException {
+        return encodeSensorDatasets(Collections.singletonList(sensorDataset), version, false, null);
+    }
+
+    /**
+     * Encode the sensor datasets to netCDF files in a temporary directory that are returned as ZIP archive.
+     *
+     * @param sensorDatasets
+     *            the sensor datasets to encode
+     * @param version
+     *            the netCDF version
+     * @param filename
+     *            the file name of the ZIP archive
+     * @return the response, backed by the files if streaming is enabled
+     * @throws EncodingException
+     *             if the files could not be created
+     */
+    protected BinaryAttachmentResponse encodeSensorDatasetsAsZip(List<AbstractSensorDataset> sensorDatasets,
+            Version version, String filename) throws EncodingException {
+        return encodeSensorDatasets(sensorDatasets, version, true, filename);
+    }
+
+    private BinaryAttachmentResponse encodeSensorDatasets(List<AbstractSensorDataset> sensorDatasets,
+            Version version, boolean zip, String filename) throws EncodingException {
+        Path directory;
+        try {
+            directory = Files.createTempDirectory(TEMP_DIRECTORY_PREFIX);
+        } catch (IOException e) {
+            throw new EncodingException("Couldn't create temporary directory for netCDF files", e);
+        }
+        boolean streaming = false;
+        try {
+            List<Path> files = Lists.newArrayListWithCapacity(sensorDatasets.size());
+            for (AbstractSensorDataset sensorDataset : sensorDatasets) {
+                File netcdfFile = directory.resolve(getFilename(sensorDataset)).toFile();
+                encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
+                files.add(netcdfFile.toPath());
+            }
+            String attachmentFilename = zip || files.isEmpty() ? filename : files.get(0).getFileName().toString();
+            FileAttachmentResponse response =
+                    new FileAttachmentResponse(directory, files, zip, getContentType(), attachmentFilename);
+            if (getNetcdfHelper().isStreaming()) {
+                // the response writer deletes the directory after the transfer
+                streaming = true;
+                return response;
+            }
+            return new BinaryAttachmentResponse(response.readBytes(), getContentType(), attachmentFilename);
+        } catch (IOException e) {
+            throw new EncodingException("Couldn't create netCDF file", e);
+        } finally {
+            if (!streaming) {
+                FileAttachmentResponse.delete(directory);
+            }
+        }
+    }
+
     protected NetcdfFileWriter getNetcdfFileWriter(File netcdfFile) throws IOException {
         return getNetcdfFileWriter(netcdfFile, getNetcdfHelper().getNetcdfVersion());
     }
@@ -398,8 +472,6 @@ public abstract class AbstractNetcdfEncoder
         if (numTimes > 1 && writer.getVersion().isNetdf4format()) {
             vTime.addAttribute(new Attribute(CDM.CHUNK_SIZES, getNetcdfHelper().getChunkSizeTime()));
         }
-        ArrayDouble timeArray = new ArrayDouble(getDimShapes(timeDims));
-        initArrayWithFillValue(timeArray, getNetcdfHelper().getFillValue());
 
         Array latArray = getLatitudeArray(sensorDataset);
         Array lonArray = getLongitudeArray(sensorDataset);
@@ -447,16 +519,10 @@ public abstract class AbstractNetcdfEncoder
                                 vHeightDepth.getFullName()));
 
         Map<OmObservableProperty, Variable> obsPropVarMap = Maps.newHashMap();
-        Map<Variable, Array> varDataArrayMap = Maps.newHashMap();
         for (OmObservableProperty obsProp : sensorDataset.getPhenomena()) {
             // obs prop var
             Variable vObsProp = addVariableForObservedProperty(writer, obsProp, obsPropDims, coordinateString);
             obsPropVarMap.put(obsProp, vObsProp);
-
-            // init obs prop data array
-            Array obsPropArray = getArray(obsPropDims);
-            initArrayWithFillValue(obsPropArray, getNetcdfHelper().getFillValue());
-            varDataArrayMap.put(vObsProp, obsPropArray);
         }
 
         // populate heights array for profile
@@ -477,60 +543,7 @@ public abstract class AbstractNetcdfEncoder
 
         }
 
-        // iterate through sensorDataset, set values
-        int timeCounter = 0;
-        for (Time time : sensorDataset.getTimes()) {
-            // set time value
-            Index timeIndex = timeArray.getIndex();
-            int timeIndexCounter = 0;
-            // if (hasDimension(timeDims, dFeatureTypeInstance)) {
-            // timeIndex.setDim(timeIndexCounter++, 0);
-            // }
-            if (hasDimension(timeDims, dTime)) {
-                timeIndex.setDim(timeIndexCounter++, timeCounter++);
-            }
-            timeArray.set(timeIndex, getTimeValue(time));
-
-            // data values
-            Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap = sensorDataset.getDataValues().get(time);
-            for (Entry<OmObservableProperty, Map<SubSensor, Value<?>>> entry : obsPropMap.entrySet()) {
-                OmObservableProperty obsProp = entry.getKey();
-                Variable variable = obsPropVarMap.get(obsProp);
-                Array array = varDataArrayMap.get(variable);
-                for (Entry<SubSensor, Value<?>> subSensorEntry : obsPropMap.get(obsProp).entrySet()) {
-                    SubSensor subSensor = subSensorEntry.getKey();
-                    Value<?> value = subSensorEntry.getValue();
-                    Object valObj = value.getValue();
-                    if (!(valObj instanceof Number)) {
-                        throw new EncodingException("Value class %s not supported",
-                                valObj.getClass().getCanonicalName());
-                    }
-                    Index index = array.getIndex();
-                    int obsPropDimCounter = 0;
-                    for (Dimension dim : obsPropDims) {
-                        // if (dim.equals(dFeatureTypeInstance)){
-                        // feature type instance index
-                        // index.setDim(obsPropDimCounter++, 0);
-                        // } else if (dim.equals(dTime)){
-                        if (dim.equals(dTime)) {
-                            // time index dim
-                            index.setDim(obsPropDimCounter++, timeCounter - 1);
-                        } else if (dim.equals(dZ) && dim.getLength() > 1) {
-                            // height/depth index dim
-                            index.setDim(obsPropDimCounter++, sensorDataset.getSubSensors().indexOf(subSensor));
-                        }
-                    }
-                    if (array instanceof ArrayFloat) {
-                        ((ArrayFloat) array).set(index, ((Number) valObj).floatValue());
-                    } else {
-                        ((ArrayDouble) array).set(index, ((Number) valObj).doubleValue());
-                    }
-                }
-            }
-        }
-
         // create the empty netCDF with dims/vars/attributes defined
-        variableArrayMap.put(vTime, timeArray);
         if (latArray != null) {
             variableArrayMap.put(vLat, latArray);
         }
@@ -540,9 +553,9 @@ public abstract class AbstractNetcdfEncoder
         if (heightDephtArray != null) {
             variableArrayMap.put(vHeightDepth, heightDephtArray);
         }
-        variableArrayMap.putAll(varDataArrayMap);
-        // create the empty netCDF with dims/vars/attributes defined
         writeToFile(writer, variableArrayMap);
+        // iterate through sensorDataset, write time and values
+        writeTimeChunks(writer, sensorDataset, vTime, obsPropVarMap, obsPropDims, dTime, dZ);
         writer.close();
     }
 
@@ -849,6 +862,96 @@ public abstract class AbstractNetcdfEncoder
         }
     }
 
+    /**
+     * Write the time and observed property variables in chunks of {@link NetcdfHelper#getChunkSizeTime()} time
+     * steps, aligned with the {@link Nc4ForceTimeChunkingStategy}, so only the arrays of one chunk are held in
+     * memory. Without streaming, all time steps are written at once.
+     */
+    @VisibleForTesting
+    void writeTimeChunks(NetcdfFileWriter writer, AbstractSensorDataset sensorDataset, Variable vTime,
+            Map<OmObservableProperty, Variable> obsPropVarMap, List<Dimension> obsPropDims, Dimension dTime,
+            Dimension dZ) throws EncodingException, IOException {
+        List<Time> times = sensorDataset.getTimes();
+        int numTimes = times.size();
+        int chunkSize = getTimeChunkSize(numTimes);
+        try {
+            for (int chunkStart = 0; chunkStart < numTimes; chunkStart += chunkSize) {
+                int chunkLength = Math.min(chunkSize, numTimes - chunkStart);
+                ArrayDouble timeArray = new ArrayDouble.D1(chunkLength);
+                Map<Variable, Array> varDataArrayMap = Maps.newHashMap();
+                int[] obsPropShape = getDimShapes(obsPropDims);
+                obsPropShape[obsPropDims.indexOf(dTime)] = chunkLength;
+                for (Variable variable : obsPropVarMap.values()) {
+                    // init obs prop data array
+                    Array obsPropArray = getArray(obsPropShape);
+                    initArrayWithFillValue(obsPropArray, getNetcdfHelper().getFillValue());
+                    varDataArrayMap.put(variable, obsPropArray);
+                }
+                for (int timeCounter = 0; timeCounter < chunkLength; timeCounter++) {
+                    Time time = times.get(chunkStart + timeCounter);
+                    // set time value
+                    timeArray.set(timeCounter, getTimeValue(time));
+                    // data values
+                    Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap =
+                            sensorDataset.getDataValues().get(time);
+                    if (obsPropMap != null) {
+                        setDataValues(sensorDataset, obsPropMap, obsPropVarMap, varDataArrayMap, obsPropDims, dTime,
+                                dZ, timeCounter);
+                    }
+                }
+                writer.write(vTime, new int[] { chunkStart }, timeArray);
+                int[] origin = new int[obsPropDims.size()];
+                origin[obsPropDims.indexOf(dTime)] = chunkStart;
+                for (Entry<Variable, Array> varEntry : varDataArrayMap.entrySet()) {
+                    writer.write(varEntry.getKey(), origin, varEntry.getValue());
+                }
+            }
+        } catch (InvalidRangeException e) {
+            throw new EncodingException("Error writing netCDF variable data", e);
+        }
+    }
+
+    private void setDataValues(AbstractSensorDataset sensorDataset,
+            Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap,
+            Map<OmObservableProperty, Variable> obsPropVarMap, Map<Variable, Array> varDataArrayMap,
+            List<Dimension> obsPropDims, Dimension dTime, Dimension dZ, int timeIndex) throws EncodingException {
+        for (Entry<OmObservableProperty, Map<SubSensor, Value<?>>> entry : obsPropMap.entrySet()) {
+            Array array = varDataArrayMap.get(obsPropVarMap.get(entry.getKey()));
+            for (Entry<SubSensor, Value<?>> subSensorEntry : entry.getValue().entrySet()) {
+                SubSensor subSensor = subSensorEntry.getKey();
+                Object valObj = subSensorEntry.getValue().getValue();
+                if (!(valObj instanceof Number)) {
+                    throw new EncodingException("Value class %s not supported",
+                            valObj.getClass().getCanonicalName());
+                }
+                Index index = array.getIndex();
+                int obsPropDimCounter = 0;
+                for (Dimension dim : obsPropDims) {
+                    if (dim.equals(dTime)) {
+                        // time index dim
+                        index.setDim(obsPropDimCounter++, timeIndex);
+                    } else if (dim.equals(dZ) && dim.getLength() > 1) {
+                        // height/depth index dim
+                        index.setDim(obsPropDimCounter++, sensorDataset.getSubSensors().indexOf(subSensor));
+                    }
+                }
+                if (array instanceof ArrayFloat) {
+                    ((ArrayFloat) array).set(index, ((Number) valObj).floatValue());
+                } else {
+                    ((ArrayDouble) array).set(index, ((Number) valObj).doubleValue());
+                }
+            }
+        }
+    }
+
+    private int getTimeChunkSize(int numTimes) {
+        int chunkSize = getNetcdfHelper().getChunkSizeTime();
+        if (!getNetcdfHelper().isStreaming() || chunkSize <= 0 || chunkSize > numTimes) {
+            return Math.max(numTimes, 1);
+        }
+        return chunkSize;
+    }
+
     private double getGeospatialVerticalMin(AbstractSensorDataset dataset) {
         if (dataset.isSetSubSensors()) {
             SubSensor subSensor = dataset.getSubSensors().get(dataset.getSubSensors().size() - 1);
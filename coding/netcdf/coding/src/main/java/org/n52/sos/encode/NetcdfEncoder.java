@@ -28,15 +28,11 @@
  */
 package org.n52.sos.encode;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,7 +43,6 @@ import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.netcdf.NetcdfConstants;
-import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
 import org.n52.sos.netcdf.om.NetCDFObservation;
 import org.n52.svalbard.encode.EncoderKey;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
@@ -56,7 +51,6 @@ import org.n52.svalbard.encode.exception.EncodingException;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 import ucar.nc2.NetcdfFileWriter.Version;
 
@@ -136,19 +130,7 @@ public class NetcdfEncoder extends AbstractBasicNetcdfEncoder {
                     netCDFObservation.getSensorDatasets().size());
         }
 
-        AbstractSensorDataset sensorDataset = netCDFObservation.getSensorDatasets().get(0);
-        File tempDir = Files.createTempDir();
-        String filename = getFilename(sensorDataset);
-        File netcdfFile = new File(tempDir, filename);
-        try {
-            encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-            return new BinaryAttachmentResponse(Files.toByteArray(netcdfFile), getContentType(),
-                    String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
-        } catch (IOException e) {
-            throw new EncodingException("Couldn't create netCDF file", e);
-        } finally {
-            LOGGER.debug("Temporary file deleted: {}", tempDir.delete());
-        }
+        return encodeSensorDataset(netCDFObservation.getSensorDatasets().get(0), version);
     }
 
     private void throwTooManyFeatureTypesOrSensorsException(List<NetCDFObservation> netCDFObsList,
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.encode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.hamcrest.core.Is;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.NetcdfHelper;
+import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
+import org.n52.sos.netcdf.data.dataset.IdentifierDatasetSensor;
+import org.n52.sos.netcdf.data.dataset.TimeSeriesSensorDataset;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import com.google.common.collect.Maps;
+
+import ucar.ma2.DataType;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+public class AbstractNetcdfEncoderTest {
+
+    private static final double FILL_VALUE = -9999.0;
+
+    private static final int NUM_TIMES = 5;
+
+    private static final OmObservableProperty TEMPERATURE = new OmObservableProperty("temperature");
+
+    private static final OmObservableProperty SALINITY = new OmObservableProperty("salinity");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private NetcdfHelper netcdfHelper;
+
+    private NetcdfEncoder encoder;
+
+    private AbstractSensorDataset dataset;
+
+    @Before
+    public void setUp() {
+        netcdfHelper = new NetcdfHelper();
+        netcdfHelper.setFillValue(FILL_VALUE);
+        netcdfHelper.setVariableType(Double.class.getSimpleName());
+        encoder = new NetcdfEncoder();
+        encoder.setNetcdfHelper(netcdfHelper);
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> dataValues = Maps.newHashMap();
+        for (int i = 0; i < NUM_TIMES; i++) {
+            Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap = Maps.newHashMap();
+            obsPropMap.put(TEMPERATURE, Collections.singletonMap(null, new QuantityValue(10.0 + i)));
+            // salinity is only measured every second time step
+            if (i % 2 == 1) {
+                obsPropMap.put(SALINITY, Collections.singletonMap(null, new QuantityValue(30.0 + i)));
+            }
+            dataValues.put(getTime(i), obsPropMap);
+        }
+        dataset = new TimeSeriesSensorDataset(new IdentifierDatasetSensor("sensor"), 7.0, 52.0, 0.0, dataValues,
+                null);
+    }
+
+    @Test
+    public void shouldWriteAllTimesAtOnceWithoutStreaming() throws IOException, EncodingException {
+        netcdfHelper.setStreaming(false);
+        netcdfHelper.setChunkSizeTime(2);
+        assertContent(write());
+    }
+
+    @Test
+    public void shouldWriteTimeChunksWhenStreaming() throws IOException, EncodingException {
+        netcdfHelper.setStreaming(true);
+        // the last chunk is only partially filled
+        netcdfHelper.setChunkSizeTime(2);
+        assertContent(write());
+    }
+
+    @Test
+    public void shouldWriteSingleChunkIfChunkSizeExceedsTimes() throws IOException, EncodingException {
+        netcdfHelper.setStreaming(true);
+        netcdfHelper.setChunkSizeTime(NUM_TIMES + 1);
+        assertContent(write());
+    }
+
+    private File write() throws IOException, EncodingException {
+        File file = temporaryFolder.newFile("test.nc");
+        NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getAbsolutePath());
+        try {
+            Dimension dTime = writer.addUnlimitedDimension("time");
+            dTime.setLength(NUM_TIMES);
+            Dimension dZ = writer.addDimension(null, "height", 1);
+            List<Dimension> obsPropDims = Arrays.asList(dTime, dZ);
+            Variable vTime = writer.addVariable(null, "time", DataType.DOUBLE, Collections.singletonList(dTime));
+            Map<OmObservableProperty, Variable> obsPropVarMap = Maps.newHashMap();
+            obsPropVarMap.put(TEMPERATURE,
+                    writer.addVariable(null, TEMPERATURE.getIdentifier(), DataType.DOUBLE, obsPropDims));
+            obsPropVarMap.put(SALINITY,
+                    writer.addVariable(null, SALINITY.getIdentifier(), DataType.DOUBLE, obsPropDims));
+            writer.create();
+            encoder.writeTimeChunks(writer, dataset, vTime, obsPropVarMap, obsPropDims, dTime, dZ);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private void assertContent(File file) throws IOException {
+        try (NetcdfFile netcdfFile = NetcdfFile.open(file.getAbsolutePath())) {
+            double[] times = read(netcdfFile, "time");
+            double[] temperatures = read(netcdfFile, TEMPERATURE.getIdentifier());
+            double[] salinities = read(netcdfFile, SALINITY.getIdentifier());
+            MatcherAssert.assertThat(times.length, Is.is(NUM_TIMES));
+            for (int i = 0; i < NUM_TIMES; i++) {
+                MatcherAssert.assertThat(times[i],
+                        Matchers.closeTo(getTime(i).getValue().getMillis() / 1000.0, 0.001));
+                MatcherAssert.assertThat(temperatures[i], Is.is(10.0 + i));
+                MatcherAssert.assertThat(salinities[i], Is.is(i % 2 == 1 ? 30.0 + i : FILL_VALUE));
+            }
+        }
+    }
+
+    private static double[] read(NetcdfFile netcdfFile, String variable) throws IOException {
+        return (double[]) netcdfFile.findVariable(variable).read().copyTo1DJavaArray();
+    }
+
+    private static TimeInstant getTime(int minute) {
+        return new TimeInstant(new DateTime(2020, 1, 1, 0, minute, DateTimeZone.UTC));
+    }
+}
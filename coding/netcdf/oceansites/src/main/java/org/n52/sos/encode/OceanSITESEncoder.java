@@ -28,15 +28,12 @@
  */
 package org.n52.sos.encode;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,7 +43,6 @@ import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
 import org.n52.shetland.util.CollectionHelper;
-import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
 import org.n52.sos.netcdf.oceansites.OceanSITESConstants;
 import org.n52.sos.netcdf.om.NetCDFObservation;
 import org.n52.svalbard.encode.EncoderKey;
@@ -56,7 +52,6 @@ import org.n52.svalbard.encode.exception.EncodingException;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 import ucar.nc2.NetcdfFileWriter.Version;
 
@@ -140,21 +135,7 @@ public class OceanSITESEncoder extends AbstractOceanSITESEncoder {
                     netCDFObservation.getSensorDatasets().size());
         }
 
-        AbstractSensorDataset sensorDataset = netCDFObservation.getSensorDatasets().get(0);
-        File tempDir = Files.createTempDir();
-        String filename = getFilename(sensorDataset);
-        File netcdfFile = new File(tempDir, filename);
-        encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-
-        BinaryAttachmentResponse response = null;
-        try {
-            response = new BinaryAttachmentResponse(Files.toByteArray(netcdfFile), getContentType(),
-                    String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
-        } finally {
-            LOGGER.debug("Temporary file deleted: {}", tempDir.delete());
-        }
-
-        return response;
+        return encodeSensorDataset(netCDFObservation.getSensorDatasets().get(0), version);
     }
 
     private void throwTooManyFeatureTypesOrSensorsException(List<NetCDFObservation> netCDFObsList,
@@ -30,6 +30,8 @@ package org.n52.sos.convert;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -352,13 +354,22 @@ public abstract class AbstractIdentifierModifier implements RequestResponseModif
     }
 
     protected OwsServiceResponse changeAbstractObservationResponseIdentifier(AbstractObservationResponse response) {
+        // observations of a response may share features, procedures and
+        // phenomena, each of them has to be changed only once
+        Set<Object> changed = Collections.newSetFromMap(new IdentityHashMap<>());
         response.setObservationCollection(response.getObservationCollection().modify(omObservation -> {
             OmObservationConstellation observationConstellation = omObservation.getObservationConstellation();
-            checkAndChangeFeatureOfInterestIdentifier(observationConstellation.getFeatureOfInterest());
-            checkAndChangeObservablePropertyIdentifier(observationConstellation.getObservableProperty());
-            checkAndChangeProcedure(observationConstellation.getProcedure());
-            if (getActiveProfile().isEncodeProcedureInObservation()) {
+            if (changed.add(observationConstellation.getFeatureOfInterest())) {
+                checkAndChangeFeatureOfInterestIdentifier(observationConstellation.getFeatureOfInterest());
+            }
+            if (changed.add(observationConstellation.getObservableProperty())) {
+                checkAndChangeObservablePropertyIdentifier(observationConstellation.getObservableProperty());
+            }
+            if (changed.add(observationConstellation.getProcedure())) {
                 checkAndChangeProcedure(observationConstellation.getProcedure());
+                if (getActiveProfile().isEncodeProcedureInObservation()) {
+                    checkAndChangeProcedure(observationConstellation.getProcedure());
+                }
             }
         }));
         return response;
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.converter;
+
+import org.n52.janmayen.AbstractThrowingIterator;
+import org.n52.shetland.ogc.om.ObservationMergeIndicator;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.AbstractStreaming;
+
+/**
+ * {@link ObservationStream} that lazily merges adjacent observations. The
+ * values of observations with {@link AbstractStreaming} values are read
+ * on demand, and because they arrive ordered per dataset, an observation
+ * is merged into its predecessor if both can be merged according to the
+ * {@link ObservationMergeIndicator}. A merged observation is emitted as soon
+ * as a non mergeable observation follows or the block size is reached, so
+ * at most one merged block is kept in memory.
+ *
+ * @since 5.3.2
+ */
+public class MergingObservationStream extends AbstractThrowingIterator<OmObservation, OwsExceptionReport>
+        implements ObservationStream {
+
+    private final ObservationStream observations;
+
+    private final ObservationMergeIndicator indicator;
+
+    private final int blockSize;
+
+    private AbstractStreaming values;
+
+    private OmObservation pending;
+
+    private int observationIdCounter = 1;
+
+    /**
+     * @param observations
+     *            the observations to merge
+     * @param indicator
+     *            the indicator which observations can be merged
+     * @param blockSize
+     *            the maximum number of observations merged into one block or
+     *            {@code 0} to merge all adjacent observations
+     */
+    public MergingObservationStream(ObservationStream observations, ObservationMergeIndicator indicator,
+            int blockSize) {
+        this.observations = observations;
+        this.indicator = indicator;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    protected OmObservation computeNext() throws OwsExceptionReport {
+        OmObservation merged = this.pending != null ? this.pending : nextObservation();
+        this.pending = null;
+        if (merged == null) {
+            return endOfData();
+        }
+        if (!merged.isSetGmlID()) {
+            merged.setObservationID(Integer.toString(this.observationIdCounter++));
+        }
+        int count = 1;
+        while (this.blockSize <= 0 || count < this.blockSize) {
+            OmObservation observation = nextObservation();
+            if (observation == null) {
+                break;
+            }
+            if (merged.checkForMerge(observation, this.indicator)) {
+                merged.mergeWithObservation(observation);
+                count++;
+            } else {
+                this.pending = observation;
+                break;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Get the next observation while expanding {@link AbstractStreaming}
+     * values.
+     *
+     * @return the next observation or {@code null} if there are no more
+     *         observations
+     * @throws OwsExceptionReport
+     *             if the observations can not be read
+     */
+    private OmObservation nextObservation() throws OwsExceptionReport {
+        while (true) {
+            if (this.values != null) {
+                if (this.values.hasNext()) {
+                    return this.values.next();
+                }
+                this.values = null;
+            }
+            if (this.observations == null || !this.observations.hasNext()) {
+                return null;
+            }
+            OmObservation observation = this.observations.next();
+            if (observation.getValue() instanceof AbstractStreaming) {
+                this.values = (AbstractStreaming) observation.getValue();
+            } else {
+                return observation;
+            }
+        }
+    }
+}
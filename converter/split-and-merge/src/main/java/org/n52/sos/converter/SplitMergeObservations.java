@@ -32,7 +32,6 @@ import static java.util.stream.Collectors.toSet;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -50,7 +49,6 @@ import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.om.AbstractPhenomenon;
 import org.n52.shetland.ogc.om.ObservationMergeIndicator;
-import org.n52.shetland.ogc.om.ObservationStream;
 import org.n52.shetland.ogc.om.ObservationValue;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservation;
@@ -73,7 +71,6 @@ import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
 import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
 import org.n52.shetland.ogc.sos.response.AbstractObservationResponse;
-import org.n52.shetland.ogc.sos.response.AbstractStreaming;
 import org.n52.shetland.ogc.sos.response.GetObservationResponse;
 import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
 import org.n52.shetland.ogc.swe.SweDataRecord;
@@ -120,6 +117,8 @@ public class SplitMergeObservations
 
     private boolean checkForDuplicity;
 
+    private int mergeBlockSize;
+
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
         this.encoderRepository = encoderRepository;
@@ -130,6 +129,11 @@ public class SplitMergeObservations
         this.includeResultTimeForMerging = includeResultTimeForMerging;
     }
 
+    @Setting(SosSettings.MERGE_BLOCK_SIZE)
+    public void setMergeBlockSize(Integer mergeBlockSize) {
+        this.mergeBlockSize = mergeBlockSize != null && mergeBlockSize > 0 ? mergeBlockSize : 0;
+    }
+
     @Setting(SosSettings.CHECK_FOR_DUPLICITY)
     public void setCheckForDuplicity(boolean checkForDuplicity) {
         this.checkForDuplicity = checkForDuplicity;
@@ -350,20 +354,9 @@ public class SplitMergeObservations
         ObservationMergeIndicator indicator =
                 ObservationMergeIndicator.sameObservationConstellation().setResultTime(includeResultTimeForMerging);
         if (checkForMergeObservationsInResponse || checkEncoderForMergeObservations) {
-            ObservationStream observationStream = response.getObservationCollection().merge(indicator);
-            List<OmObservation> processed = new LinkedList<>();
-            while (observationStream.hasNext()) {
-                OmObservation observation = observationStream.next();
-                if (observation.getValue() instanceof AbstractStreaming) {
-                    ObservationStream valueStream = ((AbstractStreaming) observation.getValue()).merge(indicator);
-                    while (valueStream.hasNext()) {
-                        processed.add(valueStream.next());
-                    }
-                } else {
-                    processed.add(observation);
-                }
-            }
-            response.setObservationCollection(ObservationStream.of(processed));
+            // the values of streaming observations are merged lazily while the response is encoded
+            response.setObservationCollection(new MergingObservationStream(
+                    response.getObservationCollection().merge(indicator), indicator, mergeBlockSize));
         }
         return response;
     }
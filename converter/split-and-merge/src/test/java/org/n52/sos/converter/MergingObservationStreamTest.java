@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.converter;
+
+import java.util.List;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.ObservationMergeIndicator;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+
+import com.google.common.collect.Lists;
+
+/**
+ * @since 5.3.2
+ */
+public class MergingObservationStreamTest {
+
+    private static final ObservationMergeIndicator INDICATOR =
+            ObservationMergeIndicator.sameObservationConstellation();
+
+    @Test
+    public void shouldMergeAdjacentObservationsOfSameConstellation() throws OwsExceptionReport {
+        OmObservationConstellation a = constellation("a");
+        OmObservationConstellation b = constellation("b");
+        List<OmObservation> merged = toList(new MergingObservationStream(
+                ObservationStream.of(Lists.newArrayList(observation(a, 1), observation(a, 2), observation(a, 3),
+                        observation(b, 4), observation(b, 5))),
+                INDICATOR, 0));
+        MatcherAssert.assertThat(merged.size(), Is.is(2));
+        MatcherAssert.assertThat(merged.get(0).getObservationConstellation(), Is.is(a));
+        MatcherAssert.assertThat(merged.get(1).getObservationConstellation(), Is.is(b));
+    }
+
+    @Test
+    public void shouldNotMergeObservationsOfDifferentConstellations() throws OwsExceptionReport {
+        List<OmObservation> merged = toList(new MergingObservationStream(
+                ObservationStream.of(Lists.newArrayList(observation(constellation("a"), 1),
+                        observation(constellation("b"), 2), observation(constellation("c"), 3))),
+                INDICATOR, 0));
+        MatcherAssert.assertThat(merged.size(), Is.is(3));
+        MatcherAssert.assertThat(merged.get(0).isSetGmlID(), Is.is(true));
+    }
+
+    @Test
+    public void shouldLimitMergedBlocksToBlockSize() throws OwsExceptionReport {
+        OmObservationConstellation a = constellation("a");
+        List<OmObservation> merged = toList(new MergingObservationStream(
+                ObservationStream.of(Lists.newArrayList(observation(a, 1), observation(a, 2), observation(a, 3))),
+                INDICATOR, 1));
+        MatcherAssert.assertThat(merged.size(), Is.is(3));
+    }
+
+    private static List<OmObservation> toList(ObservationStream stream) throws OwsExceptionReport {
+        List<OmObservation> list = Lists.newArrayList();
+        while (stream.hasNext()) {
+            list.add(stream.next());
+        }
+        return list;
+    }
+
+    private static OmObservationConstellation constellation(String procedure) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SosProcedureDescriptionUnknownType(procedure));
+        constellation.setObservableProperty(new OmObservableProperty("property"));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority("feature")));
+        constellation.setObservationType(OmConstants.OBS_TYPE_MEASUREMENT);
+        return constellation;
+    }
+
+    private static OmObservation observation(OmObservationConstellation constellation, int value) {
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        QuantityValue quantity = new QuantityValue((double) value);
+        quantity.setUnit("unit");
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(new DateTime(value * 1000L)), quantity));
+        return observation;
+    }
+}
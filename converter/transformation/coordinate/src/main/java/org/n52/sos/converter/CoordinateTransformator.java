@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.inject.Inject;
@@ -939,8 +940,11 @@ public class CoordinateTransformator implements RequestResponseModifier, Constru
 
     private void checkMultiPointCoverageForGeometry(MultiPointCoverage value, int targetCRS)
             throws OwsExceptionReport {
+        List<Geometry> points = getGeomtryHandler().transform(
+                value.getValue().stream().map(PointValuePair::getPoint).collect(Collectors.toList()), targetCRS);
+        int i = 0;
         for (PointValuePair pvp : value.getValue()) {
-            pvp.setPoint((Point) getGeomtryHandler().transform(pvp.getPoint(), targetCRS));
+            pvp.setPoint((Point) points.get(i++));
         }
     }
 
@@ -950,8 +954,11 @@ public class CoordinateTransformator implements RequestResponseModifier, Constru
     }
 
     private void checkTLVTValueForGeometry(TLVTValue value, int targetCRS) throws OwsExceptionReport {
+        List<Geometry> locations = getGeomtryHandler().transform(value.getValue().stream()
+                .map(TimeLocationValueTriple::getLocation).collect(Collectors.toList()), targetCRS);
+        int i = 0;
         for (TimeLocationValueTriple tlvt : value.getValue()) {
-            tlvt.setLocation(getGeomtryHandler().transform(tlvt.getLocation(), targetCRS));
+            tlvt.setLocation(locations.get(i++));
         }
     }
 
@@ -28,6 +28,7 @@
  */
 package org.n52.sos.coding.encode;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Collections;
@@ -42,6 +43,7 @@ import org.n52.janmayen.http.MediaType;
 import org.n52.shetland.ogc.ows.service.OwsOperationKey;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.ows.service.ResponseFormat;
+import org.n52.sos.metrics.MetricsRegistry;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
@@ -60,12 +62,18 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
     private static final ResponseWriterKey KEY
             = new ResponseWriterKey(OwsServiceResponse.class);
 
+    private static final String PHASE_ENCODE = "encode";
+
     private final ResponseWriterRepository responseWriterRepository;
 
+    private final MetricsRegistry metricsRegistry;
+
     public AbstractServiceResponseWriter(EncoderRepository encoderRepository,
-                                         ResponseWriterRepository responseWriterRepository) {
+                                         ResponseWriterRepository responseWriterRepository,
+                                         MetricsRegistry metricsRegistry) {
         super(encoderRepository);
         this.responseWriterRepository = responseWriterRepository;
+        this.metricsRegistry = metricsRegistry != null ? metricsRegistry : MetricsRegistry.disabled();
     }
 
 
@@ -76,6 +84,20 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
     @Override
     public void write(OwsServiceResponse asr, OutputStream out, ResponseProxy responseProxy)
             throws IOException, EncodingException {
+        long start = metricsRegistry.start();
+        try {
+            encode(asr, out, responseProxy);
+        } finally {
+            metricsRegistry.recordSince(start, MetricsRegistry.PHASE_DURATION,
+                    MetricsRegistry.LABEL_SERVICE, asr.getService(),
+                    MetricsRegistry.LABEL_VERSION, asr.getVersion(),
+                    MetricsRegistry.LABEL_OPERATION, asr.getOperationName(),
+                    MetricsRegistry.LABEL_PHASE, PHASE_ENCODE);
+        }
+    }
+
+    private void encode(OwsServiceResponse asr, OutputStream out, ResponseProxy responseProxy)
+            throws IOException, EncodingException {
         Encoder<Object, OwsServiceResponse> encoder = getEncoder(asr);
         if (encoder != null) {
             if (encoder instanceof StreamingEncoder) {
@@ -84,11 +106,19 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
                 // use encoded Object specific writer, e.g. XmlResponseWriter
                 Object encode = encoder.encode(asr);
                 if (encode != null) {
-                    ResponseWriter<Object> writer = this.responseWriterRepository.getWriter(encode.getClass());
-                    if (writer == null) {
-                        throw new RuntimeException("no writer for " + encode.getClass() + " found!");
+                    try {
+                        ResponseWriter<Object> writer =
+                                this.responseWriterRepository.getWriter(encode.getClass());
+                        if (writer == null) {
+                            throw new RuntimeException("no writer for " + encode.getClass() + " found!");
+                        }
+                        writer.write(encode, out, responseProxy);
+                    } finally {
+                        // release resources, e.g. temporary files, even if the response was not written
+                        if (encode instanceof Closeable) {
+                            ((Closeable) encode).close();
+                        }
                     }
-                    writer.write(encode, out, responseProxy);
                 }
             }
         }
@@ -36,6 +36,7 @@ import org.n52.iceland.coding.encode.ResponseWriterKey;
 import org.n52.iceland.coding.encode.ResponseWriterRepository;
 import org.n52.janmayen.component.SingleTypeComponentFactory;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.sos.metrics.MetricsRegistry;
 import org.n52.svalbard.encode.EncoderRepository;
 
 /**
@@ -56,6 +57,7 @@ public class AbstractServiceResponseWriterFactory
 
     private ResponseWriterRepository responseWriterRepository;
     private EncoderRepository encoderRepository;
+    private MetricsRegistry metricsRegistry;
 
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
@@ -68,6 +70,11 @@ public class AbstractServiceResponseWriterFactory
         this.responseWriterRepository = responseWriterRepository;
     }
 
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
     @Override
     public ResponseWriterKey getKey() {
         return RESPONSE_WRITER_KEY;
@@ -76,6 +83,7 @@ public class AbstractServiceResponseWriterFactory
     @Override
     public AbstractServiceResponseWriter create() {
         return new AbstractServiceResponseWriter(this.encoderRepository,
-                                                 this.responseWriterRepository);
+                                                 this.responseWriterRepository,
+                                                 this.metricsRegistry);
     }
 }
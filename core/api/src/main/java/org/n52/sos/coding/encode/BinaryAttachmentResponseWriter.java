@@ -30,7 +30,6 @@ package org.n52.sos.coding.encode;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Collections;
 import java.util.Set;
 import java.util.zip.GZIPOutputStream;
 
@@ -41,6 +40,7 @@ import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
 import org.n52.svalbard.encode.EncoderRepository;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * Writer for ServiceResponse (containing ByteArrayOutputStream)
@@ -52,13 +52,15 @@ import com.google.common.base.Strings;
 public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<BinaryAttachmentResponse> {
     public static final ResponseWriterKey KEY = new ResponseWriterKey(BinaryAttachmentResponse.class);
 
+    public static final ResponseWriterKey FILE_KEY = new ResponseWriterKey(FileAttachmentResponse.class);
+
     public BinaryAttachmentResponseWriter(EncoderRepository encoderRepository) {
         super(encoderRepository);
     }
 
     @Override
     public Set<ResponseWriterKey> getKeys() {
-        return Collections.singleton(KEY);
+        return ImmutableSet.of(KEY, FILE_KEY);
     }
 
     @Override
@@ -69,12 +71,36 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
             return;
         }
 
+        if (response instanceof FileAttachmentResponse) {
+            try (FileAttachmentResponse fileResponse = (FileAttachmentResponse) response) {
+                long length = fileResponse.getContentLength();
+                if (!(out instanceof GZIPOutputStream)) {
+                    if (length >= 0 && length <= Integer.MAX_VALUE) {
+                        responseProxy.setContentLength((int) length);
+                    } else if (length > Integer.MAX_VALUE) {
+                        responseProxy.addHeader(HeaderCode.CONTENT_LENGTH, Long.toString(length));
+                    }
+                }
+                addHeaders(response, responseProxy);
+                fileResponse.writeTo(out);
+            }
+            return;
+        }
+
         byte[] bytes = response.getBytes();
 
         if (!(out instanceof GZIPOutputStream)) {
             responseProxy.setContentLength(bytes.length);
         }
 
+        addHeaders(response, responseProxy);
+
+        //write output now that headers and content length are in place
+        out.write(bytes);
+
+    }
+
+    private void addHeaders(BinaryAttachmentResponse response, ResponseProxy responseProxy) {
         //binary
         responseProxy.addHeader(HeaderCode.CONTENT_TRANSFER_ENCODING,
                                 HeaderCode.CONTENT_TRANSFER_ENCODING_BINARY);
@@ -86,10 +112,6 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
             String value = String.format(HeaderCode.CONTENT_ATTACHMENT_FILENAME_FORMAT, fileName);
             responseProxy.addHeader(HeaderCode.CONTENT_DISPOSITION, value);
         }
-
-        //write output now that headers and content length are in place
-        out.write(bytes);
-
     }
 
     @Override
@@ -98,6 +120,7 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
     }
 
     public interface HeaderCode {
+        String CONTENT_LENGTH = "Content-Length";
         String CONTENT_TRANSFER_ENCODING = "Content-Transfer-Encoding";
         String CONTENT_TRANSFER_ENCODING_BINARY = "binary";
         String CONTENT_DISPOSITION = "Content-Disposition";
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * {@link BinaryAttachmentResponse} that is backed by files in a temporary directory instead of a byte array. The
+ * {@link BinaryAttachmentResponseWriter} transfers the files directly to the response stream, either as they are or
+ * as entries of a ZIP archive, and deletes the directory afterwards. Whoever obtains an instance that is not passed
+ * to the writer has to {@link #close()} it.
+ *
+ * @since 5.3.2
+ */
+public class FileAttachmentResponse extends BinaryAttachmentResponse implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileAttachmentResponse.class);
+
+    private final Path directory;
+
+    private final List<Path> files;
+
+    private final boolean zip;
+
+    /**
+     * @param directory
+     *            the temporary directory containing the files, deleted on {@link #close()}
+     * @param files
+     *            the files to write
+     * @param zip
+     *            if the files should be written as ZIP archive
+     * @param contentType
+     *            the content type
+     * @param filename
+     *            the attachment file name
+     */
+    public FileAttachmentResponse(Path directory, List<Path> files, boolean zip, MediaType contentType,
+            String filename) {
+        // the content is read from the files by getBytes(), the array of the super class is not used
+        super(new byte[0], contentType, filename);
+        this.directory = directory;
+        this.files = files == null ? Collections.emptyList() : ImmutableList.copyOf(files);
+        this.zip = zip;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    public boolean isZip() {
+        return zip;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo(OutputStream)} will write or {@code -1} if it is not known in
+     *         advance, e.g. for ZIP archives
+     *
+     * @throws IOException
+     *             if the file sizes can not be read
+     */
+    public long getContentLength() throws IOException {
+        if (isZip()) {
+            return -1;
+        }
+        long length = 0;
+        for (Path file : files) {
+            length += Files.size(file);
+        }
+        return length;
+    }
+
+    /**
+     * Write the content of the files to the stream. Plain files are transferred through a {@link FileChannel}, ZIP
+     * entries are deflated on the fly, so the content is never held in memory as a whole.
+     *
+     * @param out
+     *            the stream to write to
+     *
+     * @throws IOException
+     *             if the files can not be read or the stream can not be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (isZip()) {
+            ZipOutputStream zipOut = new ZipOutputStream(out);
+            for (Path file : files) {
+                zipOut.putNextEntry(new ZipEntry(file.getFileName().toString()));
+                Files.copy(file, zipOut);
+                zipOut.closeEntry();
+            }
+            // do not close the underlying response stream
+            zipOut.finish();
+        } else {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = channel.size();
+                    while (position < size) {
+                        position += channel.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the whole content into memory. Only intended for consumers that can not handle streamed responses.
+     *
+     * @return the content as it would be written by {@link #writeTo(OutputStream)}
+     *
+     * @throws IOException
+     *             if the files can not be read
+     */
+    public byte[] readBytes() throws IOException {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            writeTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Reads the whole content into memory like {@link #readBytes()}, so consumers of
+     * {@link BinaryAttachmentResponse} get the content as well. Prefer {@link #writeTo(OutputStream)}.
+     *
+     * @return the content as it would be written by {@link #writeTo(OutputStream)}
+     *
+     * @throws UncheckedIOException
+     *             if the files can not be read
+     */
+    @Override
+    public byte[] getBytes() {
+        try {
+            return readBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the temporary directory and all files in it.
+     */
+    @Override
+    public void close() {
+        delete(directory);
+    }
+
+    /**
+     * Deletes the directory and all files in it. Failures are only logged.
+     *
+     * @param directory
+     *            the directory to delete, may be {@code null}
+     */
+    public static void delete(Path directory) {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete temporary file {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete temporary directory {}", directory, e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
+
+/**
+ * {@link GetResultResponse} whose result values are written by the {@link StreamingGetResultResponseWriter} while
+ * the observations are read instead of being collected in a String first. Consumers that call
+ * {@link #getResultValues()} before the response is written, e.g. converters or encoders for other formats, get the
+ * result values materialized once. Whoever obtains an instance that is not passed to the writer has to
+ * {@link #close()} it.
+ *
+ * @since 5.3.2
+ */
+public class StreamingGetResultResponse extends GetResultResponse implements Closeable {
+
+    private ResultValues resultValues;
+
+    /**
+     * @param resultValues
+     *            the source of the result values, closed after they are written
+     */
+    public StreamingGetResultResponse(ResultValues resultValues) {
+        this.resultValues = resultValues;
+    }
+
+    /**
+     * @return if the result values are not yet written or materialized
+     */
+    public boolean isStreaming() {
+        return resultValues != null;
+    }
+
+    /**
+     * Write the result values and release the resources of the source.
+     *
+     * @param out
+     *            the writer to write to
+     *
+     * @throws IOException
+     *             if the writer can not be written
+     * @throws OwsExceptionReport
+     *             if the result values can not be created
+     */
+    public void writeResultValues(Writer out) throws IOException, OwsExceptionReport {
+        if (!isStreaming()) {
+            String values = super.getResultValues();
+            if (values != null) {
+                out.write(values);
+            }
+            return;
+        }
+        try (ResultValues values = this.resultValues) {
+            this.resultValues = null;
+            values.write(out);
+        }
+    }
+
+    /**
+     * Materializes the result values if they were not written yet.
+     */
+    @Override
+    public String getResultValues() {
+        if (isStreaming()) {
+            StringWriter writer = new StringWriter();
+            try {
+                writeResultValues(writer);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            } catch (OwsExceptionReport owse) {
+                throw new IllegalStateException("Error while creating the result values", owse);
+            }
+            setResultValues(writer.toString());
+        }
+        return super.getResultValues();
+    }
+
+    /**
+     * Releases the resources of the result values if they were not written.
+     *
+     * @throws IOException
+     *             if the resources can not be released
+     */
+    @Override
+    public void close() throws IOException {
+        if (isStreaming()) {
+            try (ResultValues values = this.resultValues) {
+                this.resultValues = null;
+            }
+        }
+    }
+
+    /**
+     * Source of the result values, e.g. a database cursor.
+     */
+    public interface ResultValues extends Closeable {
+
+        /**
+         * Write the element count followed by the blocks.
+         *
+         * @param out
+         *            the writer to write to
+         *
+         * @throws IOException
+         *             if the writer can not be written
+         * @throws OwsExceptionReport
+         *             if the result values can not be created
+         */
+        void write(Writer out) throws IOException, OwsExceptionReport;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+
+import org.n52.iceland.coding.encode.AbstractResponseWriter;
+import org.n52.iceland.coding.encode.ResponseProxy;
+import org.n52.iceland.coding.encode.ResponseWriter;
+import org.n52.iceland.coding.encode.ResponseWriterKey;
+import org.n52.iceland.coding.encode.ResponseWriterRepository;
+import org.n52.janmayen.http.MediaType;
+import org.n52.janmayen.http.MediaTypes;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.w3c.W3CConstants;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import com.google.common.escape.Escaper;
+import com.google.common.xml.XmlEscapers;
+
+/**
+ * Writer for {@link StreamingGetResultResponse}. XML responses are written directly to the response stream while the
+ * observations are read, other formats and already materialized result values are passed to the
+ * {@link AbstractServiceResponseWriter}.
+ *
+ * @since 5.3.2
+ */
+public class StreamingGetResultResponseWriter extends AbstractResponseWriter<StreamingGetResultResponse> {
+    public static final ResponseWriterKey KEY = new ResponseWriterKey(StreamingGetResultResponse.class);
+
+    private static final String START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<sos:GetResultResponse xmlns:sos=\"" + Sos2Constants.NS_SOS_20 + "\" xmlns:xsi=\""
+            + W3CConstants.NS_XSI + "\" xsi:schemaLocation=\"" + Sos2Constants.NS_SOS_20 + " "
+            + Sos2Constants.SCHEMA_LOCATION_URL_SOS + "\"><sos:resultValues>";
+
+    private static final String END = "</sos:resultValues></sos:GetResultResponse>";
+
+    private final ResponseWriterRepository responseWriterRepository;
+
+    public StreamingGetResultResponseWriter(EncoderRepository encoderRepository,
+            ResponseWriterRepository responseWriterRepository) {
+        super(encoderRepository);
+        this.responseWriterRepository = responseWriterRepository;
+    }
+
+    @Override
+    public Set<ResponseWriterKey> getKeys() {
+        return Collections.singleton(KEY);
+    }
+
+    @Override
+    public void write(StreamingGetResultResponse response, OutputStream out, ResponseProxy responseProxy)
+            throws IOException, EncodingException {
+        if (response == null) {
+            return;
+        }
+        try (StreamingGetResultResponse streamingResponse = response) {
+            if (streamingResponse.isStreaming() && isXml(getContentType())) {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                writer.write(START);
+                streamingResponse.writeResultValues(new XmlContentWriter(writer));
+                writer.write(END);
+                // do not close the underlying response stream
+                writer.flush();
+            } else {
+                ResponseWriter<OwsServiceResponse> writer =
+                        this.responseWriterRepository.getWriter(OwsServiceResponse.class);
+                writer.setContentType(getContentType());
+                writer.write(streamingResponse, out, responseProxy);
+            }
+        } catch (OwsExceptionReport owse) {
+            throw new EncodingException("Error while writing the result values", owse);
+        }
+    }
+
+    @Override
+    public boolean supportsGZip(StreamingGetResultResponse response) {
+        return true;
+    }
+
+    private boolean isXml(MediaType contentType) {
+        return contentType != null
+                && (MediaTypes.APPLICATION_XML.isCompatible(contentType)
+                        || MediaTypes.TEXT_XML.isCompatible(contentType));
+    }
+
+    /**
+     * Escapes the characters written as XML element content.
+     */
+    private static class XmlContentWriter extends FilterWriter {
+        private static final Escaper ESCAPER = XmlEscapers.xmlContentEscaper();
+
+        XmlContentWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            write(String.valueOf((char) c));
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            write(new String(cbuf, off, len));
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(ESCAPER.escape(str.substring(off, off + len)));
+        }
+    }
+}
@@ -28,6 +28,8 @@
  */
 package org.n52.sos.ds;
 
+import java.util.Optional;
+
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 
 /**
@@ -39,4 +41,14 @@ public interface AbstractDeleteDeletedDataHandler {
 
     void deleteDeletedData() throws OwsExceptionReport;
 
+    /**
+     * Get the progress of the last or currently running deletion, if the
+     * implementation deletes the data in the background.
+     *
+     * @return the progress or empty if no deletion was started
+     */
+    default Optional<DeleteDeletedDataProgress> getProgress() {
+        return Optional.empty();
+    }
+
 }
@@ -85,6 +85,31 @@ public abstract class AbstractGetCapabilitiesHandler extends AbstractSosOperatio
      */
     public abstract GetCapabilitiesResponse getCapabilities(GetCapabilitiesRequest request) throws OwsExceptionReport;
 
+    /**
+     * Check if the capabilities for the request are created from the capabilities cache and the service
+     * configuration and not from a static capabilities document.
+     *
+     * @param request
+     *                GetCapabilities request
+     *
+     * @return <code>true</code>, if dynamic capabilities are created for the request
+     */
+    public boolean isDynamicCapabilitiesRequest(GetCapabilitiesRequest request) {
+        return true;
+    }
+
+    /**
+     * Check if the transactional operations should be listed in the capabilities for the request.
+     *
+     * @param request
+     *                GetCapabilities request
+     *
+     * @return <code>true</code>, if the transactional operations are listed
+     */
+    public boolean isShowTransactionalOperations(GetCapabilitiesRequest request) {
+        return true;
+    }
+
     @Override
     protected Set<OwsDomain> getOperationParameters(String service, String version) throws OwsExceptionReport {
         return Stream.of(getSectionsParameter(service, version),
@@ -30,7 +30,6 @@ package org.n52.sos.ds;
 
 import javax.inject.Inject;
 
-import org.apache.xmlbeans.XmlObject;
 import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -40,12 +39,7 @@ import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
 import org.n52.shetland.ogc.swe.SweDataArray;
 import org.n52.shetland.ogc.swe.SweDataRecord;
 import org.n52.shetland.ogc.swe.encoding.SweAbstractEncoding;
-import org.n52.svalbard.decode.Decoder;
-import org.n52.svalbard.decode.DecoderKey;
 import org.n52.svalbard.decode.DecoderRepository;
-import org.n52.svalbard.decode.exception.DecodingException;
-import org.n52.svalbard.util.CodingHelper;
-import org.n52.svalbard.util.XmlHelper;
 
 /**
  * Abstract class for Result Handling operation Handlers to provide common
@@ -61,6 +55,8 @@ public abstract class AbstractResultHandlingHandler extends AbstractSosOperation
 
     private DecoderRepository decodingRepository;
 
+    private ResultTemplateRegistry resultTemplateRegistry;
+
     public AbstractResultHandlingHandler(String service, String operationName) {
         super(service, operationName);
     }
@@ -70,6 +66,11 @@ public abstract class AbstractResultHandlingHandler extends AbstractSosOperation
         this.decodingRepository = decodingRepository;
     }
 
+    @Inject
+    public void setResultTemplateRegistry(ResultTemplateRegistry resultTemplateRegistry) {
+        this.resultTemplateRegistry = resultTemplateRegistry;
+    }
+
     /**
      * Get internal SweDataRecord from internal ResultStructure
      *
@@ -110,19 +111,25 @@ public abstract class AbstractResultHandlingHandler extends AbstractSosOperation
     }
 
     protected Object decode(String xml) throws CodedException {
-        try {
-            XmlObject xmlObject = XmlHelper.parseXmlString(xml);
-            DecoderKey decoderKey = CodingHelper.getDecoderKey(xmlObject);
-            Decoder<Object, Object> decoder = decodingRepository.getDecoder(decoderKey);
-            if (decoder != null) {
-                return decoder.decode(xmlObject);
-            } else {
-                throw new NoApplicableCodeException().withMessage("No decoder found for %s",
-                        xmlObject.getClass().getName());
-            }
-        } catch (DecodingException de) {
-            throw new NoApplicableCodeException().causedBy(de);
-        }
+        return ResultTemplateRegistry.decode(xml, decodingRepository);
+    }
+
+    /**
+     * Get the decoded result template from the {@link ResultTemplateRegistry}
+     *
+     * @param identifier
+     *            Result template identifier
+     * @param resultStructure
+     *            ResultStructure XML
+     * @param resultEncoding
+     *            ResultEncoding XML
+     * @return the decoded result template
+     * @throws CodedException
+     *             If the template can not be decoded
+     */
+    protected ResultTemplateRegistry.Template getResultTemplate(String identifier, String resultStructure,
+            String resultEncoding) throws CodedException {
+        return resultTemplateRegistry.get(identifier, resultStructure, resultEncoding, decodingRepository);
     }
 
 }
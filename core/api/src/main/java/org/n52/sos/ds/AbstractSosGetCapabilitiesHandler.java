@@ -196,7 +196,7 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
         String capabilitiesId = request.getCapabilitiesId();
         String service = request.getService();
         String version = negotiateVersion(request);
-        boolean showTransactionalOperations = checkForTransactionalOperations(request);
+        boolean showTransactionalOperations = isShowTransactionalOperations(request);
 
         GetCapabilitiesResponse response = new GetCapabilitiesResponse(service, version);
 
@@ -450,7 +450,17 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
         return new OwsOperationsMetadata(operations, parameters, constraints, owsExtendedCapabilities);
     }
 
-    private boolean checkForTransactionalOperations(GetCapabilitiesRequest request) {
+    @Override
+    public boolean isDynamicCapabilitiesRequest(GetCapabilitiesRequest request) {
+        String capabilitiesId = request.getCapabilitiesId();
+        if (capabilitiesId == null) {
+            return !this.capabilitiesExtensionService.isStaticCapabilitiesActive();
+        }
+        return capabilitiesId.equals(GetCapabilitiesParams.DYNAMIC_CAPABILITIES_IDENTIFIER);
+    }
+
+    @Override
+    public boolean isShowTransactionalOperations(GetCapabilitiesRequest request) {
         return isSetTransactionalSecurityConfiguration()
                 ? new TransactionalRequestChecker(getTransactionalSecurityConfiguration())
                         .checkBoolean(request.getRequestContext())
@@ -28,11 +28,23 @@
  */
 package org.n52.sos.ds;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.exception.ows.concrete.InvalidAcceptVersionsParameterException;
 import org.n52.iceland.exception.ows.concrete.InvalidServiceOrVersionException;
 import org.n52.iceland.exception.ows.concrete.InvalidServiceParameterException;
@@ -40,17 +52,29 @@ import org.n52.iceland.exception.ows.concrete.VersionNotSupportedException;
 import org.n52.iceland.service.operator.ServiceOperator;
 import org.n52.iceland.service.operator.ServiceOperatorRepository;
 import org.n52.janmayen.Comparables;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.MissingServiceParameterException;
 import org.n52.shetland.ogc.ows.exception.MissingVersionParameterException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
 import org.n52.shetland.ogc.ows.service.OwsServiceKey;
 import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.sos.BatchConstants;
+import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityConstants;
 import org.n52.shetland.ogc.sos.request.BatchRequest;
 import org.n52.shetland.ogc.sos.response.BatchResponse;
+import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * TODO JavaDoc
@@ -61,10 +85,28 @@ import org.n52.shetland.ogc.sos.response.BatchResponse;
  *
  * @since 5.0.0
  */
-public class BatchOperationHandler extends AbstractSosOperationHandler {
+@Configurable
+public class BatchOperationHandler extends AbstractSosOperationHandler implements Destroyable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchOperationHandler.class);
+
+    /**
+     * Operations without side effects that may be executed concurrently.
+     */
+    private static final Set<String> READ_ONLY_OPERATIONS = ImmutableSet.of(
+            SosConstants.Operations.GetCapabilities.name(),
+            SosConstants.Operations.DescribeSensor.name(),
+            SosConstants.Operations.GetObservation.name(),
+            SosConstants.Operations.GetObservationById.name(),
+            SosConstants.Operations.GetFeatureOfInterest.name(),
+            SosConstants.Operations.GetResult.name(),
+            Sos2Constants.Operations.GetResultTemplate.name(),
+            GetDataAvailabilityConstants.OPERATION_NAME);
 
     private ServiceOperatorRepository serviceOperatorRepository;
 
+    private ExecutorService executor;
+
     public BatchOperationHandler() {
         super(SosConstants.SOS, BatchConstants.OPERATION_NAME);
     }
@@ -74,21 +116,154 @@ public class BatchOperationHandler extends AbstractSosOperationHandler {
         this.serviceOperatorRepository = serviceOperatorRepository;
     }
 
+    /**
+     * Set the number of threads used to execute read-only sub-requests concurrently. A value of {@code 1} or less
+     * executes all sub-requests sequentially.
+     *
+     * @param threads
+     *            the number of threads
+     */
+    @Setting(SosSettings.BATCH_THREAD_COUNT)
+    public synchronized void setThreadCount(Integer threads) {
+        // publish the new executor before retiring the old one, running batches finish on the old executor
+        ExecutorService old = this.executor;
+        if (threads != null && threads > 1) {
+            this.executor = Executors.newFixedThreadPool(threads, new GroupedAndNamedThreadFactory("52n-batch"));
+        } else {
+            this.executor = null;
+        }
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
     public BatchResponse executeRequests(BatchRequest request) throws OwsExceptionReport {
         BatchResponse response = new BatchResponse();
         response.setService(request.getService());
         response.setVersion(request.getVersion());
+        ExecutorService executorService = getExecutor();
+        // consecutive read-only requests are executed concurrently,
+        // transactional requests are barriers that keep the request order
+        List<OwsServiceRequest> readOnly = new ArrayList<>();
         for (OwsServiceRequest r : request) {
+            if (executorService != null && isReadOnly(r)) {
+                readOnly.add(r);
+            } else {
+                if (!execute(executorService, readOnly, request, response) || !execute(r, request, response)) {
+                    return response;
+                }
+                readOnly.clear();
+            }
+        }
+        execute(executorService, readOnly, request, response);
+        return response;
+    }
+
+    private boolean execute(OwsServiceRequest r, BatchRequest request, BatchResponse response) {
+        try {
+            response.add(getServiceOperator(r).receiveRequest(r));
+            return true;
+        } catch (OwsExceptionReport e) {
+            return addFailure(e, r, request, response);
+        }
+    }
+
+    private boolean execute(ExecutorService executorService, List<OwsServiceRequest> requests, BatchRequest request,
+            BatchResponse response) throws OwsExceptionReport {
+        if (requests.isEmpty()) {
+            return true;
+        } else if (requests.size() == 1) {
+            return execute(requests.get(0), request, response);
+        }
+        LOGGER.debug("Executing {} batch sub-requests concurrently", requests.size());
+        List<Future<OwsServiceResponse>> futures = new ArrayList<>(requests.size());
+        AtomicBoolean failed = new AtomicBoolean(false);
+        for (OwsServiceRequest r : requests) {
+            if (failed.get()) {
+                // the failed sub-request is the last one whose result is added
+                break;
+            }
+            futures.add(submit(executorService, r, failed, request.isStopAtFailure()));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    OwsServiceResponse result = futures.get(i).get();
+                    if (result == null) {
+                        // skipped after the failure of a sub-request, which was already added
+                        return false;
+                    }
+                    response.add(result);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (!(cause instanceof OwsExceptionReport)) {
+                        Throwables.throwIfUnchecked(cause);
+                        throw new NoApplicableCodeException().causedBy(cause);
+                    }
+                    if (!addFailure((OwsExceptionReport) cause, requests.get(i), request, response)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Batch request was interrupted");
+        } finally {
+            // do not interrupt running sub-requests, they may hold pooled sessions or locks
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private Future<OwsServiceResponse> submit(ExecutorService executorService, OwsServiceRequest r,
+            AtomicBoolean failed, boolean stopAtFailure) {
+        Callable<OwsServiceResponse> task = () -> {
+            if (failed.get()) {
+                // sub-requests are started in order, so a previous one failed and ends the batch
+                return null;
+            }
             try {
-                response.add(getServiceOperator(r).receiveRequest(r));
+                return getServiceOperator(r).receiveRequest(r);
             } catch (OwsExceptionReport e) {
-                response.add(e.setVersion(r.getVersion() != null ? r.getVersion() : request.getVersion()));
-                if (request.isStopAtFailure()) {
-                    break;
+                if (stopAtFailure) {
+                    failed.set(true);
                 }
+                throw e;
+            } catch (RuntimeException e) {
+                failed.set(true);
+                throw e;
             }
+        };
+        try {
+            return executorService.submit(task);
+        } catch (RejectedExecutionException e) {
+            // the executor was retired by a concurrent thread count change
+            FutureTask<OwsServiceResponse> future = new FutureTask<>(task);
+            future.run();
+            return future;
         }
-        return response;
+    }
+
+    private boolean addFailure(OwsExceptionReport e, OwsServiceRequest r, BatchRequest request,
+            BatchResponse response) {
+        response.add(e.setVersion(r.getVersion() != null ? r.getVersion() : request.getVersion()));
+        return !request.isStopAtFailure();
+    }
+
+    protected boolean isReadOnly(OwsServiceRequest request) {
+        return READ_ONLY_OPERATIONS.contains(request.getOperationName());
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        return this.executor;
     }
 
     protected ServiceOperator getServiceOperator(OwsServiceRequest request) throws OwsExceptionReport {
@@ -63,4 +63,24 @@ public interface CacheFeederHandler {
      */
     void updateCache(SosWritableContentCache cache)
             throws OwsExceptionReport;
+
+    /**
+     * @return if the next update can be executed incrementally using
+     *         {@link #updateCacheIncrementally(SosWritableContentCache)}
+     */
+    default boolean isIncrementalUpdatePossible() {
+        return false;
+    }
+
+    /**
+     * Merges the data that changed since the previous update into the cache.
+     *
+     * @param cache the cache to update
+     *
+     * @throws OwsExceptionReport if an occurs during the cache update
+     */
+    default void updateCacheIncrementally(SosWritableContentCache cache)
+            throws OwsExceptionReport {
+        updateCache(cache);
+    }
 }
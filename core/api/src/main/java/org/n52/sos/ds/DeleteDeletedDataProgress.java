@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.Optional;
+
+import org.joda.time.DateTime;
+
+/**
+ * Immutable snapshot of the progress of the physical deletion of deleted
+ * observations.
+ *
+ * @since 5.3.2
+ */
+public class DeleteDeletedDataProgress {
+
+    private final boolean running;
+
+    private final long deleted;
+
+    private final long remaining;
+
+    private final long lastId;
+
+    private final DateTime started;
+
+    private final DateTime finished;
+
+    private final String error;
+
+    public DeleteDeletedDataProgress(boolean running, long deleted, long remaining, long lastId, DateTime started,
+            DateTime finished, String error) {
+        this.running = running;
+        this.deleted = deleted;
+        this.remaining = remaining;
+        this.lastId = lastId;
+        this.started = started;
+        this.finished = finished;
+        this.error = error;
+    }
+
+    /**
+     * @return if the deletion is still running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of observations deleted by this run
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return the estimated number of observations left to delete
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * @return the highest observation id already processed
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    public DateTime getStarted() {
+        return started;
+    }
+
+    public Optional<DateTime> getFinished() {
+        return Optional.ofNullable(finished);
+    }
+
+    public Optional<String> getError() {
+        return Optional.ofNullable(error);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "DeleteDeletedDataProgress [running=%s, deleted=%s, remaining=%s, lastId=%s, started=%s, "
+                        + "finished=%s, error=%s]",
+                running, deleted, remaining, lastId, started, finished, error);
+    }
+}
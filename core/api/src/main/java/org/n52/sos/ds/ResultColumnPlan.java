@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.Optional;
+
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swe.simpleType.SweCategory;
+import org.n52.shetland.ogc.swe.simpleType.SweCount;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.shetland.ogc.swe.simpleType.SweTimeRange;
+
+/**
+ * Column positions of a flat result structure: one phenomenon time column, an optional result time column, an
+ * optional feature of interest column and exactly one simple value column. Result values of such a structure can be
+ * mapped token by token to single value observations.
+ *
+ * @since 5.3.2
+ */
+public final class ResultColumnPlan {
+
+    private static final String OM_FEATURE_OF_INTEREST = "om:featureOfInterest";
+
+    private static final String[] PARAMETER_DEFINITIONS = { "depth", "height" };
+
+    private static final String[] TEXT_DEFINITIONS = { "om:procedure", "gml:identifier", "gml:name",
+        "gml:description" };
+
+    private final int columnCount;
+
+    private final int phenomenonTimeIndex;
+
+    private final boolean phenomenonTimeRange;
+
+    private final int resultTimeIndex;
+
+    private final int featureOfInterestIndex;
+
+    private final int valueIndex;
+
+    private final ValueType valueType;
+
+    private final String unit;
+
+    private ResultColumnPlan(int columnCount, int phenomenonTimeIndex, boolean phenomenonTimeRange,
+            int resultTimeIndex, int featureOfInterestIndex, int valueIndex, ValueType valueType, String unit) {
+        this.columnCount = columnCount;
+        this.phenomenonTimeIndex = phenomenonTimeIndex;
+        this.phenomenonTimeRange = phenomenonTimeRange;
+        this.resultTimeIndex = resultTimeIndex;
+        this.featureOfInterestIndex = featureOfInterestIndex;
+        this.valueIndex = valueIndex;
+        this.valueType = valueType;
+        this.unit = unit;
+    }
+
+    /**
+     * @return the number of tokens of a block
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getPhenomenonTimeIndex() {
+        return phenomenonTimeIndex;
+    }
+
+    /**
+     * @return if the phenomenon time column contains a time range ({@code start/end})
+     */
+    public boolean isPhenomenonTimeRange() {
+        return phenomenonTimeRange;
+    }
+
+    /**
+     * @return the result time column or {@code -1}
+     */
+    public int getResultTimeIndex() {
+        return resultTimeIndex;
+    }
+
+    public boolean hasResultTime() {
+        return resultTimeIndex >= 0;
+    }
+
+    /**
+     * @return the feature of interest column or {@code -1} if the feature is defined by the template
+     */
+    public int getFeatureOfInterestIndex() {
+        return featureOfInterestIndex;
+    }
+
+    public boolean hasFeatureOfInterest() {
+        return featureOfInterestIndex >= 0;
+    }
+
+    public int getValueIndex() {
+        return valueIndex;
+    }
+
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    /**
+     * @return the unit of measure of a quantity or the code space of a category value, may be {@code null}
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Create the column plan of the result structure.
+     *
+     * @param resultStructure
+     *            the decoded result structure
+     * @return the column plan or an empty {@link Optional} if the result structure is not flat
+     */
+    public static Optional<ResultColumnPlan> of(SweAbstractDataComponent resultStructure) {
+        SweDataRecord record = getRecord(resultStructure);
+        if (record == null || !record.isSetFields()) {
+            return Optional.empty();
+        }
+        int phenomenonTimeIndex = -1;
+        boolean phenomenonTimeRange = false;
+        int resultTimeIndex = -1;
+        int featureOfInterestIndex = -1;
+        int valueIndex = -1;
+        ValueType valueType = null;
+        String unit = null;
+        int index = 0;
+        for (SweField field : record.getFields()) {
+            SweAbstractDataComponent element = field.getElement();
+            if (element instanceof SweTime && OmConstants.RESULT_TIME.equals(element.getDefinition())) {
+                if (resultTimeIndex >= 0) {
+                    return Optional.empty();
+                }
+                resultTimeIndex = index;
+            } else if (element instanceof SweTime || element instanceof SweTimeRange) {
+                if (phenomenonTimeIndex >= 0) {
+                    return Optional.empty();
+                }
+                phenomenonTimeIndex = index;
+                phenomenonTimeRange = element instanceof SweTimeRange;
+            } else if (element instanceof SweText && element.isSetDefinition()
+                    && element.getDefinition().contains(OM_FEATURE_OF_INTEREST)) {
+                if (featureOfInterestIndex >= 0) {
+                    return Optional.empty();
+                }
+                featureOfInterestIndex = index;
+            } else {
+                ValueType type = getValueType(element);
+                if (type == null || valueIndex >= 0 || isParameter(element)) {
+                    return Optional.empty();
+                }
+                valueIndex = index;
+                valueType = type;
+                if (element instanceof SweQuantity) {
+                    unit = ((SweQuantity) element).getUom();
+                } else if (element instanceof SweCategory) {
+                    unit = ((SweCategory) element).getCodeSpace();
+                }
+            }
+            ++index;
+        }
+        if (phenomenonTimeIndex < 0 || valueIndex < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new ResultColumnPlan(index, phenomenonTimeIndex, phenomenonTimeRange, resultTimeIndex,
+                featureOfInterestIndex, valueIndex, valueType, unit));
+    }
+
+    private static SweDataRecord getRecord(SweAbstractDataComponent resultStructure) {
+        if (resultStructure instanceof SweDataArray
+                && ((SweDataArray) resultStructure).getElementType() instanceof SweDataRecord) {
+            return (SweDataRecord) ((SweDataArray) resultStructure).getElementType();
+        } else if (resultStructure instanceof SweDataRecord) {
+            return (SweDataRecord) resultStructure;
+        }
+        return null;
+    }
+
+    private static ValueType getValueType(SweAbstractDataComponent element) {
+        if (element instanceof SweQuantity) {
+            return ValueType.QUANTITY;
+        } else if (element instanceof SweCount) {
+            return ValueType.COUNT;
+        } else if (element instanceof SweBoolean) {
+            return ValueType.BOOLEAN;
+        } else if (element instanceof SweCategory) {
+            return ValueType.CATEGORY;
+        } else if (element instanceof SweText) {
+            // procedure, identifier, name and description columns are handled by the unfolding path
+            return contains(element, TEXT_DEFINITIONS) ? null : ValueType.TEXT;
+        }
+        return null;
+    }
+
+    private static boolean contains(SweAbstractDataComponent element, String[] definitions) {
+        if (element.isSetDefinition()) {
+            for (String definition : definitions) {
+                if (element.getDefinition().contains(definition)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isParameter(SweAbstractDataComponent element) {
+        return contains(element, PARAMETER_DEFINITIONS) || element.isSetDefinition()
+                && ("from".equalsIgnoreCase(element.getDefinition()) || "to".equalsIgnoreCase(element.getDefinition()));
+    }
+
+    /**
+     * Type of the value column.
+     */
+    public enum ValueType {
+        QUANTITY, COUNT, BOOLEAN, CATEGORY, TEXT
+    }
+}
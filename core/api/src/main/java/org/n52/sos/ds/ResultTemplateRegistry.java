@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+
+import org.apache.xmlbeans.XmlObject;
+import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+import org.n52.shetland.ogc.swe.encoding.SweAbstractEncoding;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.svalbard.decode.Decoder;
+import org.n52.svalbard.decode.DecoderKey;
+import org.n52.svalbard.decode.DecoderRepository;
+import org.n52.svalbard.decode.exception.DecodingException;
+import org.n52.svalbard.util.CodingHelper;
+import org.n52.svalbard.util.XmlHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of decoded result templates shared by the result handling operations. The result structure and encoding
+ * of a template are stored as XML and would otherwise be decoded by every GetResult, InsertResult and
+ * GetResultTemplate request.
+ * <p>
+ * The registry is filled by the result template cache update and entries are dropped when result templates are
+ * inserted or deleted. A registered template is only returned if its XML equals the XML of the caller's entity, so
+ * a template changed in the datasource is decoded again.
+ *
+ * @since 5.3.2
+ */
+public final class ResultTemplateRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultTemplateRegistry.class);
+
+    private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<>();
+
+    private DecoderRepository decoderRepository;
+
+    @Inject
+    public void setDecoderRepository(DecoderRepository decoderRepository) {
+        this.decoderRepository = decoderRepository;
+    }
+
+    /**
+     * Get the decoded result template, decoding and registering it if it is not registered or was changed.
+     *
+     * @param identifier
+     *            the result template identifier
+     * @param structure
+     *            the result structure XML
+     * @param encoding
+     *            the result encoding XML
+     * @param decoderRepository
+     *            the decoder repository to decode the template with
+     * @return the decoded template
+     * @throws CodedException
+     *             if the template can not be decoded
+     */
+    public Template get(String identifier, String structure, String encoding, DecoderRepository decoderRepository)
+            throws CodedException {
+        Template template = identifier != null ? templates.get(identifier) : null;
+        if (template != null && template.matches(structure, encoding)) {
+            return template;
+        }
+        template = decode(identifier, structure, encoding, decoderRepository);
+        if (identifier != null) {
+            templates.put(identifier, template);
+        }
+        return template;
+    }
+
+    /**
+     * Decode and register the result template. Failures are logged, the template is then decoded on its first
+     * use.
+     *
+     * @param identifier
+     *            the result template identifier
+     * @param structure
+     *            the result structure XML
+     * @param encoding
+     *            the result encoding XML
+     */
+    public void register(String identifier, String structure, String encoding) {
+        Template template = templates.get(identifier);
+        if (template != null && template.matches(structure, encoding)) {
+            return;
+        }
+        if (decoderRepository == null || structure == null || encoding == null) {
+            templates.remove(identifier);
+            return;
+        }
+        try {
+            templates.put(identifier, decode(identifier, structure, encoding, decoderRepository));
+        } catch (CodedException e) {
+            templates.remove(identifier);
+            LOGGER.warn("Error while decoding result template {}", identifier, e);
+        }
+    }
+
+    /**
+     * Remove all templates that are not contained in the identifiers.
+     *
+     * @param identifiers
+     *            the identifiers of the existing templates
+     */
+    public void retain(Collection<String> identifiers) {
+        templates.keySet().retainAll(new HashSet<>(identifiers));
+    }
+
+    public void invalidate(String identifier) {
+        if (identifier != null) {
+            templates.remove(identifier);
+        }
+    }
+
+    public void invalidate(Collection<String> identifiers) {
+        if (identifiers != null) {
+            identifiers.forEach(this::invalidate);
+        }
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    private static Template decode(String identifier, String structure, String encoding,
+            DecoderRepository decoderRepository) throws CodedException {
+        SweAbstractDataComponent component = (SweAbstractDataComponent) decode(structure, decoderRepository);
+        SweAbstractEncoding abstractEncoding = (SweAbstractEncoding) decode(encoding, decoderRepository);
+        return new Template(identifier, structure, encoding,
+                component != null ? new SosResultStructure(component, structure) : new SosResultStructure(structure),
+                abstractEncoding != null ? new SosResultEncoding(abstractEncoding, encoding)
+                        : new SosResultEncoding(encoding));
+    }
+
+    /**
+     * Decode the XML of a result structure or encoding.
+     *
+     * @param xml
+     *            the XML
+     * @param decoderRepository
+     *            the decoder repository
+     * @return the decoded object
+     * @throws CodedException
+     *             if the XML can not be decoded
+     */
+    static Object decode(String xml, DecoderRepository decoderRepository) throws CodedException {
+        try {
+            XmlObject xmlObject = XmlHelper.parseXmlString(xml);
+            DecoderKey decoderKey = CodingHelper.getDecoderKey(xmlObject);
+            Decoder<Object, Object> decoder = decoderRepository.getDecoder(decoderKey);
+            if (decoder != null) {
+                return decoder.decode(xmlObject);
+            } else {
+                throw new NoApplicableCodeException().withMessage("No decoder found for %s",
+                        xmlObject.getClass().getName());
+            }
+        } catch (DecodingException de) {
+            throw new NoApplicableCodeException().causedBy(de);
+        }
+    }
+
+    /**
+     * A decoded result template. The decoded structure and encoding are shared between all requests and must not be
+     * modified.
+     */
+    public static final class Template {
+        private final String identifier;
+        private final String structureXml;
+        private final String encodingXml;
+        private final SosResultStructure resultStructure;
+        private final SosResultEncoding resultEncoding;
+        private final String tokenSeparator;
+        private final String blockSeparator;
+        private volatile Map<Integer, String> valueOrder;
+        private volatile Optional<ResultColumnPlan> columnPlan;
+
+        Template(String identifier, String structureXml, String encodingXml, SosResultStructure resultStructure,
+                SosResultEncoding resultEncoding) {
+            this.identifier = identifier;
+            this.structureXml = structureXml;
+            this.encodingXml = encodingXml;
+            this.resultStructure = resultStructure;
+            this.resultEncoding = resultEncoding;
+            SweAbstractEncoding encoding = resultEncoding.get().orElse(null);
+            if (encoding instanceof SweTextEncoding) {
+                this.tokenSeparator = ((SweTextEncoding) encoding).getTokenSeparator();
+                this.blockSeparator = ((SweTextEncoding) encoding).getBlockSeparator();
+            } else {
+                this.tokenSeparator = null;
+                this.blockSeparator = null;
+            }
+        }
+
+        boolean matches(String structure, String encoding) {
+            return Objects.equals(structureXml, structure) && Objects.equals(encodingXml, encoding);
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public SosResultStructure getResultStructure() {
+            return resultStructure;
+        }
+
+        public SosResultEncoding getResultEncoding() {
+            return resultEncoding;
+        }
+
+        /**
+         * @return the token separator of the text encoding or {@code null} for other encodings
+         */
+        public String getTokenSeparator() {
+            return tokenSeparator;
+        }
+
+        /**
+         * @return the block separator of the text encoding or {@code null} for other encodings
+         */
+        public String getBlockSeparator() {
+            return blockSeparator;
+        }
+
+        /**
+         * Get the field index to definition map of the result structure, creating it once.
+         *
+         * @param creator
+         *            the function creating the map from the result structure
+         * @return the value order map
+         */
+        public Map<Integer, String> getValueOrder(Function<SweAbstractDataComponent, Map<Integer, String>> creator) {
+            Map<Integer, String> order = this.valueOrder;
+            if (order == null) {
+                order = Collections.unmodifiableMap(creator.apply(resultStructure.get().orElse(null)));
+                this.valueOrder = order;
+            }
+            return order;
+        }
+
+        /**
+         * Get the column plan of the result structure, creating it once.
+         *
+         * @return the column plan or an empty {@link Optional} if the result structure is not flat
+         */
+        public Optional<ResultColumnPlan> getColumnPlan() {
+            Optional<ResultColumnPlan> plan = this.columnPlan;
+            if (plan == null) {
+                plan = resultStructure.get().flatMap(ResultColumnPlan::of);
+                this.columnPlan = plan;
+            }
+            return plan;
+        }
+    }
+}
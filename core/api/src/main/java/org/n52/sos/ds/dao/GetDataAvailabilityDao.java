@@ -28,6 +28,7 @@
  */
 package org.n52.sos.ds.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -50,6 +51,22 @@ public interface GetDataAvailabilityDao extends DefaultDao {
     List<TimeInstant> getResultTimes(DataAvailability dataAvailability, GetDataAvailabilityRequest request,
             Object connection) throws OwsExceptionReport;
 
+    /**
+     * Get the distinct result times of the datasets with a single query.
+     *
+     * @param datasets
+     *            the ids of the datasets
+     * @param request
+     *            the request with an optional phenomenon time filter
+     * @param connection
+     *            the datasource connection
+     * @return the ascending ordered result times by dataset id
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    Map<Long, List<TimeInstant>> getResultTimes(Collection<Long> datasets, GetDataAvailabilityRequest request,
+            Object connection) throws OwsExceptionReport;
+
     Map<String, NamedValue<?>> getMetadata(DataAvailability dataAvailability) throws OwsExceptionReport;
 
     Map<String, NamedValue<?>> getMetadata(DataAvailability dataAvailability, Object connection)
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.n52.janmayen.Json;
+import org.n52.sos.metrics.MetricsRegistry.MetricKey;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Exports the content of a {@link MetricsRegistry} as JSON or in the Prometheus text exposition format (version
+ * 0.0.4). Latencies are exported as summaries in seconds with the 50th, 90th and 99th percentile.
+ *
+ * @since 5.3.2
+ */
+public class MetricsExporter {
+
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final String LABELS = "labels";
+
+    private final MetricsRegistry registry;
+
+    public MetricsExporter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public ObjectNode toJson() {
+        ObjectNode root = Json.nodeFactory().objectNode();
+        root.put("enabled", registry.isEnabled());
+        ArrayNode timers = root.putArray("timers");
+        new TreeMap<>(registry.getTimers()).forEach((key, histogram) -> {
+            ObjectNode timer = timers.addObject();
+            timer.put("name", key.getName());
+            putLabels(timer.putObject(LABELS), key);
+            timer.put("count", histogram.getCount());
+            timer.put("meanMs", histogram.getMean() / NANOS_PER_MILLI);
+            timer.put("p50Ms", histogram.getValueAtPercentile(50) / NANOS_PER_MILLI);
+            timer.put("p90Ms", histogram.getValueAtPercentile(90) / NANOS_PER_MILLI);
+            timer.put("p99Ms", histogram.getValueAtPercentile(99) / NANOS_PER_MILLI);
+            timer.put("maxMs", histogram.getMax() / NANOS_PER_MILLI);
+        });
+        ArrayNode counters = root.putArray("counters");
+        new TreeMap<>(registry.getCounters()).forEach((key, value) -> {
+            ObjectNode counter = counters.addObject();
+            counter.put("name", key.getName());
+            putLabels(counter.putObject(LABELS), key);
+            counter.put("value", value);
+        });
+        return root;
+    }
+
+    public String toPrometheus() {
+        StringBuilder builder = new StringBuilder();
+        String previous = null;
+        for (Map.Entry<MetricKey, LatencyHistogram> entry : new TreeMap<>(registry.getTimers()).entrySet()) {
+            MetricKey key = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            String name = key.getName() + "_seconds";
+            if (!name.equals(previous)) {
+                builder.append("# TYPE ").append(name).append(" summary\n");
+                previous = name;
+            }
+            for (double quantile : QUANTILES) {
+                builder.append(name);
+                appendLabels(builder, key, String.valueOf(quantile));
+                appendValue(builder, histogram.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND);
+            }
+            builder.append(name).append("_sum");
+            appendLabels(builder, key, null);
+            appendValue(builder, histogram.getSum() / NANOS_PER_SECOND);
+            builder.append(name).append("_count");
+            appendLabels(builder, key, null);
+            builder.append(' ').append(histogram.getCount()).append('\n');
+        }
+        previous = null;
+        for (Map.Entry<MetricKey, Long> entry : new TreeMap<>(registry.getCounters()).entrySet()) {
+            MetricKey key = entry.getKey();
+            if (!key.getName().equals(previous)) {
+                builder.append("# TYPE ").append(key.getName()).append(" counter\n");
+                previous = key.getName();
+            }
+            builder.append(key.getName());
+            appendLabels(builder, key, null);
+            builder.append(' ').append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private void putLabels(ObjectNode node, MetricKey key) {
+        List<String> labels = key.getLabels();
+        for (int i = 0; i < labels.size(); i += 2) {
+            node.put(labels.get(i), labels.get(i + 1));
+        }
+    }
+
+    private void appendLabels(StringBuilder builder, MetricKey key, String quantile) {
+        List<String> labels = key.getLabels();
+        if (labels.isEmpty() && quantile == null) {
+            return;
+        }
+        builder.append('{');
+        for (int i = 0; i < labels.size(); i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels.get(i)).append("=\"").append(escape(labels.get(i + 1))).append('"');
+        }
+        if (quantile != null) {
+            if (!labels.isEmpty()) {
+                builder.append(',');
+            }
+            builder.append("quantile=\"").append(quantile).append('"');
+        }
+        builder.append('}');
+    }
+
+    private void appendValue(StringBuilder builder, double value) {
+        builder.append(' ').append(String.format(Locale.ROOT, "%.9f", value)).append('\n');
+    }
+
+    private String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.sos.service.SosSettings;
+
+/**
+ * Process wide registry of latency histograms and counters. Metrics are identified by a name and alternating label
+ * names and values, e.g. {@code record("sos_dao_duration", nanos, "dao", "GetObservationDao", "method", "query")}.
+ * Components that are not managed by Spring (e.g. the Hibernate connection provider) get the registry passed by
+ * their Spring managed owner. If disabled, recording is a no-op.
+ *
+ * @since 5.3.2
+ */
+@Configurable
+public final class MetricsRegistry {
+
+    public static final String OPERATION_DURATION = "sos_operation_duration";
+
+    public static final String OPERATION_ERRORS = "sos_operation_errors_total";
+
+    public static final String PHASE_DURATION = "sos_operation_phase_duration";
+
+    public static final String MODIFIER_DURATION = "sos_modifier_duration";
+
+    public static final String DAO_DURATION = "sos_dao_duration";
+
+    public static final String CONNECTION_POOL_WAIT = "sos_connection_pool_wait";
+
+    public static final String RESPONSE_CACHE_REQUESTS = "sos_response_cache_requests_total";
+
+    public static final String LABEL_SERVICE = "service";
+
+    public static final String LABEL_VERSION = "version";
+
+    public static final String LABEL_OPERATION = "operation";
+
+    public static final String LABEL_PHASE = "phase";
+
+    public static final String LABEL_DAO = "dao";
+
+    public static final String LABEL_METHOD = "method";
+
+    private final ConcurrentMap<MetricKey, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<MetricKey, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled = true;
+
+    /**
+     * @return a new registry that does not record anything, used by components that are created without an injected
+     *         registry, e.g. outside of Spring
+     */
+    public static MetricsRegistry disabled() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.setEnabled(false);
+        return registry;
+    }
+
+    @Setting(SosSettings.METRICS_ENABLED)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the current time in nanoseconds to pass to {@link #recordSince(long, String, String...)}, or
+     *         {@code 0} if the registry is disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Record the time elapsed since {@code start}.
+     *
+     * @param start
+     *            the value returned by {@link #start()}
+     * @param name
+     *            the metric name
+     * @param labels
+     *            alternating label names and values
+     */
+    public void recordSince(long start, String name, String... labels) {
+        if (enabled && start != 0L) {
+            record(name, System.nanoTime() - start, labels);
+        }
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param name
+     *            the metric name
+     * @param nanos
+     *            the duration in nanoseconds
+     * @param labels
+     *            alternating label names and values
+     */
+    public void record(String name, long nanos, String... labels) {
+        if (enabled) {
+            timers.computeIfAbsent(new MetricKey(name, labels), k -> new LatencyHistogram()).record(nanos);
+        }
+    }
+
+    /**
+     * Increment a counter by one.
+     *
+     * @param name
+     *            the metric name
+     * @param labels
+     *            alternating label names and values
+     */
+    public void increment(String name, String... labels) {
+        if (enabled) {
+            counters.computeIfAbsent(new MetricKey(name, labels), k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Count a lookup in a cache.
+     *
+     * @param cache
+     *            the name of the cache
+     * @param hit
+     *            if the lookup was a hit
+     */
+    public void recordCacheAccess(String cache, boolean hit) {
+        increment(RESPONSE_CACHE_REQUESTS, "cache", cache, "result", hit ? "hit" : "miss");
+    }
+
+    public Map<MetricKey, LatencyHistogram> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+    public Map<MetricKey, Long> getCounters() {
+        Map<MetricKey, Long> values = new HashMap<>(counters.size());
+        counters.forEach((key, value) -> values.put(key, value.sum()));
+        return values;
+    }
+
+    public void reset() {
+        timers.clear();
+        counters.clear();
+    }
+
+    /**
+     * Name and labels of a metric.
+     */
+    public static final class MetricKey implements Comparable<MetricKey> {
+
+        private final String name;
+
+        private final List<String> labels;
+
+        MetricKey(String name, String... labels) {
+            if (labels.length % 2 != 0) {
+                throw new IllegalArgumentException("Labels have to be pairs of names and values");
+            }
+            this.name = Objects.requireNonNull(name);
+            String[] copy = new String[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                copy[i] = labels[i] == null ? "" : labels[i];
+            }
+            this.labels = Arrays.asList(copy);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return alternating label names and values
+         */
+        public List<String> getLabels() {
+            return Collections.unmodifiableList(labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, labels);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MetricKey)) {
+                return false;
+            }
+            MetricKey that = (MetricKey) obj;
+            return name.equals(that.name) && labels.equals(that.labels);
+        }
+
+        @Override
+        public int compareTo(MetricKey o) {
+            int c = name.compareTo(o.name);
+            return c != 0 ? c : String.join(",", labels).compareTo(String.join(",", o.labels));
+        }
+
+        @Override
+        public String toString() {
+            return name + labels;
+        }
+    }
+}
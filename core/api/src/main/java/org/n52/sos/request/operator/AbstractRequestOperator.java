@@ -99,6 +99,7 @@ import org.n52.sos.exception.ows.concrete.InvalidResponseFormatParameterExceptio
 import org.n52.sos.exception.ows.concrete.InvalidValueReferenceException;
 import org.n52.sos.exception.ows.concrete.MissingProcedureParameterException;
 import org.n52.sos.exception.ows.concrete.MissingResponseFormatParameterException;
+import org.n52.sos.metrics.MetricsRegistry;
 import org.n52.sos.service.profile.Profile;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.EncoderRepository;
@@ -157,6 +158,14 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
 
     private static final String DUPLICATED = "duplicated";
 
+    private static final String PHASE_REQUEST_MODIFIERS = "request_modifiers";
+
+    private static final String PHASE_CHECK_PARAMETERS = "check_parameters";
+
+    private static final String PHASE_RECEIVE = "receive";
+
+    private static final String PHASE_RESPONSE_MODIFIERS = "response_modifiers";
+
     // TODO make supported ValueReferences dynamic
     private static final Set<String> VALID_TEMPORAL_FILTER_VALUE_REFERENCES = Sets.newHashSet("phenomenonTime",
             "om:phenomenonTime", "resultTime", "om:resultTime", "validTime", "om:validTime");
@@ -189,6 +198,8 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
 
     private EncoderRepository encoderRepository;
 
+    private MetricsRegistry metricsRegistry = MetricsRegistry.disabled();
+
     private boolean allowQueryingForInstancesOnly;
 
     private boolean showOnlyAggregatedProcedures;
@@ -287,6 +298,15 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
         return converterRepository;
     }
 
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry != null ? metricsRegistry : MetricsRegistry.disabled();
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
         this.encoderRepository = encoderRepository;
@@ -374,18 +394,96 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
         this.serviceEventBus.submit(new RequestEvent(abstractRequest));
         if (requestType.isAssignableFrom(abstractRequest.getClass()) && isSupported()) {
             Q request = requestType.cast(abstractRequest);
-            preProcessRequest(request);
-            checkForModifierAndProcess(request);
-            checkParameters(request);
-            A response = receive(request);
-            this.serviceEventBus.submit(new ResponseEvent(response));
-            postProcessResponse(response);
-            return checkForModifierAndProcess(request, response);
+            MetricsRegistry metrics = getMetricsRegistry();
+            long start = metrics.start();
+            boolean failed = true;
+            try {
+                preProcessRequest(request);
+                long phase = metrics.start();
+                checkForModifierAndProcess(request);
+                recordPhase(phase, PHASE_REQUEST_MODIFIERS);
+                phase = metrics.start();
+                checkParameters(request);
+                recordPhase(phase, PHASE_CHECK_PARAMETERS);
+                OwsServiceResponse response = handleRequest(request);
+                failed = false;
+                return response;
+            } finally {
+                if (failed) {
+                    metrics.increment(MetricsRegistry.OPERATION_ERRORS, getOperationLabels());
+                }
+                metrics.recordSince(start, MetricsRegistry.OPERATION_DURATION, getOperationLabels());
+            }
         } else {
             throw new OperationNotSupportedException(abstractRequest.getOperationName());
         }
     }
 
+    /**
+     * Processes the checked request and applies the response modifiers. Operators that are able to answer a
+     * request without querying the data source (e.g. from a response cache) may override this method.
+     *
+     * @param request
+     *            the checked request
+     * @return the processed response
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    protected OwsServiceResponse handleRequest(Q request) throws OwsExceptionReport {
+        long phase = getMetricsRegistry().start();
+        A response = receive(request);
+        recordPhase(phase, PHASE_RECEIVE);
+        this.serviceEventBus.submit(new ResponseEvent(response));
+        postProcessResponse(response);
+        phase = getMetricsRegistry().start();
+        OwsServiceResponse modified = checkForModifierAndProcess(request, response);
+        recordPhase(phase, PHASE_RESPONSE_MODIFIERS);
+        return modified;
+    }
+
+    /**
+     * Record the duration of a processing phase of this operation.
+     *
+     * @param start
+     *            the start as returned by {@link MetricsRegistry#start()}
+     * @param phase
+     *            the name of the phase
+     */
+    protected void recordPhase(long start, String phase) {
+        getMetricsRegistry().recordSince(start, MetricsRegistry.PHASE_DURATION,
+                MetricsRegistry.LABEL_SERVICE, requestOperatorKey.getService(),
+                MetricsRegistry.LABEL_VERSION, requestOperatorKey.getServiceOperatorKey().getVersion(),
+                MetricsRegistry.LABEL_OPERATION, getOperationName(),
+                MetricsRegistry.LABEL_PHASE, phase);
+    }
+
+    private String[] getOperationLabels() {
+        return new String[] { MetricsRegistry.LABEL_SERVICE, requestOperatorKey.getService(),
+                              MetricsRegistry.LABEL_VERSION, requestOperatorKey.getServiceOperatorKey().getVersion(),
+                              MetricsRegistry.LABEL_OPERATION, getOperationName() };
+    }
+
+    private void modifyRequest(RequestResponseModifier modifier, OwsServiceRequest request)
+            throws OwsExceptionReport {
+        long start = getMetricsRegistry().start();
+        modifier.modifyRequest(request);
+        recordModifier(start, modifier, "request");
+    }
+
+    private void modifyResponse(RequestResponseModifier modifier, OwsServiceRequest request,
+            OwsServiceResponse response) throws OwsExceptionReport {
+        long start = getMetricsRegistry().start();
+        modifier.modifyResponse(request, response);
+        recordModifier(start, modifier, "response");
+    }
+
+    private void recordModifier(long start, RequestResponseModifier modifier, String direction) {
+        getMetricsRegistry().recordSince(start, MetricsRegistry.MODIFIER_DURATION,
+                MetricsRegistry.LABEL_OPERATION, getOperationName(),
+                "modifier", modifier.getClass().getSimpleName(),
+                "direction", direction);
+    }
+
     protected void preProcessRequest(Q request) {
         // nothing to do
     }
@@ -411,15 +509,15 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
             }
             // execute adder/remover
             for (RequestResponseModifier modifier : remover) {
-                modifier.modifyRequest(request);
+                modifyRequest(modifier, request);
             }
             // execute default
             for (RequestResponseModifier modifier : defaultMofifier) {
-                modifier.modifyRequest(request);
+                modifyRequest(modifier, request);
             }
             // execute splitter
             for (RequestResponseModifier modifier : splitter) {
-                modifier.modifyRequest(request);
+                modifyRequest(modifier, request);
             }
         }
     }
@@ -443,16 +541,16 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
             }
             // execute merger
             for (RequestResponseModifier modifier : merger) {
-                modifier.modifyResponse(request, response);
+                modifyResponse(modifier, request, response);
             }
             // execute default
             for (RequestResponseModifier modifier : defaultModifier) {
-                modifier.modifyResponse(request, response);
+                modifyResponse(modifier, request, response);
             }
 
             // execute adder/remover
             for (RequestResponseModifier modifier : remover) {
-                modifier.modifyResponse(request, response);
+                modifyResponse(modifier, request, response);
             }
             return response;
         }
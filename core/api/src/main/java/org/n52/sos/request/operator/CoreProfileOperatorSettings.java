@@ -36,4 +36,26 @@ package org.n52.sos.request.operator;
 public interface CoreProfileOperatorSettings {
     String BLOCK_GET_OBSERVATION_REQUESTS_WITHOUT_RESTRICTION
             = "service.blockGetObservationRequestsWithoutRestriction";
+
+    String GET_OBSERVATION_RESPONSE_CACHE = "service.getObservationResponseCache";
+
+    String GET_OBSERVATION_RESPONSE_CACHE_SIZE = "service.getObservationResponseCache.size";
+
+    String GET_OBSERVATION_RESPONSE_CACHE_TTL = "service.getObservationResponseCache.ttl";
+
+    String GET_OBSERVATION_RESPONSE_CACHE_MAX_OBSERVATIONS = "service.getObservationResponseCache.maxObservations";
+
+    String DESCRIBE_SENSOR_RESPONSE_CACHE = "service.describeSensorResponseCache";
+
+    String DESCRIBE_SENSOR_RESPONSE_CACHE_SIZE = "service.describeSensorResponseCache.size";
+
+    String DESCRIBE_SENSOR_RESPONSE_CACHE_TTL = "service.describeSensorResponseCache.ttl";
+
+    String GET_CAPABILITIES_RESPONSE_CACHE = "service.getCapabilitiesResponseCache";
+
+    String GET_CAPABILITIES_RESPONSE_CACHE_SIZE = "service.getCapabilitiesResponseCache.size";
+
+    String GET_CAPABILITIES_RESPONSE_CACHE_TTL = "service.getCapabilitiesResponseCache.ttl";
+
+    String GET_CAPABILITIES_RESPONSE_CACHE_MAX_STALENESS = "service.getCapabilitiesResponseCache.maxStaleness";
 }
@@ -38,9 +38,18 @@ public interface SosSettings {
     String LIST_ONLY_PARENT_OFFERINGS = "service.capabilities.listOnlyParentOfferings";
     String UPDATE_FEATURE_GEOMETRY = "service.updateFeatureGeometry";
     String CACHE_FILE_FOLDER = "service.cacheFileFolder";
+    String CACHE_SNAPSHOT = "service.cacheSnapshot";
     String CREATE_FOI_GEOM_FROM_SAMPLING_GEOMS = "service.createFeatureGeometryFromSamplingGeometries";
     String ALLOW_TEMPLATE_WITHOUT_PROCEDURE_FEATURE = "service.allowTemplateWithoutProcedureAndFeature";
     String INCLUDE_RESULT_TIME_FOR_MERGING = "service.includeResultTimeForMerging";
+    String MERGE_BLOCK_SIZE = "service.mergeBlockSize";
     String CHECK_FOR_DUPLICITY = "service.checkForDuplicity";
     String STA_SUPPORTS_URLS = "service.sta.supports.urls";
+    String DATASET_LOCKING = "service.transactional.datasetLocking";
+    String BATCH_THREAD_COUNT = "service.batchThreadCount";
+    String GET_OBSERVATION_THREAD_COUNT = "service.getObservationThreadCount";
+    String PURGE_CHUNK_SIZE = "service.purge.chunkSize";
+    String PURGE_ROWS_PER_SECOND = "service.purge.rowsPerSecond";
+    String METRICS_ENABLED = "service.metrics.enabled";
+    String FEATURE_SPATIAL_INDEX = "service.featureSpatialIndex";
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory STR-tree over the geometries of the features of interest for datasources without spatial support. The
+ * index is built by the complete feature cache update, kept up to date by the content cache controller and lets
+ * spatial filters be resolved to feature identifiers without loading every feature from the datasource.
+ * <p>
+ * Geometries are stored with the axis order of
+ * {@link GeometryHandler#switchCoordinateAxisFromToDatasourceIfNeeded(Geometry)}, i.e. they can be compared to the
+ * result of {@link GeometryHandler#getFilterForNonSpatialDatasource(org.n52.shetland.ogc.filter.SpatialFilter)}.
+ * Changes after the last build are kept in a small overlay that is merged into a new tree once it grows too large.
+ * Features that were added to the cache but whose geometry is not yet known are reported as stale and have to be
+ * checked by the caller.
+ *
+ * @since 5.3.2
+ */
+@Configurable
+public final class FeatureSpatialIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeatureSpatialIndex.class);
+
+    private static final int NODE_CAPACITY = 16;
+
+    private static final int MIN_OVERLAY_SIZE = 1024;
+
+    private static final int OVERLAY_RATIO = 8;
+
+    private final Set<String> stale = ConcurrentHashMap.newKeySet();
+
+    private final Object lock = new Object();
+
+    private volatile State state;
+
+    private volatile boolean enabled = true;
+
+    private GeometryHandler geometryHandler;
+
+    @Inject
+    public void setGeometryHandler(GeometryHandler geometryHandler) {
+        this.geometryHandler = geometryHandler;
+    }
+
+    @Setting(SosSettings.FEATURE_SPATIAL_INDEX)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    /**
+     * @return if the index should be maintained, i.e. it is enabled and the datasource has no spatial support
+     */
+    public boolean isActive() {
+        return enabled && geometryHandler != null && !geometryHandler.isSpatialDatasource();
+    }
+
+    /**
+     * @return if the index is active and was built by a complete cache update
+     */
+    public boolean isAvailable() {
+        return isActive() && state != null;
+    }
+
+    /**
+     * Replace the content of the index.
+     *
+     * @param geometries
+     *            the datasource geometries of all features by identifier, {@code null} values for features without
+     *            geometry
+     */
+    public void rebuild(Map<String, Geometry> geometries) {
+        if (!isActive()) {
+            return;
+        }
+        Map<String, Geometry> prepared = new HashMap<>(geometries.size());
+        Set<String> unknown = new HashSet<>();
+        geometries.forEach((identifier, geometry) -> {
+            try {
+                Geometry g = prepare(geometry);
+                if (g != null) {
+                    prepared.put(identifier, g);
+                }
+            } catch (OwsExceptionReport e) {
+                LOGGER.warn("Could not index the geometry of feature '{}'", identifier, e);
+                unknown.add(identifier);
+            }
+        });
+        synchronized (lock) {
+            this.state = new State(prepared);
+            this.stale.removeAll(geometries.keySet());
+            this.stale.addAll(unknown);
+        }
+        LOGGER.debug("Built feature spatial index with {} geometries", prepared.size());
+    }
+
+    /**
+     * Add or replace the geometry of a feature.
+     *
+     * @param identifier
+     *            the feature identifier
+     * @param geometry
+     *            the datasource geometry, may be {@code null}
+     */
+    public void put(String identifier, Geometry geometry) {
+        if (!isAvailable()) {
+            return;
+        }
+        try {
+            Optional<Geometry> g = Optional.ofNullable(prepare(geometry));
+            synchronized (lock) {
+                modify(identifier, g);
+                stale.remove(identifier);
+            }
+        } catch (OwsExceptionReport e) {
+            LOGGER.warn("Could not index the geometry of feature '{}'", identifier, e);
+            stale.add(identifier);
+        }
+    }
+
+    /**
+     * Mark the geometry of a feature as unknown until it is {@link #put(String, Geometry) put} into the index.
+     *
+     * @param identifier
+     *            the feature identifier
+     */
+    public void invalidate(String identifier) {
+        if (isAvailable()) {
+            stale.add(identifier);
+        }
+    }
+
+    /**
+     * Remove a feature from the index.
+     *
+     * @param identifier
+     *            the feature identifier
+     */
+    public void remove(String identifier) {
+        if (!isAvailable()) {
+            return;
+        }
+        synchronized (lock) {
+            modify(identifier, Optional.empty());
+            stale.remove(identifier);
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            this.state = null;
+            this.stale.clear();
+        }
+    }
+
+    /**
+     * Get the identifiers of the indexed features whose geometry is contained in one of the filter geometries.
+     *
+     * @param filters
+     *            the filter geometries as returned by
+     *            {@link GeometryHandler#getFilterForNonSpatialDatasource(org.n52.shetland.ogc.filter.SpatialFilter)}
+     * @return the matching identifiers, without the {@link #getStaleIdentifiers() stale} ones
+     */
+    public Set<String> query(Collection<Geometry> filters) {
+        State current = this.state;
+        if (current == null) {
+            return Collections.emptySet();
+        }
+        Set<String> identifiers = new HashSet<>();
+        for (Geometry filter : filters) {
+            for (Object item : current.tree.query(filter.getEnvelopeInternal())) {
+                Entry entry = (Entry) item;
+                if (!current.overlay.containsKey(entry.identifier) && filter.contains(entry.geometry)) {
+                    identifiers.add(entry.identifier);
+                }
+            }
+        }
+        current.overlay.forEach((identifier, geometry) -> {
+            if (geometry.isPresent() && filters.stream().anyMatch(f -> f.contains(geometry.get()))) {
+                identifiers.add(identifier);
+            }
+        });
+        identifiers.removeAll(stale);
+        return identifiers;
+    }
+
+    /**
+     * @return the identifiers of features whose geometry is not known to the index
+     */
+    public Set<String> getStaleIdentifiers() {
+        return Collections.unmodifiableSet(new HashSet<>(stale));
+    }
+
+    private void modify(String identifier, Optional<Geometry> geometry) {
+        State current = this.state;
+        if (current == null) {
+            return;
+        }
+        current.overlay.put(identifier, geometry);
+        if (current.overlay.size() > Math.max(MIN_OVERLAY_SIZE, current.size / OVERLAY_RATIO)) {
+            Map<String, Geometry> merged = new HashMap<>(current.geometries);
+            current.overlay.forEach((id, g) -> {
+                if (g.isPresent()) {
+                    merged.put(id, g.get());
+                } else {
+                    merged.remove(id);
+                }
+            });
+            this.state = new State(merged);
+        }
+    }
+
+    private Geometry prepare(Geometry geometry) throws OwsExceptionReport {
+        if (geometry == null || geometry.isEmpty()) {
+            return null;
+        }
+        return geometryHandler.switchCoordinateAxisFromToDatasourceIfNeeded(geometry);
+    }
+
+    private static final class State {
+        private final STRtree tree = new STRtree(NODE_CAPACITY);
+        private final Map<String, Geometry> geometries;
+        private final ConcurrentMap<String, Optional<Geometry>> overlay = new ConcurrentHashMap<>();
+        private final int size;
+
+        State(Map<String, Geometry> geometries) {
+            this.geometries = geometries;
+            this.size = geometries.size();
+            geometries.forEach((identifier, geometry) -> tree.insert(geometry.getEnvelopeInternal(),
+                    new Entry(identifier, geometry)));
+            tree.build();
+        }
+    }
+
+    private static final class Entry {
+        private final String identifier;
+        private final Geometry geometry;
+
+        Entry(String identifier, Geometry geometry) {
+            this.identifier = identifier;
+            this.geometry = geometry;
+        }
+    }
+}
@@ -28,6 +28,7 @@
  */
 package org.n52.sos.util;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -122,6 +123,10 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
 
     private final Map<Integer, CoordinateReferenceSystem> crsCache = Maps.newConcurrentMap();
 
+    private final Map<Integer, Boolean> northingFirstCache = Maps.newConcurrentMap();
+
+    private final Map<Long, Transformation> transformationCache = Maps.newConcurrentMap();
+
     private String srsNamePrefixUrl;
 
     @Setting(CodingSettings.SRS_NAME_PREFIX_URL)
@@ -426,14 +431,16 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
      *             If an error occurs
      */
     public boolean isNorthingFirstEpsgCode(int epsgCode) throws CodedException {
-        try {
-            return AxisOrder.NORTH_EAST.equals(CRS.getAxisOrder(CRS.decode(EPSG_PREFIX + epsgCode))) ? true : false;
-        } catch (FactoryException e) {
-            throw new NoApplicableCodeException().causedBy(e).withMessage("The EPSG '%d' is invalid", epsgCode);
+        Boolean northingFirst = this.northingFirstCache.get(epsgCode);
+        if (northingFirst == null) {
+            try {
+                northingFirst = AxisOrder.NORTH_EAST.equals(CRS.getAxisOrder(CRS.decode(EPSG_PREFIX + epsgCode)));
+            } catch (FactoryException e) {
+                throw new NoApplicableCodeException().causedBy(e).withMessage("The EPSG '%d' is invalid", epsgCode);
+            }
+            this.northingFirstCache.put(epsgCode, northingFirst);
         }
-        // return this.epsgsWithNorthingFirstAxisOrder.stream()
-        // .filter(r -> r.contains(epsgCode))
-        // .findAny().isPresent();
+        return northingFirst;
     }
 
     /**
@@ -483,13 +490,6 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         return JTSHelper.switchCoordinateAxisOrder(geom);
     }
 
-    private Geometry switchCoordinateAxisIfNeeded(Geometry geometry, int targetSRID) throws OwsExceptionReport {
-        if (!shouldSwitchCoordinateAxis(geometry, targetSRID)) {
-            return geometry;
-        }
-        return JTSHelper.switchCoordinateAxisOrder(geometry);
-    }
-
     private boolean shouldSwitchCoordinateAxis(Geometry geom) throws CodedException {
         if (geom == null || geom.isEmpty()) {
             return false;
@@ -497,13 +497,6 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         return isDatasourceNorthingFirst() != isNorthingFirstEpsgCode(geom.getSRID());
     }
 
-    private boolean shouldSwitchCoordinateAxis(Geometry geom, int targetSRID) throws CodedException {
-        if (geom == null || geom.isEmpty()) {
-            return false;
-        }
-        return isNorthingFirstEpsgCode(geom.getSRID()) != isNorthingFirstEpsgCode(targetSRID);
-    }
-
     /**
      * Get filter geometry for BBOX spatial filter and non spatial datasource.
      *
@@ -619,7 +612,7 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         }
         CoordinateReferenceSystem sourceCRS = getCRS(geometry.getSRID());
         int targetSRID = sourceCRS.getCoordinateSystem().getDimension() == 3 ? getStorage3DEPSG() : getStorageEPSG();
-        return transform(geometry, targetSRID, sourceCRS, getCRS(targetSRID));
+        return getTransformation(geometry.getSRID(), targetSRID).apply(geometry);
 
     }
 
@@ -641,43 +634,75 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         if (geometry == null || geometry.isEmpty() || geometry.getSRID() == targetSRID) {
             return geometry;
         }
-        CoordinateReferenceSystem sourceCRS = getCRS(geometry.getSRID());
-        CoordinateReferenceSystem targetCRS = getCRS(targetSRID);
-        return transform(geometry, targetSRID, sourceCRS, targetCRS);
+        return getTransformation(geometry.getSRID(), targetSRID).apply(geometry);
     }
 
     /**
-     * Transform geometry.
+     * Transform the geometries to this EPSG code. The transformation is looked
+     * up once per source EPSG code of consecutive geometries instead of once
+     * per geometry.
      *
-     * @param geometry
-     *            Geometry to transform
+     * @param geometries
+     *            Geometries to transform
      * @param targetSRID
-     *            TargetEPSG code
-     * @param sourceCRS
-     *            Source CRS
-     * @param targetCRS
-     *            Target CRS
+     *            Target EPSG code
      *
-     * @return Transformed geometry
+     * @return Transformed geometries in the order of the passed geometries
      *
      * @throws OwsExceptionReport
      *             If an error occurs
      */
-    private Geometry transform(final Geometry geometry, final int targetSRID,
-            final CoordinateReferenceSystem sourceCRS, final CoordinateReferenceSystem targetCRS)
+    public List<Geometry> transform(Collection<? extends Geometry> geometries, int targetSRID)
             throws OwsExceptionReport {
+        List<Geometry> transformed = new ArrayList<>(geometries.size());
+        Transformation transformation = null;
+        for (Geometry geometry : geometries) {
+            if (geometry == null || geometry.isEmpty() || geometry.getSRID() == targetSRID) {
+                transformed.add(geometry);
+            } else {
+                if (transformation == null || transformation.getSourceSRID() != geometry.getSRID()) {
+                    transformation = getTransformation(geometry.getSRID(), targetSRID);
+                }
+                transformed.add(transformation.apply(geometry));
+            }
+        }
+        return transformed;
+    }
+
+    /**
+     * Get the cached transformation between the EPSG codes.
+     *
+     * @param sourceSRID
+     *            Source EPSG code
+     * @param targetSRID
+     *            Target EPSG code
+     *
+     * @return the transformation
+     *
+     * @throws OwsExceptionReport
+     *             If an EPSG code is not supported
+     */
+    private Transformation getTransformation(int sourceSRID, int targetSRID) throws OwsExceptionReport {
+        Long key = ((long) sourceSRID << Integer.SIZE) | (targetSRID & 0xffffffffL);
+        Transformation transformation = this.transformationCache.get(key);
+        if (transformation == null) {
+            transformation = createTransformation(sourceSRID, targetSRID);
+            this.transformationCache.put(key, transformation);
+        }
+        return transformation;
+    }
+
+    private Transformation createTransformation(int sourceSRID, int targetSRID) throws OwsExceptionReport {
+        CoordinateReferenceSystem sourceCRS = getCRS(sourceSRID);
+        CoordinateReferenceSystem targetCRS = getCRS(targetSRID);
         if (sourceCRS.equals(targetCRS)) {
-            return geometry;
+            return new Transformation(sourceSRID, targetSRID, null, false);
         }
-        Geometry switchedCoordiantes = switchCoordinateAxisIfNeeded(geometry, targetSRID);
         try {
-            MathTransform transform = CRS.findMathTransform(sourceCRS, targetCRS);
-            Geometry transformed = JTS.transform(switchedCoordiantes, transform);
-            transformed.setSRID(targetSRID);
-            return transformed;
-        } catch (FactoryException | MismatchedDimensionException | TransformException fe) {
-            throw new NoApplicableCodeException().causedBy(fe).withMessage(EPSG_NOT_SUPPORTED_TMEPLATE,
-                    switchedCoordiantes.getSRID());
+            return new Transformation(sourceSRID, targetSRID, CRS.findMathTransform(sourceCRS, targetCRS),
+                    isNorthingFirstEpsgCode(sourceSRID) != isNorthingFirstEpsgCode(targetSRID));
+        } catch (FactoryException fe) {
+            throw new NoApplicableCodeException().causedBy(fe).withMessage(EPSG_NOT_SUPPORTED_TMEPLATE, sourceSRID);
         }
     }
 
@@ -761,14 +786,10 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
             CoordinateReferenceSystem targetCRS = getCRS(targetSRID);
             try {
                 if (sourceCRS.getCoordinateSystem().getDimension() == targetCRS.getCoordinateSystem().getDimension()) {
-                    MathTransform transform = CRS.findMathTransform(sourceCRS, targetCRS);
-                    Envelope transformed = JTS.transform(envelope, transform);
-                    return transformed;
+                    MathTransform transform = getTransformation(sourceSRID, targetSRID).getMathTransform();
+                    return transform != null ? JTS.transform(envelope, transform) : envelope;
                 }
                 return envelope;
-            } catch (FactoryException fe) {
-                throw new NoApplicableCodeException().causedBy(fe).withMessage(EPSG_NOT_SUPPORTED_TMEPLATE,
-                        sourceSRID);
             } catch (MismatchedDimensionException | TransformException mde) {
                 throw new NoApplicableCodeException().causedBy(mde)
                         .withMessage("Transformation from EPSG code '%s' to '%s' fails!", sourceSRID, targetSRID);
@@ -783,6 +804,8 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
     @VisibleForTesting
     protected void clearSupportedCRSMap() {
         crsCache.clear();
+        northingFirstCache.clear();
+        transformationCache.clear();
     }
 
     public Set<String> addAuthorityCrsPrefix(Collection<String> crses) {
@@ -814,4 +837,46 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
                 FeatureQuerySettingsProvider.EPSG_CODES_WITH_NORTHING_FIRST, entry), ex);
     }
 
+
+    /**
+     * Transformation between two EPSG codes consisting of the optional axis
+     * order switch and the {@link MathTransform}.
+     */
+    private static final class Transformation {
+        private final int sourceSRID;
+        private final int targetSRID;
+        private final MathTransform mathTransform;
+        private final boolean switchAxis;
+
+        Transformation(int sourceSRID, int targetSRID, MathTransform mathTransform, boolean switchAxis) {
+            this.sourceSRID = sourceSRID;
+            this.targetSRID = targetSRID;
+            this.mathTransform = mathTransform;
+            this.switchAxis = switchAxis;
+        }
+
+        int getSourceSRID() {
+            return sourceSRID;
+        }
+
+        MathTransform getMathTransform() {
+            return mathTransform;
+        }
+
+        Geometry apply(Geometry geometry) throws OwsExceptionReport {
+            if (mathTransform == null) {
+                return geometry;
+            }
+            Geometry switched = switchAxis ? JTSHelper.switchCoordinateAxisOrder(geometry) : geometry;
+            try {
+                Geometry transformed = JTS.transform(switched, mathTransform);
+                transformed.setSRID(targetSRID);
+                return transformed;
+            } catch (MismatchedDimensionException | TransformException e) {
+                throw new NoApplicableCodeException().causedBy(e).withMessage(EPSG_NOT_SUPPORTED_TMEPLATE,
+                        switched.getSRID());
+            }
+        }
+    }
+
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single pass tokenizer for the text encoded <code>resultValues</code> of InsertResult requests. The block and token
+ * separators are matched literally, as defined by the SWE text encoding, and the blocks are split into their tokens
+ * in the same pass, without compiling regular expressions or creating intermediate block strings.
+ * <p>
+ * Empty blocks are skipped, empty tokens are kept. A leading block without a token separator is interpreted as the
+ * optional count of blocks and is skipped.
+ *
+ * @since 5.3.2
+ */
+public final class ResultValuesTokenizer {
+
+    private final String tokenSeparator;
+
+    private final String blockSeparator;
+
+    /**
+     * Create a new tokenizer.
+     *
+     * @param tokenSeparator
+     *            the token separator
+     * @param blockSeparator
+     *            the block separator
+     */
+    public ResultValuesTokenizer(String tokenSeparator, String blockSeparator) {
+        if (tokenSeparator == null || tokenSeparator.isEmpty()) {
+            throw new IllegalArgumentException("tokenSeparator must not be empty");
+        }
+        if (blockSeparator == null || blockSeparator.isEmpty()) {
+            throw new IllegalArgumentException("blockSeparator must not be empty");
+        }
+        this.tokenSeparator = tokenSeparator;
+        this.blockSeparator = blockSeparator;
+    }
+
+    /**
+     * Split the result values into blocks of tokens.
+     *
+     * @param resultValues
+     *            the result values
+     * @return the tokens of the non empty blocks
+     */
+    public List<List<String>> tokenize(String resultValues) {
+        if (resultValues == null || resultValues.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<String>> blocks = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        boolean first = true;
+        int length = resultValues.length();
+        int tokenStart = 0;
+        int blockStart = 0;
+        int i = 0;
+        while (i <= length) {
+            if (i == length || resultValues.startsWith(blockSeparator, i)) {
+                if (i > blockStart) {
+                    tokens.add(resultValues.substring(tokenStart, i));
+                    if (!first || tokens.size() > 1) {
+                        blocks.add(tokens);
+                    }
+                    first = false;
+                    tokens = new ArrayList<>(tokens.size());
+                }
+                i += blockSeparator.length();
+                tokenStart = i;
+                blockStart = i;
+            } else if (resultValues.startsWith(tokenSeparator, i)) {
+                tokens.add(resultValues.substring(tokenStart, i));
+                i += tokenSeparator.length();
+                tokenStart = i;
+            } else {
+                i++;
+            }
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.n52.iceland.coding.encode.ResponseProxy;
+import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
+import org.n52.sos.coding.encode.BinaryAttachmentResponseWriter.HeaderCode;
+import org.n52.svalbard.encode.EncoderRepository;
+
+public class BinaryAttachmentResponseWriterTest {
+
+    private static final MediaType CONTENT_TYPE = new MediaType("application", "octet-stream");
+
+    private static final String FILENAME = "test.nc";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private BinaryAttachmentResponseWriter writer;
+
+    private HttpServletResponse servletResponse;
+
+    private ResponseProxy responseProxy;
+
+    @Before
+    public void setUp() {
+        writer = new BinaryAttachmentResponseWriter(new EncoderRepository());
+        servletResponse = Mockito.mock(HttpServletResponse.class);
+        responseProxy = new ResponseProxy(servletResponse);
+    }
+
+    @Test
+    public void shouldWriteByteArrayResponse() throws IOException {
+        byte[] bytes = "netcdf".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(new BinaryAttachmentResponse(bytes, CONTENT_TYPE, FILENAME), out, responseProxy);
+        MatcherAssert.assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), Is.is("netcdf"));
+        Mockito.verify(servletResponse).setContentLength(bytes.length);
+        verifyHeaders();
+    }
+
+    @Test
+    public void shouldTransferFilesAndDeleteDirectory() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Path file = Files.write(directory.resolve(FILENAME), "netcdf".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(new FileAttachmentResponse(directory, Collections.singletonList(file), false, CONTENT_TYPE,
+                FILENAME), out, responseProxy);
+        MatcherAssert.assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), Is.is("netcdf"));
+        Mockito.verify(servletResponse).setContentLength(6);
+        verifyHeaders();
+        MatcherAssert.assertThat(Files.exists(directory), Is.is(false));
+    }
+
+    @Test
+    public void shouldNotSetContentLengthForZip() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Path file = Files.write(directory.resolve(FILENAME), "netcdf".getBytes(StandardCharsets.UTF_8));
+        writer.write(new FileAttachmentResponse(directory, Collections.singletonList(file), true, CONTENT_TYPE,
+                FILENAME), new ByteArrayOutputStream(), responseProxy);
+        Mockito.verify(servletResponse, Mockito.never()).setContentLength(Mockito.anyInt());
+        MatcherAssert.assertThat(Files.exists(directory), Is.is(false));
+    }
+
+    @Test
+    public void shouldDeleteDirectoryIfTransferFails() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Path file = Files.write(directory.resolve(FILENAME), "netcdf".getBytes(StandardCharsets.UTF_8));
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("client disconnected");
+            }
+        };
+        try {
+            writer.write(new FileAttachmentResponse(directory, Collections.singletonList(file), false, CONTENT_TYPE,
+                    FILENAME), out, responseProxy);
+            Assert.fail("Expected IOException");
+        } catch (IOException e) {
+            MatcherAssert.assertThat(e.getMessage(), Is.is("client disconnected"));
+        }
+        MatcherAssert.assertThat(Files.exists(directory), Is.is(false));
+    }
+
+    private void verifyHeaders() {
+        Mockito.verify(servletResponse).addHeader(HeaderCode.CONTENT_TRANSFER_ENCODING,
+                HeaderCode.CONTENT_TRANSFER_ENCODING_BINARY);
+        Mockito.verify(servletResponse).addHeader(HeaderCode.CONTENT_DISPOSITION,
+                String.format(HeaderCode.CONTENT_ATTACHMENT_FILENAME_FORMAT, FILENAME));
+    }
+}
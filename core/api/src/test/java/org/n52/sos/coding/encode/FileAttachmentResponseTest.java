@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.janmayen.http.MediaType;
+
+import com.google.common.io.ByteStreams;
+
+public class FileAttachmentResponseTest {
+
+    private static final MediaType CONTENT_TYPE = new MediaType("application", "octet-stream");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    private Path first;
+
+    private Path second;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temporaryFolder.newFolder().toPath();
+        first = Files.write(directory.resolve("first.nc"), "abc".getBytes(StandardCharsets.UTF_8));
+        second = Files.write(directory.resolve("second.nc"), "defg".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldWritePlainFilesInOrder() throws IOException {
+        FileAttachmentResponse response = createResponse(false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.writeTo(out);
+        MatcherAssert.assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), Is.is("abcdefg"));
+        MatcherAssert.assertThat(response.getContentLength(), Is.is(7L));
+    }
+
+    @Test
+    public void shouldWriteFilesAsZipEntries() throws IOException {
+        FileAttachmentResponse response = createResponse(true);
+        MatcherAssert.assertThat(response.getContentLength(), Is.is(-1L));
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.readBytes()))) {
+            assertEntry(zip, "first.nc", "abc");
+            assertEntry(zip, "second.nc", "defg");
+            MatcherAssert.assertThat(zip.getNextEntry() == null, Is.is(true));
+        }
+    }
+
+    @Test
+    public void shouldReadSameBytesAsWritten() throws IOException {
+        FileAttachmentResponse response = createResponse(false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.writeTo(out);
+        MatcherAssert.assertThat(Arrays.equals(response.readBytes(), out.toByteArray()), Is.is(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowCheckedExceptionForMissingFiles() throws IOException {
+        FileAttachmentResponse response = createResponse(false);
+        Files.delete(second);
+        response.readBytes();
+    }
+
+    @Test
+    public void shouldReturnContentAsBytes() throws IOException {
+        FileAttachmentResponse response = createResponse(false);
+        MatcherAssert.assertThat(new String(response.getBytes(), StandardCharsets.UTF_8), Is.is("abcdefg"));
+        MatcherAssert.assertThat(Arrays.equals(response.getBytes(), response.readBytes()), Is.is(true));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void shouldThrowUncheckedExceptionForMissingFilesInGetBytes() throws IOException {
+        FileAttachmentResponse response = createResponse(false);
+        Files.delete(second);
+        response.getBytes();
+    }
+
+    @Test
+    public void shouldDeleteDirectoryOnClose() {
+        FileAttachmentResponse response = createResponse(false);
+        response.close();
+        MatcherAssert.assertThat(Files.exists(directory), Is.is(false));
+        // closing twice is a no-op
+        response.close();
+        MatcherAssert.assertThat(Files.exists(directory), Is.is(false));
+    }
+
+    private FileAttachmentResponse createResponse(boolean zip) {
+        return new FileAttachmentResponse(directory, Arrays.asList(first, second), zip, CONTENT_TYPE, "test.zip");
+    }
+
+    private static void assertEntry(ZipInputStream zip, String name, String content) throws IOException {
+        ZipEntry entry = zip.getNextEntry();
+        MatcherAssert.assertThat(entry.getName(), Is.is(name));
+        MatcherAssert.assertThat(new String(ByteStreams.toByteArray(zip), StandardCharsets.UTF_8), Is.is(content));
+    }
+}
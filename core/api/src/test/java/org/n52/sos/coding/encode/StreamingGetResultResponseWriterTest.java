@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.hamcrest.core.StringContains;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.iceland.coding.encode.ResponseProxy;
+import org.n52.janmayen.http.MediaTypes;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+public class StreamingGetResultResponseWriterTest {
+
+    private static final String VALUES = "2@2020-01-01T00:00:00Z,1.5#2020-01-02T00:00:00Z,<2.5>";
+
+    private StreamingGetResultResponseWriter writer;
+
+    private ResponseProxy responseProxy;
+
+    @Before
+    public void setUp() {
+        writer = new StreamingGetResultResponseWriter(new EncoderRepository(), null);
+        writer.setContentType(MediaTypes.APPLICATION_XML);
+        responseProxy = new ResponseProxy(Mockito.mock(HttpServletResponse.class));
+    }
+
+    @Test
+    public void shouldStreamEscapedResultValues() throws IOException, EncodingException {
+        TestResultValues values = new TestResultValues();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(new StreamingGetResultResponse(values), out, responseProxy);
+        String xml = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        MatcherAssert.assertThat(xml, StringContains.containsString(
+                "<sos:resultValues>2@2020-01-01T00:00:00Z,1.5#2020-01-02T00:00:00Z,&lt;2.5&gt;</sos:resultValues>"));
+        MatcherAssert.assertThat(values.written, Is.is(1));
+        MatcherAssert.assertThat(values.closed, Is.is(true));
+    }
+
+    @Test
+    public void shouldMaterializeResultValuesOnce() throws IOException {
+        TestResultValues values = new TestResultValues();
+        try (StreamingGetResultResponse response = new StreamingGetResultResponse(values)) {
+            MatcherAssert.assertThat(response.getResultValues(), Is.is(VALUES));
+            MatcherAssert.assertThat(response.getResultValues(), Is.is(VALUES));
+            MatcherAssert.assertThat(response.isStreaming(), Is.is(false));
+        }
+        MatcherAssert.assertThat(values.written, Is.is(1));
+        MatcherAssert.assertThat(values.closed, Is.is(true));
+    }
+
+    @Test
+    public void shouldCloseUnwrittenResultValues() throws IOException {
+        TestResultValues values = new TestResultValues();
+        new StreamingGetResultResponse(values).close();
+        MatcherAssert.assertThat(values.written, Is.is(0));
+        MatcherAssert.assertThat(values.closed, Is.is(true));
+    }
+
+    private static class TestResultValues implements StreamingGetResultResponse.ResultValues {
+        private int written;
+
+        private boolean closed;
+
+        @Override
+        public void write(Writer out) throws IOException {
+            written++;
+            out.write(VALUES);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.iceland.service.operator.ServiceOperator;
+import org.n52.janmayen.function.Either;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.request.BatchRequest;
+import org.n52.shetland.ogc.sos.response.BatchResponse;
+
+public class BatchOperationHandlerTest {
+
+    private static final long TIMEOUT = 5;
+
+    private final Map<OwsServiceRequest, Callable<OwsServiceResponse>> operations = new HashMap<>();
+
+    private final List<OwsServiceRequest> requests = new ArrayList<>();
+
+    private final ServiceOperator serviceOperator = Mockito.mock(ServiceOperator.class);
+
+    private BatchOperationHandler handler;
+
+    @Before
+    public void setUp() throws OwsExceptionReport {
+        handler = new BatchOperationHandler() {
+            @Override
+            protected ServiceOperator getServiceOperator(OwsServiceRequest request) {
+                return serviceOperator;
+            }
+        };
+        Mockito.when(serviceOperator.receiveRequest(Mockito.any(OwsServiceRequest.class)))
+                .thenAnswer(invocation -> operations.get(invocation.getArgument(0)).call());
+    }
+
+    @After
+    public void tearDown() {
+        handler.destroy();
+    }
+
+    @Test
+    public void shouldKeepRequestOrderOfConcurrentResponses() throws Exception {
+        handler.setThreadCount(3);
+        CountDownLatch lastExecuted = new CountDownLatch(1);
+        OwsServiceResponse first = add(SosConstants.Operations.GetObservation.name(), () -> {
+            // only returns after the last request completed
+            MatcherAssert.assertThat(lastExecuted.await(TIMEOUT, TimeUnit.SECONDS), Is.is(true));
+            return response();
+        });
+        OwsServiceResponse second = add(SosConstants.Operations.DescribeSensor.name(), this::response);
+        OwsServiceResponse third = add(SosConstants.Operations.GetFeatureOfInterest.name(), () -> {
+            lastExecuted.countDown();
+            return response();
+        });
+        List<Either<OwsExceptionReport, OwsServiceResponse>> responses = execute(false);
+        MatcherAssert.assertThat(responses.size(), Is.is(3));
+        MatcherAssert.assertThat(responses.get(0).getRight(), Is.is(first));
+        MatcherAssert.assertThat(responses.get(1).getRight(), Is.is(second));
+        MatcherAssert.assertThat(responses.get(2).getRight(), Is.is(third));
+    }
+
+    @Test
+    public void shouldExecuteTransactionalRequestsAfterPreviousReadOnlyRequests() throws Exception {
+        handler.setThreadCount(3);
+        AtomicInteger completed = new AtomicInteger();
+        List<Integer> completedBeforeTransactional = Collections.synchronizedList(new ArrayList<>());
+        Callable<OwsServiceResponse> readOnly = () -> {
+            Thread.sleep(50);
+            completed.incrementAndGet();
+            return response();
+        };
+        add(SosConstants.Operations.GetObservation.name(), readOnly);
+        add(SosConstants.Operations.GetObservation.name(), readOnly);
+        OwsServiceResponse transactional = add(SosConstants.Operations.InsertObservation.name(), () -> {
+            completedBeforeTransactional.add(completed.get());
+            return response();
+        });
+        add(SosConstants.Operations.GetObservation.name(), () -> {
+            completedBeforeTransactional.add(completed.get());
+            return response();
+        });
+        List<Either<OwsExceptionReport, OwsServiceResponse>> responses = execute(false);
+        MatcherAssert.assertThat(responses.size(), Is.is(4));
+        MatcherAssert.assertThat(responses.get(2).getRight(), Is.is(transactional));
+        // the read-only request after the barrier is not started before the transactional one
+        MatcherAssert.assertThat(completedBeforeTransactional, Is.is(Arrays.asList(2, 2)));
+    }
+
+    @Test
+    public void shouldNotStartRequestsAfterFailureWithStopAtFailure() throws Exception {
+        handler.setThreadCount(2);
+        AtomicInteger executedAfterFailure = new AtomicInteger();
+        CountDownLatch failing = new CountDownLatch(1);
+        OwsServiceResponse first = add(SosConstants.Operations.GetObservation.name(), () -> {
+            // keep the first request running while the second one fails
+            MatcherAssert.assertThat(failing.await(TIMEOUT, TimeUnit.SECONDS), Is.is(true));
+            Thread.sleep(100);
+            return response();
+        });
+        add(Sos2Constants.Operations.GetResultTemplate.name(), () -> {
+            failing.countDown();
+            throw new NoApplicableCodeException().withMessage("failure");
+        });
+        for (int i = 0; i < 4; i++) {
+            add(SosConstants.Operations.GetObservation.name(), () -> {
+                executedAfterFailure.incrementAndGet();
+                return response();
+            });
+        }
+        List<Either<OwsExceptionReport, OwsServiceResponse>> responses = execute(true);
+        MatcherAssert.assertThat(responses.size(), Is.is(2));
+        MatcherAssert.assertThat(responses.get(0).getRight(), Is.is(first));
+        MatcherAssert.assertThat(responses.get(1).isLeft(), Is.is(true));
+        MatcherAssert.assertThat(executedAfterFailure.get(), Is.is(0));
+    }
+
+    @Test
+    public void shouldContinueAfterFailureWithoutStopAtFailure() throws Exception {
+        handler.setThreadCount(2);
+        add(SosConstants.Operations.GetObservation.name(), () -> {
+            throw new NoApplicableCodeException().withMessage("failure");
+        });
+        OwsServiceResponse second = add(SosConstants.Operations.GetObservation.name(), this::response);
+        List<Either<OwsExceptionReport, OwsServiceResponse>> responses = execute(false);
+        MatcherAssert.assertThat(responses.size(), Is.is(2));
+        MatcherAssert.assertThat(responses.get(0).isLeft(), Is.is(true));
+        MatcherAssert.assertThat(responses.get(1).getRight(), Is.is(second));
+    }
+
+    private OwsServiceResponse add(String operation, Callable<OwsServiceResponse> callable) throws Exception {
+        OwsServiceRequest request = Mockito.mock(OwsServiceRequest.class);
+        Mockito.when(request.getOperationName()).thenReturn(operation);
+        OwsServiceResponse expected = response();
+        operations.put(request, () -> {
+            callable.call();
+            return expected;
+        });
+        requests.add(request);
+        return expected;
+    }
+
+    private OwsServiceResponse response() {
+        return Mockito.mock(OwsServiceResponse.class);
+    }
+
+    private List<Either<OwsExceptionReport, OwsServiceResponse>> execute(boolean stopAtFailure)
+            throws OwsExceptionReport {
+        BatchRequest request = Mockito.mock(BatchRequest.class);
+        Mockito.when(request.iterator()).thenAnswer(invocation -> requests.iterator());
+        Mockito.when(request.isStopAtFailure()).thenReturn(stopAtFailure);
+        Mockito.when(request.getService()).thenReturn(SosConstants.SOS);
+        Mockito.when(request.getVersion()).thenReturn(Sos2Constants.SERVICEVERSION);
+        BatchResponse response = handler.executeRequests(request);
+        return response.getResponses();
+    }
+}
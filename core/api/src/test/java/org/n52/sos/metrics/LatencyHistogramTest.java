@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldMapValuesToContainingBucket() {
+        for (long value : new long[] { 0, 1, 63, 64, 65, 127, 128, 1000, 123456789L, Long.MAX_VALUE }) {
+            int index = LatencyHistogram.index(value);
+            MatcherAssert.assertThat(index, Matchers.lessThan(LatencyHistogram.BUCKETS));
+            MatcherAssert.assertThat(LatencyHistogram.lowerBound(index), Matchers.lessThanOrEqualTo(value));
+            MatcherAssert.assertThat(LatencyHistogram.upperBound(index), Matchers.greaterThanOrEqualTo(value));
+        }
+    }
+
+    @Test
+    public void shouldReportPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        MatcherAssert.assertThat(histogram.getCount(), Is.is(1000L));
+        MatcherAssert.assertThat(histogram.getMax(), Is.is(1_000_000_000L));
+        MatcherAssert.assertThat((double) histogram.getValueAtPercentile(50),
+                Matchers.closeTo(500_000_000.0, 500_000_000.0 * 0.04));
+        MatcherAssert.assertThat((double) histogram.getValueAtPercentile(99),
+                Matchers.closeTo(990_000_000.0, 990_000_000.0 * 0.04));
+        MatcherAssert.assertThat(histogram.getValueAtPercentile(100), Is.is(1_000_000_000L));
+    }
+
+    @Test
+    public void shouldBeEmptyAfterReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+        histogram.reset();
+        MatcherAssert.assertThat(histogram.getCount(), Is.is(0L));
+        MatcherAssert.assertThat(histogram.getValueAtPercentile(50), Is.is(0L));
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.metrics;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void shouldRecordWhenEnabled() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.recordSince(registry.start(), MetricsRegistry.OPERATION_DURATION, MetricsRegistry.LABEL_OPERATION,
+                "GetObservation");
+        registry.increment(MetricsRegistry.OPERATION_ERRORS);
+        MatcherAssert.assertThat(registry.getTimers().size(), Is.is(1));
+        MatcherAssert.assertThat(registry.getCounters().size(), Is.is(1));
+    }
+
+    @Test
+    public void shouldNotRecordWhenDisabled() {
+        MetricsRegistry registry = MetricsRegistry.disabled();
+        MatcherAssert.assertThat(registry.isEnabled(), Is.is(false));
+        registry.recordSince(registry.start(), MetricsRegistry.OPERATION_DURATION);
+        registry.record(MetricsRegistry.OPERATION_DURATION, 1L);
+        registry.recordCacheAccess("getCapabilities", true);
+        MatcherAssert.assertThat(registry.getTimers().isEmpty(), Is.is(true));
+        MatcherAssert.assertThat(registry.getCounters().isEmpty(), Is.is(true));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.hamcrest.core.Is;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.n52.shetland.util.JTSHelper;
+
+public class FeatureSpatialIndexTest {
+
+    private static final int EPSG_4326 = 4326;
+
+    private final GeometryFactory factory = JTSHelper.getGeometryFactoryForSRID(EPSG_4326);
+
+    private FeatureSpatialIndex index;
+
+    private List<Geometry> filter;
+
+    @Before
+    public void init() throws Exception {
+        GeometryHandler geometryHandler = new GeometryHandler();
+        geometryHandler.setAuthority("EPSG");
+        geometryHandler.setStorageEpsg(EPSG_4326);
+        geometryHandler.setSupportedCRS(String.valueOf(EPSG_4326));
+        geometryHandler.setEpsgCodesWithNorthingFirstAxisOrder(String.valueOf(EPSG_4326));
+        geometryHandler.setDatasourceNorthingFirst(true);
+        geometryHandler.setSpatialDatasource(false);
+        geometryHandler.init();
+
+        index = new FeatureSpatialIndex();
+        index.setGeometryHandler(geometryHandler);
+
+        Map<String, Geometry> geometries = new HashMap<>();
+        geometries.put("inside", point(52.5, 7.5));
+        geometries.put("outside", point(10.0, 10.0));
+        geometries.put("noGeometry", null);
+        index.rebuild(geometries);
+
+        filter = Collections.singletonList(factory.toGeometry(new Envelope(52.0, 53.0, 7.0, 8.0)));
+    }
+
+    @Test
+    public void shouldResolveFeaturesWithinFilter() {
+        MatcherAssert.assertThat(index.isAvailable(), Is.is(true));
+        MatcherAssert.assertThat(index.query(filter), Matchers.contains("inside"));
+    }
+
+    @Test
+    public void shouldApplyModificationsAfterBuild() {
+        index.put("added", point(52.6, 7.6));
+        index.put("inside", point(10.0, 10.0));
+        MatcherAssert.assertThat(index.query(filter), Matchers.contains("added"));
+        index.remove("added");
+        MatcherAssert.assertThat(index.query(filter), Matchers.empty());
+    }
+
+    @Test
+    public void shouldReportInvalidatedFeaturesAsStale() {
+        index.invalidate("inside");
+        MatcherAssert.assertThat(index.query(filter), Matchers.empty());
+        MatcherAssert.assertThat(index.getStaleIdentifiers(), Matchers.contains("inside"));
+        index.put("inside", point(52.5, 7.5));
+        MatcherAssert.assertThat(index.getStaleIdentifiers(), Matchers.empty());
+        MatcherAssert.assertThat(index.query(filter), Matchers.contains("inside"));
+    }
+
+    @Test
+    public void shouldBeUnavailableIfDisabled() {
+        index.setEnabled(false);
+        MatcherAssert.assertThat(index.isAvailable(), Is.is(false));
+        MatcherAssert.assertThat(index.query(filter), Matchers.empty());
+    }
+
+    private Geometry point(double x, double y) {
+        return factory.createPoint(new Coordinate(x, y));
+    }
+}
@@ -28,6 +28,8 @@
  */
 package org.n52.sos.util;
 
+import java.util.List;
+
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.core.Is;
 import org.junit.Assert;
@@ -46,6 +48,7 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.util.JTSHelper;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 
 public class GeometryHandlerTest {
 
@@ -311,6 +314,21 @@ public class GeometryHandlerTest {
                 .distance(get31467LineString()) < DISTANCE, Is.is(true));
     }
 
+    @Test
+    public void shouldTransformGeometriesLikeSingleGeometries() throws OwsExceptionReport {
+        geometryHandler.clearSupportedCRSMap();
+        List<Geometry> transformed = geometryHandler
+                .transform(Lists.newArrayList(get31467Point(), get4326Point(), get31467LineString()), EPSG_4326);
+        MatcherAssert.assertThat(transformed.size(), Is.is(3));
+        MatcherAssert.assertThat(transformed.get(0).getSRID(), Is.is(EPSG_4326));
+        MatcherAssert.assertThat(
+                transformed.get(0).distance(geometryHandler.transform(get31467Point(), EPSG_4326)) < DISTANCE,
+                Is.is(true));
+        MatcherAssert.assertThat(transformed.get(1).distance(get4326Point()) < DISTANCE, Is.is(true));
+        MatcherAssert.assertThat(transformed.get(2).distance(get4326LineString()) < DISTANCE_TRANSFORMED,
+                Is.is(true));
+    }
+
     @Test
     public void schouldTransformPolygonToStorageEPSG4326() throws OwsExceptionReport {
         geometryHandler.clearSupportedCRSMap();
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+
+/**
+ * @since 5.3.2
+ */
+public class ResultValuesTokenizerTest {
+
+    @Test
+    public void should_split_blocks_and_tokens() {
+        List<List<String>> blocks = new ResultValuesTokenizer(",", "#")
+                .tokenize("2012-11-19T13:30:00Z,1.0#2012-11-19T13:31:00Z,2.0#");
+        MatcherAssert.assertThat(blocks, Matchers.hasSize(2));
+        MatcherAssert.assertThat(blocks.get(0), Is.is(Arrays.asList("2012-11-19T13:30:00Z", "1.0")));
+        MatcherAssert.assertThat(blocks.get(1), Is.is(Arrays.asList("2012-11-19T13:31:00Z", "2.0")));
+    }
+
+    @Test
+    public void should_skip_count_and_empty_blocks() {
+        List<List<String>> blocks = new ResultValuesTokenizer(",", "@@").tokenize("2@@a,1@@@@b,2@@");
+        MatcherAssert.assertThat(blocks, Matchers.hasSize(2));
+        MatcherAssert.assertThat(blocks.get(0), Is.is(Arrays.asList("a", "1")));
+        MatcherAssert.assertThat(blocks.get(1), Is.is(Arrays.asList("b", "2")));
+    }
+
+    @Test
+    public void should_keep_empty_tokens() {
+        List<List<String>> blocks = new ResultValuesTokenizer(",", ";").tokenize("a,,1,");
+        MatcherAssert.assertThat(blocks.get(0), Is.is(Arrays.asList("a", "", "1", "")));
+    }
+
+    @Test
+    public void should_match_separators_literally() {
+        List<List<String>> blocks = new ResultValuesTokenizer("|", ".").tokenize("a|1.b|2");
+        MatcherAssert.assertThat(blocks, Matchers.hasSize(2));
+        MatcherAssert.assertThat(blocks.get(1), Is.is(Arrays.asList("b", "2")));
+    }
+}
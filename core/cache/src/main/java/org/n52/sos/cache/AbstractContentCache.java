@@ -48,6 +48,7 @@ import org.n52.shetland.util.ReferencedEnvelope;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
 /**
@@ -132,6 +133,8 @@ public abstract class AbstractContentCache implements ContentCache {
     protected static <T> Set<T> copyOf(Set<T> set) {
         if (set == null) {
             return Collections.emptySet();
+        } else if (set instanceof ImmutableSet) {
+            return set;
         } else {
             return Collections.unmodifiableSet(new HashSet<>(set));
         }
@@ -0,0 +1,457 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.janmayen.i18n.LocalizedString;
+import org.n52.janmayen.i18n.MultilingualString;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.util.ReferencedEnvelope;
+
+/**
+ * Compact binary format of the {@link InMemoryCacheImpl} that is used for its Java serialization. All strings are
+ * written once to a string table and referenced by their index, so that collections of identifiers are stored as int
+ * lists. The format is versioned by a format version and a fingerprint of the cache fields; if either does not match
+ * the cache can not be read and has to be reloaded from the datasource.
+ *
+ * @since 5.3.2
+ */
+final class BinaryCacheCodec {
+
+    static final int MAGIC = 0x534F5343;
+
+    static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte DATE_TIME = 3;
+    private static final byte ENVELOPE = 4;
+    private static final byte LOCALE = 5;
+    private static final byte MULTILINGUAL_STRING = 6;
+    private static final byte STRING_SET = 7;
+    private static final byte SET = 8;
+    private static final byte MAP = 9;
+    private static final byte ENUM = 10;
+    private static final byte TIME_PERIOD = 11;
+    private static final byte OBJECT = 12;
+
+    private static final List<Field> FIELDS = Arrays.stream(InMemoryCacheImpl.class.getDeclaredFields())
+            .filter(f -> !Modifier.isStatic(f.getModifiers()) && !Modifier.isTransient(f.getModifiers()))
+            .filter(f -> !f.getName().equals("snapshot"))
+            .sorted(Comparator.comparing(Field::getName))
+            .peek(f -> f.setAccessible(true))
+            .collect(Collectors.toList());
+
+    private static final int FINGERPRINT = FIELDS.stream()
+            .map(f -> f.getName() + ':' + f.getGenericType().getTypeName())
+            .collect(Collectors.joining(";")).hashCode();
+
+    private BinaryCacheCodec() {
+    }
+
+    static byte[] encode(InMemoryCacheImpl cache) throws IOException {
+        Encoder encoder = new Encoder();
+        try {
+            for (Field field : FIELDS) {
+                encoder.write(field.get(cache));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+        return encoder.toByteArray();
+    }
+
+    static InMemoryCacheImpl decode(byte[] data) throws IOException {
+        Decoder decoder = new Decoder(ByteBuffer.wrap(data));
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        try {
+            for (Field field : FIELDS) {
+                set(cache, field, decoder.read());
+            }
+        } catch (IllegalAccessException | BufferUnderflowException e) {
+            throw new IOException("Invalid binary cache", e);
+        }
+        return cache;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void set(InMemoryCacheImpl cache, Field field, Object value) throws IllegalAccessException {
+        if (!Modifier.isFinal(field.getModifiers())) {
+            field.set(cache, value);
+        } else if (value instanceof Map) {
+            Map target = (Map) field.get(cache);
+            ((Map<Object, Object>) value).forEach((k, v) -> target.put(k, v instanceof Set
+                    ? Collections.synchronizedSet((Set) v) : v));
+        } else if (value instanceof Set) {
+            ((Set) field.get(cache)).addAll((Set) value);
+        } else if (value instanceof TimePeriod) {
+            TimePeriod target = (TimePeriod) field.get(cache);
+            target.setStart(((TimePeriod) value).getStart());
+            target.setEnd(((TimePeriod) value).getEnd());
+        }
+    }
+
+    /**
+     * Serialized form of the {@link InMemoryCacheImpl}.
+     */
+    static final class SerializedCache implements Serializable {
+        private static final long serialVersionUID = 6371426437219409162L;
+
+        private transient InMemoryCacheImpl cache;
+
+        SerializedCache(InMemoryCacheImpl cache) {
+            this.cache = cache;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            byte[] data = encode(cache);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException {
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            this.cache = decode(data);
+        }
+
+        private Object readResolve() {
+            return cache;
+        }
+    }
+
+    private static final class Encoder {
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        void write(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof DateTime) {
+                out.writeByte(DATE_TIME);
+                writeDateTime((DateTime) value);
+            } else if (value instanceof ReferencedEnvelope) {
+                out.writeByte(ENVELOPE);
+                writeEnvelope((ReferencedEnvelope) value);
+            } else if (value instanceof Locale) {
+                out.writeByte(LOCALE);
+                writeString(((Locale) value).toLanguageTag());
+            } else if (value instanceof MultilingualString) {
+                out.writeByte(MULTILINGUAL_STRING);
+                writeMultilingualString((MultilingualString) value);
+            } else if (value instanceof Set) {
+                writeSet((Set<?>) value);
+            } else if (value instanceof Map) {
+                writeMap((Map<?, ?>) value);
+            } else if (value instanceof Enum) {
+                out.writeByte(ENUM);
+                writeString(((Enum<?>) value).getDeclaringClass().getName());
+                writeString(((Enum<?>) value).name());
+            } else if (value instanceof TimePeriod) {
+                out.writeByte(TIME_PERIOD);
+                write(((TimePeriod) value).getStart());
+                write(((TimePeriod) value).getEnd());
+            } else {
+                out.writeByte(OBJECT);
+                writeObject(value);
+            }
+        }
+
+        private void writeSet(Set<?> set) throws IOException {
+            // synchronized collections use themselves as mutex
+            synchronized (set) {
+                if (set.stream().allMatch(String.class::isInstance)) {
+                    out.writeByte(STRING_SET);
+                    out.writeInt(set.size());
+                    for (Object value : set) {
+                        writeString((String) value);
+                    }
+                } else {
+                    out.writeByte(SET);
+                    out.writeInt(set.size());
+                    for (Object value : set) {
+                        write(value);
+                    }
+                }
+            }
+        }
+
+        private void writeMap(Map<?, ?> map) throws IOException {
+            synchronized (map) {
+                out.writeByte(MAP);
+                out.writeInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    write(entry.getKey());
+                    write(entry.getValue());
+                }
+            }
+        }
+
+        private void writeDateTime(DateTime time) throws IOException {
+            out.writeLong(time.getMillis());
+            writeString(time.getZone().getID());
+        }
+
+        private void writeEnvelope(ReferencedEnvelope envelope) throws IOException {
+            out.writeInt(envelope.getSrid());
+            Envelope e = envelope.getEnvelope();
+            out.writeBoolean(e != null && !e.isNull());
+            if (e != null && !e.isNull()) {
+                out.writeDouble(e.getMinX());
+                out.writeDouble(e.getMaxX());
+                out.writeDouble(e.getMinY());
+                out.writeDouble(e.getMaxY());
+            } else {
+                out.writeBoolean(e != null);
+            }
+        }
+
+        private void writeMultilingualString(MultilingualString string) throws IOException {
+            List<LocalizedString> localizations = new ArrayList<>();
+            string.forEach(localizations::add);
+            out.writeInt(localizations.size());
+            for (LocalizedString localization : localizations) {
+                writeString(localization.getLang().toLanguageTag());
+                writeString(localization.getText());
+            }
+        }
+
+        private void writeObject(Object value) throws IOException {
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(serialized)) {
+                oos.writeObject(value);
+            }
+            out.writeInt(serialized.size());
+            serialized.writeTo(out);
+        }
+
+        private void writeString(String string) throws IOException {
+            Integer index = strings.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.put(string, index);
+            }
+            out.writeInt(index);
+        }
+
+        byte[] toByteArray() throws IOException {
+            out.flush();
+            String[] table = new String[strings.size()];
+            strings.forEach((s, i) -> table[i] = s);
+            ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.size() + table.length * 32 + 16);
+            DataOutputStream header = new DataOutputStream(result);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(FINGERPRINT);
+            header.writeInt(table.length);
+            for (String s : table) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                header.writeInt(utf8.length);
+                header.write(utf8);
+            }
+            header.flush();
+            bytes.writeTo(result);
+            return result.toByteArray();
+        }
+    }
+
+    private static final class Decoder {
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        Decoder(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+                throw new InvalidObjectException("Not a binary cache");
+            }
+            int version = buffer.getInt();
+            int fingerprint = buffer.getInt();
+            if (version != VERSION || fingerprint != FINGERPRINT) {
+                throw new InvalidObjectException(String.format(
+                        "Incompatible binary cache format (version %d, fingerprint %x), expected version %d (%x)",
+                        version, fingerprint, VERSION, FINGERPRINT));
+            }
+            this.strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] utf8 = new byte[buffer.getInt()];
+                buffer.get(utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+        }
+
+        Object read() throws IOException {
+            byte type = buffer.get();
+            switch (type) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case INTEGER:
+                    return buffer.getInt();
+                case DATE_TIME:
+                    return readDateTime();
+                case ENVELOPE:
+                    return readEnvelope();
+                case LOCALE:
+                    return Locale.forLanguageTag(readString());
+                case MULTILINGUAL_STRING:
+                    return readMultilingualString();
+                case STRING_SET:
+                    return readStringSet();
+                case SET:
+                    return readSet();
+                case MAP:
+                    return readMap();
+                case ENUM:
+                    return readEnum();
+                case TIME_PERIOD:
+                    return new TimePeriod((DateTime) read(), (DateTime) read());
+                case OBJECT:
+                    return readObject();
+                default:
+                    throw new InvalidObjectException("Unknown type " + type);
+            }
+        }
+
+        private String readString() {
+            return strings[buffer.getInt()];
+        }
+
+        private DateTime readDateTime() {
+            long millis = buffer.getLong();
+            return new DateTime(millis, DateTimeZone.forID(readString()));
+        }
+
+        private ReferencedEnvelope readEnvelope() {
+            int srid = buffer.getInt();
+            if (buffer.get() != 0) {
+                double minX = buffer.getDouble();
+                double maxX = buffer.getDouble();
+                double minY = buffer.getDouble();
+                double maxY = buffer.getDouble();
+                return new ReferencedEnvelope(new Envelope(minX, maxX, minY, maxY), srid);
+            }
+            return new ReferencedEnvelope(buffer.get() != 0 ? new Envelope() : null, srid);
+        }
+
+        private MultilingualString readMultilingualString() {
+            MultilingualString string = new MultilingualString();
+            int size = buffer.getInt();
+            for (int i = 0; i < size; i++) {
+                Locale locale = Locale.forLanguageTag(readString());
+                string.addLocalization(locale, readString());
+            }
+            return string;
+        }
+
+        private Set<String> readStringSet() {
+            int size = buffer.getInt();
+            Set<String> set = new HashSet<>(Math.max(16, (int) (size / .75f) + 1));
+            for (int i = 0; i < size; i++) {
+                set.add(readString());
+            }
+            return set;
+        }
+
+        private Set<Object> readSet() throws IOException {
+            int size = buffer.getInt();
+            Set<Object> set = new HashSet<>(Math.max(16, (int) (size / .75f) + 1));
+            for (int i = 0; i < size; i++) {
+                set.add(read());
+            }
+            return set;
+        }
+
+        private Map<Object, Object> readMap() throws IOException {
+            int size = buffer.getInt();
+            Map<Object, Object> map = new HashMap<>(Math.max(16, (int) (size / .75f) + 1));
+            for (int i = 0; i < size; i++) {
+                Object key = read();
+                map.put(key, read());
+            }
+            return map;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Object readEnum() throws IOException {
+            String type = readString();
+            String name = readString();
+            try {
+                return Enum.valueOf((Class<Enum>) Class.forName(type, false, getClass().getClassLoader()), name);
+            } catch (ClassNotFoundException | IllegalArgumentException e) {
+                throw new InvalidObjectException("Unknown enum constant " + type + "." + name);
+            }
+        }
+
+        private Object readObject() throws IOException {
+            byte[] data = new byte[buffer.getInt()];
+            buffer.get(data);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                return in.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new InvalidObjectException(e.getMessage());
+            }
+        }
+    }
+}
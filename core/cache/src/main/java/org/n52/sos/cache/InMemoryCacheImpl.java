@@ -57,6 +57,11 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public class InMemoryCacheImpl extends AbstractStaticSosContentCache
@@ -65,119 +70,121 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     private static final long serialVersionUID = 3630601584420744019L;
 
-    private final Map<String, DateTime> maxPhenomenonTimeForOfferings = newSynchronizedMap();
+    private static final Interner<String> IDENTIFIERS = Interners.newWeakInterner();
 
-    private final Map<String, DateTime> minPhenomenonTimeForOfferings = newSynchronizedMap();
+    private final Map<String, DateTime> maxPhenomenonTimeForOfferings;
 
-    private final Map<String, DateTime> maxResultTimeForOfferings = newSynchronizedMap();
+    private final Map<String, DateTime> minPhenomenonTimeForOfferings;
 
-    private final Map<String, DateTime> minResultTimeForOfferings = newSynchronizedMap();
+    private final Map<String, DateTime> maxResultTimeForOfferings;
 
-    private final Map<String, DateTime> maxPhenomenonTimeForProcedures = newSynchronizedMap();
+    private final Map<String, DateTime> minResultTimeForOfferings;
 
-    private final Map<String, DateTime> minPhenomenonTimeForProcedures = newSynchronizedMap();
+    private final Map<String, DateTime> maxPhenomenonTimeForProcedures;
 
-    private final Map<String, Set<String>> allowedObservationTypeForOfferings = newSynchronizedMap();
+    private final Map<String, DateTime> minPhenomenonTimeForProcedures;
 
-    private final Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> allowedObservationTypeForOfferings;
 
-    private final Map<String, Set<String>> childFeaturesForFeatureOfInterest = newSynchronizedMap();
+    private final Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings;
 
-    private final Map<String, Set<String>> childProceduresForProcedures = newSynchronizedMap();
+    private final Map<String, Set<String>> childFeaturesForFeatureOfInterest;
 
-    private final Map<String, Set<String>> childOfferingsForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> childProceduresForProcedures;
 
-    private final Map<String, Set<String>> compositePhenomenonsForProcedure = newSynchronizedMap();
+    private final Map<String, Set<String>> childOfferingsForOfferings;
 
-    private final Map<String, Set<String>> compositePhenomenonsForOffering = newSynchronizedMap();
+    private final Map<String, Set<String>> compositePhenomenonsForProcedure;
 
-    private final Map<String, Set<String>> compositePhenomenonsForObservableProperty = newSynchronizedMap();
+    private final Map<String, Set<String>> compositePhenomenonsForOffering;
 
-    private final Map<String, Set<String>> featuresOfInterestForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> compositePhenomenonsForObservableProperty;
 
-    private final Map<String, Set<String>> offeringsForFeaturesOfInterest = newSynchronizedMap();
+    private final Map<String, Set<String>> featuresOfInterestForOfferings;
 
-    private final Map<String, Set<String>> featuresOfInterestForResultTemplates = newSynchronizedMap();
+    private final Map<String, Set<String>> offeringsForFeaturesOfInterest;
 
-    private final Map<String, Set<String>> observablePropertiesForCompositePhenomenons = newSynchronizedMap();
+    private final Map<String, Set<String>> featuresOfInterestForResultTemplates;
 
-    private final Map<String, Set<String>> observablePropertiesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> observablePropertiesForCompositePhenomenons;
 
-    private final Map<String, Set<String>> observablePropertiesForProcedures = newSynchronizedMap();
+    private final Map<String, Set<String>> observablePropertiesForOfferings;
 
-    private final Map<String, Set<String>> observationTypesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> observablePropertiesForProcedures;
 
-    private final Map<String, Set<String>> featureOfInterestTypesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> observationTypesForOfferings;
 
-    private final Map<String, Set<String>> observedPropertiesForResultTemplates = newSynchronizedMap();
+    private final Map<String, Set<String>> featureOfInterestTypesForOfferings;
 
-    private final Map<String, Set<String>> offeringsForObservableProperties = newSynchronizedMap();
+    private final Map<String, Set<String>> observedPropertiesForResultTemplates;
 
-    private final Map<String, Set<String>> offeringsForProcedures = newSynchronizedMap();
+    private final Map<String, Set<String>> offeringsForObservableProperties;
 
-    private final Map<String, Set<String>> parentFeaturesForFeaturesOfInterest = newSynchronizedMap();
+    private final Map<String, Set<String>> offeringsForProcedures;
 
-    private final Map<String, Set<String>> parentProceduresForProcedures = newSynchronizedMap();
+    private final Map<String, Set<String>> parentFeaturesForFeaturesOfInterest;
 
-    private final Map<String, Set<String>> parentOfferingsForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> parentProceduresForProcedures;
 
-    private final Map<String, Set<String>> proceduresForFeaturesOfInterest = newSynchronizedMap();
+    private final Map<String, Set<String>> parentOfferingsForOfferings;
 
-    private final Map<String, Set<String>> proceduresForObservableProperties = newSynchronizedMap();
+    private final Map<String, Set<String>> proceduresForFeaturesOfInterest;
 
-    private final Map<String, Set<String>> proceduresForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> proceduresForObservableProperties;
 
-    private final Map<String, Set<String>> hiddenChildProceduresForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> proceduresForOfferings;
 
-    private final Map<String, Set<String>> relatedFeaturesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> hiddenChildProceduresForOfferings;
 
-    private final Map<String, Set<String>> resultTemplatesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> relatedFeaturesForOfferings;
 
-    private final Map<String, Set<String>> rolesForRelatedFeatures = newSynchronizedMap();
+    private final Map<String, Set<String>> resultTemplatesForOfferings;
 
-    private final Map<String, ReferencedEnvelope> envelopeForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> rolesForRelatedFeatures;
 
-    private final Map<String, String> nameForOfferings = newSynchronizedMap();
+    private final Map<String, ReferencedEnvelope> envelopeForOfferings;
 
-    private final Map<String, MultilingualString> i18nNameForOfferings = newSynchronizedMap();
+    private final Map<String, String> nameForOfferings;
 
-    private final Map<String, MultilingualString> i18nDescriptionForOfferings = newSynchronizedMap();
+    private final Map<String, MultilingualString> i18nNameForOfferings;
 
-    private final Set<Integer> epsgCodes = newSynchronizedSet();
+    private final Map<String, MultilingualString> i18nDescriptionForOfferings;
 
-    private final Set<String> featuresOfInterest = newSynchronizedSet();
+    private final Set<Integer> epsgCodes;
 
-    private final Set<String> procedures = newSynchronizedSet();
+    private final Set<String> featuresOfInterest;
 
-    private final Set<String> resultTemplates = newSynchronizedSet();
+    private final Set<String> procedures;
 
-    private final Set<String> offerings = newSynchronizedSet();
+    private final Set<String> resultTemplates;
 
-    private final Set<String> compositePhenomenons = newSynchronizedSet();
+    private final Set<String> offerings;
 
-    private final TimePeriod globalPhenomenonTimeEnvelope = new TimePeriod();
+    private final Set<String> compositePhenomenons;
 
-    private final TimePeriod globalResultTimeEnvelope = new TimePeriod();
+    private final TimePeriod globalPhenomenonTimeEnvelope;
 
-    private final Map<String, ReferencedEnvelope> spatialFilteringProfileEnvelopeForOfferings = newSynchronizedMap();
+    private final TimePeriod globalResultTimeEnvelope;
 
-    private final Set<Locale> supportedLanguages = newSynchronizedSet();
+    private final Map<String, ReferencedEnvelope> spatialFilteringProfileEnvelopeForOfferings;
 
-    private final Set<String> requestableProcedureDescriptionFormats = newSynchronizedSet();
+    private final Set<Locale> supportedLanguages;
 
-    private final BiMap<String, String> featureOfInterestIdentifierHumanReadableName = newSynchronizedBiMap();
+    private final Set<String> requestableProcedureDescriptionFormats;
 
-    private final BiMap<String, String> observablePropertyIdentifierHumanReadableName = newSynchronizedBiMap();
+    private final BiMap<String, String> featureOfInterestIdentifierHumanReadableName;
 
-    private final BiMap<String, String> procedureIdentifierHumanReadableName = newSynchronizedBiMap();
+    private final BiMap<String, String> observablePropertyIdentifierHumanReadableName;
 
-    private final BiMap<String, String> offeringIdentifierHumanReadableName = newSynchronizedBiMap();
+    private final BiMap<String, String> procedureIdentifierHumanReadableName;
 
-    private final Map<TypeInstance, Set<String>> typeInstanceProcedures = newSynchronizedMap();
+    private final BiMap<String, String> offeringIdentifierHumanReadableName;
 
-    private final Map<ComponentAggregation, Set<String>> componentAggregationProcedures = newSynchronizedMap();
+    private final Map<TypeInstance, Set<String>> typeInstanceProcedures;
 
-    private final Map<String, Set<String>> typeOfProceduresMap = newSynchronizedMap();
+    private final Map<ComponentAggregation, Set<String>> componentAggregationProcedures;
+
+    private final Map<String, Set<String>> typeOfProceduresMap;
 
     private int defaultEpsgCode = 4326;
 
@@ -185,15 +192,139 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     private DateTime updateTime;
 
-    private final Map<String, Set<String>> procedureProcedureDescriptionFormats = newSynchronizedMap();
+    private final Map<String, Set<String>> procedureProcedureDescriptionFormats;
+
+    private final Set<String> publishedFeatureOfInterest;
+
+    private final Set<String> publishedProcedure;
+
+    private final Set<String> publishedOffering;
+
+    private final Set<String> publishedObservableProperty;
+
+    private final boolean snapshot;
+
+    public InMemoryCacheImpl() {
+        this(null, false);
+    }
+
+    /**
+     * Creates a copy of the source cache. A snapshot is backed by
+     * unsynchronized, unmodifiable collections with interned identifiers. It
+     * can be read concurrently without locking, but it must not be modified.
+     *
+     * @param source
+     *            the cache to copy, may be {@code null}
+     * @param snapshot
+     *            if the copy should be an unmodifiable snapshot
+     */
+    protected InMemoryCacheImpl(InMemoryCacheImpl source, boolean snapshot) {
+        this.snapshot = snapshot;
+        this.maxPhenomenonTimeForOfferings = map(source, s -> s.maxPhenomenonTimeForOfferings);
+        this.minPhenomenonTimeForOfferings = map(source, s -> s.minPhenomenonTimeForOfferings);
+        this.maxResultTimeForOfferings = map(source, s -> s.maxResultTimeForOfferings);
+        this.minResultTimeForOfferings = map(source, s -> s.minResultTimeForOfferings);
+        this.maxPhenomenonTimeForProcedures = map(source, s -> s.maxPhenomenonTimeForProcedures);
+        this.minPhenomenonTimeForProcedures = map(source, s -> s.minPhenomenonTimeForProcedures);
+        this.allowedObservationTypeForOfferings = setMap(source, s -> s.allowedObservationTypeForOfferings);
+        this.allowedFeatureOfInterestTypeForOfferings = setMap(source, s -> s.allowedFeatureOfInterestTypeForOfferings);
+        this.childFeaturesForFeatureOfInterest = setMap(source, s -> s.childFeaturesForFeatureOfInterest);
+        this.childProceduresForProcedures = setMap(source, s -> s.childProceduresForProcedures);
+        this.childOfferingsForOfferings = setMap(source, s -> s.childOfferingsForOfferings);
+        this.compositePhenomenonsForProcedure = setMap(source, s -> s.compositePhenomenonsForProcedure);
+        this.compositePhenomenonsForOffering = setMap(source, s -> s.compositePhenomenonsForOffering);
+        this.compositePhenomenonsForObservableProperty =
+                setMap(source, s -> s.compositePhenomenonsForObservableProperty);
+        this.featuresOfInterestForOfferings = setMap(source, s -> s.featuresOfInterestForOfferings);
+        this.offeringsForFeaturesOfInterest = setMap(source, s -> s.offeringsForFeaturesOfInterest);
+        this.featuresOfInterestForResultTemplates = setMap(source, s -> s.featuresOfInterestForResultTemplates);
+        this.observablePropertiesForCompositePhenomenons =
+                setMap(source, s -> s.observablePropertiesForCompositePhenomenons);
+        this.observablePropertiesForOfferings = setMap(source, s -> s.observablePropertiesForOfferings);
+        this.observablePropertiesForProcedures = setMap(source, s -> s.observablePropertiesForProcedures);
+        this.observationTypesForOfferings = setMap(source, s -> s.observationTypesForOfferings);
+        this.featureOfInterestTypesForOfferings = setMap(source, s -> s.featureOfInterestTypesForOfferings);
+        this.observedPropertiesForResultTemplates = setMap(source, s -> s.observedPropertiesForResultTemplates);
+        this.offeringsForObservableProperties = setMap(source, s -> s.offeringsForObservableProperties);
+        this.offeringsForProcedures = setMap(source, s -> s.offeringsForProcedures);
+        this.parentFeaturesForFeaturesOfInterest = setMap(source, s -> s.parentFeaturesForFeaturesOfInterest);
+        this.parentProceduresForProcedures = setMap(source, s -> s.parentProceduresForProcedures);
+        this.parentOfferingsForOfferings = setMap(source, s -> s.parentOfferingsForOfferings);
+        this.proceduresForFeaturesOfInterest = setMap(source, s -> s.proceduresForFeaturesOfInterest);
+        this.proceduresForObservableProperties = setMap(source, s -> s.proceduresForObservableProperties);
+        this.proceduresForOfferings = setMap(source, s -> s.proceduresForOfferings);
+        this.hiddenChildProceduresForOfferings = setMap(source, s -> s.hiddenChildProceduresForOfferings);
+        this.relatedFeaturesForOfferings = setMap(source, s -> s.relatedFeaturesForOfferings);
+        this.resultTemplatesForOfferings = setMap(source, s -> s.resultTemplatesForOfferings);
+        this.rolesForRelatedFeatures = setMap(source, s -> s.rolesForRelatedFeatures);
+        this.envelopeForOfferings = envelopeMap(source, s -> s.envelopeForOfferings);
+        this.nameForOfferings = map(source, s -> s.nameForOfferings);
+        this.i18nNameForOfferings = map(source, s -> s.i18nNameForOfferings);
+        this.i18nDescriptionForOfferings = map(source, s -> s.i18nDescriptionForOfferings);
+        this.epsgCodes = set(source, s -> s.epsgCodes);
+        this.featuresOfInterest = set(source, s -> s.featuresOfInterest);
+        this.procedures = set(source, s -> s.procedures);
+        this.resultTemplates = set(source, s -> s.resultTemplates);
+        this.offerings = set(source, s -> s.offerings);
+        this.compositePhenomenons = set(source, s -> s.compositePhenomenons);
+        this.globalPhenomenonTimeEnvelope = timePeriod(source, s -> s.globalPhenomenonTimeEnvelope);
+        this.globalResultTimeEnvelope = timePeriod(source, s -> s.globalResultTimeEnvelope);
+        this.spatialFilteringProfileEnvelopeForOfferings =
+                envelopeMap(source, s -> s.spatialFilteringProfileEnvelopeForOfferings);
+        this.supportedLanguages = set(source, s -> s.supportedLanguages);
+        this.requestableProcedureDescriptionFormats = set(source, s -> s.requestableProcedureDescriptionFormats);
+        this.featureOfInterestIdentifierHumanReadableName =
+                biMap(source, s -> s.featureOfInterestIdentifierHumanReadableName);
+        this.observablePropertyIdentifierHumanReadableName =
+                biMap(source, s -> s.observablePropertyIdentifierHumanReadableName);
+        this.procedureIdentifierHumanReadableName = biMap(source, s -> s.procedureIdentifierHumanReadableName);
+        this.offeringIdentifierHumanReadableName = biMap(source, s -> s.offeringIdentifierHumanReadableName);
+        this.typeInstanceProcedures = setMap(source, s -> s.typeInstanceProcedures);
+        this.componentAggregationProcedures = setMap(source, s -> s.componentAggregationProcedures);
+        this.typeOfProceduresMap = setMap(source, s -> s.typeOfProceduresMap);
+        this.procedureProcedureDescriptionFormats = setMap(source, s -> s.procedureProcedureDescriptionFormats);
+        this.publishedFeatureOfInterest = set(source, s -> s.publishedFeatureOfInterest);
+        this.publishedProcedure = set(source, s -> s.publishedProcedure);
+        this.publishedOffering = set(source, s -> s.publishedOffering);
+        this.publishedObservableProperty = set(source, s -> s.publishedObservableProperty);
+        if (source != null) {
+            this.defaultEpsgCode = source.defaultEpsgCode;
+            this.globalEnvelope = copyOf(source.globalEnvelope);
+            this.updateTime = source.updateTime;
+            setSupportedTypeRepository(source.getSupportedTypeRepository());
+        }
+    }
 
-    private final Set<String> publishedFeatureOfInterest = newSynchronizedSet();
+    /**
+     * @return a modifiable copy of this cache
+     */
+    public InMemoryCacheImpl copy() {
+        return new InMemoryCacheImpl(this, false);
+    }
 
-    private final Set<String> publishedProcedure = newSynchronizedSet();
+    /**
+     * @return an unmodifiable snapshot of this cache, see
+     *         {@link #InMemoryCacheImpl(InMemoryCacheImpl, boolean)}
+     */
+    public InMemoryCacheImpl snapshot() {
+        return isSnapshot() ? this : new InMemoryCacheImpl(this, true);
+    }
 
-    private final Set<String> publishedOffering = newSynchronizedSet();
+    /**
+     * @return if this cache is an unmodifiable snapshot
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
 
-    private final Set<String> publishedObservableProperty = newSynchronizedSet();
+    /**
+     * Serializes this cache in the compact binary format of the {@link BinaryCacheCodec}.
+     *
+     * @return the serialized form
+     */
+    private Object writeReplace() {
+        return new BinaryCacheCodec.SerializedCache(this);
+    }
 
     @Override
     public DateTime getLastUpdateTime() {
@@ -2772,6 +2903,67 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         return true;
     }
 
+    private <T> Set<T> set(InMemoryCacheImpl source, Function<InMemoryCacheImpl, Set<T>> field) {
+        Set<T> set = source == null ? null : field.apply(source);
+        return snapshot ? snapshotOf(set) : newSynchronizedSet(set);
+    }
+
+    private <K, V> Map<K, V> map(InMemoryCacheImpl source, Function<InMemoryCacheImpl, Map<K, V>> field) {
+        return copyMap(source, field, Function.identity());
+    }
+
+    private <K, V> Map<K, Set<V>> setMap(InMemoryCacheImpl source,
+            Function<InMemoryCacheImpl, Map<K, Set<V>>> field) {
+        Function<Set<V>, Set<V>> valueCopy =
+                snapshot ? InMemoryCacheImpl::snapshotOf : AbstractContentCache::newSynchronizedSet;
+        return copyMap(source, field, valueCopy);
+    }
+
+    private <K> Map<K, ReferencedEnvelope> envelopeMap(InMemoryCacheImpl source,
+            Function<InMemoryCacheImpl, Map<K, ReferencedEnvelope>> field) {
+        return copyMap(source, field, AbstractContentCache::copyOf);
+    }
+
+    private <K, V> Map<K, V> copyMap(InMemoryCacheImpl source, Function<InMemoryCacheImpl, Map<K, V>> field,
+            Function<V, V> valueCopy) {
+        Map<K, V> map = source == null ? null : field.apply(source);
+        if (map == null || map.isEmpty()) {
+            return snapshot ? Collections.emptyMap() : newSynchronizedMap();
+        }
+        Map<K, V> copy = Maps.newHashMapWithExpectedSize(map.size());
+        map.forEach((k, v) -> copy.put(snapshot ? intern(k) : k, v == null ? null : valueCopy.apply(v)));
+        return snapshot ? Collections.unmodifiableMap(copy) : Collections.synchronizedMap(copy);
+    }
+
+    private <K, V> BiMap<K, V> biMap(InMemoryCacheImpl source, Function<InMemoryCacheImpl, BiMap<K, V>> field) {
+        BiMap<K, V> map = source == null ? HashBiMap.create() : HashBiMap.create(field.apply(source));
+        return snapshot ? Maps.unmodifiableBiMap(map) : newSynchronizedBiMap(map);
+    }
+
+    private static TimePeriod timePeriod(InMemoryCacheImpl source, Function<InMemoryCacheImpl, TimePeriod> field) {
+        if (source == null) {
+            return new TimePeriod();
+        }
+        TimePeriod period = field.apply(source);
+        return new TimePeriod(period.getStart(), period.getEnd());
+    }
+
+    private static <T> Set<T> snapshotOf(Set<T> set) {
+        if (set == null || set.isEmpty()) {
+            return ImmutableSet.of();
+        } else if (set.contains(null)) {
+            return Collections.unmodifiableSet(new HashSet<>(set));
+        }
+        ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+        set.forEach(value -> builder.add(intern(value)));
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T intern(T value) {
+        return value instanceof String ? (T) IDENTIFIERS.intern((String) value) : value;
+    }
+
     private static <X, T> Function<X, Set<T>> createSynchronizedSet() {
         return Suppliers.<X, Set<T>> asFunction(HashSet<T>::new).andThen(Collections::synchronizedSet);
     }
@@ -50,6 +50,7 @@ import org.n52.sos.cache.ctrl.action.ResultTemplateInsertionUpdate;
 import org.n52.sos.cache.ctrl.action.SensorDeletionUpdate;
 import org.n52.sos.cache.ctrl.action.SensorInsertionUpdate;
 import org.n52.sos.ds.CacheFeederHandler;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.n52.sos.event.events.FeatureInsertion;
 import org.n52.sos.event.events.ObservationInsertion;
 import org.n52.sos.event.events.ResultInsertion;
@@ -89,6 +90,7 @@ public class DefaultContentModificationListener
     private final ContentCacheController controller;
     private SupportedTypeRepository supportedTypeRepository;
     private ConverterRepository converterRepository;
+    private ResultTemplateRegistry resultTemplateRegistry;
 
     @Inject
     public DefaultContentModificationListener(CacheFeederHandler handler, ContentCacheController controller) {
@@ -145,7 +147,7 @@ public class DefaultContentModificationListener
     }
 
     private ContentCacheUpdate createUpdate(ResultTemplateInsertion e) {
-        return new ResultTemplateInsertionUpdate(e.getRequest(), e.getResponse());
+        return new ResultTemplateInsertionUpdate(e.getRequest(), e.getResponse(), resultTemplateRegistry);
     }
 
     private ContentCacheUpdate createUpdate(ObservationInsertion e) {
@@ -157,7 +159,7 @@ public class DefaultContentModificationListener
     }
 
     private ContentCacheUpdate createUpdate(ResultTemplatesDeletion e) {
-        return new ResultTemplateDeletionUpdate(e.getResponse());
+        return new ResultTemplateDeletionUpdate(e.getResponse(), resultTemplateRegistry);
     }
 
     private ContentCacheUpdate createUpdate(DeleteObservationEvent e) {
@@ -177,6 +179,11 @@ public class DefaultContentModificationListener
         this.converterRepository = converterRepository;
     }
 
+    @Inject
+    public void setResultTemplateRegistry(ResultTemplateRegistry resultTemplateRegistry) {
+        this.resultTemplateRegistry = resultTemplateRegistry;
+    }
+
     @Inject
     public void setSupportedTypeRepository(SupportedTypeRepository supportedTypeRepository) {
         this.supportedTypeRepository = supportedTypeRepository;
@@ -44,7 +44,10 @@ package org.n52.sos.cache.ctrl;
  * limitations under the License.
  */
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
@@ -54,6 +57,8 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.inject.Inject;
 
 import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.cache.ContentCachePersistenceStrategy;
 import org.n52.iceland.cache.ContentCacheUpdate;
@@ -65,10 +70,16 @@ import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.AbstractStaticSosContentCache;
 import org.n52.sos.cache.ContentCacheFactoryImpl;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.cache.SosContentCache;
+import org.n52.sos.service.SosSettings;
+import org.n52.sos.util.FeatureSpatialIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Sets;
 
+@Configurable
 public class SosContentCacheControllerImpl implements ContentCacheController, Constructable, Destroyable {
     private static final Logger LOGGER = LoggerFactory.getLogger(SosContentCacheControllerImpl.class);
 
@@ -81,10 +92,13 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
     private CompleteUpdate next;
     private volatile WritableContentCache cache;
     private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<PartialUpdate> pendingPartialUpdates = new ConcurrentLinkedQueue<>();
 
     private ContentCachePersistenceStrategy persistenceStrategy;
     private ContentCacheFactory cacheFactory;
     private CompleteCacheUpdateFactory completeCacheUpdateFactory;
+    private FeatureSpatialIndex featureSpatialIndex;
+    private volatile boolean snapshot;
 
     @Inject
     public void setCacheFactory(ContentCacheFactory cacheFactory) {
@@ -101,6 +115,32 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
         this.completeCacheUpdateFactory = factory;
     }
 
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
+    /**
+     * Publish the cache as immutable {@link InMemoryCacheImpl#snapshot() snapshot}. Partial updates are applied to a
+     * copy of the current snapshot which replaces it afterwards. Partial updates that queue up while a copy is
+     * updated are applied together to the next copy.
+     *
+     * @param snapshot
+     *            if the cache should be published as snapshot
+     */
+    @Setting(SosSettings.CACHE_SNAPSHOT)
+    public void setSnapshot(boolean snapshot) {
+        lock();
+        try {
+            this.snapshot = snapshot;
+            if (getCache() != null) {
+                setCache(getCache());
+            }
+        } finally {
+            unlock();
+        }
+    }
+
     @Override
     public void init() {
         loadOrCreateCache();
@@ -133,7 +173,26 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
     }
 
     protected void setCache(WritableContentCache wcc) {
-        this.cache = wcc;
+        this.cache = publish(wcc);
+    }
+
+    private WritableContentCache publish(WritableContentCache wcc) {
+        if (wcc instanceof InMemoryCacheImpl) {
+            InMemoryCacheImpl imc = (InMemoryCacheImpl) wcc;
+            if (snapshot) {
+                return imc.snapshot();
+            } else if (imc.isSnapshot()) {
+                return imc.copy();
+            }
+        }
+        return wcc;
+    }
+
+    private WritableContentCache copyOf(WritableContentCache wcc) {
+        if (wcc instanceof InMemoryCacheImpl) {
+            return ((InMemoryCacheImpl) wcc).copy();
+        }
+        return wcc;
     }
 
     @Override
@@ -155,7 +214,7 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
                 } else {
                     executePartial(new PartialUpdate(update));
                 }
-                cache.setLastUpdateTime(DateTime.now());
+                cache.setLastUpdateTime(nextUpdateTime(cache.getLastUpdateTime()));
             } finally {
                 current = null;
             }
@@ -169,6 +228,15 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
         update(this.completeCacheUpdateFactory.get());
     }
 
+    /**
+     * The update time is strictly increasing, so it identifies the cache state even for updates within the same
+     * millisecond.
+     */
+    private static DateTime nextUpdateTime(DateTime last) {
+        DateTime now = DateTime.now();
+        return last != null && !now.isAfter(last) ? last.plusMillis(1) : now;
+    }
+
     private void runCurrent() throws OwsExceptionReport {
         LOGGER.trace(STARTING_UPDATE, this.current);
         this.current.execute();
@@ -185,7 +253,13 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
     }
 
     private void executePartial(PartialUpdate update) throws OwsExceptionReport {
+        if (snapshot) {
+            executePartialOnCopy(update);
+            return;
+        }
+        Set<String> features = getIndexedFeatures(getCache());
         update.execute(getCache());
+        updateFeatureSpatialIndex(features, getCache());
         lock();
         try {
             if (this.current != null) {
@@ -198,6 +272,86 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
         }
     }
 
+    private void executePartialOnCopy(PartialUpdate update) throws OwsExceptionReport {
+        pendingPartialUpdates.offer(update);
+        lock();
+        try {
+            // the update may already be applied by the thread that held the lock before
+            if (!update.isApplied()) {
+                applyPendingPartialUpdates();
+            }
+        } finally {
+            unlock();
+        }
+        update.throwFailure();
+    }
+
+    /**
+     * Apply all pending partial updates to one copy of the cache. If an update fails, its changes are discarded by
+     * applying the remaining updates to a new copy.
+     */
+    private void applyPendingPartialUpdates() {
+        List<PartialUpdate> batch = new ArrayList<>();
+        PartialUpdate pu;
+        while ((pu = pendingPartialUpdates.poll()) != null) {
+            batch.add(pu);
+        }
+        Set<String> features = getIndexedFeatures(getCache());
+        WritableContentCache copy = copyOf(getCache());
+        List<PartialUpdate> failed = applyTo(batch, copy);
+        while (!failed.isEmpty()) {
+            batch.removeAll(failed);
+            copy = copyOf(getCache());
+            failed = applyTo(batch, copy);
+        }
+        if (!batch.isEmpty()) {
+            setCache(copy);
+            updateFeatureSpatialIndex(features, copy);
+            if (this.current != null) {
+                batch.forEach(this.current::addUpdate);
+            } else {
+                persistenceStrategy.persistOnPartialUpdate(getCache());
+            }
+        }
+    }
+
+    private List<PartialUpdate> applyTo(List<PartialUpdate> batch, WritableContentCache copy) {
+        List<PartialUpdate> failed = new ArrayList<>();
+        for (PartialUpdate pu : batch) {
+            try {
+                pu.execute(copy);
+                pu.setApplied(null);
+            } catch (OwsExceptionReport e) {
+                pu.setApplied(e);
+                failed.add(pu);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return the features of the cache, if partial updates have to be applied to the {@link FeatureSpatialIndex},
+     *         else {@code null}
+     */
+    private Set<String> getIndexedFeatures(WritableContentCache wcc) {
+        if (featureSpatialIndex != null && featureSpatialIndex.isAvailable() && wcc instanceof SosContentCache) {
+            return ((SosContentCache) wcc).getFeaturesOfInterest();
+        }
+        return null;
+    }
+
+    /**
+     * Mark the features added by a partial update as stale until their geometry is known to the
+     * {@link FeatureSpatialIndex} and remove the deleted features from it. Complete updates rebuild the index.
+     */
+    private void updateFeatureSpatialIndex(Set<String> before, WritableContentCache wcc) {
+        if (before != null) {
+            Set<String> after = ((SosContentCache) wcc).getFeaturesOfInterest();
+            Sets.difference(after, before).forEach(featureSpatialIndex::invalidate);
+            Sets.difference(before, after).forEach(featureSpatialIndex::remove);
+        }
+    }
+
     private void executeComplete(CompleteUpdate update) throws OwsExceptionReport {
         boolean isCurrent = false;
         boolean isNext = false;
@@ -281,11 +435,29 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
 
     private class PartialUpdate extends Update {
         private final int nr = PARTIAL_UPDATE_COUNT.getAndIncrement();
+        // guarded by the controller lock
+        private boolean applied;
+        private OwsExceptionReport failure;
 
         PartialUpdate(ContentCacheUpdate update) {
             super(update);
         }
 
+        boolean isApplied() {
+            return applied;
+        }
+
+        void setApplied(OwsExceptionReport failure) {
+            this.applied = true;
+            this.failure = failure;
+        }
+
+        void throwFailure() throws OwsExceptionReport {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
         synchronized void execute(WritableContentCache cache) throws OwsExceptionReport {
             LOGGER.trace(STARTING_UPDATE, getUpdate());
             getUpdate().reset();
@@ -364,7 +536,18 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
         }
 
         void execute() throws OwsExceptionReport {
-            setCache(execute(getCache()));
+            WritableContentCache cc = execute(getCache());
+            SosContentCacheControllerImpl.this.lock();
+            try {
+                // apply partial updates that were queued after the cache was built
+                PartialUpdate pu;
+                while ((pu = updates.poll()) != null) {
+                    pu.execute(cc);
+                }
+                setCache(cc);
+            } finally {
+                SosContentCacheControllerImpl.this.unlock();
+            }
         }
 
         WritableContentCache execute(WritableContentCache cache) throws OwsExceptionReport {
@@ -52,10 +52,18 @@ public class CompleteCacheUpdate
     @Override
     public void execute() {
         try {
-            SosWritableContentCache cache = (SosWritableContentCache) new InMemoryCacheImpl()
-                    .setSupportedTypeRepository(supportedTypeRepository);
-            getCacheFeederDAO().updateCache(cache);
-            setCache(cache);
+            if (getCacheFeederDAO().isIncrementalUpdatePossible() && getCache() instanceof InMemoryCacheImpl) {
+                // merge into a copy, so that readers never see a partially updated cache and a failed update
+                // leaves the current cache untouched
+                SosWritableContentCache cache = ((InMemoryCacheImpl) getCache()).copy();
+                getCacheFeederDAO().updateCacheIncrementally(cache);
+                setCache(cache);
+            } else {
+                SosWritableContentCache cache = (SosWritableContentCache) new InMemoryCacheImpl()
+                        .setSupportedTypeRepository(supportedTypeRepository);
+                getCacheFeederDAO().updateCache(cache);
+                setCache(cache);
+            }
         } catch (OwsExceptionReport ex) {
             fail(ex);
         }
@@ -49,6 +49,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.n52.shetland.ogc.sos.drt.DeleteResultTemplateResponse;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,7 +65,19 @@ public class ResultTemplateDeletionUpdate extends InMemoryCacheUpdate {
 
     private final DeleteResultTemplateResponse response;
 
+    private final ResultTemplateRegistry registry;
+
     public ResultTemplateDeletionUpdate(DeleteResultTemplateResponse response) {
+        this(response, null);
+    }
+
+    /**
+     * @param response
+     *            the DeleteResultTemplate response
+     * @param registry
+     *            the registry to drop the decoded templates from, may be {@code null}
+     */
+    public ResultTemplateDeletionUpdate(DeleteResultTemplateResponse response, ResultTemplateRegistry registry) {
         if (response == null) {
             String msg =
                     String.format("Missing argument: '%s': %s;",
@@ -74,6 +87,7 @@ public class ResultTemplateDeletionUpdate extends InMemoryCacheUpdate {
             throw new IllegalArgumentException(msg);
         }
         this.response = response;
+        this.registry = registry;
     }
 
     @Override
@@ -96,6 +110,9 @@ public class ResultTemplateDeletionUpdate extends InMemoryCacheUpdate {
         }
         // result template itself
         getCache().removeResultTemplates(deletedResultTemplates);
+        if (registry != null) {
+            registry.invalidate(deletedResultTemplates);
+        }
     }
 
 }
@@ -37,6 +37,7 @@ import org.n52.shetland.ogc.om.AbstractPhenomenon;
 import org.n52.shetland.ogc.om.OmCompositePhenomenon;
 import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.sos.cache.SosWritableContentCache;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
 import org.n52.shetland.ogc.sos.response.InsertResultTemplateResponse;
 
@@ -59,7 +60,22 @@ public class ResultTemplateInsertionUpdate extends InMemoryCacheUpdate {
 
     private final InsertResultTemplateRequest request;
 
+    private final ResultTemplateRegistry registry;
+
     public ResultTemplateInsertionUpdate(InsertResultTemplateRequest request, InsertResultTemplateResponse response) {
+        this(request, response, null);
+    }
+
+    /**
+     * @param request
+     *            the InsertResultTemplate request
+     * @param response
+     *            the InsertResultTemplate response
+     * @param registry
+     *            the registry to drop the decoded template from, may be {@code null}
+     */
+    public ResultTemplateInsertionUpdate(InsertResultTemplateRequest request, InsertResultTemplateResponse response,
+            ResultTemplateRegistry registry) {
         if (request == null || response == null) {
             String msg =
                     String.format("Missing argument: '%s': %s; '%s': %s", InsertResultTemplateRequest.class.getName(),
@@ -69,6 +85,7 @@ public class ResultTemplateInsertionUpdate extends InMemoryCacheUpdate {
         }
         this.response = response;
         this.request = request;
+        this.registry = registry;
     }
 
     @Override
@@ -76,6 +93,9 @@ public class ResultTemplateInsertionUpdate extends InMemoryCacheUpdate {
         final SosWritableContentCache cache = getCache();
         final String resultTemplate = response.getAcceptedTemplate();
         cache.addResultTemplate(resultTemplate);
+        if (registry != null) {
+            registry.invalidate(resultTemplate);
+        }
         for (String offering : request.getObservationTemplate().getOfferings()) {
             cache.addOffering(offering);
             cache.addPublishedOffering(offering);
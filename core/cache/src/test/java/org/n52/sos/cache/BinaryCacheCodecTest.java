@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.janmayen.i18n.MultilingualString;
+import org.n52.shetland.util.ReferencedEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @since 5.3.2
+ */
+public class BinaryCacheCodecTest {
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryCacheCodecTest.class);
+    private static final int DATASETS = 100000;
+    private static final int DATASETS_PER_OFFERING = 10;
+
+    @Test
+    public void should_read_written_cache() throws Exception {
+        InMemoryCacheImpl cache = createCache(100);
+        InMemoryCacheImpl read = (InMemoryCacheImpl) deserialize(serialize(cache));
+        Assert.assertEquals(cache, read);
+        Assert.assertFalse(read.isSnapshot());
+        read.addProcedureForOffering("offering_0", "procedure_x");
+        MatcherAssert.assertThat(read.getProceduresForOffering("offering_0"), Matchers.hasItem("procedure_x"));
+    }
+
+    @Test
+    public void should_read_written_snapshot() throws Exception {
+        InMemoryCacheImpl cache = createCache(100);
+        Assert.assertEquals(cache, deserialize(serialize(cache.snapshot())));
+    }
+
+    @Test(expected = InvalidObjectException.class)
+    public void should_reject_other_version() throws Exception {
+        byte[] data = BinaryCacheCodec.encode(createCache(10));
+        ByteBuffer.wrap(data).putInt(4, BinaryCacheCodec.VERSION + 1);
+        BinaryCacheCodec.decode(data);
+    }
+
+    @Test
+    public void should_read_large_cache() throws Exception {
+        InMemoryCacheImpl cache = createCache(DATASETS);
+        long start = System.currentTimeMillis();
+        byte[] data = serialize(cache);
+        long written = System.currentTimeMillis();
+        InMemoryCacheImpl read = (InMemoryCacheImpl) deserialize(data);
+        long end = System.currentTimeMillis();
+        LOG.info("Cache with {} datasets: {} bytes, written in {} ms, read in {} ms", DATASETS, data.length,
+                written - start, end - written);
+        Assert.assertEquals(cache.getProcedures(), read.getProcedures());
+    }
+
+    private static InMemoryCacheImpl createCache(int datasets) {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        DateTime time = new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC);
+        cache.addSupportedLanguage(Locale.ENGLISH);
+        cache.setGlobalEnvelope(new ReferencedEnvelope(new Envelope(0, 10, 50, 60), 4326));
+        cache.setMinPhenomenonTime(time);
+        cache.setMaxPhenomenonTime(time.plusDays(1));
+        for (int i = 0; i < datasets; i++) {
+            String offering = "offering_" + i / DATASETS_PER_OFFERING;
+            String procedure = "procedure_" + i;
+            String feature = "feature_" + i;
+            cache.addOffering(offering);
+            cache.addProcedure(procedure);
+            cache.addFeatureOfInterest(feature);
+            cache.addProcedureForOffering(offering, procedure);
+            cache.addOfferingForProcedure(procedure, offering);
+            cache.addFeatureOfInterestForOffering(offering, feature);
+            cache.addObservablePropertyForOffering(offering, "phenomenon_" + i % 20);
+            cache.setMinPhenomenonTimeForOffering(offering, time);
+            cache.setMaxPhenomenonTimeForOffering(offering, time.plusDays(1));
+            cache.setEnvelopeForOffering(offering, new ReferencedEnvelope(new Envelope(i, i + 1, 50, 51), 4326));
+            MultilingualString name = new MultilingualString();
+            name.addLocalization(Locale.ENGLISH, offering);
+            cache.setI18nNameForOffering(offering, name);
+            cache.addTypeInstanceProcedure(SosContentCache.TypeInstance.INSTANCE, procedure);
+        }
+        return cache;
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(object);
+        }
+        return out.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
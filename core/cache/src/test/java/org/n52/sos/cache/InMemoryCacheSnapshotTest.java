@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the immutable snapshots of {@link InMemoryCacheImpl}. The read throughput comparison is only executed if
+ * the system property {@code cacheSnapshotThroughput} is set.
+ *
+ * @since 5.3.2
+ */
+public class InMemoryCacheSnapshotTest {
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryCacheSnapshotTest.class);
+    private static final int OFFERINGS = 200;
+    private static final int PROCEDURES_PER_OFFERING = 20;
+    private static final int[] THREADS = {8, 16, 32, 64 };
+    private static final long DURATION = TimeUnit.SECONDS.toMillis(2);
+
+    private InMemoryCacheImpl cache;
+
+    @Before
+    public void fillCache() {
+        cache = new InMemoryCacheImpl();
+        for (int i = 0; i < OFFERINGS; i++) {
+            String offering = "offering_" + i;
+            cache.addOffering(offering);
+            cache.setNameForOffering(offering, "Offering " + i);
+            for (int j = 0; j < PROCEDURES_PER_OFFERING; j++) {
+                String procedure = "procedure_" + i + "_" + j;
+                cache.addProcedure(procedure);
+                cache.addProcedureForOffering(offering, procedure);
+                cache.addOfferingForProcedure(procedure, offering);
+            }
+        }
+    }
+
+    @Test
+    public void should_be_equal_to_source() {
+        InMemoryCacheImpl snapshot = cache.snapshot();
+        Assert.assertTrue(snapshot.isSnapshot());
+        Assert.assertFalse(cache.isSnapshot());
+        Assert.assertEquals(cache, snapshot);
+        Assert.assertEquals(cache.getProceduresForOffering("offering_1"),
+                snapshot.getProceduresForOffering("offering_1"));
+    }
+
+    @Test
+    public void should_return_same_instance_for_snapshot_of_snapshot() {
+        InMemoryCacheImpl snapshot = cache.snapshot();
+        Assert.assertSame(snapshot, snapshot.snapshot());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_reject_modifications_of_snapshot() {
+        cache.snapshot().addProcedureForOffering("offering_1", "procedure_x");
+    }
+
+    @Test
+    public void should_not_share_state_with_copy() {
+        InMemoryCacheImpl copy = cache.snapshot().copy();
+        Assert.assertFalse(copy.isSnapshot());
+        copy.addProcedureForOffering("offering_1", "procedure_x");
+        MatcherAssert.assertThat(copy.getProceduresForOffering("offering_1"), Matchers.hasItem("procedure_x"));
+        MatcherAssert.assertThat(cache.getProceduresForOffering("offering_1"),
+                Matchers.not(Matchers.hasItem("procedure_x")));
+    }
+
+    @Test
+    public void compareReadThroughput() throws Exception {
+        if (System.getProperty("cacheSnapshotThroughput") == null) {
+            return;
+        }
+        InMemoryCacheImpl snapshot = cache.snapshot();
+        for (int threads : THREADS) {
+            long synchronizedReads = read(cache, threads);
+            long snapshotReads = read(snapshot, threads);
+            LOG.info("{} threads: {} reads/s synchronized, {} reads/s snapshot", threads,
+                    synchronizedReads * 1000 / DURATION, snapshotReads * 1000 / DURATION);
+        }
+    }
+
+    private long read(InMemoryCacheImpl c, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        LongAdder reads = new LongAdder();
+        long end = System.currentTimeMillis() + DURATION;
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    int i = 0;
+                    while (System.currentTimeMillis() < end) {
+                        String offering = "offering_" + (i++ % OFFERINGS);
+                        if (c.hasOffering(offering) && !c.getProceduresForOffering(offering).isEmpty()
+                                && c.getNameForOffering(offering) != null) {
+                            reads.increment();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return reads.sum();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.Collections;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.iceland.cache.ctrl.persistence.ImmediatePersistenceStrategy;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.ctrl.CompleteCacheUpdateFactoryImpl;
+import org.n52.sos.cache.ctrl.SosContentCacheControllerImpl;
+import org.n52.sos.util.FeatureSpatialIndex;
+import org.n52.sos.util.GeometryHandler;
+
+/**
+ * Tests that partial updates of the {@link SosContentCacheControllerImpl} keep the {@link FeatureSpatialIndex} up to
+ * date without touching it from the cache itself.
+ *
+ * @since 5.3.2
+ */
+public class SosContentCacheControllerFeatureIndexTest {
+
+    private static final String FEATURE = "test-feature";
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private FeatureSpatialIndex index;
+
+    private SosContentCacheControllerImpl controller;
+
+    @Before
+    public void init() {
+        GeometryHandler geometryHandler = new GeometryHandler();
+        geometryHandler.setSpatialDatasource(false);
+        index = new FeatureSpatialIndex();
+        index.setGeometryHandler(geometryHandler);
+        index.rebuild(Collections.emptyMap());
+
+        ImmediatePersistenceStrategy persistenceStrategy = new ImmediatePersistenceStrategy();
+        persistenceStrategy.setConfigLocationProvider(tempFolder.getRoot()::getAbsolutePath);
+        persistenceStrategy.init();
+        CompleteCacheUpdateFactoryImpl cacheUpdateFactory = new CompleteCacheUpdateFactoryImpl();
+        cacheUpdateFactory.setCacheFeederHandler(new NoOpCacheFeederHandler());
+        controller = new SosContentCacheControllerImpl();
+        controller.setCacheFactory(InMemoryCacheImpl::new);
+        controller.setPersistenceStrategy(persistenceStrategy);
+        controller.setCompleteCacheUpdateFactory(cacheUpdateFactory);
+        controller.setFeatureSpatialIndex(index);
+        controller.init();
+    }
+
+    @After
+    public void destroy() {
+        controller.destroy();
+    }
+
+    @Test
+    public void should_mark_added_feature_as_stale() throws OwsExceptionReport {
+        addFeature();
+        MatcherAssert.assertThat(index.getStaleIdentifiers(), Matchers.contains(FEATURE));
+    }
+
+    @Test
+    public void should_remove_deleted_feature() throws OwsExceptionReport {
+        addFeature();
+        removeFeature();
+        MatcherAssert.assertThat(index.getStaleIdentifiers(), Matchers.is(Matchers.empty()));
+    }
+
+    @Test
+    public void should_update_index_for_snapshots() throws OwsExceptionReport {
+        controller.setSnapshot(true);
+        addFeature();
+        MatcherAssert.assertThat(index.getStaleIdentifiers(), Matchers.contains(FEATURE));
+        removeFeature();
+        MatcherAssert.assertThat(index.getStaleIdentifiers(), Matchers.is(Matchers.empty()));
+    }
+
+    @Test
+    public void should_not_touch_index_when_filling_a_cache() {
+        new InMemoryCacheImpl().addFeatureOfInterest(FEATURE);
+        MatcherAssert.assertThat(index.getStaleIdentifiers(), Matchers.is(Matchers.empty()));
+    }
+
+    private void addFeature() throws OwsExceptionReport {
+        controller.update(new SosContentCacheUpdate() {
+            @Override
+            public void execute() {
+                getCache().addFeatureOfInterest(FEATURE);
+            }
+        });
+    }
+
+    private void removeFeature() throws OwsExceptionReport {
+        controller.update(new SosContentCacheUpdate() {
+            @Override
+            public void execute() {
+                getCache().removeFeatureOfInterest(FEATURE);
+            }
+        });
+    }
+}
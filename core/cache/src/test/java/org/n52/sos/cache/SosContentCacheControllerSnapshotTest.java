@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.iceland.cache.ctrl.persistence.ImmediatePersistenceStrategy;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.ctrl.CompleteCacheUpdateFactoryImpl;
+import org.n52.sos.cache.ctrl.SosContentCacheControllerImpl;
+
+/**
+ * Tests the partial updates of a {@link SosContentCacheControllerImpl} that publishes snapshots.
+ *
+ * @since 5.3.2
+ */
+public class SosContentCacheControllerSnapshotTest {
+
+    private static final int THREADS = 8;
+
+    private static final int UPDATES = 200;
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private SosContentCacheControllerImpl controller;
+
+    @Before
+    public void init() {
+        ImmediatePersistenceStrategy persistenceStrategy = new ImmediatePersistenceStrategy();
+        persistenceStrategy.setConfigLocationProvider(tempFolder.getRoot()::getAbsolutePath);
+        persistenceStrategy.init();
+        CompleteCacheUpdateFactoryImpl cacheUpdateFactory = new CompleteCacheUpdateFactoryImpl();
+        cacheUpdateFactory.setCacheFeederHandler(new NoOpCacheFeederHandler());
+        controller = new SosContentCacheControllerImpl();
+        controller.setCacheFactory(InMemoryCacheImpl::new);
+        controller.setPersistenceStrategy(persistenceStrategy);
+        controller.setCompleteCacheUpdateFactory(cacheUpdateFactory);
+        controller.setSnapshot(true);
+        controller.init();
+    }
+
+    @After
+    public void destroy() {
+        controller.destroy();
+    }
+
+    @Test
+    public void should_apply_concurrent_partial_updates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < UPDATES; i++) {
+                String feature = "feature_" + i;
+                futures.add(executor.submit(() -> {
+                    addFeature(feature, false);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        SosContentCache cache = (SosContentCache) controller.getCache();
+        MatcherAssert.assertThat(cache.getFeaturesOfInterest(), Matchers.hasSize(UPDATES));
+        Assert.assertTrue(((InMemoryCacheImpl) cache).isSnapshot());
+    }
+
+    @Test
+    public void should_discard_changes_of_failed_update() throws OwsExceptionReport {
+        addFeature("before", false);
+        try {
+            addFeature("failed", true);
+            Assert.fail("the update should fail");
+        } catch (OwsExceptionReport e) {
+            MatcherAssert.assertThat(e, Matchers.instanceOf(NoApplicableCodeException.class));
+        }
+        addFeature("after", false);
+        MatcherAssert.assertThat(((SosContentCache) controller.getCache()).getFeaturesOfInterest(),
+                Matchers.containsInAnyOrder("before", "after"));
+    }
+
+    private void addFeature(String feature, boolean fail) throws OwsExceptionReport {
+        controller.update(new SosContentCacheUpdate() {
+            @Override
+            public void execute() {
+                getCache().addFeatureOfInterest(feature);
+                if (fail) {
+                    fail(new NoApplicableCodeException().withMessage("failed"));
+                }
+            }
+        });
+    }
+}
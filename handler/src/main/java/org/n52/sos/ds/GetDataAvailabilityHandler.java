@@ -28,14 +28,19 @@
  */
 package org.n52.sos.ds;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.inject.Inject;
 
@@ -50,6 +55,7 @@ import org.n52.series.db.dao.DatasetDao;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -66,6 +72,8 @@ import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ObservationForma
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ProcedureDescriptionFormatDescriptor;
 import org.n52.sos.ds.dao.GetDataAvailabilityDao;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -122,7 +130,11 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         try {
             GDARequestContext context = new GDARequestContext(request);
             boolean gdaV20 = checkForGDAv20(request);
-            for (final DatasetEntity entity : new DatasetDao<>(session).getAllInstances(createDbQuery(request))) {
+            List<DatasetEntity> datasets = new DatasetDao<>(session).getAllInstances(createDbQuery(request));
+            if (isIncludeResultTime(request) && dao.isPresent()) {
+                context.setResultTimes(getResultTimes(datasets, request, session));
+            }
+            for (final DatasetEntity entity : datasets) {
                 if (gdaV20) {
                     processDataAvailabilityV2(entity, context, session);
                 } else {
@@ -171,14 +183,57 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
             if (isShowCount(context.getRequest()) && entity.getObservationCount() >= 0) {
                 dataAvailability.setCount(entity.getObservationCount());
             }
-            if (isIncludeResultTime(context.getRequest()) && dao.isPresent()) {
-                dataAvailability.setResultTimes(dao.get().getResultTimes(dataAvailability, context.getRequest()));
+            if (context.isSetResultTimes()) {
+                dataAvailability.setResultTimes(context.getResultTimes(entity));
             }
             return dataAvailability;
         }
         return null;
     }
 
+    /**
+     * Query the result times of all datasets with a single query and merge
+     * them for datasets of the same procedure, observed property and feature
+     * of interest.
+     *
+     * @param datasets
+     *            the datasets
+     * @param request
+     *            GetDataAvailability request
+     * @param session
+     *            Hibernate session
+     * @return the ascending ordered result times by constellation
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private Map<List<String>, List<TimeInstant>> getResultTimes(List<DatasetEntity> datasets,
+            GetDataAvailabilityRequest request, Session session) throws OwsExceptionReport {
+        Map<Long, List<String>> constellations = new HashMap<>(datasets.size());
+        for (DatasetEntity entity : datasets) {
+            constellations.put(entity.getId(), getConstellation(entity));
+        }
+        Map<List<String>, List<TimeInstant>> resultTimes = new HashMap<>();
+        for (Entry<Long, List<TimeInstant>> entry : dao.get()
+                .getResultTimes(constellations.keySet(), request, session)
+                .entrySet()) {
+            resultTimes.merge(constellations.get(entry.getKey()), entry.getValue(), this::mergeResultTimes);
+        }
+        return resultTimes;
+    }
+
+    private List<TimeInstant> mergeResultTimes(List<TimeInstant> first, List<TimeInstant> second) {
+        Map<Long, TimeInstant> merged = new TreeMap<>();
+        for (TimeInstant resultTime : Iterables.concat(first, second)) {
+            merged.putIfAbsent(resultTime.getValue().getMillis(), resultTime);
+        }
+        return Lists.newArrayList(merged.values());
+    }
+
+    private static List<String> getConstellation(DatasetEntity entity) {
+        return Arrays.asList(entity.getProcedure().getIdentifier(), entity.getPhenomenon().getIdentifier(),
+                entity.getFeature().getIdentifier());
+    }
+
     /**
      * Get {@link DataAvailability}s for each series
      *
@@ -208,6 +263,8 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
      *            {@link DataAvailability}s for
      * @param context
      *            Request context to get {@link DataAvailability}s
+     * @param session
+     *            Hibernate session
      * @throws OwsExceptionReport
      *             If an error occurs
      */
@@ -217,7 +274,7 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         if (dataAvailability != null) {
             dataAvailability.setFormatDescriptor(getFormatDescriptor(context, entity));
             if (dao.isPresent()) {
-                dataAvailability.setMetadata(dao.get().getMetadata(dataAvailability));
+                dataAvailability.setMetadata(dao.get().getMetadata(dataAvailability, session));
             }
             context.addDataAvailability(dataAvailability);
         }
@@ -228,37 +285,39 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         return new TimePeriod(entity.getFirstValueAt(), entity.getLastValueAt());
     }
 
-    private void checkForParentOfferings(GDARequestContext context, OfferingEntity offeringEntity) {
+    @VisibleForTesting
+    void checkForParentOfferings(GDARequestContext context, OfferingEntity offeringEntity) {
         if (context.isSetDataAvailabilityList()) {
+            Set<String> childOfferings = getChildOfferings(offeringEntity);
+            if (childOfferings.isEmpty()) {
+                return;
+            }
             List<String> requestedOfferings = context.getRequest().getOfferings();
             for (String requestedOffering : requestedOfferings) {
-                Set<String> childOfferings = getChildOfferings(offeringEntity);
-                if (!childOfferings.isEmpty()) {
-                    if (context.hasDataAvailability(requestedOffering)) {
-                        Set<DataAvailability> parentDataAvailabilities =
-                                context.getDataAvailability(requestedOffering);
-                        for (String childOffering : childOfferings) {
-                            Set<DataAvailability> childDataAvailabilities = context.getDataAvailability(childOffering);
-                            for (DataAvailability childDataAvailability : childDataAvailabilities) {
-                                for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
-                                    parentDataAvailability.merge(childDataAvailability, true);
-                                }
+                if (context.hasDataAvailability(requestedOffering)) {
+                    Set<DataAvailability> parentDataAvailabilities =
+                            context.getDataAvailability(requestedOffering);
+                    for (String childOffering : childOfferings) {
+                        Set<DataAvailability> childDataAvailabilities = context.getDataAvailability(childOffering);
+                        for (DataAvailability childDataAvailability : childDataAvailabilities) {
+                            for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
+                                parentDataAvailability.merge(childDataAvailability, true);
                             }
                         }
-                    } else {
-                        Set<DataAvailability> parentDataAvailabilities = Sets.newHashSet();
-                        for (String childOffering : childOfferings) {
-                            Set<DataAvailability> childDataAvailabilities = context.getDataAvailability(childOffering);
-                            for (DataAvailability childDataAvailability : childDataAvailabilities) {
-                                addParentDataAvailabilityIfMissing(parentDataAvailabilities, childDataAvailability,
-                                        new ReferenceType(requestedOffering));
-                                for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
-                                    parentDataAvailability.merge(childDataAvailability, true);
-                                }
+                    }
+                } else {
+                    Set<DataAvailability> parentDataAvailabilities = Sets.newHashSet();
+                    for (String childOffering : childOfferings) {
+                        Set<DataAvailability> childDataAvailabilities = context.getDataAvailability(childOffering);
+                        for (DataAvailability childDataAvailability : childDataAvailabilities) {
+                            addParentDataAvailabilityIfMissing(parentDataAvailabilities, childDataAvailability,
+                                    new ReferenceType(requestedOffering));
+                            for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
+                                parentDataAvailability.merge(childDataAvailability, true);
                             }
                         }
-                        context.addDataAvailabilities(parentDataAvailabilities);
                     }
+                    context.addDataAvailabilities(parentDataAvailabilities);
                 }
             }
         }
@@ -281,25 +340,22 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
                 || GetDataAvailabilityConstants.NS_GDA_20.equals(request.getNamespace()) || isForceGDAv20Response();
     }
 
-    private List<DataAvailability> checkForDuplictation(List<DataAvailability> dataAvailabilityValues) {
-        List<DataAvailability> checked = Lists.newLinkedList();
+    @VisibleForTesting
+    List<DataAvailability> checkForDuplictation(List<DataAvailability> dataAvailabilityValues) {
+        Map<List<String>, DataAvailability> checked = new LinkedHashMap<>(dataAvailabilityValues.size());
         for (DataAvailability dataAvailability : dataAvailabilityValues) {
-            if (checked.isEmpty()) {
-                checked.add(dataAvailability);
-            } else {
-                boolean notDuplicated = true;
-                for (DataAvailability checkedDA : checked) {
-                    if (dataAvailability.equals(checkedDA)) {
-                        checkedDA.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
-                        notDuplicated = false;
-                    }
-                }
-                if (notDuplicated) {
-                    checked.add(dataAvailability);
-                }
+            DataAvailability checkedDA = checked.putIfAbsent(getDuplicationKey(dataAvailability), dataAvailability);
+            if (checkedDA != null) {
+                checkedDA.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
             }
         }
-        return checked;
+        return Lists.newArrayList(checked.values());
+    }
+
+    private static List<String> getDuplicationKey(DataAvailability dataAvailability) {
+        return Arrays.asList(dataAvailability.getProcedure().getHref(),
+                dataAvailability.getObservedProperty().getHref(), dataAvailability.getFeatureOfInterest().getHref(),
+                dataAvailability.getOfferingString());
     }
 
     private ReferenceType getProcedureReference(DatasetEntity entity, Map<String, ReferenceType> procedures) {
@@ -462,6 +518,10 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
 
         private List<DataAvailability> dataAvailabilityValues = Lists.newArrayList();
 
+        private Map<String, Set<DataAvailability>> dataAvailabilityByOffering = new HashMap<>();
+
+        private Map<List<String>, List<TimeInstant>> resultTimes;
+
         private Map<String, ReferenceType> procedures = new HashMap<>();
 
         private Map<String, ReferenceType> observableProperties = new HashMap<>();
@@ -496,19 +556,23 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
 
         public GDARequestContext setDataAvailabilityList(List<DataAvailability> dataAvailabilityValues) {
             this.dataAvailabilityValues.clear();
+            this.dataAvailabilityByOffering.clear();
             return addDataAvailabilities(dataAvailabilityValues);
         }
 
         public GDARequestContext addDataAvailability(DataAvailability dataAvailability) {
             if (dataAvailability != null) {
                 this.dataAvailabilityValues.add(dataAvailability);
+                this.dataAvailabilityByOffering
+                        .computeIfAbsent(dataAvailability.getOfferingString(), k -> new LinkedHashSet<>())
+                        .add(dataAvailability);
             }
             return this;
         }
 
         public GDARequestContext addDataAvailabilities(Collection<DataAvailability> dataAvailabilityValues) {
             if (dataAvailabilityValues != null) {
-                this.dataAvailabilityValues.addAll(dataAvailabilityValues);
+                dataAvailabilityValues.forEach(this::addDataAvailability);
             }
             return this;
         }
@@ -518,26 +582,28 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         }
 
         public boolean hasDataAvailability(String requestedOffering) {
-            for (DataAvailability dataAvailability : dataAvailabilityValues) {
-                if (requestedOffering.equals(dataAvailability.getOfferingString())) {
-                    return true;
-                }
-            }
-            return false;
+            return dataAvailabilityByOffering.containsKey(requestedOffering);
         }
 
         public Set<DataAvailability> getDataAvailability(String offering) {
-            Set<DataAvailability> das = Sets.newHashSet();
-            for (DataAvailability dataAvailability : dataAvailabilityValues) {
-                if (offering.equals(dataAvailability.getOfferingString())) {
-                    das.add(dataAvailability);
-                }
-            }
-            return das;
+            return Sets.newHashSet(dataAvailabilityByOffering.getOrDefault(offering, Collections.emptySet()));
         }
 
         public boolean isSetDataAvailabilityList() {
-            return getDataAvailabilityList() != null && !getDataAvailabilityList().isEmpty();
+            return !dataAvailabilityValues.isEmpty();
+        }
+
+        public GDARequestContext setResultTimes(Map<List<String>, List<TimeInstant>> resultTimes) {
+            this.resultTimes = resultTimes;
+            return this;
+        }
+
+        public boolean isSetResultTimes() {
+            return resultTimes != null;
+        }
+
+        public List<TimeInstant> getResultTimes(DatasetEntity entity) {
+            return resultTimes.getOrDefault(getConstellation(entity), Collections.emptyList());
         }
 
     }
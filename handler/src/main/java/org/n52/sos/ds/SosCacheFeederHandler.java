@@ -31,6 +31,8 @@ package org.n52.sos.ds;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 
@@ -53,8 +55,11 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.cache.SosWritableContentCache;
 import org.n52.sos.ds.cache.CacheFeederSettingDefinitionProvider;
+import org.n52.sos.ds.cache.CacheHighWaterMark;
+import org.n52.sos.ds.cache.IncrementalCacheUpdate;
 import org.n52.sos.ds.cache.InitialCacheUpdate;
 import org.n52.sos.ds.cache.base.OfferingCacheUpdate;
+import org.n52.sos.util.FeatureSpatialIndex;
 import org.n52.sos.util.GeometryHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -84,6 +89,16 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
     private OwsServiceMetadataRepository serviceMetadataRepository;
     private HibernateSessionStore sessionStore;
     private GeometryHandler geometryHandler;
+    private FeatureSpatialIndex featureSpatialIndex;
+    private ResultTemplateRegistry resultTemplateRegistry;
+    private boolean bulkUpdate;
+    private boolean incrementalUpdate;
+    private int incrementalUpdateCount = 10;
+    private int incrementalUpdateWindow = 1000;
+    private volatile CacheHighWaterMark highWaterMark;
+    private final AtomicInteger incrementalUpdatesSinceComplete = new AtomicInteger(0);
+    private final UpdateTimes completeUpdateTimes = new UpdateTimes();
+    private final UpdateTimes incrementalUpdateTimes = new UpdateTimes();
 
     @Inject
     public void setConnectionProvider(HibernateSessionStore sessionStore) {
@@ -110,17 +125,54 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
         this.geometryHandler = geometryHandler;
     }
 
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
+    @Inject
+    public void setResultTemplateRegistry(ResultTemplateRegistry resultTemplateRegistry) {
+        this.resultTemplateRegistry = resultTemplateRegistry;
+    }
+
     @Setting(CacheFeederSettingDefinitionProvider.CACHE_THREAD_COUNT)
     public void setCacheThreadCount(int threads) throws ConfigurationError {
         Validation.greaterZero("Cache Thread Count", threads);
         this.cacheThreadCount = threads;
     }
 
+    @Setting(CacheFeederSettingDefinitionProvider.CACHE_BULK_UPDATE)
+    public void setBulkUpdate(boolean bulkUpdate) {
+        this.bulkUpdate = bulkUpdate;
+    }
+
+    @Setting(CacheFeederSettingDefinitionProvider.CACHE_INCREMENTAL_UPDATE)
+    public void setIncrementalUpdate(boolean incrementalUpdate) {
+        this.incrementalUpdate = incrementalUpdate;
+        if (!incrementalUpdate) {
+            this.highWaterMark = null;
+        }
+    }
+
+    @Setting(CacheFeederSettingDefinitionProvider.CACHE_INCREMENTAL_UPDATE_COUNT)
+    public void setIncrementalUpdateCount(int count) throws ConfigurationError {
+        Validation.greaterZero("Incremental cache update count", count);
+        this.incrementalUpdateCount = count;
+    }
+
+    @Setting(CacheFeederSettingDefinitionProvider.CACHE_INCREMENTAL_UPDATE_WINDOW)
+    public void setIncrementalUpdateWindow(int window) throws ConfigurationError {
+        Validation.greaterZero("Incremental cache update window", window);
+        this.incrementalUpdateWindow = window;
+    }
+
     @Override
     public void updateCache(SosWritableContentCache cache) throws OwsExceptionReport {
         checkCacheNotNull(cache);
         List<OwsExceptionReport> errors = CollectionHelper.synchronizedList();
         Session session = null;
+        CacheHighWaterMark mark = null;
+        long cacheUpdateStartTime = System.currentTimeMillis();
         try {
             InitialCacheUpdate update = new InitialCacheUpdate(
                     this.cacheThreadCount,
@@ -128,14 +180,20 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
                     this.i18NDAORepository,
                     this.sessionStore,
                     this.serviceMetadataRepository,
-                    geometryHandler);
+                    geometryHandler,
+                    featureSpatialIndex,
+                    resultTemplateRegistry,
+                    bulkUpdate);
             session = this.sessionStore.getSession();
+            if (incrementalUpdate) {
+                // query the mark before the update, so that concurrent changes are picked up by the next update
+                mark = CacheHighWaterMark.query(incrementalUpdateWindow, session);
+            }
             update.setCache(cache);
             update.setErrors(errors);
             update.setSession(session);
 
-            LOGGER.info("Starting cache update");
-            long cacheUpdateStartTime = System.currentTimeMillis();
+            LOGGER.info("Starting {} cache update", bulkUpdate ? "bulk" : "parallel");
 
             update.execute();
 
@@ -152,9 +210,74 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
             }
         }
         if (!errors.isEmpty()) {
+            this.highWaterMark = null;
+            if (featureSpatialIndex != null) {
+                // the index may not have been rebuilt, spatial filters have to query the datasource again
+                featureSpatialIndex.clear();
+            }
             throw new CompositeOwsException(errors);
         }
+        this.highWaterMark = mark;
+        this.incrementalUpdatesSinceComplete.set(0);
+        logUpdateTimes(completeUpdateTimes, cacheUpdateStartTime);
+    }
+
+    @Override
+    public boolean isIncrementalUpdatePossible() {
+        return incrementalUpdate && highWaterMark != null
+                && incrementalUpdatesSinceComplete.get() < incrementalUpdateCount;
+    }
 
+    @Override
+    public void updateCacheIncrementally(SosWritableContentCache cache) throws OwsExceptionReport {
+        checkCacheNotNull(cache);
+        CacheHighWaterMark previous = this.highWaterMark;
+        if (previous == null) {
+            updateCache(cache);
+            return;
+        }
+        List<OwsExceptionReport> errors = CollectionHelper.synchronizedList();
+        Session session = null;
+        CacheHighWaterMark mark = null;
+        long cacheUpdateStartTime = System.currentTimeMillis();
+        try {
+            session = this.sessionStore.getSession();
+            mark = CacheHighWaterMark.query(incrementalUpdateWindow, session);
+            CacheHighWaterMark.Changes changes = mark.changesSince(previous, session);
+            LOGGER.info("Starting incremental cache update for {}", changes);
+            if (!changes.isEmpty()) {
+                IncrementalCacheUpdate update = new IncrementalCacheUpdate(
+                        this.cacheThreadCount,
+                        this.defaultLocale,
+                        this.sessionStore,
+                        this.geometryHandler,
+                        this.featureSpatialIndex,
+                        this.resultTemplateRegistry,
+                        changes);
+                update.setCache(cache);
+                update.setErrors(errors);
+                update.setSession(session);
+                update.execute();
+            }
+            logCacheLoadTime(cacheUpdateStartTime);
+        } catch (Exception e) {
+            LOGGER.error(ERROR_UPDATE_CACHE, e);
+            errors.add(new NoApplicableCodeException().causedBy(e).withMessage(ERROR_UPDATE_CACHE));
+        } finally {
+            try {
+                this.sessionStore.returnSession(session);
+            } catch (Exception e2) {
+                LOGGER.error(ERROR_RETURNING_CONNECTION, e2);
+            }
+        }
+        if (!errors.isEmpty()) {
+            // force a complete update, the changes may be partially merged
+            this.highWaterMark = null;
+            throw new CompositeOwsException(errors);
+        }
+        this.highWaterMark = mark;
+        this.incrementalUpdatesSinceComplete.incrementAndGet();
+        logUpdateTimes(incrementalUpdateTimes, cacheUpdateStartTime);
     }
 
     @Override
@@ -205,6 +328,13 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
         }
     }
 
+    private void logUpdateTimes(UpdateTimes times, long startTime) {
+        times.add(System.currentTimeMillis() - startTime);
+        LOGGER.info("Average cache update times: complete {} ms ({} update(s)), incremental {} ms ({} update(s))",
+                completeUpdateTimes.getAverage(), completeUpdateTimes.getCount(),
+                incrementalUpdateTimes.getAverage(), incrementalUpdateTimes.getCount());
+    }
+
     private void logCacheLoadTime(long startTime) {
         Period cacheLoadPeriod = new Period(startTime, System.currentTimeMillis());
         LOGGER.info("Cache load finished in {} ({} seconds)",
@@ -212,4 +342,26 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
                 cacheLoadPeriod.toStandardSeconds());
     }
 
+    /**
+     * Accumulated durations of cache updates.
+     */
+    private static final class UpdateTimes {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder millis = new LongAdder();
+
+        void add(long duration) {
+            count.increment();
+            millis.add(duration);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getAverage() {
+            long c = count.sum();
+            return c == 0 ? 0 : millis.sum() / c;
+        }
+    }
+
 }
@@ -36,4 +36,12 @@ package org.n52.sos.ds.cache;
 public interface CacheFeederSettingDefinitionProvider {
 
     String CACHE_THREAD_COUNT = "service.cacheThreadCount";
+
+    String CACHE_BULK_UPDATE = "service.cacheBulkUpdate";
+
+    String CACHE_INCREMENTAL_UPDATE = "service.cacheIncrementalUpdate";
+
+    String CACHE_INCREMENTAL_UPDATE_COUNT = "service.cacheIncrementalUpdateCount";
+
+    String CACHE_INCREMENTAL_UPDATE_WINDOW = "service.cacheIncrementalUpdateWindow";
 }
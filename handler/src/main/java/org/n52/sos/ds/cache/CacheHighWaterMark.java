@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+
+/**
+ * The highest observation and dataset ids that are reflected in the content cache. Used by incremental cache updates
+ * to determine the datasets that were created or received new observations since the previous update.
+ * <p>
+ * Ids are assigned when a row is inserted, not when it is committed, so a transaction that commits after the mark was
+ * queried may add rows below the mark. To detect these, the mark also stores the number of rows in a safety window of
+ * ids below the highest ids. If the number changed until the next update, the whole window is scanned again. Rows
+ * committed late with an id below the window are only picked up by the next complete update.
+ *
+ * @since 5.3.2
+ */
+public final class CacheHighWaterMark {
+
+    private final long observationId;
+
+    private final long datasetId;
+
+    private final long window;
+
+    private final long observationsInWindow;
+
+    private final long datasetsInWindow;
+
+    private CacheHighWaterMark(long observationId, long datasetId, long window, long observationsInWindow,
+            long datasetsInWindow) {
+        this.observationId = observationId;
+        this.datasetId = datasetId;
+        this.window = window;
+        this.observationsInWindow = observationsInWindow;
+        this.datasetsInWindow = datasetsInWindow;
+    }
+
+    public long getObservationId() {
+        return observationId;
+    }
+
+    public long getDatasetId() {
+        return datasetId;
+    }
+
+    /**
+     * Query the current high-water mark from the datasource.
+     *
+     * @param window
+     *            the number of ids below the highest ids that are checked for late commits by the next update
+     * @param session
+     *            the session
+     * @return the current high-water mark
+     */
+    public static CacheHighWaterMark query(long window, Session session) {
+        long observationId = max(session, DataEntity.class, DataEntity.PROPERTY_ID);
+        long datasetId = max(session, DatasetEntity.class, DatasetEntity.PROPERTY_ID);
+        return new CacheHighWaterMark(observationId, datasetId, window,
+                count(session, DataEntity.class, DataEntity.PROPERTY_ID, observationId - window, observationId),
+                count(session, DatasetEntity.class, DatasetEntity.PROPERTY_ID, datasetId - window, datasetId));
+    }
+
+    /**
+     * Query the entities of datasets that were created or received new observations between the previous and this
+     * high-water mark.
+     *
+     * @param previous
+     *            the high-water mark of the previous cache update
+     * @param session
+     *            the session
+     * @return the changed entities
+     */
+    @SuppressWarnings("unchecked")
+    public Changes changesSince(CacheHighWaterMark previous, Session session) {
+        long datasetsFrom = previous.getDatasetId();
+        if (count(session, DatasetEntity.class, DatasetEntity.PROPERTY_ID, datasetsFrom - previous.window,
+                datasetsFrom) != previous.datasetsInWindow) {
+            datasetsFrom -= previous.window;
+        }
+        long observationsFrom = previous.getObservationId();
+        if (count(session, DataEntity.class, DataEntity.PROPERTY_ID, observationsFrom - previous.window,
+                observationsFrom) != previous.observationsInWindow) {
+            observationsFrom -= previous.window;
+        }
+        boolean newDatasets = datasetId > datasetsFrom;
+        boolean newObservations = observationId > observationsFrom;
+        if (!newDatasets && !newObservations) {
+            return new Changes();
+        }
+        Disjunction changed = Restrictions.disjunction();
+        if (newDatasets) {
+            changed.add(Restrictions.and(Restrictions.gt(DatasetEntity.PROPERTY_ID, datasetsFrom),
+                    Restrictions.le(DatasetEntity.PROPERTY_ID, datasetId)));
+        }
+        if (newObservations) {
+            DetachedCriteria observations = DetachedCriteria.forClass(DataEntity.class)
+                    .add(Restrictions.gt(DataEntity.PROPERTY_ID, observationsFrom))
+                    .add(Restrictions.le(DataEntity.PROPERTY_ID, observationId))
+                    .setProjection(Projections.distinct(Projections.property(DataEntity.PROPERTY_DATASET_ID)));
+            changed.add(Subqueries.propertyIn(DatasetEntity.PROPERTY_ID, observations));
+        }
+        Criteria c = session.createCriteria(DatasetEntity.class).add(changed)
+                .setProjection(Projections.projectionList()
+                        .add(Projections.property(idOf(DatasetEntity.PROPERTY_OFFERING)))
+                        .add(Projections.property(idOf(DatasetEntity.PROPERTY_PROCEDURE)))
+                        .add(Projections.property(idOf(DatasetEntity.PROPERTY_FEATURE)))
+                        .add(Projections.property(idOf(DatasetEntity.PROPERTY_PHENOMENON))));
+        Changes changes = new Changes();
+        for (Object[] row : (List<Object[]>) c.list()) {
+            changes.datasets++;
+            add(changes.offerings, row[0]);
+            add(changes.procedures, row[1]);
+            add(changes.features, row[2]);
+            add(changes.phenomena, row[3]);
+        }
+        return changes;
+    }
+
+    private static long max(Session session, Class<?> entity, String property) {
+        Object max = session.createCriteria(entity).setProjection(Projections.max(property)).uniqueResult();
+        return max == null ? 0L : ((Number) max).longValue();
+    }
+
+    private static long count(Session session, Class<?> entity, String property, long exclusiveFrom, long to) {
+        Object count = session.createCriteria(entity).add(Restrictions.gt(property, exclusiveFrom))
+                .add(Restrictions.le(property, to)).setProjection(Projections.rowCount()).uniqueResult();
+        return count == null ? 0L : ((Number) count).longValue();
+    }
+
+    private static String idOf(String association) {
+        return association + "." + DatasetEntity.PROPERTY_ID;
+    }
+
+    private static void add(Set<String> ids, Object id) {
+        if (id != null) {
+            ids.add(id.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheHighWaterMark [observationId=%d, datasetId=%d, window=%d]", observationId,
+                datasetId, window);
+    }
+
+    /**
+     * The ids of the entities that are referenced by changed datasets.
+     */
+    public static final class Changes {
+        private final Set<String> offerings = new HashSet<>();
+        private final Set<String> procedures = new HashSet<>();
+        private final Set<String> features = new HashSet<>();
+        private final Set<String> phenomena = new HashSet<>();
+        private int datasets;
+
+        public Set<String> getOfferings() {
+            return Collections.unmodifiableSet(offerings);
+        }
+
+        public Set<String> getProcedures() {
+            return Collections.unmodifiableSet(procedures);
+        }
+
+        public Set<String> getFeatures() {
+            return Collections.unmodifiableSet(features);
+        }
+
+        public Set<String> getPhenomena() {
+            return Collections.unmodifiableSet(phenomena);
+        }
+
+        public boolean isEmpty() {
+            return datasets == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d dataset(s), %d offering(s), %d procedure(s), %d feature(s), %d phenomena",
+                    datasets, offerings.size(), procedures.size(), features.size(), phenomena.size());
+        }
+    }
+}
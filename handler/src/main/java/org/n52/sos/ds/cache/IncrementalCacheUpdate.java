@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.n52.series.db.HibernateSessionStore;
+import org.n52.sos.ds.ResultTemplateRegistry;
+import org.n52.sos.ds.cache.base.FeatureOfInterestCacheUpdate;
+import org.n52.sos.ds.cache.base.ObservablePropertiesCacheUpdate;
+import org.n52.sos.ds.cache.base.ObservationTimeCacheUpdate;
+import org.n52.sos.ds.cache.base.OfferingCacheUpdate;
+import org.n52.sos.ds.cache.base.ProcedureCacheUpdate;
+import org.n52.sos.ds.cache.base.ResultTemplateCacheUpdate;
+import org.n52.sos.util.FeatureSpatialIndex;
+import org.n52.sos.util.GeometryHandler;
+
+/**
+ * Merges the offerings, procedures, features and observable properties of changed datasets into an existing cache.
+ * Deleted entities are not detected, they are removed by the next complete cache update.
+ *
+ * @see CacheHighWaterMark
+ * @see InitialCacheUpdate
+ *
+ * @since 5.3.2
+ */
+public class IncrementalCacheUpdate extends CompositeCacheUpdate {
+
+    public IncrementalCacheUpdate(int threadCount,
+                                  Locale defaultLocale,
+                                  HibernateSessionStore sessionStore,
+                                  GeometryHandler geometryHandler,
+                                  FeatureSpatialIndex featureSpatialIndex,
+                                  ResultTemplateRegistry resultTemplateRegistry,
+                                  CacheHighWaterMark.Changes changes) {
+        super(createUpdates(threadCount, defaultLocale, sessionStore, geometryHandler, featureSpatialIndex,
+                            resultTemplateRegistry, changes));
+    }
+
+    private static AbstractDatasourceCacheUpdate[] createUpdates(int threadCount,
+                                                                 Locale defaultLocale,
+                                                                 HibernateSessionStore sessionStore,
+                                                                 GeometryHandler geometryHandler,
+                                                                 FeatureSpatialIndex featureSpatialIndex,
+                                                                 ResultTemplateRegistry resultTemplateRegistry,
+                                                                 CacheHighWaterMark.Changes changes) {
+        List<AbstractThreadableDatasourceCacheUpdate> parallel = new ArrayList<>();
+        parallel.add(new ObservationTimeCacheUpdate());
+        parallel.add(new ResultTemplateCacheUpdate(resultTemplateRegistry));
+        if (!changes.getPhenomena().isEmpty()) {
+            parallel.add(new ObservablePropertiesCacheUpdate(changes.getPhenomena()));
+        }
+        if (!changes.getFeatures().isEmpty()) {
+            parallel.add(new FeatureOfInterestCacheUpdate(changes.getFeatures(), featureSpatialIndex));
+        }
+        List<AbstractDatasourceCacheUpdate> updates = new ArrayList<>();
+        updates.add(new ParallelCacheUpdate(threadCount, sessionStore,
+                parallel.toArray(new AbstractThreadableDatasourceCacheUpdate[parallel.size()])));
+        if (!changes.getOfferings().isEmpty()) {
+            updates.add(new OfferingCacheUpdate(threadCount, defaultLocale, geometryHandler, sessionStore,
+                    changes.getOfferings()));
+        }
+        if (!changes.getProcedures().isEmpty()) {
+            updates.add(new ProcedureCacheUpdate(threadCount, sessionStore, changes.getProcedures()));
+        }
+        return updates.toArray(new AbstractDatasourceCacheUpdate[updates.size()]);
+    }
+
+}
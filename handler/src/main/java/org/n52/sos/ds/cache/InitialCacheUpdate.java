@@ -33,6 +33,8 @@ import java.util.Locale;
 import org.n52.iceland.i18n.I18NDAORepository;
 import org.n52.iceland.ogc.ows.OwsServiceMetadataRepository;
 import org.n52.series.db.HibernateSessionStore;
+import org.n52.sos.ds.ResultTemplateRegistry;
+import org.n52.sos.ds.cache.base.BulkCacheUpdate;
 import org.n52.sos.ds.cache.base.FeatureOfInterestCacheUpdate;
 import org.n52.sos.ds.cache.base.I18NCacheUpdate;
 import org.n52.sos.ds.cache.base.ObservablePropertiesCacheUpdate;
@@ -41,6 +43,7 @@ import org.n52.sos.ds.cache.base.OfferingCacheUpdate;
 import org.n52.sos.ds.cache.base.ProcedureCacheUpdate;
 import org.n52.sos.ds.cache.base.RelatedFeaturesCacheUpdate;
 import org.n52.sos.ds.cache.base.ResultTemplateCacheUpdate;
+import org.n52.sos.util.FeatureSpatialIndex;
 import org.n52.sos.util.GeometryHandler;
 
 /**
@@ -56,6 +59,7 @@ import org.n52.sos.util.GeometryHandler;
  * @see RelatedFeaturesCacheUpdate
  * @see ResultTemplateCacheUpdate
  * @see I18NCacheUpdate
+ * @see BulkCacheUpdate
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
  *
  * @since 4.0.0
@@ -68,22 +72,78 @@ public class InitialCacheUpdate extends CompositeCacheUpdate {
                               HibernateSessionStore sessionStore,
                               OwsServiceMetadataRepository serviceMetadataRepository,
                               GeometryHandler geometryHandler) {
+        this(threadCount, defaultLocale, i18NDAORepository, sessionStore, serviceMetadataRepository,
+             geometryHandler, null, null, false);
+    }
+
+    /**
+     * @param featureSpatialIndex
+     *            the index to rebuild from the feature geometries, may be {@code null}
+     * @param resultTemplateRegistry
+     *            the registry to fill with the decoded result templates, may be {@code null}
+     * @param bulk
+     *            if offerings, procedures, features and observable properties should be loaded by the
+     *            {@link BulkCacheUpdate} instead of one task per entity
+     */
+    public InitialCacheUpdate(int threadCount,
+                              Locale defaultLocale,
+                              I18NDAORepository i18NDAORepository,
+                              HibernateSessionStore sessionStore,
+                              OwsServiceMetadataRepository serviceMetadataRepository,
+                              GeometryHandler geometryHandler,
+                              FeatureSpatialIndex featureSpatialIndex,
+                              ResultTemplateRegistry resultTemplateRegistry,
+                              boolean bulk) {
+        super(bulk ? createBulkUpdates(threadCount, defaultLocale, i18NDAORepository, sessionStore,
+                                       serviceMetadataRepository, geometryHandler, featureSpatialIndex,
+                                       resultTemplateRegistry)
+                   : createUpdates(threadCount, defaultLocale, i18NDAORepository, sessionStore,
+                                   serviceMetadataRepository, geometryHandler, featureSpatialIndex,
+                                   resultTemplateRegistry));
+    }
+
+    private static AbstractDatasourceCacheUpdate[] createUpdates(int threadCount,
+                                                                 Locale defaultLocale,
+                                                                 I18NDAORepository i18NDAORepository,
+                                                                 HibernateSessionStore sessionStore,
+                                                                 OwsServiceMetadataRepository metadataRepository,
+                                                                 GeometryHandler geometryHandler,
+                                                                 FeatureSpatialIndex featureSpatialIndex,
+                                                                 ResultTemplateRegistry resultTemplateRegistry) {
         //execute all updates except offerings and procedures in parallel, then execute offering and procedure updates
         //(which spawn their own threads)
-        super(new ParallelCacheUpdate(threadCount,
-                                      sessionStore,
-                                      new ObservablePropertiesCacheUpdate(),
-                                      new FeatureOfInterestCacheUpdate(),
-                                      new RelatedFeaturesCacheUpdate(),
-                                      new ObservationTimeCacheUpdate(),
-                                      new ResultTemplateCacheUpdate()),
-              new I18NCacheUpdate(serviceMetadataRepository,
-                                  i18NDAORepository),
-              new OfferingCacheUpdate(threadCount,
-                                      defaultLocale,
-                                      geometryHandler,
-                                      sessionStore),
-              new ProcedureCacheUpdate(threadCount, sessionStore));
+        return new AbstractDatasourceCacheUpdate[] {
+            new ParallelCacheUpdate(threadCount,
+                                    sessionStore,
+                                    new ObservablePropertiesCacheUpdate(),
+                                    new FeatureOfInterestCacheUpdate(null, featureSpatialIndex),
+                                    new RelatedFeaturesCacheUpdate(),
+                                    new ObservationTimeCacheUpdate(),
+                                    new ResultTemplateCacheUpdate(resultTemplateRegistry)),
+            new I18NCacheUpdate(metadataRepository, i18NDAORepository),
+            new OfferingCacheUpdate(threadCount,
+                                    defaultLocale,
+                                    geometryHandler,
+                                    sessionStore),
+            new ProcedureCacheUpdate(threadCount, sessionStore) };
+    }
+
+    private static AbstractDatasourceCacheUpdate[] createBulkUpdates(int threadCount,
+                                                                     Locale defaultLocale,
+                                                                     I18NDAORepository i18NDAORepository,
+                                                                     HibernateSessionStore sessionStore,
+                                                                     OwsServiceMetadataRepository metadataRepository,
+                                                                     GeometryHandler geometryHandler,
+                                                                     FeatureSpatialIndex featureSpatialIndex,
+                                                                     ResultTemplateRegistry resultTemplateRegistry) {
+        return new AbstractDatasourceCacheUpdate[] {
+            new ParallelCacheUpdate(threadCount,
+                                    sessionStore,
+                                    new RelatedFeaturesCacheUpdate(),
+                                    new ObservationTimeCacheUpdate(),
+                                    new ResultTemplateCacheUpdate(resultTemplateRegistry)),
+            new I18NCacheUpdate(metadataRepository, i18NDAORepository),
+            new BulkCacheUpdate(defaultLocale, geometryHandler, featureSpatialIndex) };
     }
 
 }
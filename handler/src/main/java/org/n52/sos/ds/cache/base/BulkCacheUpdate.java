@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache.base;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.sql.JoinType;
+import org.n52.io.request.IoParameters;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.FormatEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.dataset.DatasetType;
+import org.n52.series.db.beans.dataset.ObservationType;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.FeatureDao;
+import org.n52.series.db.dao.OfferingDao;
+import org.n52.series.db.dao.PhenomenonDao;
+import org.n52.series.db.dao.ProcedureDao;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.sos.ds.cache.AbstractDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.util.FeatureSpatialIndex;
+import org.n52.sos.util.GeometryHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the offerings, procedures, features, observable properties and all datasets with one query per entity type
+ * and fills the cache from the datasets grouped in memory. This replaces the per entity dataset queries of
+ * {@link OfferingCacheUpdate}, {@link ProcedureCacheUpdate}, {@link FeatureOfInterestCacheUpdate} and
+ * {@link ObservablePropertiesCacheUpdate}. The datasets are queried as a scalar projection of the columns the cache
+ * needs and linked to the already loaded entities, so that no dataset entity and none of its lazy associations is
+ * hydrated. The collections used by the cache update tasks, e.g. the parents, translations, related features and
+ * observation types of the offerings, are join fetched once per collection for all entities.
+ *
+ * @since 5.3.2
+ */
+public class BulkCacheUpdate extends AbstractDatasourceCacheUpdate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkCacheUpdate.class);
+
+    private static final String PROPERTY_HIDDEN = "hidden";
+
+    private static final String PROPERTY_DATASET_TYPE = "datasetType";
+
+    private static final String PROPERTY_OBSERVATION_TYPE = "observationType";
+
+    private static final String PROPERTY_VALUE_TYPE = "valueType";
+
+    private static final String PROPERTY_OM_OBSERVATION_TYPE = "omObservationType";
+
+    private static final String OM_OBSERVATION_TYPE_ALIAS = "oot";
+
+    private static final String PROPERTY_TRANSLATIONS = "translations";
+
+    private static final String PROPERTY_RELATED_FEATURES = "relatedFeatures";
+
+    private static final String PROPERTY_RELATED_FEATURE = PROPERTY_RELATED_FEATURES + ".feature";
+
+    private static final String PROPERTY_OBSERVATION_TYPES = "observationTypes";
+
+    private static final String PROPERTY_FEATURE_TYPES = "featureTypes";
+
+    private static final String PROPERTY_CHILDREN = "children";
+
+    private final Locale defaultLanguage;
+
+    private final GeometryHandler geometryHandler;
+
+    private final FeatureSpatialIndex featureSpatialIndex;
+
+    public BulkCacheUpdate(Locale defaultLanguage, GeometryHandler geometryHandler,
+            FeatureSpatialIndex featureSpatialIndex) {
+        this.defaultLanguage = defaultLanguage;
+        this.geometryHandler = geometryHandler;
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
+    @Override
+    public void execute() {
+        LOGGER.debug("Executing BulkCacheUpdate");
+        startStopwatch();
+        try {
+            DbQuery query = new DbQuery(IoParameters.createDefaults());
+            Collection<OfferingEntity> offerings = new OfferingDao(getSession()).get(query);
+            Collection<ProcedureEntity> procedures = new ProcedureDao(getSession()).get(query);
+            Collection<FeatureEntity> features = new FeatureDao(getSession()).get(query);
+            Collection<PhenomenonEntity> phenomena = new PhenomenonDao(getSession()).get(query);
+            fetch(OfferingEntity.class, OfferingEntity.PROPERTY_PARENTS);
+            fetch(OfferingEntity.class, PROPERTY_TRANSLATIONS);
+            fetch(OfferingEntity.class, PROPERTY_RELATED_FEATURES, PROPERTY_RELATED_FEATURE);
+            fetch(OfferingEntity.class, PROPERTY_OBSERVATION_TYPES);
+            fetch(OfferingEntity.class, PROPERTY_FEATURE_TYPES);
+            fetch(ProcedureEntity.class, ProcedureEntity.PROPERTY_PARENTS);
+            fetch(FeatureEntity.class, FeatureEntity.PROPERTY_PARENTS);
+            fetch(PhenomenonEntity.class, PROPERTY_CHILDREN);
+            Collection<DatasetEntity> datasets = getDatasets(offerings, procedures, features, phenomena);
+            LOGGER.debug("Loaded {} offerings, {} procedures, {} features, {} phenomena and {} datasets ({})",
+                    offerings.size(), procedures.size(), features.size(), phenomena.size(), datasets.size(),
+                    getStopwatchResult());
+
+            Map<Long, List<DatasetEntity>> byOffering = group(datasets, DatasetEntity::getOffering);
+            for (OfferingEntity offering : offerings) {
+                run(new OfferingCacheUpdateTask(offering, get(byOffering, offering), defaultLanguage,
+                        geometryHandler));
+            }
+            Map<Long, List<DatasetEntity>> byProcedure = group(datasets, DatasetEntity::getProcedure);
+            for (ProcedureEntity procedure : procedures) {
+                run(new ProcedureCacheUpdateTask(procedure, get(byProcedure, procedure)));
+            }
+            Map<Long, List<DatasetEntity>> byFeature = group(datasets, DatasetEntity::getFeature);
+            FeatureOfInterestCacheUpdate featureUpdate =
+                    prepare(new FeatureOfInterestCacheUpdate(null, featureSpatialIndex));
+            for (FeatureEntity feature : features) {
+                featureUpdate.addFeatureOfInterest(feature, get(byFeature, feature));
+            }
+            featureUpdate.indexFeatures(features);
+            Map<Long, List<DatasetEntity>> byPhenomenon = group(datasets, DatasetEntity::getPhenomenon);
+            ObservablePropertiesCacheUpdate phenomenonUpdate = prepare(new ObservablePropertiesCacheUpdate());
+            for (PhenomenonEntity phenomenon : phenomena) {
+                phenomenonUpdate.addObservableProperty(phenomenon, get(byPhenomenon, phenomenon));
+            }
+        } catch (RuntimeException e) {
+            getErrors().add(new NoApplicableCodeException().causedBy(e)
+                    .withMessage("Error while executing bulk cache update!"));
+        }
+        LOGGER.debug("Finished executing BulkCacheUpdate ({})", getStopwatchResult());
+    }
+
+    /**
+     * Initialize the collections of the already loaded entities with one join fetch query per collection instead of
+     * one lazy select per entity. Each collection is fetched separately to avoid the cartesian product of several
+     * joined collections.
+     */
+    private void fetch(Class<? extends DescribableEntity> type, String... associations) {
+        Criteria c = getSession().createCriteria(type)
+                .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+        for (String association : associations) {
+            c.setFetchMode(association, FetchMode.JOIN);
+        }
+        c.list();
+    }
+
+    /**
+     * Query the dataset columns used by the cache update tasks and link the resulting transient datasets to the
+     * loaded entities.
+     */
+    private Collection<DatasetEntity> getDatasets(Collection<OfferingEntity> offerings,
+            Collection<ProcedureEntity> procedures, Collection<FeatureEntity> features,
+            Collection<PhenomenonEntity> phenomena) {
+        Map<Long, OfferingEntity> offeringsById = byId(offerings);
+        Map<Long, ProcedureEntity> proceduresById = byId(procedures);
+        Map<Long, FeatureEntity> featuresById = byId(features);
+        Map<Long, PhenomenonEntity> phenomenaById = byId(phenomena);
+        Map<String, FormatEntity> formats = new HashMap<>();
+        Criteria c = getSession().createCriteria(DatasetEntity.class)
+                .createAlias(PROPERTY_OM_OBSERVATION_TYPE, OM_OBSERVATION_TYPE_ALIAS, JoinType.LEFT_OUTER_JOIN)
+                .add(Restrictions.eq(DatasetEntity.PROPERTY_DELETED, false))
+                .setProjection(Projections.projectionList()
+                        .add(Projections.property(DatasetEntity.PROPERTY_ID))
+                        .add(Projections.property(DatasetEntity.PROPERTY_OFFERING + "." + DatasetEntity.PROPERTY_ID))
+                        .add(Projections.property(DatasetEntity.PROPERTY_PROCEDURE + "." + DatasetEntity.PROPERTY_ID))
+                        .add(Projections.property(DatasetEntity.PROPERTY_FEATURE + "." + DatasetEntity.PROPERTY_ID))
+                        .add(Projections.property(DatasetEntity.PROPERTY_PHENOMENON + "." + DatasetEntity.PROPERTY_ID))
+                        .add(Projections.property(DatasetEntity.PROPERTY_PUBLISHED))
+                        .add(Projections.property(PROPERTY_HIDDEN))
+                        .add(Projections.property(PROPERTY_DATASET_TYPE))
+                        .add(Projections.property(PROPERTY_OBSERVATION_TYPE))
+                        .add(Projections.property(PROPERTY_VALUE_TYPE))
+                        .add(Projections.property(OM_OBSERVATION_TYPE_ALIAS + "." + FormatEntity.FORMAT))
+                        .add(Projections.property(DatasetEntity.PROPERTY_FIRST_VALUE_AT))
+                        .add(Projections.property(DatasetEntity.PROPERTY_LAST_VALUE_AT)));
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = c.list();
+        List<DatasetEntity> datasets = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            DatasetEntity dataset = new DatasetEntity();
+            dataset.setId((Long) row[0]);
+            dataset.setOffering(offeringsById.get(row[1]));
+            dataset.setProcedure(proceduresById.get(row[2]));
+            dataset.setFeature(featuresById.get(row[3]));
+            dataset.setPhenomenon(phenomenaById.get(row[4]));
+            dataset.setPublished(Boolean.TRUE.equals(row[5]));
+            dataset.setHidden(Boolean.TRUE.equals(row[6]));
+            dataset.setDeleted(false);
+            if (row[7] != null) {
+                dataset.setDatasetType((DatasetType) row[7]);
+            }
+            if (row[8] != null) {
+                dataset.setObservationType((ObservationType) row[8]);
+            }
+            if (row[9] != null) {
+                dataset.setValueType((ValueType) row[9]);
+            }
+            if (row[10] != null) {
+                dataset.setOmObservationType(formats.computeIfAbsent((String) row[10], format -> {
+                    FormatEntity entity = new FormatEntity();
+                    entity.setFormat(format);
+                    return entity;
+                }));
+            }
+            dataset.setFirstValueAt((Date) row[11]);
+            dataset.setLastValueAt((Date) row[12]);
+            datasets.add(dataset);
+        }
+        return datasets;
+    }
+
+    private static <T extends DescribableEntity> Map<Long, T> byId(Collection<T> entities) {
+        Map<Long, T> map = new HashMap<>(entities.size());
+        for (T entity : entities) {
+            map.put(entity.getId(), entity);
+        }
+        return map;
+    }
+
+    private <T extends AbstractThreadableDatasourceCacheUpdate> T prepare(T update) {
+        update.setCache(getCache());
+        update.setErrors(getErrors());
+        update.setSession(getSession());
+        return update;
+    }
+
+    private void run(AbstractThreadableDatasourceCacheUpdate task) {
+        prepare(task).execute();
+    }
+
+    private static Map<Long, List<DatasetEntity>> group(Collection<DatasetEntity> datasets,
+            Function<DatasetEntity, ? extends DescribableEntity> property) {
+        Map<Long, List<DatasetEntity>> map = new HashMap<>();
+        for (DatasetEntity dataset : datasets) {
+            DescribableEntity entity = property.apply(dataset);
+            if (entity != null) {
+                map.computeIfAbsent(entity.getId(), id -> new ArrayList<>()).add(dataset);
+            }
+        }
+        return map;
+    }
+
+    private static List<DatasetEntity> get(Map<Long, List<DatasetEntity>> map, DescribableEntity entity) {
+        return map.getOrDefault(entity.getId(), Collections.emptyList());
+    }
+}
@@ -29,10 +29,13 @@
 package org.n52.sos.ds.cache.base;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.hibernate.HibernateException;
+import org.locationtech.jts.geom.Geometry;
 import org.n52.io.request.IoParameters;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.FeatureEntity;
@@ -42,6 +45,7 @@ import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.FeatureDao;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.util.FeatureSpatialIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,34 +60,38 @@ import com.google.common.collect.Sets;
 public class FeatureOfInterestCacheUpdate extends AbstractThreadableDatasourceCacheUpdate {
     private static final Logger LOGGER = LoggerFactory.getLogger(FeatureOfInterestCacheUpdate.class);
 
+    private final Collection<String> featureIdsToUpdate;
+
+    private final FeatureSpatialIndex featureSpatialIndex;
+
+    public FeatureOfInterestCacheUpdate() {
+        this(null, null);
+    }
+
+    /**
+     * @param featureIdsToUpdate
+     *            the ids of the features to update, all features are updated if {@code null}
+     * @param featureSpatialIndex
+     *            the index to update with the feature geometries, may be {@code null}
+     */
+    public FeatureOfInterestCacheUpdate(Collection<String> featureIdsToUpdate,
+            FeatureSpatialIndex featureSpatialIndex) {
+        this.featureIdsToUpdate = featureIdsToUpdate;
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
     @Override
     public void execute() {
         LOGGER.debug("Executing FeatureOfInterestCacheUpdate");
         startStopwatch();
         try {
             Collection<FeatureEntity> features =
-                    new FeatureDao(getSession()).get(new DbQuery(IoParameters.createDefaults()));
+                    new FeatureDao(getSession()).get(new DbQuery(createParameters()));
             for (FeatureEntity featureEntity : features) {
-                String identifier = featureEntity.getIdentifier();
-                getCache().addFeatureOfInterest(identifier);
-                Collection<DatasetEntity> datasets =
-                        new DatasetDao<>(getSession()).get(createDatasetDbQuery(featureEntity));
-                if (datasets != null && !datasets.isEmpty()) {
-                    if (datasets.stream().anyMatch(
-                        d -> d.isPublished() || d.getDatasetType().equals(DatasetType.not_initialized))) {
-                        getCache().addPublishedFeatureOfInterest(identifier);
-                    }
-                    getCache().setProceduresForFeatureOfInterest(identifier, getProcedures(datasets));
-                } else {
-                    getCache().addPublishedFeatureOfInterest(identifier);
-                }
-                if (featureEntity.isSetName()) {
-                    getCache().addFeatureOfInterestIdentifierHumanReadableName(identifier, featureEntity.getName());
-                }
-                if (featureEntity.hasParents()) {
-                    getCache().addParentFeatures(identifier, getParents(featureEntity));
-                }
+                addFeatureOfInterest(featureEntity,
+                        new DatasetDao<>(getSession()).get(createDatasetDbQuery(featureEntity)));
             }
+            indexFeatures(features);
         } catch (HibernateException he) {
             getErrors().add(new NoApplicableCodeException().causedBy(he)
                     .withMessage("Error while updating featureOfInterest cache!"));
@@ -91,6 +99,63 @@ public class FeatureOfInterestCacheUpdate extends AbstractThreadableDatasourceCa
         LOGGER.debug("Finished executing FeatureOfInterestCacheUpdate ({})", getStopwatchResult());
     }
 
+    private IoParameters createParameters() {
+        IoParameters parameters = IoParameters.createDefaults();
+        if (featureIdsToUpdate != null) {
+            return parameters.extendWith(IoParameters.FEATURES, featureIdsToUpdate.toArray(new String[0]));
+        }
+        return parameters;
+    }
+
+    void addFeatureOfInterest(FeatureEntity featureEntity, Collection<DatasetEntity> datasets) {
+        String identifier = featureEntity.getIdentifier();
+        getCache().addFeatureOfInterest(identifier);
+        if (datasets != null && !datasets.isEmpty()) {
+            if (datasets.stream().anyMatch(
+                d -> d.isPublished() || d.getDatasetType().equals(DatasetType.not_initialized))) {
+                getCache().addPublishedFeatureOfInterest(identifier);
+            }
+            getCache().setProceduresForFeatureOfInterest(identifier, getProcedures(datasets));
+        } else {
+            getCache().addPublishedFeatureOfInterest(identifier);
+        }
+        if (featureEntity.isSetName()) {
+            getCache().addFeatureOfInterestIdentifierHumanReadableName(identifier, featureEntity.getName());
+        }
+        if (featureEntity.hasParents()) {
+            getCache().addParentFeatures(identifier, getParents(featureEntity));
+        }
+    }
+
+    /**
+     * Update the {@link FeatureSpatialIndex} with the geometries of the features. A complete update replaces the
+     * content of the index.
+     *
+     * @param features
+     *            the updated features
+     */
+    void indexFeatures(Collection<FeatureEntity> features) {
+        FeatureSpatialIndex index = this.featureSpatialIndex;
+        if (index == null || !index.isActive()) {
+            return;
+        }
+        if (featureIdsToUpdate == null) {
+            Map<String, Geometry> geometries = new HashMap<>(features.size());
+            for (FeatureEntity featureEntity : features) {
+                geometries.put(featureEntity.getIdentifier(), getGeometry(featureEntity));
+            }
+            index.rebuild(geometries);
+        } else {
+            for (FeatureEntity featureEntity : features) {
+                index.put(featureEntity.getIdentifier(), getGeometry(featureEntity));
+            }
+        }
+    }
+
+    private Geometry getGeometry(FeatureEntity featureEntity) {
+        return featureEntity.isSetGeometry() ? featureEntity.getGeometryEntity().getGeometry() : null;
+    }
+
     private Collection<String> getProcedures(Collection<DatasetEntity> datasets) {
         return datasets.stream().filter(d -> d.getProcedure() != null).map(d -> d.getProcedure().getIdentifier())
                 .collect(Collectors.toSet());
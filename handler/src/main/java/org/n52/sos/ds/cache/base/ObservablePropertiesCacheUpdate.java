@@ -54,39 +54,31 @@ public class ObservablePropertiesCacheUpdate extends AbstractThreadableDatasourc
         implements DatasourceCacheUpdateHelper {
     private static final Logger LOGGER = LoggerFactory.getLogger(ObservablePropertiesCacheUpdate.class);
 
+    private final Collection<String> observablePropertyIdsToUpdate;
+
+    public ObservablePropertiesCacheUpdate() {
+        this(null);
+    }
+
+    /**
+     * @param observablePropertyIdsToUpdate
+     *            the ids of the observable properties to update, all observable properties are updated if
+     *            {@code null}
+     */
+    public ObservablePropertiesCacheUpdate(Collection<String> observablePropertyIdsToUpdate) {
+        this.observablePropertyIdsToUpdate = observablePropertyIdsToUpdate;
+    }
+
     @Override
     public void execute() {
         LOGGER.debug("Executing ObservablePropertiesCacheUpdate");
         startStopwatch();
         try {
             Collection<PhenomenonEntity> observableProperties =
-                    new PhenomenonDao(getSession()).get(new DbQuery(IoParameters.createDefaults()));
+                    new PhenomenonDao(getSession()).get(new DbQuery(createParameters()));
             for (PhenomenonEntity observableProperty : observableProperties) {
-                Collection<DatasetEntity> datasets =
-                        new DatasetDao<>(getSession()).get(createDatasetDbQuery(observableProperty));
-                String identifier = observableProperty.getIdentifier();
-
-                if (observableProperty.isSetName()) {
-                    getCache().addObservablePropertyIdentifierHumanReadableName(identifier,
-                            observableProperty.getName());
-                }
-                if (observableProperty.hasChildren()) {
-                    for (PhenomenonEntity child : observableProperty.getChildren()) {
-                        getCache().addCompositePhenomenonForObservableProperty(child.getIdentifier(), identifier);
-                        getCache().addObservablePropertyForCompositePhenomenon(identifier, child.getIdentifier());
-                    }
-                }
-
-                if (datasets != null && !datasets.isEmpty()) {
-                    if (datasets.stream().anyMatch(
-                        d -> d.isPublished() || d.getDatasetType().equals(DatasetType.not_initialized))) {
-                        getCache().addPublishedObservableProperty(identifier);
-                    }
-                    getCache().setOfferingsForObservableProperty(identifier,
-                            getAllOfferingIdentifiersFromDatasets(datasets));
-                    getCache().setProceduresForObservableProperty(identifier,
-                            getAllProcedureIdentifiersFromDatasets(datasets));
-                }
+                addObservableProperty(observableProperty,
+                        new DatasetDao<>(getSession()).get(createDatasetDbQuery(observableProperty)));
             }
         } catch (HibernateException he) {
             getErrors().add(new NoApplicableCodeException().causedBy(he)
@@ -95,6 +87,41 @@ public class ObservablePropertiesCacheUpdate extends AbstractThreadableDatasourc
         LOGGER.debug("Executing ObservablePropertiesCacheUpdate ({})", getStopwatchResult());
     }
 
+    void addObservableProperty(PhenomenonEntity observableProperty, Collection<DatasetEntity> datasets) {
+        String identifier = observableProperty.getIdentifier();
+
+        if (observableProperty.isSetName()) {
+            getCache().addObservablePropertyIdentifierHumanReadableName(identifier,
+                    observableProperty.getName());
+        }
+        if (observableProperty.hasChildren()) {
+            for (PhenomenonEntity child : observableProperty.getChildren()) {
+                getCache().addCompositePhenomenonForObservableProperty(child.getIdentifier(), identifier);
+                getCache().addObservablePropertyForCompositePhenomenon(identifier, child.getIdentifier());
+            }
+        }
+
+        if (datasets != null && !datasets.isEmpty()) {
+            if (datasets.stream().anyMatch(
+                d -> d.isPublished() || d.getDatasetType().equals(DatasetType.not_initialized))) {
+                getCache().addPublishedObservableProperty(identifier);
+            }
+            getCache().setOfferingsForObservableProperty(identifier,
+                    getAllOfferingIdentifiersFromDatasets(datasets));
+            getCache().setProceduresForObservableProperty(identifier,
+                    getAllProcedureIdentifiersFromDatasets(datasets));
+        }
+    }
+
+    private IoParameters createParameters() {
+        IoParameters parameters = IoParameters.createDefaults();
+        if (observablePropertyIdsToUpdate != null) {
+            return parameters.extendWith(IoParameters.PHENOMENA,
+                    observablePropertyIdsToUpdate.toArray(new String[0]));
+        }
+        return parameters;
+    }
+
     private DbQuery createDatasetDbQuery(PhenomenonEntity observableProperty) {
         IoParameters parameters = IoParameters.createDefaults();
         return new DbQuery(parameters.extendWith(IoParameters.PHENOMENA, Long.toString(observableProperty.getId())));
@@ -93,6 +93,8 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
                 if (offeringsIdToUpdate == null || offeringsIdToUpdate.isEmpty()) {
                     return offeringDAO.get(new DbQuery(IoParameters.createDefaults()));
                 }
+                return offeringDAO.get(new DbQuery(IoParameters.createDefaults()
+                        .extendWith(IoParameters.OFFERINGS, offeringsIdToUpdate.toArray(new String[0]))));
             }
         } catch (Exception e) {
             getErrors().add(new GenericThrowableWrapperException(e)
@@ -101,7 +101,31 @@ public class OfferingCacheUpdateTask extends AbstractThreadableDatasourceCacheUp
         this.datasets.clear();
     }
 
+    /**
+     * Constructor for offerings and datasets that were loaded by the session of the executing thread.
+     *
+     * @param offering
+     *            Offering entity
+     * @param datasets
+     *            the datasets of the offering
+     * @param defaultLanguage
+     *            the default language
+     * @param geometryHandler
+     *            the geometry handler
+     */
+    OfferingCacheUpdateTask(OfferingEntity offering, Collection<DatasetEntity> datasets, Locale defaultLanguage,
+            GeometryHandler geometryHandler) {
+        this(offering.getId(), defaultLanguage, geometryHandler);
+        this.offering = offering;
+        this.datasets.addAll(datasets);
+    }
+
     private void init(Session session) {
+        if (offering != null) {
+            // preloaded
+            this.identifier = offering.getIdentifier();
+            return;
+        }
         this.offering = session.load(OfferingEntity.class, offeringId);
         this.identifier = offering.getIdentifier();
         if (datasets != null) {
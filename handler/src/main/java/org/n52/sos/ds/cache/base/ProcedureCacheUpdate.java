@@ -57,6 +57,8 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
 
     private Collection<ProcedureEntity> procedures = new ArrayList<>();
 
+    private final Collection<String> procedureIdsToUpdate;
+
     /**
      * constructor
      *
@@ -64,7 +66,23 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
      *            Thread count
      */
     public ProcedureCacheUpdate(int threads, HibernateSessionStore sessionStore) {
+        this(threads, sessionStore, null);
+    }
+
+    /**
+     * constructor
+     *
+     * @param threads
+     *            Thread count
+     * @param sessionStore
+     *            the session store
+     * @param procedureIdsToUpdate
+     *            the ids of the procedures to update, all procedures are updated if {@code null}
+     */
+    public ProcedureCacheUpdate(int threads, HibernateSessionStore sessionStore,
+            Collection<String> procedureIdsToUpdate) {
         super(threads, THREAD_GROUP_NAME, sessionStore);
+        this.procedureIdsToUpdate = procedureIdsToUpdate;
     }
 
     @Override
@@ -72,7 +90,7 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
         // single threaded updates
         LOGGER.debug("Executing ProcedureCacheUpdate (Single Threaded Tasks)");
         startStopwatch();
-        procedures = new ProcedureDao(getSession()).get(new DbQuery(IoParameters.createDefaults()));
+        procedures = new ProcedureDao(getSession()).get(new DbQuery(createParameters()));
         LOGGER.debug("Finished executing ProcedureCacheUpdate (Single Threaded Tasks) ({})", getStopwatchResult());
 
         // multi-threaded execution
@@ -82,6 +100,14 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
         LOGGER.debug("Finished executing ProcedureCacheUpdate (Multi-Threaded Tasks) ({})", getStopwatchResult());
     }
 
+    private IoParameters createParameters() {
+        IoParameters parameters = IoParameters.createDefaults();
+        if (procedureIdsToUpdate != null) {
+            return parameters.extendWith(IoParameters.PROCEDURES, procedureIdsToUpdate.toArray(new String[0]));
+        }
+        return parameters;
+    }
+
     @Override
     protected ProcedureCacheUpdateTask[] getUpdatesToExecute() {
         Collection<ProcedureCacheUpdateTask> procedureUpdateTasks = Lists.newArrayList();
@@ -28,12 +28,15 @@
  */
 package org.n52.sos.ds.cache.base;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.n52.iceland.util.action.Action;
 import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.slf4j.Logger;
@@ -47,6 +50,7 @@ import org.slf4j.LoggerFactory;
  * <li>Procedure &rarr; 'Result template identifier' relation</li>
  * <li>'Result template identifier' &rarr; 'observable property' relation</li>
  * <li>'Result template identifier' &rarr; 'feature of interest' relation</li>
+ * <li>Decoded result templates in the {@link ResultTemplateRegistry}</li>
  * </ul>
  *
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
@@ -57,14 +61,33 @@ import org.slf4j.LoggerFactory;
 public class ResultTemplateCacheUpdate extends AbstractThreadableDatasourceCacheUpdate {
     private static final Logger LOGGER = LoggerFactory.getLogger(ResultTemplateCacheUpdate.class);
 
+    private final ResultTemplateRegistry registry;
+
+    public ResultTemplateCacheUpdate() {
+        this(null);
+    }
+
+    /**
+     * @param registry
+     *            the registry to fill with the decoded result templates, may be {@code null}
+     */
+    public ResultTemplateCacheUpdate(ResultTemplateRegistry registry) {
+        this.registry = registry;
+    }
+
     @Override
     public void execute() {
         LOGGER.debug("Executing ResultTemplateCacheUpdate");
         startStopwatch();
         if (HibernateHelper.isEntitySupported(ResultTemplateEntity.class)) {
             List<ResultTemplateEntity> resultTemplates = getResultTemplateObjects(getSession());
+            Set<String> identifiers = new HashSet<>(resultTemplates.size());
             for (ResultTemplateEntity resultTemplate : resultTemplates) {
                 String id = resultTemplate.getIdentifier();
+                identifiers.add(id);
+                if (registry != null) {
+                    registry.register(id, resultTemplate.getStructure(), resultTemplate.getEncoding());
+                }
                 getCache().addResultTemplate(id);
                 getCache().addResultTemplateForOffering(resultTemplate.getOffering().getIdentifier(), id);
                 getCache().addObservablePropertyForResultTemplate(id, resultTemplate.getPhenomenon().getIdentifier());
@@ -72,6 +95,9 @@ public class ResultTemplateCacheUpdate extends AbstractThreadableDatasourceCache
                     getCache().addFeatureOfInterestForResultTemplate(id, resultTemplate.getFeature().getIdentifier());
                 }
             }
+            if (registry != null) {
+                registry.retain(identifiers);
+            }
         }
         LOGGER.debug("Finished executing ResultTemplateCacheUpdate ({})", getStopwatchResult());
     }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
+import org.n52.sos.ds.GetDataAvailabilityHandler.GDARequestContext;
+
+public class GetDataAvailabilityHandlerTest {
+
+    private static final String PARENT = "parent";
+
+    private static final String CHILD = "child";
+
+    private GetDataAvailabilityHandler handler;
+
+    @Before
+    public void setUp() {
+        handler = new GetDataAvailabilityHandler();
+    }
+
+    @Test
+    public void shouldMergeDuplicatesInOrder() {
+        DataAvailability first = create("procedure", "offering", 1, 2);
+        DataAvailability other = create("other", "offering", 1, 2);
+        DataAvailability duplicate = create("procedure", "offering", 3, 4);
+        List<DataAvailability> checked = handler.checkForDuplictation(Arrays.asList(first, other, duplicate));
+        MatcherAssert.assertThat(checked.size(), Is.is(2));
+        MatcherAssert.assertThat(checked.get(0) == first, Is.is(true));
+        MatcherAssert.assertThat(checked.get(1) == other, Is.is(true));
+        MatcherAssert.assertThat(first.getPhenomenonTime(), Is.is(getTimePeriod(1, 4)));
+    }
+
+    @Test
+    public void shouldNotMergeDifferentOfferings() {
+        DataAvailability first = create("procedure", "offering", 1, 2);
+        DataAvailability second = create("procedure", "another", 3, 4);
+        List<DataAvailability> checked = handler.checkForDuplictation(Arrays.asList(first, second));
+        MatcherAssert.assertThat(checked.size(), Is.is(2));
+        MatcherAssert.assertThat(first.getPhenomenonTime(), Is.is(getTimePeriod(1, 2)));
+        MatcherAssert.assertThat(second.getPhenomenonTime(), Is.is(getTimePeriod(3, 4)));
+    }
+
+    @Test
+    public void shouldMergeChildIntoExistingParent() {
+        DataAvailability parent = create("procedure", PARENT, 1, 2);
+        DataAvailability child = create("procedure", CHILD, 3, 4);
+        GDARequestContext context = createContext(parent, child);
+        handler.checkForParentOfferings(context, createParentOffering());
+        MatcherAssert.assertThat(context.getDataAvailabilityList().size(), Is.is(2));
+        MatcherAssert.assertThat(parent.getPhenomenonTime(), Is.is(getTimePeriod(1, 4)));
+        MatcherAssert.assertThat(child.getPhenomenonTime(), Is.is(getTimePeriod(3, 4)));
+    }
+
+    @Test
+    public void shouldCreateMissingParentFromChild() {
+        DataAvailability child = create("procedure", CHILD, 3, 4);
+        GDARequestContext context = createContext(child);
+        handler.checkForParentOfferings(context, createParentOffering());
+        MatcherAssert.assertThat(context.getDataAvailabilityList().size(), Is.is(2));
+        Set<DataAvailability> parents = context.getDataAvailability(PARENT);
+        MatcherAssert.assertThat(parents.size(), Is.is(1));
+        DataAvailability parent = parents.iterator().next();
+        MatcherAssert.assertThat(parent == child, Is.is(false));
+        MatcherAssert.assertThat(parent.getPhenomenonTime(), Is.is(getTimePeriod(3, 4)));
+        MatcherAssert.assertThat(context.getDataAvailability(CHILD).iterator().next() == child, Is.is(true));
+    }
+
+    @Test
+    public void shouldIgnoreOfferingsWithoutChildren() {
+        DataAvailability parent = create("procedure", PARENT, 1, 2);
+        GDARequestContext context = createContext(parent);
+        OfferingEntity offering = new OfferingEntity();
+        offering.setIdentifier(PARENT);
+        handler.checkForParentOfferings(context, offering);
+        MatcherAssert.assertThat(context.getDataAvailabilityList().size(), Is.is(1));
+        MatcherAssert.assertThat(parent.getPhenomenonTime(), Is.is(getTimePeriod(1, 2)));
+    }
+
+    private GDARequestContext createContext(DataAvailability... dataAvailabilities) {
+        GetDataAvailabilityRequest request = new GetDataAvailabilityRequest();
+        request.setOfferings(Collections.singletonList(PARENT));
+        return new GDARequestContext(request).setDataAvailabilityList(Arrays.asList(dataAvailabilities));
+    }
+
+    private OfferingEntity createParentOffering() {
+        OfferingEntity child = new OfferingEntity();
+        child.setIdentifier(CHILD);
+        OfferingEntity parent = new OfferingEntity();
+        parent.setIdentifier(PARENT);
+        parent.setChildren(Collections.singleton(child));
+        return parent;
+    }
+
+    private DataAvailability create(String procedure, String offering, int start, int end) {
+        return new DataAvailability(new ReferenceType(procedure), new ReferenceType("observedProperty"),
+                new ReferenceType("featureOfInterest"), new ReferenceType(offering), getTimePeriod(start, end));
+    }
+
+    private TimePeriod getTimePeriod(int start, int end) {
+        return new TimePeriod(new DateTime(2020, 1, start, 0, 0, DateTimeZone.UTC),
+                new DateTime(2020, 1, end, 0, 0, DateTimeZone.UTC));
+    }
+}
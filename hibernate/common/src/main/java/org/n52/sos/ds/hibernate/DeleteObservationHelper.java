@@ -28,8 +28,10 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +46,7 @@ import org.n52.series.db.beans.CompositeDataEntity;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.parameter.ParameterEntity;
 import org.n52.series.db.beans.dataset.ValueType;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.time.TimeInstant;
@@ -53,7 +56,6 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.delobs.DeleteObservationConstants;
 import org.n52.shetland.ogc.sos.delobs.DeleteObservationRequest;
 import org.n52.shetland.ogc.sos.delobs.DeleteObservationResponse;
-import org.n52.shetland.util.CollectionHelper;
 import org.n52.shetland.util.DateTimeHelper;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesObservationDAO;
@@ -68,6 +70,8 @@ import org.n52.sos.exception.ows.concrete.UnsupportedValueReferenceException;
 import org.slf4j.Logger;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 public interface DeleteObservationHelper extends HibernateUnproxy {
 
@@ -85,6 +89,12 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
 
     String ERROR_LOG = "Error while updating deleted observation flag data!";
 
+    String DATASET_FIRST_OBSERVATION = "firstObservation";
+
+    String DATASET_LAST_OBSERVATION = "lastObservation";
+
+    int DELETE_CHUNK_SIZE = 1000;
+
     DaoFactory getDaoFactory();
 
     Logger getLogger();
@@ -300,25 +310,34 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
 
     default void deleteObservationsByIdentifier(DeleteObservationRequest request, DeleteObservationResponse response,
             Session session) throws OwsExceptionReport, ConverterException {
-        Set<String> ids = request.getObservationIdentifiers();
-        List<DataEntity<?>> observations = getDaoFactory().getObservationDAO()
-                .getObservationByIdentifiers(ids, session);
-        if (CollectionHelper.isNotEmpty(observations)) {
-            Set<DatasetEntity> modifiedDatasets = new HashSet<>();
-            for (DataEntity<?> observation : observations) {
-                if (DeleteObservationConstants.NS_SOSDO_1_0.equals(request.getResponseFormat())) {
-                    response.setObservationId(request.getObservationIdentifiers()
-                            .iterator()
-                            .next());
-                }
-                modifiedDatasets.add(observation.getDataset());
-                delete(observation, session);
-            }
-            if (!modifiedDatasets.isEmpty()) {
-                checkSeriesForFirstLatest(modifiedDatasets.stream()
-                        .map(DatasetEntity::getId)
-                        .collect(Collectors.toSet()), session);
+        deleteObservationsByIdentifier(request, response,
+                getObservationIdsByIdentifier(request.getObservationIdentifiers(), session), session);
+    }
+
+    /**
+     * Delete the observations with the identifiers of the request, which were
+     * already resolved by
+     * {@link #getObservationIdsByIdentifier(Collection, Session)}.
+     *
+     * @param request
+     *            the DeleteObservation request
+     * @param response
+     *            the DeleteObservation response
+     * @param observations
+     *            the dataset ids mapped by the observation ids
+     * @param session
+     *            Hibernate session
+     */
+    default void deleteObservationsByIdentifier(DeleteObservationRequest request, DeleteObservationResponse response,
+            Map<Long, Long> observations, Session session) throws OwsExceptionReport, ConverterException {
+        if (!observations.isEmpty()) {
+            if (DeleteObservationConstants.NS_SOSDO_1_0.equals(request.getResponseFormat())) {
+                response.setObservationId(request.getObservationIdentifiers()
+                        .iterator()
+                        .next());
             }
+            deleteObservations(observations.keySet(), session);
+            checkSeriesForFirstLatest(new LinkedHashSet<>(observations.values()), session);
         } else {
             if (DeleteObservationConstants.NS_SOSDO_1_0.equals(request.getResponseFormat())) {
                 throw new InvalidParameterValueException(DeleteObservationConstants.PARAM_OBSERVATION, Joiner.on(", ")
@@ -327,6 +346,154 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
         }
     }
 
+    /**
+     * Resolve the ids and the dataset ids of the observations with the
+     * identifiers. The identifiers are queried in chunks of
+     * {@link #DELETE_CHUNK_SIZE}.
+     *
+     * @param identifiers
+     *            Observation identifiers
+     * @param session
+     *            Hibernate session
+     * @return the dataset ids mapped by the observation ids
+     */
+    default Map<Long, Long> getObservationIdsByIdentifier(Collection<String> identifiers, Session session) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("select ")
+                .append(DataEntity.PROPERTY_ID)
+                .append(", ")
+                .append(DataEntity.PROPERTY_DATASET_ID)
+                .append(FROM_PARAMETER)
+                .append(getObservationEntityName())
+                .append(WHERE_PARAMETER)
+                .append(DataEntity.IDENTIFIER)
+                .append(IN_PARAMETER)
+                .append(DataEntity.IDENTIFIER);
+        Map<Long, Long> observations = new LinkedHashMap<>();
+        for (List<String> chunk : Iterables.partition(identifiers, DELETE_CHUNK_SIZE)) {
+            Query<?> q = session.createQuery(builder.toString());
+            q.setParameter(DataEntity.IDENTIFIER, chunk);
+            for (Object[] row : (List<Object[]>) q.list()) {
+                observations.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        return observations;
+    }
+
+    /**
+     * Delete the observations and their child observations with set-based
+     * statements executed in chunks of {@link #DELETE_CHUNK_SIZE}. The
+     * observations are flagged as deleted or, if
+     * {@link #isDeletePhysically()}, removed together with their parameters,
+     * children before their parents. References of the datasets to removed
+     * observations are cleared, so the first/last values of the affected
+     * datasets have to be updated afterwards, e.g. by
+     * {@link #checkSeriesForFirstLatest(Collection, Session)}.
+     *
+     * @param observations
+     *            the ids of the observations to delete
+     * @param session
+     *            Hibernate session
+     */
+    default void deleteObservations(Collection<Long> observations, Session session) {
+        // the observations grouped by their depth in the parent/child hierarchy
+        List<Set<Long>> levels = new ArrayList<>();
+        Set<Long> level = new LinkedHashSet<>(observations);
+        while (!level.isEmpty()) {
+            levels.add(level);
+            level = getChildObservationIds(level, session);
+        }
+        int count = 0;
+        if (isDeletePhysically()) {
+            for (Set<Long> ids : levels) {
+                for (List<Long> chunk : Iterables.partition(ids, DELETE_CHUNK_SIZE)) {
+                    clearFirstLastReference(chunk, session);
+                }
+            }
+            int parameters = 0;
+            // children first to satisfy the parent constraint
+            for (Set<Long> ids : Lists.reverse(levels)) {
+                for (List<Long> chunk : Iterables.partition(ids, DELETE_CHUNK_SIZE)) {
+                    parameters += deleteObservationParameters(chunk, session);
+                    Query<?> q = session.createQuery(DELETE_PARAMETER + getObservationEntityName() + WHERE_PARAMETER
+                            + DataEntity.PROPERTY_ID + IN_PARAMETER + DataEntity.PROPERTY_ID);
+                    q.setParameter(DataEntity.PROPERTY_ID, chunk);
+                    count += q.executeUpdate();
+                }
+            }
+            getLogger().debug("{} observations with {} parameters were physically deleted!", count, parameters);
+        } else {
+            for (Set<Long> ids : levels) {
+                for (List<Long> chunk : Iterables.partition(ids, DELETE_CHUNK_SIZE)) {
+                    Query<?> q = session.createQuery("update " + getObservationEntityName() + " set "
+                            + DataEntity.PROPERTY_DELETED + EQUAL_PARAMETER + DataEntity.PROPERTY_DELETED
+                            + WHERE_PARAMETER + DataEntity.PROPERTY_ID + IN_PARAMETER + DataEntity.PROPERTY_ID);
+                    q.setParameter(DataEntity.PROPERTY_DELETED, true);
+                    q.setParameter(DataEntity.PROPERTY_ID, chunk);
+                    count += q.executeUpdate();
+                }
+            }
+            getLogger().debug("{} observations were flagged as deleted!", count);
+        }
+        session.flush();
+        // the set-based statements bypass the persistence context
+        session.clear();
+    }
+
+    default Set<Long> getChildObservationIds(Collection<Long> parents, Session session) {
+        Set<Long> children = new LinkedHashSet<>();
+        for (List<Long> chunk : Iterables.partition(parents, DELETE_CHUNK_SIZE)) {
+            Query<?> q = session.createQuery("select " + DataEntity.PROPERTY_ID + FROM_PARAMETER
+                    + getObservationEntityName() + WHERE_PARAMETER + DataEntity.PROPERTY_PARENT + ".id"
+                    + IN_PARAMETER + DataEntity.PROPERTY_PARENT);
+            q.setParameter(DataEntity.PROPERTY_PARENT, chunk);
+            children.addAll((List<Long>) q.list());
+        }
+        return children;
+    }
+
+    /**
+     * Delete the parameters of the observations. The parameter ids are
+     * selected first, so the delete statement does not reference the
+     * parameter table in a subquery.
+     *
+     * @param observations
+     *            the ids of the observations
+     * @param session
+     *            Hibernate session
+     * @return the number of deleted parameters
+     */
+    default int deleteObservationParameters(Collection<Long> observations, Session session) {
+        Query<?> select = session.createQuery("select p." + ParameterEntity.PROPERTY_ID + FROM_PARAMETER
+                + getObservationEntityName() + " o join o." + DataEntity.PROPERTY_PARAMETERS + " p" + WHERE_PARAMETER
+                + "o." + DataEntity.PROPERTY_ID + IN_PARAMETER + DataEntity.PROPERTY_ID);
+        select.setParameter(DataEntity.PROPERTY_ID, observations);
+        List<Long> parameters = (List<Long>) select.list();
+        if (parameters.isEmpty()) {
+            return 0;
+        }
+        Query<?> q = session.createQuery(DELETE_PARAMETER + ParameterEntity.class.getSimpleName() + WHERE_PARAMETER
+                + ParameterEntity.PROPERTY_ID + IN_PARAMETER + ParameterEntity.PROPERTY_ID);
+        q.setParameter(ParameterEntity.PROPERTY_ID, parameters);
+        return q.executeUpdate();
+    }
+
+    default void clearFirstLastReference(Collection<Long> observations, Session session) {
+        for (String property : new String[] { DATASET_FIRST_OBSERVATION, DATASET_LAST_OBSERVATION }) {
+            Query<?> q = session.createQuery("update " + DatasetEntity.class.getSimpleName() + " set " + property
+                    + " = null" + WHERE_PARAMETER + property + ".id" + IN_PARAMETER + DataEntity.PROPERTY_ID);
+            q.setParameter(DataEntity.PROPERTY_ID, observations);
+            q.executeUpdate();
+        }
+    }
+
+    default String getObservationEntityName() {
+        return getDaoFactory().getObservationDAO()
+                .getObservationFactory()
+                .observationClass()
+                .getSimpleName();
+    }
+
     default void deleteObservationByParameter(DeleteObservationRequest request, DeleteObservationResponse response,
             Session session) throws OwsExceptionReport {
         deleteObservation(request, request.getTemporalFilters(), session);
@@ -415,7 +582,7 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
                 boolean update = false;
                 if (minMaxTimes.containsKey(series.getId())) {
                     SeriesTimeExtrema extrema = minMaxTimes.get(series.getId());
-                    if (!series.isSetFirstValueAt()
+                    if (!series.isSetFirstValueAt() || series.getFirstObservation() == null
                             || (series.isSetFirstValueAt() && !DateTimeHelper.makeDateTime(series.getFirstValueAt())
                                     .equals(extrema.getMinPhenomenonTime()))) {
                         series.setFirstValueAt(extrema.getMinPhenomenonTime()
@@ -430,7 +597,7 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
                         }
                         update = true;
                     }
-                    if (!series.isSetLastValueAt()
+                    if (!series.isSetLastValueAt() || series.getLastObservation() == null
                             || (series.isSetLastValueAt() && !DateTimeHelper.makeDateTime(series.getLastValueAt())
                                     .equals(extrema.getMaxPhenomenonTime()))) {
                         series.setLastValueAt(extrema.getMaxPhenomenonTime()
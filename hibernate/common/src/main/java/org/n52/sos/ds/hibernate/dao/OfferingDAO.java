@@ -697,6 +697,36 @@ public class OfferingDAO extends AbstractIdentifierNameDescriptionDAO implements
     }
 
     public OfferingEntity updateOfferingMetadata(OfferingEntity offering, DataEntity<?> observation, Session session) {
+        updateOfferingTimes(offering, observation);
+        if (observation.isSetGeometryEntity()) {
+            if (offering.isSetGeometry()) {
+                offering.getGeometryEntity().setGeometry(offering.getGeometryEntity().getGeometry()
+                        .union(observation.getGeometryEntity().getGeometry()));
+            } else {
+                offering.setGeometryEntity(observation.getGeometryEntity());
+            }
+        } else if (observation.getDataset().isSetFeature() && observation.getDataset().getFeature().isSetGeometry()) {
+            if (offering.isSetGeometry()) {
+                offering.getGeometryEntity().getGeometry()
+                        .union(observation.getDataset().getFeature().getGeometryEntity().getGeometry());
+            } else {
+                offering.setGeometryEntity(observation.getDataset().getFeature().getGeometryEntity());
+            }
+        }
+        session.saveOrUpdate(offering);
+        return offering;
+    }
+
+    /**
+     * Extend the sampling, result and valid time of the offering by the times of the observation without saving the
+     * offering.
+     *
+     * @param offering
+     *            the offering to update
+     * @param observation
+     *            the inserted observation
+     */
+    public void updateOfferingTimes(OfferingEntity offering, DataEntity<?> observation) {
         if (offering.getSamplingTimeStart() == null
                 || (offering.getSamplingTimeStart() != null && observation.getSamplingTimeStart() != null
                         && offering.getSamplingTimeStart().after(observation.getSamplingTimeStart()))) {
@@ -727,23 +757,6 @@ public class OfferingDAO extends AbstractIdentifierNameDescriptionDAO implements
                         && offering.getValidTimeEnd().before(observation.getValidTimeEnd()))) {
             offering.setValidTimeEnd(observation.getValidTimeEnd());
         }
-        if (observation.isSetGeometryEntity()) {
-            if (offering.isSetGeometry()) {
-                offering.getGeometryEntity().setGeometry(offering.getGeometryEntity().getGeometry()
-                        .union(observation.getGeometryEntity().getGeometry()));
-            } else {
-                offering.setGeometryEntity(observation.getGeometryEntity());
-            }
-        } else if (observation.getDataset().isSetFeature() && observation.getDataset().getFeature().isSetGeometry()) {
-            if (offering.isSetGeometry()) {
-                offering.getGeometryEntity().getGeometry()
-                        .union(observation.getDataset().getFeature().getGeometryEntity().getGeometry());
-            } else {
-                offering.setGeometryEntity(observation.getDataset().getFeature().getGeometryEntity());
-            }
-        }
-        session.saveOrUpdate(offering);
-        return offering;
     }
 
     public void updateAfterObservationDeletion(org.n52.series.db.beans.OfferingEntity offering,
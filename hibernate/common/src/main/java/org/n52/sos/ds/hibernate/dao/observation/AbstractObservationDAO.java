@@ -91,6 +91,7 @@ import org.n52.sos.ds.hibernate.dao.AbstractIdentifierNameDescriptionDAO;
 import org.n52.sos.ds.hibernate.dao.CodespaceDAO;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.UnitDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetValueUpdates;
 import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ParameterFactory;
@@ -122,6 +123,8 @@ public abstract class AbstractObservationDAO extends AbstractIdentifierNameDescr
 
     private static final String SQL_QUERY_CHECK_SAMPLING_GEOMETRIES = "checkSamplingGeometries";
 
+    private static final int MULTI_VALUE_FLUSH_SIZE = 500;
+
     private static final String SQL_QUERY_OBSERVATION_TIME_EXTREMA = "getObservationTimeExtrema";
 
     private static final String ERROR_ADDING_RESULT_TIME_LOG =
@@ -591,11 +594,54 @@ public abstract class AbstractObservationDAO extends AbstractIdentifierNameDescr
             AbstractFeatureEntity feature, OmObservation containerObservation,
             Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
             Map<String, FormatEntity> formatCache, Session session) throws OwsExceptionReport {
+        return insertObservationMultiValue(observationConstellation, feature, containerObservation, codespaceCache,
+                unitCache, formatCache, null, session);
+    }
+
+    /**
+     * Insert a multi value observation for observation constellations and
+     * featureOfInterest and collect the first/last values of the dataset in
+     * the {@link DatasetValueUpdates} instead of updating the dataset for each
+     * value. In this case the values are flushed in chunks, so that they are
+     * inserted in JDBC batches.
+     *
+     * @param observationConstellation
+     *            Observation constellation objects
+     * @param feature
+     *            FeatureOfInterest object
+     * @param containerObservation
+     *            SOS observation
+     * @param codespaceCache
+     *            Map based codespace object cache to prevent redundant queries
+     * @param unitCache
+     *            Map based unit object cache to prevent redundant queries
+     * @param formatCache
+     *            Map cache for format objects (to prevent redundant querying)
+     * @param datasetUpdates
+     *            Collected dataset first/last values, if <code>null</code> the
+     *            dataset is updated directly
+     * @param session
+     *            Hibernate session
+     * @return The {@link DatasetEntity}
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public DatasetEntity insertObservationMultiValue(DatasetEntity observationConstellation,
+            AbstractFeatureEntity feature, OmObservation containerObservation,
+            Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
+            Map<String, FormatEntity> formatCache, DatasetValueUpdates datasetUpdates, Session session)
+            throws OwsExceptionReport {
         List<OmObservation> unfoldObservations = new ObservationUnfolder(containerObservation,
                 getDaoFactory().getSweHelper(), getDaoFactory().getGeometryHandler()).unfold();
+        int flushSize = datasetUpdates != null ? HibernateHelper.getFlushSize(session, MULTI_VALUE_FLUSH_SIZE) : 0;
+        int inserted = 0;
         for (OmObservation sosObservation : unfoldObservations) {
             DatasetEntity dataset = insertObservationSingleValue(observationConstellation, feature, sosObservation,
-                    codespaceCache, unitCache, formatCache, session);
+                    codespaceCache, unitCache, formatCache, datasetUpdates, session);
+            if (flushSize > 0 && ++inserted % flushSize == 0) {
+                session.flush();
+            }
             if (!dataset.equals(observationConstellation)) {
                 return dataset;
             }
@@ -655,10 +701,48 @@ public abstract class AbstractObservationDAO extends AbstractIdentifierNameDescr
             AbstractFeatureEntity hFeature, OmObservation sosObservation, Map<String, CodespaceEntity> codespaceCache,
             Map<UoM, UnitEntity> unitCache, Map<String, FormatEntity> formatCache, Session session)
             throws OwsExceptionReport {
+        return insertObservationSingleValue(hObservationConstellation, hFeature, sosObservation, codespaceCache,
+                unitCache, formatCache, null, session);
+    }
+
+    /**
+     * Insert a single observation for observation constellations and
+     * featureOfInterest with local caching for codespaces and units and
+     * collect the first/last values of the dataset in the
+     * {@link DatasetValueUpdates} instead of updating the dataset directly.
+     *
+     * @param hObservationConstellation
+     *            Observation constellation objects
+     * @param hFeature
+     *            FeatureOfInterest object
+     * @param sosObservation
+     *            SOS observation to insert
+     * @param codespaceCache
+     *            Map cache for codespace objects (to prevent redundant
+     *            querying)
+     * @param unitCache
+     *            Map cache for unit objects (to prevent redundant querying)
+     * @param formatCache
+     *            Map cache for format objects (to prevent redundant querying)
+     * @param datasetUpdates
+     *            Collected dataset first/last values, if <code>null</code> the
+     *            dataset is updated directly
+     * @param session
+     *            Hibernate session
+     * @return The {@link DatasetEntity}
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    @SuppressWarnings("rawtypes")
+    public DatasetEntity insertObservationSingleValue(DatasetEntity hObservationConstellation,
+            AbstractFeatureEntity hFeature, OmObservation sosObservation, Map<String, CodespaceEntity> codespaceCache,
+            Map<UoM, UnitEntity> unitCache, Map<String, FormatEntity> formatCache,
+            DatasetValueUpdates datasetUpdates, Session session) throws OwsExceptionReport {
         SingleObservationValue<?> value = (SingleObservationValue) sosObservation.getValue();
-        ObservationPersister persister =
-                new ObservationPersister(getDaoFactory(), this, sosObservation, hObservationConstellation, hFeature,
-                        codespaceCache, unitCache, formatCache, getOfferings(hObservationConstellation), session);
+        ObservationPersister persister = new ObservationPersister(getDaoFactory(), this, sosObservation,
+                hObservationConstellation, hFeature, codespaceCache, unitCache, formatCache, datasetUpdates,
+                getOfferings(hObservationConstellation), session);
         return value.getValue().accept(persister).getDataset();
     }
 
@@ -29,11 +29,13 @@
 package org.n52.sos.ds.hibernate.dao.observation;
 
 import java.sql.Timestamp;
+import java.util.Date;
 
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -219,6 +221,49 @@ public abstract class AbstractValueDAO extends TimeCreator {
         }
     }
 
+    /**
+     * Add keyset (seek) chunk information to {@link Criteria}. In contrast to
+     * {@link #addChunkValuesToCriteria(Criteria, int, int, AbstractObservationRequest, StringBuilder)}
+     * the next chunk continues after the last queried value instead of
+     * skipping all previous rows, so the costs per chunk are independent of
+     * the position in the series.
+     *
+     * @param c
+     *            {@link Criteria} to add information
+     * @param chunkSize
+     *            Chunk size
+     * @param lastValue
+     *            Last value of the previous chunk, <code>null</code> for the
+     *            first chunk
+     * @param request
+     *            the request
+     * @param logArgs
+     *            log arguments
+     */
+    protected void addKeysetChunkValuesToCriteria(Criteria c, int chunkSize, DataEntity<?> lastValue,
+            AbstractObservationRequest request, StringBuilder logArgs) {
+        c.addOrder(Order.asc(DataEntity.PROPERTY_ID));
+        if (lastValue != null) {
+            String orderColumn = getOrderColumn(request);
+            Date lastTime = getOrderValue(orderColumn, lastValue);
+            c.add(Restrictions.or(Restrictions.gt(orderColumn, lastTime),
+                    Restrictions.and(Restrictions.eq(orderColumn, lastTime),
+                            Restrictions.gt(DataEntity.PROPERTY_ID, lastValue.getId()))));
+            logArgs.append(", keyset(" + lastTime + "," + lastValue.getId() + ")");
+        }
+        if (chunkSize > 0) {
+            c.setMaxResults(chunkSize);
+            logArgs.append(", chunk(" + chunkSize + ")");
+        }
+    }
+
+    private Date getOrderValue(String orderColumn, DataEntity<?> value) {
+        if (DataEntity.PROPERTY_RESULT_TIME.equals(orderColumn)) {
+            return value.getResultTime();
+        }
+        return value.getSamplingTimeStart();
+    }
+
     protected String getOrderColumn(AbstractObservationRequest request) {
         if (request instanceof GetObservationRequest) {
             if (((GetObservationRequest) request).isSetTemporalFilter()) {
@@ -115,6 +115,7 @@ import org.n52.sos.ds.hibernate.dao.PlatformDAO;
 import org.n52.sos.ds.hibernate.dao.UnitDAO;
 import org.n52.sos.ds.hibernate.dao.VerticalMetadataDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetValueUpdates;
 import org.n52.sos.request.InternalInsertResultTemplateRequest;
 import org.n52.sos.util.GeometryHandler;
 
@@ -148,8 +149,18 @@ public class ObservationPersister
             Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
             Map<String, FormatEntity> formatCache, Set<OfferingEntity> hOfferings, Session session)
             throws OwsExceptionReport {
-        this(daoFactory, new DAOs(observationDao, daoFactory), new Caches(codespaceCache, unitCache, formatCache),
-                sosObservation, hDataset, hFeature, null, hOfferings, session, null);
+        this(daoFactory, observationDao, sosObservation, hDataset, hFeature, codespaceCache, unitCache, formatCache,
+                null, hOfferings, session);
+    }
+
+    public ObservationPersister(DaoFactory daoFactory, AbstractObservationDAO observationDao,
+            OmObservation sosObservation, DatasetEntity hDataset, AbstractFeatureEntity<?> hFeature,
+            Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
+            Map<String, FormatEntity> formatCache, DatasetValueUpdates datasetUpdates,
+            Set<OfferingEntity> hOfferings, Session session) throws OwsExceptionReport {
+        this(daoFactory, new DAOs(observationDao, daoFactory),
+                new Caches(codespaceCache, unitCache, formatCache, datasetUpdates), sosObservation, hDataset, hFeature,
+                null, hOfferings, session, null);
     }
 
     private ObservationPersister(DaoFactory daoFactory, DAOs daos, Caches caches, OmObservation observation,
@@ -682,9 +693,14 @@ public class ObservationPersister
         DatasetEntity persitedDataset =
                 daos.observation().addObservationContextToObservation(observationContext, observation, session);
         session.save(observation);
-        session.flush();
-        session.refresh(observation);
-        daos.dataset.updateSeriesWithFirstLatestValues(persitedDataset, observation, session);
+        if (caches.datasetUpdates() != null) {
+            // the caller flushes the collected observations in chunks, so that the inserts are sent in JDBC batches
+            caches.datasetUpdates().add(persitedDataset, observation);
+        } else {
+            session.flush();
+            session.refresh(observation);
+            daos.dataset.updateSeriesWithFirstLatestValues(persitedDataset, observation, session);
+        }
         return observation;
     }
 
@@ -822,11 +838,14 @@ public class ObservationPersister
 
         private final Map<String, FormatEntity> formats;
 
+        private final DatasetValueUpdates datasetUpdates;
+
         Caches(Map<String, CodespaceEntity> codespaces, Map<UoM, UnitEntity> units,
-                Map<String, FormatEntity> formats) {
+                Map<String, FormatEntity> formats, DatasetValueUpdates datasetUpdates) {
             this.codespaces = codespaces;
             this.units = units;
             this.formats = formats;
+            this.datasetUpdates = datasetUpdates;
         }
 
         public Map<String, CodespaceEntity> codespaces() {
@@ -841,6 +860,10 @@ public class ObservationPersister
             return formats;
         }
 
+        public DatasetValueUpdates datasetUpdates() {
+            return datasetUpdates;
+        }
+
     }
 
     private static class DAOs {
@@ -29,6 +29,7 @@
 package org.n52.sos.ds.hibernate.dao.observation.series;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -390,26 +391,27 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
         }
     }
 
-    private void updateSta(DatasetEntity dataset, DataEntity<?> observation, Session session) {
+    private void updateSta(DatasetEntity dataset, Date samplingTimeStart, Date samplingTimeEnd,
+            Date resultTimeStart, Date resultTimeEnd, Session session) {
         if (HibernateHelper.isEntitySupported(DatastreamEntity.class)) {
             if (dataset.getPlatform() != null) {
                 DatastreamEntity datastream = existsDatastream(dataset, session);
                 if (datastream != null) {
                     if (datastream.getSamplingTimeStart() == null || (datastream.getSamplingTimeStart() != null
-                            && datastream.getSamplingTimeStart().after(observation.getSamplingTimeStart()))) {
-                        datastream.setSamplingTimeStart(observation.getSamplingTimeStart());
+                            && datastream.getSamplingTimeStart().after(samplingTimeStart))) {
+                        datastream.setSamplingTimeStart(samplingTimeStart);
                     }
                     if (datastream.getSamplingTimeEnd() == null || (datastream.getSamplingTimeEnd() != null
-                            && datastream.getSamplingTimeEnd().before(observation.getSamplingTimeEnd()))) {
-                        datastream.setSamplingTimeEnd(observation.getSamplingTimeEnd());
+                            && datastream.getSamplingTimeEnd().before(samplingTimeEnd))) {
+                        datastream.setSamplingTimeEnd(samplingTimeEnd);
                     }
                     if (datastream.getResultTimeStart() == null || (datastream.getResultTimeStart() != null
-                            && datastream.getResultTimeStart().after(observation.getResultTime()))) {
-                        datastream.setResultTimeStart(observation.getResultTime());
+                            && datastream.getResultTimeStart().after(resultTimeStart))) {
+                        datastream.setResultTimeStart(resultTimeStart);
                     }
                     if (datastream.getResultTimeEnd() == null || (datastream.getResultTimeEnd() != null
-                            && datastream.getResultTimeEnd().before(observation.getResultTime()))) {
-                        datastream.setResultTimeEnd(observation.getResultTime());
+                            && datastream.getResultTimeEnd().before(resultTimeEnd))) {
+                        datastream.setResultTimeEnd(resultTimeEnd);
                     }
                     datastream.addDataset(dataset);
                     session.saveOrUpdate(datastream);
@@ -919,32 +921,54 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
      *            Hibernate session
      */
     public void updateSeriesWithFirstLatestValues(DatasetEntity dataset, DataEntity<?> hObservation, Session session) {
+        updateSeriesWithFirstLatestValues(dataset, hObservation, hObservation, hObservation.getResultTime(),
+                hObservation.getResultTime(), session);
+    }
+
+    /**
+     * Update series values with the first and last of several inserted
+     * observations, see {@link DatasetValueUpdates}.
+     *
+     * @param dataset
+     *            Series object
+     * @param first
+     *            Inserted observation with the earliest phenomenon start time
+     * @param last
+     *            Inserted observation with the latest phenomenon end time
+     * @param resultTimeStart
+     *            Earliest result time of the inserted observations
+     * @param resultTimeEnd
+     *            Latest result time of the inserted observations
+     * @param session
+     *            Hibernate session
+     */
+    public void updateSeriesWithFirstLatestValues(DatasetEntity dataset, DataEntity<?> first, DataEntity<?> last,
+            Date resultTimeStart, Date resultTimeEnd, Session session) {
         boolean minChanged = false;
         boolean maxChanged = false;
         if (!dataset.isSetFirstValueAt() || (dataset.isSetFirstValueAt()
-                && dataset.getFirstValueAt().after(hObservation.getSamplingTimeStart()))) {
+                && dataset.getFirstValueAt().after(first.getSamplingTimeStart()))) {
             minChanged = true;
-            dataset.setFirstValueAt(hObservation.getSamplingTimeStart());
-            dataset.setFirstObservation(hObservation);
+            dataset.setFirstValueAt(first.getSamplingTimeStart());
+            dataset.setFirstObservation(first);
         }
         if (!dataset.isSetLastValueAt()
-                || (dataset.isSetLastValueAt() && dataset.getLastValueAt().before(hObservation.getSamplingTimeEnd()))) {
+                || (dataset.isSetLastValueAt() && dataset.getLastValueAt().before(last.getSamplingTimeEnd()))) {
             maxChanged = true;
-            dataset.setLastValueAt(hObservation.getSamplingTimeEnd());
-            dataset.setLastObservation(hObservation);
+            dataset.setLastValueAt(last.getSamplingTimeEnd());
+            dataset.setLastObservation(last);
         }
-        if (hObservation instanceof QuantityDataEntity) {
-            if (minChanged) {
-                dataset.setFirstQuantityValue(((QuantityDataEntity) hObservation).getValue());
-            }
-            if (maxChanged) {
-                dataset.setLastQuantityValue(((QuantityDataEntity) hObservation).getValue());
-            }
+        if (minChanged && first instanceof QuantityDataEntity) {
+            dataset.setFirstQuantityValue(((QuantityDataEntity) first).getValue());
+        }
+        if (maxChanged && last instanceof QuantityDataEntity) {
+            dataset.setLastQuantityValue(((QuantityDataEntity) last).getValue());
         }
         session.saveOrUpdate(dataset);
         session.flush();
         session.refresh(dataset);
-        updateSta(dataset, hObservation, session);
+        updateSta(dataset, first.getSamplingTimeStart(), last.getSamplingTimeEnd(), resultTimeStart, resultTimeEnd,
+                session);
     }
 
     /**
@@ -232,6 +232,39 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
         }
     }
 
+    /**
+     * Query streaming value for parameter as keyset chunk {@link List}. The
+     * chunk starts after the last value of the previous chunk. Result filters
+     * are not supported, use the offset based methods instead.
+     *
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}, may be <code>null</code>
+     * @param chunkSize
+     *            chunk size
+     * @param lastValue
+     *            Last value of the previous chunk, <code>null</code> for the
+     *            first chunk
+     * @param session
+     *            Hibernate Session
+     * @return Resulting chunk {@link List}
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    @SuppressWarnings("unchecked")
+    public List<DataEntity<?>> getStreamingSeriesValuesFor(AbstractObservationRequest request, long series,
+            Criterion temporalFilterCriterion, int chunkSize, DataEntity<?> lastValue, Session session)
+            throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c = getSeriesValueCriteriaFor(request, series, temporalFilterCriterion, session, logArgs);
+        addKeysetChunkValuesToCriteria(c, chunkSize, lastValue, request, logArgs);
+        LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(), HibernateHelper.getSqlString(c));
+        return (List<DataEntity<?>>) c.list();
+    }
+
     /**
      * Get {@link Criteria} for parameter
      *
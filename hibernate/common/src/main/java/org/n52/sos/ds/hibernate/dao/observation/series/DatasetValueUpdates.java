@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation.series;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+
+/**
+ * Collects the first/last values of the datasets that are modified while
+ * inserting observations and writes each dataset only once via
+ * {@link AbstractSeriesDAO#updateSeriesWithFirstLatestValues(DatasetEntity, DataEntity, DataEntity, Date, Date, Session)}
+ * instead of once per inserted observation.
+ *
+ * {@link #flush(AbstractSeriesDAO, Session)} has to be called before the
+ * session is cleared or the transaction is committed.
+ *
+ * @since 5.3.2
+ */
+public class DatasetValueUpdates {
+
+    private final Map<Object, Extrema> datasets = new LinkedHashMap<>();
+
+    /**
+     * Add the inserted observation to the first/last values of the dataset
+     *
+     * @param dataset
+     *            the dataset of the observation
+     * @param observation
+     *            the inserted observation
+     */
+    public void add(DatasetEntity dataset, DataEntity<?> observation) {
+        Object key = dataset.getId() != null ? dataset.getId() : dataset;
+        Extrema extrema = datasets.get(key);
+        if (extrema == null) {
+            datasets.put(key, new Extrema(dataset, observation));
+        } else {
+            extrema.add(dataset, observation);
+        }
+    }
+
+    /**
+     * Update all collected datasets and reset the collected values
+     *
+     * @param seriesDAO
+     *            the series DAO
+     * @param session
+     *            Hibernate session
+     */
+    public void flush(AbstractSeriesDAO seriesDAO, Session session) {
+        for (Extrema extrema : datasets.values()) {
+            seriesDAO.updateSeriesWithFirstLatestValues(extrema.dataset, extrema.first, extrema.last,
+                    extrema.resultTimeStart, extrema.resultTimeEnd, session);
+        }
+        datasets.clear();
+    }
+
+    public boolean isEmpty() {
+        return datasets.isEmpty();
+    }
+
+    private static class Extrema {
+        private DatasetEntity dataset;
+
+        private DataEntity<?> first;
+
+        private DataEntity<?> last;
+
+        private Date resultTimeStart;
+
+        private Date resultTimeEnd;
+
+        Extrema(DatasetEntity dataset, DataEntity<?> observation) {
+            this.dataset = dataset;
+            this.first = observation;
+            this.last = observation;
+            this.resultTimeStart = observation.getResultTime();
+            this.resultTimeEnd = observation.getResultTime();
+        }
+
+        void add(DatasetEntity dataset, DataEntity<?> observation) {
+            this.dataset = dataset;
+            if (first.getSamplingTimeStart().after(observation.getSamplingTimeStart())) {
+                first = observation;
+            }
+            if (last.getSamplingTimeEnd().before(observation.getSamplingTimeEnd())) {
+                last = observation;
+            }
+            Date resultTime = observation.getResultTime();
+            if (resultTime != null) {
+                if (resultTimeStart == null || resultTimeStart.after(resultTime)) {
+                    resultTimeStart = resultTime;
+                }
+                if (resultTimeEnd == null || resultTimeEnd.before(resultTime)) {
+                    resultTimeEnd = resultTime;
+                }
+            }
+        }
+    }
+}
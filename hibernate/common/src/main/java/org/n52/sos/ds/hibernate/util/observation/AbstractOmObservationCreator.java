@@ -30,6 +30,7 @@ package org.n52.sos.ds.hibernate.util.observation;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -119,6 +120,10 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
         return creatorContext;
     }
 
+    protected OmObservationCreatorMemo getMemo() {
+        return getCreatorContext().getMemo(getRequest());
+    }
+
     public DaoFactory getDaoFactory() {
         return getCreatorContext().getDaoFactory();
     }
@@ -258,6 +263,27 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
         return omObservableProperty;
     }
 
+    /**
+     * Get the observable property with the unit. Datasets of the request with
+     * the same phenomenon and unit share the created object.
+     *
+     * @param observableProperty
+     *            the phenomenon
+     * @param unit
+     *            the unit
+     * @return the observable property
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    protected OmObservableProperty createObservableProperty(PhenomenonEntity observableProperty, String unit)
+            throws OwsExceptionReport {
+        return getMemo().getObservableProperty(Arrays.asList(observableProperty.getIdentifier(), unit, i18n), () -> {
+            OmObservableProperty omObservableProperty = createObservableProperty(observableProperty);
+            omObservableProperty.setUnit(unit);
+            return omObservableProperty;
+        });
+    }
+
     /**
      * Get procedure object from series
      *
@@ -271,7 +297,8 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
      */
     protected SosProcedureDescription<?> createProcedure(String identifier)
             throws ConverterException, OwsExceptionReport {
-        return createProcedure(new ProcedureDAO(getDaoFactory()).getProcedureForIdentifier(identifier, getSession()));
+        return getMemo().getProcedure(getProcedureMemoKey(identifier), () -> convertProcedure(
+                new ProcedureDAO(getDaoFactory()).getProcedureForIdentifier(identifier, getSession())));
     }
 
     /**
@@ -288,6 +315,16 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
      */
     protected SosProcedureDescription<?> createProcedure(ProcedureEntity hProcedure)
             throws ConverterException, OwsExceptionReport {
+        return getMemo().getProcedure(getProcedureMemoKey(hProcedure.getIdentifier()),
+                () -> convertProcedure(hProcedure));
+    }
+
+    private Object getProcedureMemoKey(String identifier) {
+        return Arrays.asList(identifier, pdf, i18n);
+    }
+
+    private SosProcedureDescription<?> convertProcedure(ProcedureEntity hProcedure)
+            throws ConverterException, OwsExceptionReport {
         // Procedure hProcedure =
         // getDaoFactory().getProcedureDAO().getProcedureForIdentifier(identifier,
         // getSession());
@@ -349,6 +386,10 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
      *             If an error occurs
      */
     protected AbstractFeature createFeatureOfInterest(AbstractFeatureEntity foi) throws OwsExceptionReport {
+        return getMemo().getFeature(foi.getIdentifier(), () -> convertFeatureOfInterest(foi));
+    }
+
+    private AbstractFeature convertFeatureOfInterest(AbstractFeatureEntity foi) throws OwsExceptionReport {
         FeatureQueryHandlerQueryObject queryObject = new FeatureQueryHandlerQueryObject(getSession());
         queryObject.setFeatureObject(foi).addFeatureIdentifier(foi.getIdentifier()).setVersion(getVersion());
         if (getRequest().isSetRequestedLanguage()) {
@@ -433,22 +474,27 @@ public abstract class AbstractOmObservationCreator implements I18nNameDescriptio
     protected String queryUnit(DatasetEntity series) {
         if (series.hasUnit()) {
             return series.getUnit().getUnit();
-        } else if (HibernateHelper.isNamedQuerySupported(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_PROCEDURE_SERIES,
+        }
+        String property = series.getObservableProperty().getIdentifier();
+        String procedure = series.getProcedure().getIdentifier();
+        return getMemo().getUnit(Arrays.asList(property, procedure), () -> queryUnit(property, procedure));
+    }
+
+    protected String queryUnit(String property, String procedure) {
+        if (HibernateHelper.isNamedQuerySupported(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_PROCEDURE_SERIES,
                 getSession())) {
             Query namedQuery = getSession().getNamedQuery(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_PROCEDURE_SERIES);
-            namedQuery.setParameter(DatasetEntity.PROPERTY_PHENOMENON, series.getObservableProperty().getIdentifier());
-            namedQuery.setParameter(DatasetEntity.PROPERTY_PROCEDURE, series.getProcedure().getIdentifier());
-            LOGGER.debug("QUERY queryUnit({}, {}) with NamedQuery '{}': {}",
-                    series.getObservableProperty().getIdentifier(), series.getProcedure().getIdentifier(),
+            namedQuery.setParameter(DatasetEntity.PROPERTY_PHENOMENON, property);
+            namedQuery.setParameter(DatasetEntity.PROPERTY_PROCEDURE, procedure);
+            LOGGER.debug("QUERY queryUnit({}, {}) with NamedQuery '{}': {}", property, procedure,
                     SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_PROCEDURE_SERIES, namedQuery.getQueryString());
             return (String) namedQuery.uniqueResult();
         } else if (HibernateHelper.isNamedQuerySupported(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_SERIES,
                 getSession())) {
             Query namedQuery = getSession().getNamedQuery(SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_SERIES);
-            namedQuery.setParameter(DatasetEntity.PROPERTY_PHENOMENON, series.getObservableProperty().getIdentifier());
-            LOGGER.debug("QUERY queryUnit({}) with NamedQuery '{}': {}",
-                    series.getObservableProperty().getIdentifier(), SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_SERIES,
-                    namedQuery.getQueryString());
+            namedQuery.setParameter(DatasetEntity.PROPERTY_PHENOMENON, property);
+            LOGGER.debug("QUERY queryUnit({}) with NamedQuery '{}': {}", property,
+                    SQL_QUERY_GET_UNIT_FOR_OBSERVABLE_PROPERTY_SERIES, namedQuery.getQueryString());
             return (String) namedQuery.uniqueResult();
         }
         return null;
@@ -28,6 +28,7 @@
  */
 package org.n52.sos.ds.hibernate.util.observation;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
@@ -87,8 +88,8 @@ public class ObservationConstellationOmObservationCreator extends AbstractOmObse
         }
         SosProcedureDescription procedure =
                 createProcedure(getObservationConstellation().getProcedure().getIdentifier());
-        OmObservableProperty obsProp = createObservableProperty(getObservationConstellation().getObservableProperty());
-        obsProp.setUnit(queryUnit());
+        OmObservableProperty obsProp =
+                createObservableProperty(getObservationConstellation().getObservableProperty(), getUnit());
         FeatureOfInterestDAO featureOfInterestDAO = new FeatureOfInterestDAO(getDaoFactory());
         for (final String featureId : getFeatureIds()) {
             final AbstractFeature feature = createFeatureOfInterest(featureOfInterestDAO.get(featureId, getSession()));
@@ -126,6 +127,11 @@ public class ObservationConstellationOmObservationCreator extends AbstractOmObse
         return oc;
     }
 
+    private String getUnit() {
+        return getMemo().getUnit(Arrays.asList(oc.getObservableProperty().getIdentifier(),
+                oc.getProcedure().getIdentifier(), oc.getOffering().getIdentifier()), this::queryUnit);
+    }
+
     private String queryUnit() {
         if (HibernateHelper.isNamedQuerySupported(
                 AbstractHibernateProcedureDescriptionGeneratorSml.
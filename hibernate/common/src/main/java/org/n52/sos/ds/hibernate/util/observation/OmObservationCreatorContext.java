@@ -45,16 +45,21 @@ import org.n52.iceland.ogc.ows.OwsServiceMetadataRepository;
 import org.n52.iceland.util.LocalizedProducer;
 import org.n52.janmayen.i18n.LocaleHelper;
 import org.n52.shetland.ogc.ows.OwsServiceProvider;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.ds.FeatureQueryHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.util.procedure.HibernateProcedureConverter;
 import org.n52.sos.ds.hibernate.util.procedure.generator.HibernateProcedureDescriptionGeneratorFactoryRepository;
+import org.n52.sos.metrics.MetricsRegistry;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.sos.util.GeometryHandler;
 import org.n52.svalbard.CodingSettings;
 import org.n52.svalbard.decode.DecoderRepository;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 @Configurable
 public class OmObservationCreatorContext {
 
@@ -75,6 +80,9 @@ public class OmObservationCreatorContext {
     private DecoderRepository decoderRepository;
     private HibernateProcedureConverter procedureConverter;
     private BindingRepository bindingRepository;
+    private MetricsRegistry metricsRegistry = MetricsRegistry.disabled();
+    private final Cache<AbstractObservationRequest, OmObservationCreatorMemo> memos =
+            CacheBuilder.newBuilder().weakKeys().build();
 
     @Inject
     public OmObservationCreatorContext(
@@ -107,6 +115,11 @@ public class OmObservationCreatorContext {
         this.bindingRepository = bindingRepository;
     }
 
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry != null ? metricsRegistry : MetricsRegistry.disabled();
+    }
+
     @Setting(CodingSettings.TOKEN_SEPARATOR)
     public void setTokenSeparator(final String separator) throws ConfigurationError {
         Validation.notNullOrEmpty("Token separator", separator);
@@ -260,4 +273,16 @@ public class OmObservationCreatorContext {
         return bindingRepository;
     }
 
+    /**
+     * Get the memo of the objects created for the request. The memo is
+     * released together with the request.
+     *
+     * @param request
+     *            the request
+     * @return the memo of the request
+     */
+    public OmObservationCreatorMemo getMemo(AbstractObservationRequest request) {
+        return memos.asMap().computeIfAbsent(request, r -> new OmObservationCreatorMemo(metricsRegistry));
+    }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util.observation;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.sos.metrics.MetricsRegistry;
+
+/**
+ * Request scoped memo of the features, procedures, observable properties and
+ * units created while building the observations of a single request. Series
+ * sharing features, procedures or phenomena reuse the converted objects
+ * instead of querying and converting them again.
+ *
+ * @since 5.3.2
+ */
+public class OmObservationCreatorMemo {
+
+    private static final String FEATURE_CACHE = "observationCreator.feature";
+
+    private static final String PROCEDURE_CACHE = "observationCreator.procedure";
+
+    private static final String OBSERVABLE_PROPERTY_CACHE = "observationCreator.observableProperty";
+
+    private static final String UNIT_CACHE = "observationCreator.unit";
+
+    private final ConcurrentMap<Object, AbstractFeature> features = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Object, SosProcedureDescription<?>> procedures = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Object, OmObservableProperty> observableProperties = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Object, Optional<String>> units = new ConcurrentHashMap<>();
+
+    private final MetricsRegistry metricsRegistry;
+
+    public OmObservationCreatorMemo(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    public <X extends Exception> AbstractFeature getFeature(Object key, Loader<AbstractFeature, X> loader)
+            throws X {
+        return get(FEATURE_CACHE, features, key, loader);
+    }
+
+    public <X extends Exception> SosProcedureDescription<?> getProcedure(Object key,
+            Loader<SosProcedureDescription<?>, X> loader) throws X {
+        return get(PROCEDURE_CACHE, procedures, key, loader);
+    }
+
+    public <X extends Exception> OmObservableProperty getObservableProperty(Object key,
+            Loader<OmObservableProperty, X> loader) throws X {
+        return get(OBSERVABLE_PROPERTY_CACHE, observableProperties, key, loader);
+    }
+
+    public <X extends Exception> String getUnit(Object key, Loader<String, X> loader) throws X {
+        return get(UNIT_CACHE, units, key, () -> Optional.ofNullable(loader.load())).orElse(null);
+    }
+
+    public int size() {
+        return features.size() + procedures.size() + observableProperties.size() + units.size();
+    }
+
+    private <V, X extends Exception> V get(String cache, ConcurrentMap<Object, V> map, Object key,
+            Loader<V, X> loader) throws X {
+        V value = map.get(key);
+        metricsRegistry.recordCacheAccess(cache, value != null);
+        if (value != null) {
+            return value;
+        }
+        V loaded = loader.load();
+        if (loaded == null) {
+            return null;
+        }
+        value = map.putIfAbsent(key, loaded);
+        return value != null ? value : loaded;
+    }
+
+    /**
+     * Creates the value of a missing memo entry.
+     *
+     * @param <V>
+     *            the value type
+     * @param <X>
+     *            the exception thrown while creating the value
+     */
+    @FunctionalInterface
+    public interface Loader<V, X extends Exception> {
+        V load() throws X;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Criterion;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesValueDAO;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the offset and keyset chunk queries of the
+ * {@link AbstractSeriesValueDAO} and logs the time per chunk deep into the
+ * series. Increase the number of values with <code>-DkeysetValues=x</code>.
+ */
+public class SeriesValueKeysetPaginationTest extends ExtendedHibernateTestCase {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeriesValueKeysetPaginationTest.class);
+
+    private static final int CHUNK_SIZE = 100;
+
+    private static final int MEASURED_CHUNKS = 5;
+
+    private final int values = Integer.getInteger("keysetValues", 1000);
+
+    private final DaoFactory daoFactory = getDaoFactory();
+
+    private final GetObservationRequest request = new GetObservationRequest();
+
+    private long series;
+
+    @Before
+    public void fillObservations() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            HibernateObservationBuilder b = new HibernateObservationBuilder(session, daoFactory);
+            DateTime begin = DateTimeHelper.parseIsoString2DateTime("2019-10-01T12:00:00.000Z");
+            for (int i = 0; i < values; ++i) {
+                List<DataEntity<?>> observations = b.createObservation(String.valueOf(i), begin.plusMinutes(i));
+                series = observations.get(0).getDataset().getId();
+            }
+            session.flush();
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @After
+    public void clearObservations() {
+        H2Configuration.truncate();
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        H2Configuration.recreate();
+    }
+
+    @Test
+    public void keysetChunksShouldMatchOffsetChunks() throws OwsExceptionReport {
+        List<Long> offset = Lists.newArrayListWithCapacity(values);
+        List<Long> keyset = Lists.newArrayListWithCapacity(values);
+        long offsetTime = queryWithOffset(offset);
+        long keysetTime = queryWithKeyset(keyset);
+        LOGGER.info("Time for the last {} chunks of {} values: offset {} ms, keyset {} ms", MEASURED_CHUNKS, values,
+                offsetTime, keysetTime);
+        assertThat(keyset.size(), is(values));
+        assertThat(keyset, is(offset));
+    }
+
+    private long queryWithOffset(List<Long> ids) throws OwsExceptionReport {
+        AbstractSeriesValueDAO valueDAO = daoFactory.getValueDAO();
+        Session session = getSession();
+        try {
+            int currentRow = 0;
+            long time = 0;
+            List<DataEntity<?>> chunk;
+            do {
+                long start = System.nanoTime();
+                chunk = valueDAO.getStreamingSeriesValuesFor(request, series, (Criterion) null, CHUNK_SIZE,
+                        currentRow, session);
+                time += measure(currentRow, start);
+                currentRow += CHUNK_SIZE;
+                addIds(chunk, ids, session);
+            } while (chunk.size() == CHUNK_SIZE);
+            return time;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private long queryWithKeyset(List<Long> ids) throws OwsExceptionReport {
+        AbstractSeriesValueDAO valueDAO = daoFactory.getValueDAO();
+        Session session = getSession();
+        try {
+            int currentRow = 0;
+            long time = 0;
+            DataEntity<?> lastValue = null;
+            List<DataEntity<?>> chunk;
+            do {
+                long start = System.nanoTime();
+                chunk = valueDAO.getStreamingSeriesValuesFor(request, series, null, CHUNK_SIZE, lastValue, session);
+                time += measure(currentRow, start);
+                currentRow += CHUNK_SIZE;
+                if (!chunk.isEmpty()) {
+                    lastValue = chunk.get(chunk.size() - 1);
+                }
+                addIds(chunk, ids, session);
+            } while (chunk.size() == CHUNK_SIZE);
+            return time;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private long measure(int currentRow, long start) {
+        if (currentRow >= values - MEASURED_CHUNKS * CHUNK_SIZE) {
+            return (System.nanoTime() - start) / 1000000;
+        }
+        return 0;
+    }
+
+    private void addIds(List<DataEntity<?>> chunk, List<Long> ids, Session session) {
+        for (DataEntity<?> value : chunk) {
+            ids.add(value.getId());
+            session.evict(value);
+        }
+    }
+
+}
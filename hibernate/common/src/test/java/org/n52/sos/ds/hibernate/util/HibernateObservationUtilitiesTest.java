@@ -66,6 +66,7 @@ import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.util.observation.AdditionalObservationCreatorRepository;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.OmObservationCreatorContext;
+import org.n52.sos.metrics.MetricsRegistry;
 import org.n52.sos.util.SosHelper;
 
 /**
@@ -235,6 +236,7 @@ public class HibernateObservationUtilitiesTest extends HibernateTestCase {
                     new ProfileHanlderMock(), Mockito.mock(AdditionalObservationCreatorRepository.class), null,
                     new FeatureQueryHandlerMock(), null, null, null, null, null,
                     Mockito.mock(BindingRepository.class));
+            ctx.setMetricsRegistry(new MetricsRegistry());
             ObservationStream resultList = HibernateObservationUtilities.createSosObservationsFromObservations(
                     observationsFromDataBase, request, Locale.ENGLISH, null, ctx, session);
             // TEST RESULTS
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util.observation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.metrics.MetricsRegistry;
+
+public class OmObservationCreatorMemoTest {
+
+    private final OmObservationCreatorMemo memo = new OmObservationCreatorMemo(new MetricsRegistry());
+
+    @Test
+    public void shouldCreateObservablePropertyOnlyOnce() throws OwsExceptionReport {
+        AtomicInteger loads = new AtomicInteger();
+        OmObservableProperty first = memo.getObservableProperty(Arrays.asList("phen", "m"), () -> {
+            loads.incrementAndGet();
+            return createObservableProperty();
+        });
+        OmObservableProperty second = memo.getObservableProperty(Arrays.asList("phen", "m"), () -> {
+            loads.incrementAndGet();
+            return createObservableProperty();
+        });
+        assertThat(second, is(sameInstance(first)));
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void shouldSeparateDifferentKeys() throws OwsExceptionReport {
+        OmObservableProperty meter =
+                memo.getObservableProperty(Arrays.asList("phen", "m"), () -> createObservableProperty());
+        OmObservableProperty kilometer =
+                memo.getObservableProperty(Arrays.asList("phen", "km"), () -> createObservableProperty());
+        assertThat(kilometer, is(not(sameInstance(meter))));
+        assertThat(memo.size(), is(2));
+    }
+
+    @Test
+    public void shouldMemoizeMissingUnit() {
+        AtomicInteger loads = new AtomicInteger();
+        assertThat(memo.getUnit(Arrays.asList("phen", "proc"), () -> {
+            loads.incrementAndGet();
+            return null;
+        }), is(nullValue()));
+        assertThat(memo.getUnit(Arrays.asList("phen", "proc"), () -> {
+            loads.incrementAndGet();
+            return "m";
+        }), is(nullValue()));
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void shouldNotMemoizeFailedCreation() throws OwsExceptionReport {
+        try {
+            memo.getObservableProperty("phen", () -> {
+                throw new NoApplicableCodeException();
+            });
+        } catch (NoApplicableCodeException e) {
+            // expected
+        }
+        assertThat(memo.size(), is(0));
+        assertThat(memo.getObservableProperty("phen", () -> createObservableProperty()).getIdentifier(),
+                is("phen"));
+    }
+
+    private static OmObservableProperty createObservableProperty() {
+        return new OmObservableProperty("phen", null, null, null);
+    }
+}
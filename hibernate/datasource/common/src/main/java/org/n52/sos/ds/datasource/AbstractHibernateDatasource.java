@@ -1032,7 +1032,26 @@ public abstract class AbstractHibernateDatasource extends AbstractHibernateCoreD
 
     @Override
     public DatasourceCallback getCallback() {
-        return DatasourceCallback.nullCallback();
+        return new DatasourceCallback() {
+            @Override
+            public Properties onInit(Properties props) {
+                useMeteredConnectionProvider(props);
+                return props;
+            }
+        };
+    }
+
+    /**
+     * Replace the c3p0 connection provider with one that records the connection pool wait time.
+     *
+     * @param properties
+     *            the datasource properties
+     */
+    protected void useMeteredConnectionProvider(Properties properties) {
+        if (C3P0_CONNECTION_POOL.equals(properties.getProperty(HibernateConstants.CONNECTION_PROVIDER_CLASS))) {
+            properties.setProperty(HibernateConstants.CONNECTION_PROVIDER_CLASS,
+                    MeteredC3P0ConnectionProvider.class.getName());
+        }
     }
 
     @Override
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.hibernate.c3p0.internal.C3P0ConnectionProvider;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
+import org.n52.sos.metrics.MetricsRegistry;
+
+/**
+ * {@link C3P0ConnectionProvider} that records the time spent waiting for a connection from the pool in the
+ * {@link MetricsRegistry} passed in the {@link HibernateConstants#METRICS_REGISTRY} property. Without a registry it
+ * behaves like the {@link C3P0ConnectionProvider}.
+ *
+ * @since 5.3.2
+ */
+public class MeteredC3P0ConnectionProvider extends C3P0ConnectionProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient MetricsRegistry metricsRegistry;
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void configure(Map props) {
+        super.configure(props);
+        Object registry = props.get(HibernateConstants.METRICS_REGISTRY);
+        if (registry instanceof MetricsRegistry) {
+            this.metricsRegistry = (MetricsRegistry) registry;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (metricsRegistry == null) {
+            return super.getConnection();
+        }
+        long start = metricsRegistry.start();
+        try {
+            return super.getConnection();
+        } finally {
+            metricsRegistry.recordSince(start, MetricsRegistry.CONNECTION_POOL_WAIT, "pool", "c3p0");
+        }
+    }
+}
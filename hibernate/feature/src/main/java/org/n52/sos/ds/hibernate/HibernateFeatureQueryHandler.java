@@ -32,10 +32,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -81,6 +83,7 @@ import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.QueryHelper;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
 import org.n52.sos.service.SosSettings;
+import org.n52.sos.util.FeatureSpatialIndex;
 import org.n52.sos.util.GeometryHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -109,6 +112,8 @@ public class HibernateFeatureQueryHandler
 
     private ContentCacheController contentCacheController;
 
+    private FeatureSpatialIndex featureSpatialIndex;
+
     @Inject
     public void setDaoFactory(DaoFactory daoFactory) {
         this.daoFactory = daoFactory;
@@ -129,6 +134,11 @@ public class HibernateFeatureQueryHandler
         this.contentCacheController = ctrl;
     }
 
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
     @Setting(I18NSettings.I18N_DEFAULT_LANGUAGE)
     public void setDefaultLocale(String defaultLocale) {
         this.defaultLocale = LocaleHelper.decode(defaultLocale);
@@ -182,8 +192,13 @@ public class HibernateFeatureQueryHandler
                 List<String> identifiers = new LinkedList<>();
                 if (queryObject.isSetSpatialFilters()) {
                     SpatialFilter filter = queryObject.getSpatialFitler();
-                    final List<AbstractFeatureEntity> features = daoFactory.getFeatureDAO().getFeatures(session);
                     final Geometry envelope = getGeometryHandler().getFilterForNonSpatialDatasource(filter);
+                    if (isFeatureSpatialIndexUsable()) {
+                        identifiers.addAll(queryFeatureSpatialIndex(Collections.singletonList(envelope), null,
+                                queryObject, session));
+                        return identifiers;
+                    }
+                    final List<AbstractFeatureEntity> features = daoFactory.getFeatureDAO().getFeatures(session);
                     FeatureVisitorContext context = getDefaultContext()
                             .setSession(session)
                             .setRequestedLanguage(queryObject.getI18N());
@@ -426,8 +441,21 @@ public class HibernateFeatureQueryHandler
                 envelopes.add(getGeometryHandler().getFilterForNonSpatialDatasource(filter));
             }
         }
-        final List<AbstractFeatureEntity> featuresOfInterest =
-                daoFactory.getFeatureDAO().getFeatureOfInterestObjects(queryObject.getFeatures(), session);
+        final List<AbstractFeatureEntity> featuresOfInterest;
+        if (hasSpatialFilter && isFeatureSpatialIndexUsable()) {
+            Collection<String> requested = queryObject.isSetFeatures() ? queryObject.getFeatures() : null;
+            Set<String> candidates = queryFeatureSpatialIndex(envelopes, requested, queryObject, session);
+            if (requested != null) {
+                candidates.retainAll(requested);
+            }
+            if (candidates.isEmpty()) {
+                return featureMap;
+            }
+            featuresOfInterest = daoFactory.getFeatureDAO().getFeatureOfInterestObjects(candidates, session);
+        } else {
+            featuresOfInterest =
+                    daoFactory.getFeatureDAO().getFeatureOfInterestObjects(queryObject.getFeatures(), session);
+        }
         for (final AbstractFeatureEntity feature : featuresOfInterest) {
             final AbstractSamplingFeature sosAbstractFeature =
                     (AbstractSamplingFeature) createSosAbstractFeature(feature, queryObject, session);
@@ -440,6 +468,50 @@ public class HibernateFeatureQueryHandler
         return featureMap;
     }
 
+    private boolean isFeatureSpatialIndexUsable() {
+        // features without geometry may get one from their sampling geometries, which are not indexed
+        return !createFeatureGeometryFromSamplingGeometries && featureSpatialIndex != null
+                && featureSpatialIndex.isAvailable();
+    }
+
+    /**
+     * Resolve the identifiers of the features within the filter geometries from the {@link FeatureSpatialIndex}.
+     * Features whose geometry is not yet known to the index are loaded and checked individually.
+     *
+     * @param envelopes
+     *            the filter geometries
+     * @param requested
+     *            the requested features or {@code null} for all
+     * @param queryObject
+     *            the query object
+     * @param session
+     *            the session
+     * @return the identifiers of the matching features
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private Set<String> queryFeatureSpatialIndex(List<Geometry> envelopes, Collection<String> requested,
+            FeatureQueryHandlerQueryObject queryObject, Session session) throws OwsExceptionReport {
+        Set<String> identifiers = featureSpatialIndex.query(envelopes);
+        Set<String> stale = new HashSet<>(featureSpatialIndex.getStaleIdentifiers());
+        if (requested != null) {
+            stale.retainAll(requested);
+        }
+        if (!stale.isEmpty()) {
+            FeatureVisitorContext context = getDefaultContext()
+                    .setSession(session)
+                    .setRequestedLanguage(queryObject.getI18N());
+            for (AbstractFeatureEntity feature : daoFactory.getFeatureDAO().getFeatureOfInterestObjects(stale,
+                    session)) {
+                Geometry geom = new HibernateGeometryVisitor(context).visit(feature);
+                if (getGeometryHandler().featureIsInFilter(geom, envelopes)) {
+                    identifiers.add(feature.getIdentifier());
+                }
+            }
+        }
+        return identifiers;
+    }
+
     protected Map<String, AbstractFeature> getFeaturesForSpatialDatasource(FeatureQueryHandlerQueryObject queryObject)
             throws OwsExceptionReport {
         final Session session = HibernateSessionHolder.getSession(queryObject.getConnection());
@@ -28,15 +28,29 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import javax.inject.Inject;
 
+import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.sql.JoinType;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.convert.ConverterException;
 import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
 import org.n52.series.db.beans.ProcedureHistoryEntity;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -44,10 +58,13 @@ import org.n52.shetland.ogc.sos.delobs.DeleteObservationRequest;
 import org.n52.shetland.ogc.sos.delobs.DeleteObservationResponse;
 import org.n52.sos.ds.AbstractDeleteObservationHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.util.DatasetLocks;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Iterables;
+
 @Configurable
 public class DeleteObservationHandler extends AbstractDeleteObservationHandler implements DeleteObservationHelper {
 
@@ -55,6 +72,8 @@ public class DeleteObservationHandler extends AbstractDeleteObservationHandler i
 
     private HibernateSessionHolder sessionHolder;
 
+    private DatasetLocks datasetLocks;
+
     @Inject
     private DaoFactory daoFactory;
 
@@ -65,6 +84,11 @@ public class DeleteObservationHandler extends AbstractDeleteObservationHandler i
         this.deletePhysically = deletePhysically;
     }
 
+    @Inject
+    public synchronized void setDatasetLocks(DatasetLocks datasetLocks) {
+        this.datasetLocks = datasetLocks;
+    }
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         setSessionHolder(new HibernateSessionHolder(connectionProvider));
@@ -76,7 +100,7 @@ public class DeleteObservationHandler extends AbstractDeleteObservationHandler i
     }
 
     @Override
-    public synchronized DeleteObservationResponse deleteObservation(DeleteObservationRequest request)
+    public DeleteObservationResponse deleteObservation(DeleteObservationRequest request)
             throws OwsExceptionReport {
         DeleteObservationResponse response = new DeleteObservationResponse(request.getResponseFormat());
         response.setService(request.getService());
@@ -85,13 +109,25 @@ public class DeleteObservationHandler extends AbstractDeleteObservationHandler i
         Transaction transaction = null;
         try {
             session = getSessionHolder().getSession();
-            transaction = session.beginTransaction();
+            // resolve the affected datasets once and lock them before the transaction begins
             if (request.isSetObservationIdentifiers()) {
-                deleteObservationsByIdentifier(request, response, session);
+                Map<Long, Long> observations =
+                        getObservationIdsByIdentifier(request.getObservationIdentifiers(), session);
+                try (DatasetLocks.Lease lease = getDatasetLocks().lock(getLockKeys(observations.values(), session))) {
+                    transaction = session.beginTransaction();
+                    deleteObservationsByIdentifier(request, response, observations, session);
+                    transaction.commit();
+                }
             } else {
-                deleteObservationByParameter(request, response, session);
+                List<DatasetEntity> datasets = getDaoFactory().getSeriesDAO().getSeries(request.getProcedures(),
+                        request.getObservedProperties(), request.getFeatureIdentifiers(), request.getOfferings(),
+                        session);
+                try (DatasetLocks.Lease lease = getDatasetLocks().lock(getLockKeys(datasets))) {
+                    transaction = session.beginTransaction();
+                    deleteObservation(datasets, request.getTemporalFilters(), session);
+                    transaction.commit();
+                }
             }
-            transaction.commit();
         } catch (HibernateException he) {
             if (transaction != null) {
                 transaction.rollback();
@@ -120,6 +156,77 @@ public class DeleteObservationHandler extends AbstractDeleteObservationHandler i
         return deletePhysically;
     }
 
+    /**
+     * Get the keys of the datasets with the ids. Requests that modify
+     * different datasets can be executed concurrently if dataset locking is
+     * enabled.
+     *
+     * @param datasets
+     *            the ids of the datasets modified by the request
+     * @param session
+     *            Hibernate session
+     * @return the lock keys
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> getLockKeys(Collection<Long> datasets, Session session) {
+        if (!getDatasetLocks().isDatasetLocking() || datasets.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> keys = new HashSet<>();
+        for (List<Long> chunk : Iterables.partition(new HashSet<>(datasets), DELETE_CHUNK_SIZE)) {
+            Criteria c = session.createCriteria(DatasetEntity.class)
+                    .createAlias(DatasetEntity.PROPERTY_PROCEDURE, "p", JoinType.LEFT_OUTER_JOIN)
+                    .createAlias(DatasetEntity.PROPERTY_PHENOMENON, "ph", JoinType.LEFT_OUTER_JOIN)
+                    .createAlias(DatasetEntity.PROPERTY_FEATURE, "f", JoinType.LEFT_OUTER_JOIN)
+                    .createAlias(DatasetEntity.PROPERTY_OFFERING, "o", JoinType.LEFT_OUTER_JOIN)
+                    .add(Restrictions.in(DatasetEntity.PROPERTY_ID, chunk))
+                    .setProjection(Projections.projectionList()
+                            .add(Projections.property("p." + DescribableEntity.IDENTIFIER))
+                            .add(Projections.property("ph." + DescribableEntity.IDENTIFIER))
+                            .add(Projections.property("f." + DescribableEntity.IDENTIFIER))
+                            .add(Projections.property("o." + DescribableEntity.IDENTIFIER)));
+            for (Object[] row : (List<Object[]>) c.list()) {
+                keys.add(DatasetLocks.datasetKey((String) row[0], (String) row[1], (String) row[2],
+                        (String) row[3]));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Get the keys of the datasets. Requests that modify different datasets
+     * can be executed concurrently if dataset locking is enabled.
+     *
+     * @param datasets
+     *            the datasets modified by the request
+     * @return the lock keys
+     */
+    private Set<String> getLockKeys(Collection<DatasetEntity> datasets) {
+        if (!getDatasetLocks().isDatasetLocking()) {
+            return Collections.emptySet();
+        }
+        return datasets.stream()
+                .map(d -> DatasetLocks.datasetKey(getIdentifier(d.getProcedure()), getIdentifier(d.getPhenomenon()),
+                        getIdentifier(d.getFeature()), getIdentifier(d.getOffering())))
+                .collect(Collectors.toSet());
+    }
+
+    private static String getIdentifier(DescribableEntity entity) {
+        return entity != null ? entity.getIdentifier() : null;
+    }
+
+    protected synchronized void initForTesting(DaoFactory daoFactory, ConnectionProvider connectionProvider) {
+        this.daoFactory = daoFactory;
+        setConnectionProvider(connectionProvider);
+        if (this.datasetLocks == null) {
+            this.datasetLocks = new DatasetLocks();
+        }
+    }
+
+    private synchronized DatasetLocks getDatasetLocks() {
+        return datasetLocks;
+    }
+
     private synchronized HibernateSessionHolder getSessionHolder() {
         return sessionHolder;
     }
@@ -28,6 +28,8 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -37,8 +39,10 @@ import javax.inject.Inject;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
@@ -58,11 +62,14 @@ import org.n52.shetland.ogc.sos.SosResultStructure;
 import org.n52.shetland.ogc.sos.request.GetResultRequest;
 import org.n52.shetland.ogc.sos.response.GetResultResponse;
 import org.n52.shetland.util.CollectionHelper;
+import org.n52.sos.coding.encode.StreamingGetResultResponse;
 import org.n52.sos.ds.AbstractGetResultHandler;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.QueryHelper;
 import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.sos.ds.hibernate.util.ScrollableIterable;
 import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
 import org.n52.sos.exception.ows.concrete.UnsupportedOperatorException;
@@ -87,6 +94,8 @@ public class GetResultHandler extends AbstractGetResultHandler implements Abstra
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GetResultHandler.class);
 
+    private static final int SCROLL_FETCH_SIZE = 1000;
+
     private HibernateSessionHolder sessionHolder;
 
     private DaoFactory daoFactory;
@@ -172,23 +181,39 @@ public class GetResultHandler extends AbstractGetResultHandler implements Abstra
             final Set<String> featureIdentifier =
                     QueryHelper.getFeatures(getDaoFactory().getFeatureQueryHandler(), request, session);
             final ResultTemplateEntity resultTemplate = queryResultTemplate(request, featureIdentifier, session);
+            ResultTemplateRegistry.Template template = null;
             SosResultEncoding sosResultEncoding = null;
             SosResultStructure sosResultStructure = null;
             if (resultTemplate != null) {
-                sosResultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
-                sosResultStructure = createSosResultStructure(resultTemplate.getStructure());
+                template = getResultTemplate(resultTemplate.getIdentifier(), resultTemplate.getStructure(),
+                        resultTemplate.getEncoding());
+                sosResultEncoding = template.getResultEncoding();
+                sosResultStructure = template.getResultStructure();
             } else {
                 sosResultEncoding = createSosResultEncoding();
                 sosResultStructure = generateSosResultStructure(request.getObservedProperty(), request.getOffering(),
                         featureIdentifier, session);
             }
-            final List<DataEntity<?>> observations;
-            observations = querySeriesObservation(request, featureIdentifier, session);
-            response.setResultValues(getResultHandlingHelper().createResultValuesFromObservations(observations,
-                    sosResultEncoding, sosResultStructure, getProfileHandler().getActiveProfile()
-                            .getResponseNoDataPlaceholder(),
-                    session));
-            return response;
+            final String noDataPlaceholder = getProfileHandler().getActiveProfile()
+                    .getResponseNoDataPlaceholder();
+            final Set<Long> seriesIds = querySeriesIds(request, featureIdentifier, session);
+            if (CollectionHelper.isEmpty(seriesIds)) {
+                response.setResultValues("");
+                return response;
+            }
+            long count = countSeriesObservation(request, seriesIds, session);
+            if (count == 0) {
+                response.setResultValues("");
+                return response;
+            }
+            // the session is returned when the result values are written or the response is closed
+            StreamingGetResultResponse streamingResponse = new StreamingGetResultResponse(
+                    new ScrollingResultValues(request, seriesIds, count, template, sosResultEncoding,
+                            sosResultStructure, noDataPlaceholder, session));
+            streamingResponse.setService(request.getService());
+            streamingResponse.setVersion(request.getVersion());
+            session = null;
+            return streamingResponse;
         } catch (final HibernateException he) {
             throw new NoApplicableCodeException().causedBy(he)
                     .withMessage("Error while querying result data!")
@@ -199,45 +224,142 @@ public class GetResultHandler extends AbstractGetResultHandler implements Abstra
     }
 
     /**
-     * Query series observations from database depending on requested filters
+     * Count the series observations that match the request.
      *
      * @param request
-     *            GetObservation request
-     * @param featureIdentifiers
-     *            Set of feature identifiers. If <tt>null</tt>, query filter
-     *            will not be added. If <tt>empty</tt>, <tt>null</tt> will be
-     *            returned.
+     *            GetResult request
+     * @param seriesIds
+     *            Ids of the matching series
      * @param session
      *            Hibernate session
-     * @return List of Observation objects
+     * @return the number of observations
      * @throws OwsExceptionReport
      *             If an error occurs.
      */
-    @SuppressWarnings("unchecked")
-    protected List<DataEntity<?>> querySeriesObservation(GetResultRequest request,
-            Collection<String> featureIdentifiers, Session session) throws OwsExceptionReport {
-        final Criteria c = createCriteriaFor(DataEntity.class, session);
-        addSpatialFilteringProfileRestrictions(c, request, session);
-        addParentChildRestriction(c);
+    protected long countSeriesObservation(GetResultRequest request, Set<Long> seriesIds, Session session)
+            throws OwsExceptionReport {
+        final Criteria c = createSeriesObservationCriteria(request, seriesIds, session)
+                .setProjection(Projections.rowCount());
+        LOGGER.trace("QUERY countSeriesObservation(request, seriesIds): {}", HibernateHelper.getSqlString(c));
+        Number count = (Number) c.uniqueResult();
+        return count != null ? count.longValue() : 0L;
+    }
+
+    /**
+     * Scroll over the series observations ordered by phenomenon start time.
+     * The observations are read with a forward-only cursor and read-only, so
+     * the entities are not all loaded into the session at once.
+     *
+     * @param request
+     *            GetResult request
+     * @param seriesIds
+     *            Ids of the matching series
+     * @param session
+     *            Hibernate session
+     * @return {@link ScrollableIterable} of the observations, must be closed
+     *         by the caller
+     * @throws OwsExceptionReport
+     *             If an error occurs.
+     */
+    protected ScrollableIterable<DataEntity<?>> scrollSeriesObservation(GetResultRequest request,
+            Set<Long> seriesIds, Session session) throws OwsExceptionReport {
+        final Criteria c = createSeriesObservationCriteria(request, seriesIds, session)
+                .addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START))
+                .setFetchSize(SCROLL_FETCH_SIZE)
+                .setReadOnly(true);
+        LOGGER.trace("QUERY scrollSeriesObservation(request, seriesIds): {}", HibernateHelper.getSqlString(c));
+        return ScrollableIterable.fromResults(c.scroll(ScrollMode.FORWARD_ONLY));
+    }
+
+    /**
+     * Result values that scroll over the series observations while they are written.
+     */
+    private class ScrollingResultValues implements StreamingGetResultResponse.ResultValues {
+
+        private final GetResultRequest request;
+
+        private final Set<Long> seriesIds;
+
+        private final long count;
 
+        private final ResultTemplateRegistry.Template template;
+
+        private final SosResultEncoding encoding;
+
+        private final SosResultStructure structure;
+
+        private final String noDataPlaceholder;
+
+        private final Session session;
+
+        private ScrollableIterable<DataEntity<?>> observations;
+
+        ScrollingResultValues(GetResultRequest request, Set<Long> seriesIds, long count,
+                ResultTemplateRegistry.Template template, SosResultEncoding encoding, SosResultStructure structure,
+                String noDataPlaceholder, Session session) {
+            this.request = request;
+            this.seriesIds = seriesIds;
+            this.count = count;
+            this.template = template;
+            this.encoding = encoding;
+            this.structure = structure;
+            this.noDataPlaceholder = noDataPlaceholder;
+            this.session = session;
+        }
+
+        @Override
+        public void write(Writer out) throws IOException, OwsExceptionReport {
+            try {
+                this.observations = scrollSeriesObservation(request, seriesIds, session);
+                if (template != null) {
+                    getResultHandlingHelper().writeResultValuesFromObservations(out, observations.iterator(), count,
+                            template, noDataPlaceholder, session);
+                } else {
+                    getResultHandlingHelper().writeResultValuesFromObservations(out, observations.iterator(), count,
+                            encoding, structure, noDataPlaceholder, session);
+                }
+            } catch (final HibernateException he) {
+                throw new NoApplicableCodeException().causedBy(he)
+                        .withMessage("Error while querying result data!")
+                        .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (observations != null) {
+                    observations.close();
+                }
+            } finally {
+                sessionHolder.returnSession(session);
+            }
+        }
+    }
+
+    private Set<Long> querySeriesIds(GetResultRequest request, Collection<String> featureIdentifiers,
+            Session session) throws OwsExceptionReport {
         List<DatasetEntity> series = getDaoFactory().getSeriesDAO()
                 .getSeries(request, featureIdentifiers, session);
         if (CollectionHelper.isEmpty(series)) {
             return null;
-        } else {
-            c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, series.stream()
-                    .map(DatasetEntity::getId)
-                    .collect(Collectors.toSet())));
         }
+        return series.stream()
+                .map(DatasetEntity::getId)
+                .collect(Collectors.toSet());
+    }
 
+    private Criteria createSeriesObservationCriteria(GetResultRequest request, Set<Long> seriesIds,
+            Session session) throws OwsExceptionReport {
+        final Criteria c = createCriteriaFor(DataEntity.class, session);
+        addSpatialFilteringProfileRestrictions(c, request, session);
+        addParentChildRestriction(c);
+        c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, seriesIds));
         if (request.getTemporalFilter() != null && !request.getTemporalFilter()
                 .isEmpty()) {
             addTemporalFilter(c, request.getTemporalFilter());
         }
-
-        LOGGER.trace("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
-        return c.list();
-
+        return c;
     }
 
     /**
@@ -284,22 +406,18 @@ public class GetResultHandler extends AbstractGetResultHandler implements Abstra
     }
 
     /**
-     * Create Hibernate Criteria for the class and add ascending of phenomenon
-     * start time
+     * Create Hibernate Criteria for the class with the not deleted restriction
      *
      * @param clazz
      *            The class for the Criteria
      * @param session
      *            Hibernate session
-     * @return Hibernate Criteria for the class and add ascending of phenomenon
-     *         start time
+     * @return Hibernate Criteria for the class
      */
     @SuppressWarnings("rawtypes")
     private Criteria createCriteriaFor(Class clazz, Session session) {
         return session.createCriteria(clazz)
-                .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY)
-                .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
-                .addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START));
+                .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
     }
 
     private void addParentChildRestriction(Criteria c) {
@@ -38,9 +38,14 @@ import org.n52.series.db.beans.ResultTemplateEntity;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.SosResultStructure;
 import org.n52.shetland.ogc.sos.request.GetResultTemplateRequest;
 import org.n52.shetland.ogc.sos.response.GetResultTemplateResponse;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
 import org.n52.sos.ds.AbstractGetResultTemplateHandler;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
@@ -117,8 +122,10 @@ public class GetResultTemplateHandler extends AbstractGetResultTemplateHandler
                     .getResultTemplateObjectForResponse(request.getOffering(), request.getObservedProperty(), session)
                     : null;
             if (resultTemplate != null && resultTemplate.isSetStructure() && resultTemplate.isSetEncoding()) {
-                response.setResultEncoding(createSosResultEncoding(resultTemplate.getEncoding()));
-                response.setResultStructure(createSosResultStructure(resultTemplate.getStructure()));
+                ResultTemplateRegistry.Template template = getResultTemplate(resultTemplate.getIdentifier(),
+                        resultTemplate.getStructure(), resultTemplate.getEncoding());
+                response.setResultEncoding(template.getResultEncoding());
+                response.setResultStructure(copyResultStructure(template, resultTemplate.getStructure()));
             } else {
                 response.setResultEncoding(createSosResultEncoding());
                 response.setResultStructure(generateSosResultStructure(request.getObservedProperty(),
@@ -133,4 +140,27 @@ public class GetResultTemplateHandler extends AbstractGetResultTemplateHandler
         }
     }
 
+    /**
+     * Copy the shared result structure of the template, the response
+     * modifiers may change the structure of the response.
+     *
+     * @param template
+     *            the decoded result template
+     * @param xml
+     *            the result structure XML
+     * @return a copy of the result structure
+     * @throws OwsExceptionReport
+     *             If the result structure can not be decoded
+     */
+    private SosResultStructure copyResultStructure(ResultTemplateRegistry.Template template, String xml)
+            throws OwsExceptionReport {
+        SweAbstractDataComponent structure = template.getResultStructure().get().orElse(null);
+        if (structure instanceof SweDataArray) {
+            return new SosResultStructure(((SweDataArray) structure).copy(), xml);
+        } else if (structure instanceof SweDataRecord) {
+            return new SosResultStructure(((SweDataRecord) structure).copy(), xml);
+        }
+        return createSosResultStructure(xml);
+    }
+
 }
@@ -70,8 +70,12 @@ import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
 import org.n52.sos.ds.AbstractInsertObservationHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetValueUpdates;
+import org.n52.sos.ds.hibernate.util.DatasetLocks;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
@@ -85,8 +89,12 @@ import com.google.common.collect.Table.Cell;
 
 @Configurable
 public class InsertObservationHandler extends AbstractInsertObservationHandler implements Constructable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InsertObservationHandler.class);
+
     private static final int FLUSH_THRESHOLD = 50;
 
+    private static final int MAX_ATTEMPTS = 2;
+
     private static final String CONSTRAINT_OBSERVATION_IDENTITY = "observationIdentity";
 
     private static final String CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY = "obsIdentifierUK";
@@ -110,6 +118,8 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
 
     private HibernateSessionHolder sessionHolder;
 
+    private DatasetLocks datasetLocks;
+
     private boolean strictSpatialFilteringProfile;
 
     /**
@@ -124,6 +134,11 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
     }
 
+    @Inject
+    public synchronized void setDatasetLocks(DatasetLocks datasetLocks) {
+        this.datasetLocks = datasetLocks;
+    }
+
     @Setting(SosSettings.STRICT_SPATIAL_FILTERING_PROFILE)
     public synchronized void setStrictSpatialFilteringProfile(final boolean strictSpatialFilteringProfile) {
         this.strictSpatialFilteringProfile = strictSpatialFilteringProfile;
@@ -139,11 +154,35 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
     }
 
     @Override
-    public synchronized InsertObservationResponse insertObservation(final InsertObservationRequest request)
+    public InsertObservationResponse insertObservation(final InsertObservationRequest request)
             throws OwsExceptionReport {
         final InsertObservationResponse response = new InsertObservationResponse();
         response.setService(request.getService());
         response.setVersion(request.getVersion());
+        try (DatasetLocks.Lease lease = getDatasetLocks().lock(getLockKeys(request))) {
+            int attempt = 0;
+            boolean inserted = false;
+            while (!inserted) {
+                try {
+                    insertObservations(request);
+                    inserted = true;
+                } catch (PersistenceException pe) {
+                    if (++attempt >= MAX_ATTEMPTS || !isRetryable(pe)) {
+                        handleHibernateException(pe);
+                    }
+                    LOGGER.debug("Concurrent insertion of related entities detected, retry insertion!", pe);
+                }
+            }
+        }
+        /*
+         * TODO: ... all the DS insertion stuff Requirement 68
+         * proc/obsProp/Offering same obsType;
+         */
+
+        return response;
+    }
+
+    private void insertObservations(final InsertObservationRequest request) throws OwsExceptionReport {
         Session session = null;
         Transaction transaction = null;
 
@@ -158,8 +197,9 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
 
             cache.addOfferings(request.getOfferings());
 
-            // counter for batch flushing
+            // counter for batch flushing, the values are not flushed individually
             int obsCount = 0;
+            int flushThreshold = HibernateHelper.getFlushSize(session, FLUSH_THRESHOLD);
 
             for (final OmObservation sosObservation : request.getObservations()) {
                 // check strict spatial filtering profile
@@ -171,7 +211,9 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
                 insertObservation(sosObservation, cache, exceptions, session);
 
                 // flush every FLUSH_INTERVAL
-                if (++obsCount % FLUSH_THRESHOLD == 0) {
+                if (++obsCount % flushThreshold == 0) {
+                    cache.getDatasetUpdates()
+                            .flush(getDaoFactory().getSeriesDAO(), session);
                     session.flush();
                     session.clear();
                     cache.clearConstellation();
@@ -186,22 +228,72 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
                 throw exceptions;
             }
 
+            cache.getDatasetUpdates()
+                    .flush(getDaoFactory().getSeriesDAO(), session);
             session.flush();
             transaction.commit();
         } catch (PersistenceException pe) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            handleHibernateException(pe);
+            throw pe;
         } finally {
             getHibernateSessionHolder().returnSession(session);
         }
-        /*
-         * TODO: ... all the DS insertion stuff Requirement 68
-         * proc/obsProp/Offering same obsType;
-         */
+    }
 
-        return response;
+    /**
+     * Get the keys of the datasets and features that are modified by the
+     * request.
+     *
+     * @param request
+     *            the InsertObservation request
+     * @return the lock keys
+     */
+    private Set<String> getLockKeys(InsertObservationRequest request) {
+        Set<String> keys = Sets.newHashSet();
+        for (OmObservation observation : request.getObservations()) {
+            OmObservationConstellation constellation = observation.getObservationConstellation();
+            String feature = constellation.getFeatureOfInterestIdentifier();
+            keys.add(DatasetLocks.featureKey(feature));
+            for (String offering : constellation.getOfferings()) {
+                keys.add(DatasetLocks.datasetKey(constellation.getProcedureIdentifier(),
+                        constellation.getObservablePropertyIdentifier(), feature, offering));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Check if the insertion failed because a concurrent request inserted the
+     * same shared entity (e.g. unit or codespace) in the meantime. This can
+     * only happen if the requests are not serialized globally.
+     *
+     * @param pe
+     *            the exception to check
+     * @return <code>true</code>, if the insertion should be retried
+     */
+    private boolean isRetryable(PersistenceException pe) {
+        if (!getDatasetLocks().isDatasetLocking()) {
+            return false;
+        }
+        ConstraintViolationException cve = null;
+        if (pe instanceof ConstraintViolationException) {
+            cve = (ConstraintViolationException) pe;
+        } else if (pe.getCause() instanceof ConstraintViolationException) {
+            cve = (ConstraintViolationException) pe.getCause();
+        }
+        return cve != null && !isObservationConstraint(cve.getConstraintName())
+                && !isObservationConstraint(cve.getMessage());
+    }
+
+    private boolean isObservationConstraint(String message) {
+        if (Strings.isNullOrEmpty(message)) {
+            return false;
+        }
+        String lowerCase = message.toLowerCase();
+        return lowerCase.contains(CONSTRAINT_OBSERVATION_IDENTITY.toLowerCase())
+                || lowerCase.contains(CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY.toLowerCase());
     }
 
     private void insertObservation(OmObservation sosObservation, InsertObservationCache cache,
@@ -252,10 +344,12 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
             DatasetEntity dataset = null;
             if (sosObservation.getValue() instanceof SingleObservationValue) {
                 dataset = observationDAO.insertObservationSingleValue(hDataset, hFeature, sosObservation,
-                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(), session);
+                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(),
+                        cache.getDatasetUpdates(), session);
             } else if (sosObservation.getValue() instanceof MultiObservationValues) {
                 dataset = observationDAO.insertObservationMultiValue(hDataset, hFeature, sosObservation,
-                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(), session);
+                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(),
+                        cache.getDatasetUpdates(), session);
             }
             if (dataset != null && !cache.get(sosObsConst, offeringID)
                     .equals(dataset)) {
@@ -372,10 +466,17 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
         return sessionHolder;
     }
 
+    private synchronized DatasetLocks getDatasetLocks() {
+        return datasetLocks;
+    }
+
     @VisibleForTesting
     protected synchronized void initForTesting(DaoFactory daoFactory, ConnectionProvider connectionProvider) {
         this.daoFactory = daoFactory;
         this.connectionProvider = connectionProvider;
+        if (this.datasetLocks == null) {
+            this.datasetLocks = new DatasetLocks();
+        }
     }
 
     private static class InsertObservationCache {
@@ -392,6 +493,8 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
 
         private final Map<String, FormatEntity> formatCache = Maps.newHashMap();
 
+        private final DatasetValueUpdates datasetUpdates = new DatasetValueUpdates();
+
         private final HashMultimap<OmObservationConstellation, String> obsConstOfferingCheckedMap =
                 HashMultimap.create();
 
@@ -459,6 +562,10 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler i
             return formatCache;
         }
 
+        public DatasetValueUpdates getDatasetUpdates() {
+            return datasetUpdates;
+        }
+
         public Set<String> getAllOfferings() {
             return allOfferings;
         }
@@ -28,11 +28,14 @@
  */
 package org.n52.sos.ds.hibernate;
 
-import java.util.Arrays;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -40,23 +43,33 @@ import javax.inject.Inject;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.joda.time.DateTime;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.janmayen.lifecycle.Constructable;
 import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.BooleanDataEntity;
+import org.n52.series.db.beans.CategoryDataEntity;
 import org.n52.series.db.beans.CategoryEntity;
 import org.n52.series.db.beans.CodespaceEntity;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.FormatEntity;
 import org.n52.series.db.beans.OfferingEntity;
 import org.n52.series.db.beans.PhenomenonEntity;
 import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
 import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.series.db.beans.TextDataEntity;
 import org.n52.series.db.beans.UnitEntity;
 import org.n52.shetland.ogc.UoM;
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.om.MultiObservationValues;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservableProperty;
@@ -64,8 +77,14 @@ import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.om.OmObservationConstellation;
 import org.n52.shetland.ogc.om.SingleObservationValue;
 import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.BooleanValue;
+import org.n52.shetland.ogc.om.values.CategoryValue;
+import org.n52.shetland.ogc.om.values.CountValue;
 import org.n52.shetland.ogc.om.values.ProfileValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
 import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.om.values.TextValue;
+import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
@@ -84,18 +103,25 @@ import org.n52.shetland.ogc.swe.SweDataRecord;
 import org.n52.shetland.ogc.swe.SweField;
 import org.n52.shetland.ogc.swe.SweVector;
 import org.n52.shetland.ogc.swe.encoding.SweAbstractEncoding;
-import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
 import org.n52.shetland.ogc.swe.simpleType.SweAbstractSimpleType;
 import org.n52.shetland.ogc.swe.simpleType.SweAbstractUomType;
 import org.n52.shetland.ogc.swe.simpleType.SweText;
+import org.n52.shetland.util.DateTimeHelper;
 import org.n52.sos.ds.AbstractInsertResultHandler;
+import org.n52.sos.ds.ResultColumnPlan;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.FormatDAO;
+import org.n52.sos.ds.hibernate.dao.OfferingDAO;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationFactory;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetValueUpdates;
+import org.n52.sos.ds.hibernate.util.DatasetLocks;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
 import org.n52.sos.ds.hibernate.util.observation.ObservationUnfolder;
+import org.n52.sos.util.ResultValuesTokenizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -119,6 +145,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
 
     private static final int FLUSH_THRESHOLD = 50;
 
+    private static final String ERROR_PARSING_TIME = "Error while parse time String to DateTime!";
+
     @Inject
     private ConnectionProvider connectionProvider;
 
@@ -127,12 +155,16 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
 
     private HibernateSessionHolder sessionHolder;
 
+    private DatasetLocks datasetLocks;
+
     private boolean convertComplexProfileToSingleProfiles;
 
     private boolean abortInsertResultForExistingObservations;
 
     private ResultHandlingHelper helper;
 
+    private boolean useColumnPlan = true;
+
     public InsertResultHandler() {
         super(SosConstants.SOS);
     }
@@ -145,26 +177,43 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     }
 
     @Override
-    public synchronized InsertResultResponse insertResult(final InsertResultRequest request)
+    public InsertResultResponse insertResult(final InsertResultRequest request)
             throws OwsExceptionReport {
         final InsertResultResponse response = new InsertResultResponse();
         response.setService(request.getService());
         response.setVersion(request.getVersion());
         Session session = null;
         Transaction transaction = null;
+        DatasetLocks.Lease lease = null;
 
         Map<String, CodespaceEntity> codespaceCache = Maps.newHashMap();
         Map<UoM, UnitEntity> unitCache = Maps.newHashMap();
         Map<String, FormatEntity> formatCache = Maps.newHashMap();
+        DatasetValueUpdates datasetUpdates = new DatasetValueUpdates();
 
         try {
             session = getHibernateSessionHolder().getSession();
             final ResultTemplateEntity resultTemplate = getDaoFactory().getResultTemplateDAO()
                     .getResultTemplateObject(request.getTemplateIdentifier(), session);
-            transaction = session.beginTransaction();
-            final OmObservation o = getSingleObservationFromResultValues(response.getVersion(), resultTemplate,
-                    request.getResultValues(), session);
+            final ResultTemplateRegistry.Template template = getResultTemplate(resultTemplate.getIdentifier(),
+                    resultTemplate.getStructure(), resultTemplate.getEncoding());
+            final OmObservationConstellation constellation = getSosObservationConstellation(resultTemplate, session);
+            final Optional<ResultColumnPlan> columnPlan = getColumnPlan(template, resultTemplate, constellation);
+            if (columnPlan.isPresent()) {
+                final List<List<String>> blockValues = getBlockValues(request.getResultValues(), template);
+                lease = getDatasetLocks()
+                        .lock(getLockKeys(constellation, getFeatures(resultTemplate, columnPlan.get(), blockValues)));
+                transaction = session.beginTransaction();
+                response.setObservations(insertResultValues(resultTemplate, constellation, columnPlan.get(),
+                        blockValues, codespaceCache, unitCache, formatCache, datasetUpdates, session));
+                transaction.commit();
+                return response;
+            }
+            final OmObservation o = getSingleObservationFromResultValues(template, resultTemplate,
+                    request.getResultValues(), constellation);
             final List<OmObservation> observations = getSingleObservationsFromObservation(o);
+            lease = getDatasetLocks().lock(getLockKeys(observations));
+            transaction = session.beginTransaction();
             if (o.getObservationConstellation().isSetFeatureOfInterest()
                     && o.getObservationConstellation().isSetProcedure()) {
                 response.setObservation(o);
@@ -178,6 +227,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
 
             int insertion = 0;
             final int size = observations.size();
+            // the observations are only flushed in chunks, so round the chunk up to full JDBC batches
+            final int flushThreshold = HibernateHelper.getFlushSize(session, FLUSH_THRESHOLD);
             final AbstractObservationDAO observationDAO = getDaoFactory().getObservationDAO();
             LOGGER.debug("Start saving {} observations.", size);
             Map<String, AbstractFeatureEntity> featureEntityMap = new HashMap<>();
@@ -219,10 +270,10 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                 try {
                     if (observation.getValue() instanceof SingleObservationValue) {
                         observationDAO.insertObservationSingleValue(obsConst, feature, observation, codespaceCache,
-                                unitCache, formatCache, session);
+                                unitCache, formatCache, datasetUpdates, session);
                     } else if (observation.getValue() instanceof MultiObservationValues) {
                         observationDAO.insertObservationMultiValue(obsConst, feature, observation, codespaceCache,
-                                unitCache, formatCache, session);
+                                unitCache, formatCache, datasetUpdates, session);
                     }
                 } catch (NoApplicableCodeException nace) {
                     if (abortInsertResultForExistingObservations()) {
@@ -231,12 +282,14 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                         LOGGER.debug("Already existing observation would be ignored!", nace);
                     }
                 }
-                if ((++insertion % FLUSH_THRESHOLD) == 0) {
+                if ((++insertion % flushThreshold) == 0) {
+                    datasetUpdates.flush(obsConstDao, session);
                     session.flush();
                     session.clear();
                     LOGGER.debug("Saved {}/{} observations.", insertion, size);
                 }
             }
+            datasetUpdates.flush(obsConstDao, session);
             LOGGER.debug("Saved {} observations.", size);
             transaction.commit();
         } catch (final HibernateException he) {
@@ -245,12 +298,329 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
             }
             // XXX exception text
             throw new NoApplicableCodeException().causedBy(he);
+        } catch (final OwsExceptionReport owse) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw owse;
         } finally {
+            if (lease != null) {
+                lease.close();
+            }
             getHibernateSessionHolder().returnSession(session);
         }
         return response;
     }
 
+    /**
+     * Get the keys of the datasets and features that are modified by the
+     * unfolded observations.
+     *
+     * @param observations
+     *            the unfolded observations
+     * @return the lock keys
+     */
+    private Set<String> getLockKeys(List<OmObservation> observations) {
+        Set<String> keys = Sets.newHashSet();
+        for (OmObservation observation : observations) {
+            OmObservationConstellation constellation = observation.getObservationConstellation();
+            addLockKeys(keys, constellation, constellation.getFeatureOfInterestIdentifier());
+        }
+        return keys;
+    }
+
+    /**
+     * Get the keys of the datasets and features that are modified by the
+     * result values of the features.
+     *
+     * @param constellation
+     *            the observation constellation of the result template
+     * @param features
+     *            the feature identifiers of the result values
+     * @return the lock keys
+     */
+    private Set<String> getLockKeys(OmObservationConstellation constellation, Set<String> features) {
+        Set<String> keys = Sets.newHashSet();
+        for (String feature : features) {
+            addLockKeys(keys, constellation, feature);
+        }
+        return keys;
+    }
+
+    private void addLockKeys(Set<String> keys, OmObservationConstellation constellation, String feature) {
+        keys.add(DatasetLocks.featureKey(feature));
+        for (String offering : constellation.getOfferings()) {
+            keys.add(DatasetLocks.datasetKey(constellation.getProcedureIdentifier(),
+                    constellation.getObservablePropertyIdentifier(), feature, offering));
+        }
+    }
+
+    /**
+     * Get the column plan of the result template if its result values can be
+     * inserted without unfolding them to observations.
+     *
+     * @param template
+     *            the decoded result template
+     * @param resultTemplate
+     *            the result template entity
+     * @param constellation
+     *            the observation constellation of the result template
+     * @return the column plan or an empty {@link Optional}
+     */
+    private Optional<ResultColumnPlan> getColumnPlan(ResultTemplateRegistry.Template template,
+            ResultTemplateEntity resultTemplate, OmObservationConstellation constellation) {
+        if (!useColumnPlan || template.getTokenSeparator() == null || template.getBlockSeparator() == null
+                || !resultTemplate.isSetProcedure() || OmConstants.OBS_TYPE_PROFILE_OBSERVATION
+                        .equals(constellation.getObservationType())
+                || OmConstants.OBS_TYPE_COMPLEX_OBSERVATION.equals(constellation.getObservationType())) {
+            return Optional.empty();
+        }
+        return template.getColumnPlan()
+                .filter(plan -> plan.hasFeatureOfInterest() || resultTemplate.isSetFeature());
+    }
+
+    /**
+     * Get the identifiers of the features of the result values and check the
+     * number of tokens of each block.
+     *
+     * @param resultTemplate
+     *            the result template entity
+     * @param plan
+     *            the column plan of the result template
+     * @param blockValues
+     *            Tokens of the blocks from result values
+     * @return the feature identifiers
+     * @throws OwsExceptionReport
+     *             If a block does not match the result structure
+     */
+    private Set<String> getFeatures(ResultTemplateEntity resultTemplate, ResultColumnPlan plan,
+            List<List<String>> blockValues) throws OwsExceptionReport {
+        Set<String> features = new HashSet<>();
+        for (List<String> block : blockValues) {
+            if (block.size() != plan.getColumnCount()) {
+                throw invalidResultValues(null);
+            }
+            features.add(getFeatureIdentifier(resultTemplate, plan, block));
+        }
+        return features;
+    }
+
+    private String getFeatureIdentifier(ResultTemplateEntity resultTemplate, ResultColumnPlan plan,
+            List<String> block) throws OwsExceptionReport {
+        if (resultTemplate.isSetFeature()) {
+            return resultTemplate.getFeature().getIdentifier();
+        }
+        String feature = block.get(plan.getFeatureOfInterestIndex());
+        if (feature == null || feature.isEmpty()) {
+            throw invalidResultValues(null);
+        }
+        return feature;
+    }
+
+    /**
+     * Insert the result values of a flat result structure without unfolding
+     * them to observations. The first value of a feature in each flushed chunk
+     * is inserted as observation to get or create the dataset, the following
+     * values are created directly from the tokens.
+     *
+     * @param resultTemplate
+     *            the result template entity
+     * @param constellation
+     *            the observation constellation of the result template
+     * @param plan
+     *            the column plan of the result template
+     * @param blockValues
+     *            Tokens of the blocks from result values
+     * @param codespaceCache
+     *            the codespace cache
+     * @param unitCache
+     *            the unit cache
+     * @param formatCache
+     *            the format cache
+     * @param datasetUpdates
+     *            the first/last values of the modified datasets
+     * @param session
+     *            Hibernate session
+     * @return one observation per feature covering the times of the inserted
+     *         values
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private List<OmObservation> insertResultValues(ResultTemplateEntity resultTemplate,
+            OmObservationConstellation constellation, ResultColumnPlan plan, List<List<String>> blockValues,
+            Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
+            Map<String, FormatEntity> formatCache, DatasetValueUpdates datasetUpdates, Session session)
+            throws OwsExceptionReport {
+        final AbstractSeriesDAO obsConstDao = getDaoFactory().getSeriesDAO();
+        final AbstractObservationDAO observationDAO = getDaoFactory().getObservationDAO();
+        final ObservationFactory observationFactory = observationDAO.getObservationFactory();
+        final OfferingDAO offeringDAO = getDaoFactory().getOfferingDAO();
+        final int flushThreshold = HibernateHelper.getFlushSize(session, FLUSH_THRESHOLD);
+        final int size = blockValues.size();
+        Map<String, AbstractFeatureEntity> featureEntityMap = new HashMap<>();
+        Map<String, DatasetEntity> obsConsts = new HashMap<>();
+        // the datasets of the current chunk, they are detached after the session is cleared
+        Map<String, DatasetEntity> datasets = new HashMap<>();
+        Map<String, ResultExtent> extents = new LinkedHashMap<>();
+        int insertion = 0;
+        LOGGER.debug("Start saving {} observations.", size);
+        for (final List<String> block : blockValues) {
+            final String featureIdentifier = getFeatureIdentifier(resultTemplate, plan, block);
+            final DateTime[] phenomenonTime = getPhenomenonTime(plan, block);
+            final DateTime resultTime = plan.hasResultTime() ? parseTime(block.get(plan.getResultTimeIndex()))
+                    : phenomenonTime[1];
+            final String token = block.get(plan.getValueIndex());
+            DatasetEntity dataset = datasets.get(featureIdentifier);
+            if (dataset == null) {
+                OmObservationConstellation omObsConst = constellation.copy();
+                omObsConst.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority(featureIdentifier)));
+                OmObservation observation = new OmObservation();
+                observation.setObservationConstellation(omObsConst);
+                observation.setResultTime(new TimeInstant(resultTime));
+                observation.setValue(new SingleObservationValue<>(toTime(plan, phenomenonTime),
+                        createValue(plan, token)));
+                if (!obsConsts.containsKey(featureIdentifier)) {
+                    obsConsts.put(featureIdentifier, obsConstDao.getSeries(omObsConst, session));
+                }
+                AbstractFeatureEntity feature = resultTemplate.isSetFeature() ? resultTemplate.getFeature()
+                        : getFeature(omObsConst.getFeatureOfInterest(), featureEntityMap, session);
+                try {
+                    dataset = observationDAO.insertObservationSingleValue(obsConsts.get(featureIdentifier), feature,
+                            observation, codespaceCache, unitCache, formatCache, datasetUpdates, session);
+                    datasets.put(featureIdentifier, dataset);
+                } catch (NoApplicableCodeException nace) {
+                    if (abortInsertResultForExistingObservations()) {
+                        throw nace;
+                    } else {
+                        LOGGER.debug("Already existing observation would be ignored!", nace);
+                    }
+                }
+                if (!extents.containsKey(featureIdentifier)) {
+                    extents.put(featureIdentifier, new ResultExtent(observation));
+                }
+            } else {
+                DataEntity<?> observation = createDataEntity(observationFactory, plan, token);
+                observation.setDeleted(false);
+                observation.setStaIdentifier(observation.generateUUID());
+                observation.setSamplingTimeStart(phenomenonTime[0].toDate());
+                observation.setSamplingTimeEnd(phenomenonTime[1].toDate());
+                observation.setResultTime(resultTime.toDate());
+                observation.setDataset(dataset);
+                offeringDAO.updateOfferingTimes(dataset.getOffering(), observation);
+                session.save(observation);
+                datasetUpdates.add(dataset, observation);
+            }
+            extents.get(featureIdentifier).add(phenomenonTime, resultTime);
+            if ((++insertion % flushThreshold) == 0) {
+                datasetUpdates.flush(obsConstDao, session);
+                session.flush();
+                session.clear();
+                datasets.clear();
+                LOGGER.debug("Saved {}/{} observations.", insertion, size);
+            }
+        }
+        datasetUpdates.flush(obsConstDao, session);
+        LOGGER.debug("Saved {} observations.", size);
+        List<OmObservation> observations = new ArrayList<>(extents.size());
+        for (ResultExtent extent : extents.values()) {
+            observations.add(extent.toObservation());
+        }
+        return observations;
+    }
+
+    private DateTime[] getPhenomenonTime(ResultColumnPlan plan, List<String> block) throws OwsExceptionReport {
+        String token = block.get(plan.getPhenomenonTimeIndex());
+        if (plan.isPhenomenonTimeRange()) {
+            String[] subTokens = token.split("/");
+            if (subTokens.length != 2) {
+                throw new NoApplicableCodeException()
+                        .withMessage(ERROR_PARSING_TIME + " A time range is expected instead of an instance!");
+            }
+            return new DateTime[] { parseTime(subTokens[0]), parseTime(subTokens[1]) };
+        }
+        DateTime time = parseTime(token);
+        return new DateTime[] { time, time };
+    }
+
+    private DateTime parseTime(String token) throws OwsExceptionReport {
+        try {
+            return DateTimeHelper.parseIsoString2DateTime(token);
+        } catch (final Exception e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage(ERROR_PARSING_TIME);
+        }
+    }
+
+    private static Time toTime(ResultColumnPlan plan, DateTime[] phenomenonTime) {
+        if (plan.isPhenomenonTimeRange()) {
+            return new TimePeriod(phenomenonTime[0], phenomenonTime[1]);
+        }
+        return new TimeInstant(phenomenonTime[0]);
+    }
+
+    private Value<?> createValue(ResultColumnPlan plan, String token) throws OwsExceptionReport {
+        try {
+            Value<?> value;
+            switch (plan.getValueType()) {
+                case QUANTITY:
+                    value = new QuantityValue(Double.parseDouble(token));
+                    value.setUnit(plan.getUnit());
+                    return value;
+                case COUNT:
+                    return new CountValue(Integer.parseInt(token));
+                case BOOLEAN:
+                    return new BooleanValue(Boolean.parseBoolean(token));
+                case CATEGORY:
+                    value = new CategoryValue(token);
+                    value.setUnit(plan.getUnit());
+                    return value;
+                default:
+                    return new TextValue(token);
+            }
+        } catch (final NumberFormatException nfe) {
+            throw invalidResultValues(nfe);
+        }
+    }
+
+    private DataEntity<?> createDataEntity(ObservationFactory observationFactory, ResultColumnPlan plan,
+            String token) throws OwsExceptionReport {
+        try {
+            switch (plan.getValueType()) {
+                case QUANTITY:
+                    QuantityDataEntity quantity = observationFactory.numeric();
+                    quantity.setValue(BigDecimal.valueOf(Double.parseDouble(token)));
+                    return quantity;
+                case COUNT:
+                    CountDataEntity count = observationFactory.count();
+                    count.setValue(Integer.parseInt(token));
+                    return count;
+                case BOOLEAN:
+                    BooleanDataEntity truth = observationFactory.truth();
+                    truth.setValue(Boolean.parseBoolean(token));
+                    return truth;
+                case CATEGORY:
+                    CategoryDataEntity category = observationFactory.category();
+                    category.setValue(token);
+                    return category;
+                default:
+                    TextDataEntity text = observationFactory.text();
+                    text.setValue(token);
+                    return text;
+            }
+        } catch (final NumberFormatException nfe) {
+            throw invalidResultValues(nfe);
+        }
+    }
+
+    private static InvalidParameterValueException invalidResultValues(Exception cause) {
+        InvalidParameterValueException exception = new InvalidParameterValueException();
+        if (cause != null) {
+            exception.causedBy(cause);
+        }
+        exception.at(Sos2Constants.InsertResultParams.resultValues)
+                .withMessage("The resultValues format does not comply to the resultStructure of the resultTemplate!");
+        return exception;
+    }
+
     @Override
     public boolean isSupported() {
         return HibernateHelper.isEntitySupported(ResultTemplateEntity.class);
@@ -283,26 +653,26 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     /**
      * Create OmObservation from result values
      *
-     * @param version
-     *            Service version
+     * @param template
+     *            Decoded result template
      * @param resultTemplate
      *            Associated result template
      * @param resultValues
      *            Result values
-     * @param session
-     *            Hibernate session
+     * @param constellation
+     *            Observation constellation of the result template
      * @return OmObservation from result values
      * @throws OwsExceptionReport
      *             If an error occurs during the processing
      */
-    private OmObservation getSingleObservationFromResultValues(final String version,
-            final ResultTemplateEntity resultTemplate, final String resultValues, final Session session)
-            throws OwsExceptionReport {
-        final SosResultEncoding resultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
-        final SosResultStructure resultStructure = createSosResultStructure(resultTemplate.getStructure());
-        final String[] blockValues = getBlockValues(resultValues, resultEncoding.get().get());
-        final OmObservation singleObservation = getObservation(resultTemplate, blockValues,
-                resultStructure.get().get(), resultEncoding.get().get(), session);
+    private OmObservation getSingleObservationFromResultValues(final ResultTemplateRegistry.Template template,
+            final ResultTemplateEntity resultTemplate, final String resultValues,
+            final OmObservationConstellation constellation) throws OwsExceptionReport {
+        final SosResultEncoding resultEncoding = template.getResultEncoding();
+        final SosResultStructure resultStructure = template.getResultStructure();
+        final List<List<String>> blockValues = getBlockValues(resultValues, template);
+        final OmObservation singleObservation = getObservation(blockValues, resultStructure.get().get(),
+                resultEncoding.get().get(), constellation);
         // final AbstractFeature feature =
         // getSosAbstractFeature(resultTemplate.getFeatureOfInterest(), version,
         // session);
@@ -327,9 +697,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
             return new ObservationUnfolder(observation, getDaoFactory().getSweHelper(),
                     getDaoFactory().getGeometryHandler()).unfold(isConvertComplexProfileToSingleProfiles());
         } catch (final Exception e) {
-            throw new InvalidParameterValueException().causedBy(e).at(Sos2Constants.InsertResultParams.resultValues)
-                    .withMessage(
-                            "The resultValues format does not comply to the resultStructure of the resultTemplate!");
+            throw invalidResultValues(e);
         }
     }
 
@@ -385,27 +753,27 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     /**
      * Get internal observation
      *
-     * @param resultTemplate
-     *            Associated ResultTemplate
      * @param blockValues
-     *            Block values from result values
+     *            Tokens of the blocks from result values
      * @param resultStructure
      *            Associated ResultStructure
      * @param encoding
      *            Associated ResultEncoding
-     * @param session
-     *            Hibernate session
+     * @param constellation
+     *            Observation constellation of the result template
      * @return Internal observation
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final String[] blockValues,
-            final SweAbstractDataComponent resultStructure, final SweAbstractEncoding encoding, final Session session)
-            throws OwsExceptionReport {
+    private OmObservation getObservation(final List<List<String>> blockValues,
+            final SweAbstractDataComponent resultStructure, final SweAbstractEncoding encoding,
+            final OmObservationConstellation constellation) throws OwsExceptionReport {
         final int resultTimeIndex = helper.hasResultTime(resultStructure);
         final int phenomenonTimeIndex = helper.hasPhenomenonTime(resultStructure);
 
-        final SweDataRecord record = setRecordFrom(resultStructure);
+        // copy the record of the shared result template, it becomes part of the observation and getIndexFor
+        // sets the encoding of nested arrays
+        final SweDataRecord record = setRecordFrom(resultStructure).copy();
 
         final Map<Integer, String> observedProperties = new HashMap<Integer, String>(record.getFields().size() - 1);
         final Map<Integer, String> units = new HashMap<Integer, String>(record.getFields().size() - 1);
@@ -420,7 +788,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                 createObservationValueFrom(blockValues, record, encoding, resultTimeIndex, phenomenonTimeIndex);
 
         final OmObservation observation = new OmObservation();
-        observation.setObservationConstellation(getSosObservationConstellation(resultTemplate, session));
+        observation.setObservationConstellation(constellation);
         observation.setResultType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
         observation.setValue(sosValues);
         return observation;
@@ -481,7 +849,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      * Create internal observation value
      *
      * @param blockValues
-     *            Block values from result values
+     *            Tokens of the blocks from result values
      * @param recordFromResultStructure
      *            Associated ResultStructure
      * @param encoding
@@ -494,7 +862,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private MultiObservationValues<SweDataArray> createObservationValueFrom(final String[] blockValues,
+    private MultiObservationValues<SweDataArray> createObservationValueFrom(final List<List<String>> blockValues,
             final SweAbstractDataComponent recordFromResultStructure, final SweAbstractEncoding encoding,
             final int resultTimeIndex, final int phenomenonTimeIndex) throws OwsExceptionReport {
         final SweDataArray dataArray = new SweDataArray();
@@ -504,13 +872,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         final SweDataArrayValue dataArrayValue = new SweDataArrayValue();
         dataArrayValue.setValue(dataArray);
 
-        for (final String block : blockValues) {
-            if (block != null && !block.isEmpty()) {
-                final String[] singleValues = getSingleValues(block, encoding);
-                if (singleValues != null && singleValues.length > 0) {
-                    dataArrayValue.addBlock(Arrays.asList(singleValues));
-                }
-            }
+        for (final List<String> block : blockValues) {
+            dataArrayValue.addBlock(block);
         }
         final MultiObservationValues<SweDataArray> sosValues = new MultiObservationValues<SweDataArray>();
         sosValues.setValue(dataArrayValue);
@@ -518,74 +881,24 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     }
 
     /**
-     * Get single values from a block value
-     *
-     * @param block
-     *            Block value
-     * @param encoding
-     *            ResultEncoding
-     * @return Single value array
-     */
-    private String[] getSingleValues(final String block, final SweAbstractEncoding encoding) {
-        if (encoding instanceof SweTextEncoding) {
-            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            return separateValues(block, textEncoding.getTokenSeparator());
-        }
-        return null;
-    }
-
-    /**
-     * Get block values from result values
+     * Get the tokens of the blocks from result values
      *
      * @param resultValues
      *            Result values
-     * @param encoding
-     *            ResultEncoding
-     * @return Block value array
-     */
-    private String[] getBlockValues(final String resultValues, final SweAbstractEncoding encoding) {
-        if (encoding instanceof SweTextEncoding) {
-            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            final String[] blockValues = separateValues(resultValues, textEncoding.getBlockSeparator());
-            return checkForCountValue(blockValues, textEncoding.getTokenSeparator());
-        }
-        return null;
-    }
-
-    /**
-     * Check if the block values from result values contains a preceding count
-     * value
-     *
-     * @param blockValues
-     *            Block values from result values
-     * @param tokenSeparator
-     *            Token separator
-     * @return Block value array without preceding count value
+     * @param template
+     *            Decoded result template
+     * @return Tokens of the non empty blocks without a preceding count value
+     * @throws OwsExceptionReport
+     *             If the encoding is not supported
      */
-    private String[] checkForCountValue(final String[] blockValues, final String tokenSeparator) {
-        if (blockValues != null && blockValues.length > 0) {
-            if (blockValues[0].contains(tokenSeparator)) {
-                return blockValues;
-            } else {
-                final String[] blockValuesWithoutCount = new String[blockValues.length - 1];
-                System.arraycopy(blockValues, 1, blockValuesWithoutCount, 0, blockValuesWithoutCount.length);
-                return blockValuesWithoutCount;
-            }
+    private List<List<String>> getBlockValues(final String resultValues,
+            final ResultTemplateRegistry.Template template) throws OwsExceptionReport {
+        if (template.getTokenSeparator() != null && template.getBlockSeparator() != null) {
+            return new ResultValuesTokenizer(template.getTokenSeparator(), template.getBlockSeparator())
+                    .tokenize(resultValues);
         }
-        return null;
-    }
-
-    /**
-     * Separate values from String with separator
-     *
-     * @param values
-     *            Value String
-     * @param separator
-     *            Separator
-     * @return Separated values as array
-     */
-    private String[] separateValues(final String values, final String separator) {
-        return values.split(separator, Integer.MAX_VALUE);
+        throw new NoApplicableCodeException().withMessage("The result encoding of template %s is not supported!",
+                template.getIdentifier());
     }
 
     private DatasetEntity insertObservationConstellationForProfiles(AbstractSeriesDAO obsConstDao,
@@ -624,6 +937,15 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return sessionHolder;
     }
 
+    @Inject
+    public synchronized void setDatasetLocks(DatasetLocks datasetLocks) {
+        this.datasetLocks = datasetLocks;
+    }
+
+    private synchronized DatasetLocks getDatasetLocks() {
+        return datasetLocks;
+    }
+
     @Setting(ABORT_INSERT_RESULT_FOR_EXISTING_OBSERVATIONS)
     public void setAbortInsertResultForExistingObservations(boolean abortInsertResultForExistingObservations) {
         this.abortInsertResultForExistingObservations = abortInsertResultForExistingObservations;
@@ -633,10 +955,61 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return abortInsertResultForExistingObservations;
     }
 
+    /**
+     * Enable or disable the insertion of flat result structures without
+     * unfolding the result values to observations.
+     *
+     * @param useColumnPlan
+     *            if the column plan of the result template should be used
+     */
+    @VisibleForTesting
+    protected void setUseColumnPlan(boolean useColumnPlan) {
+        this.useColumnPlan = useColumnPlan;
+    }
+
     @VisibleForTesting
     protected synchronized void initForTesting(DaoFactory daoFactory, ConnectionProvider connectionProvider) {
         this.daoFactory = daoFactory;
         this.connectionProvider = connectionProvider;
+        if (this.datasetLocks == null) {
+            this.datasetLocks = new DatasetLocks();
+        }
+    }
+
+    /**
+     * Phenomenon and result time extent of the values of a feature.
+     */
+    private static class ResultExtent {
+        private final OmObservation observation;
+
+        private DateTime start;
+
+        private DateTime end;
+
+        private DateTime resultTime;
+
+        ResultExtent(OmObservation observation) {
+            this.observation = observation;
+        }
+
+        void add(DateTime[] phenomenonTime, DateTime result) {
+            if (start == null || start.isAfter(phenomenonTime[0])) {
+                start = phenomenonTime[0];
+            }
+            if (end == null || end.isBefore(phenomenonTime[1])) {
+                end = phenomenonTime[1];
+            }
+            if (resultTime == null || resultTime.isBefore(result)) {
+                resultTime = result;
+            }
+        }
+
+        OmObservation toObservation() {
+            observation.getValue().setPhenomenonTime(start.equals(end) ? new TimeInstant(start)
+                    : new TimePeriod(start, end));
+            observation.setResultTime(new TimeInstant(resultTime));
+            return observation;
+        }
     }
 
 }
@@ -28,7 +28,22 @@
  */
 package org.n52.sos.ds.hibernate.admin;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -37,22 +52,52 @@ import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.query.Query;
+import org.joda.time.DateTime;
 import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.iceland.ds.ConnectionProviderException;
+import org.n52.janmayen.ConfigLocationProvider;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
 import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.AbstractDeleteDeletedDataHandler;
+import org.n52.sos.ds.DeleteDeletedDataProgress;
 import org.n52.sos.ds.hibernate.DeleteDataHelper;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.service.SosSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Physically deletes the deleted datasets and observations. The datasets are
+ * deleted synchronously, the observations are purged by a background job in
+ * chunks of observation id ranges, each committed in its own transaction. The
+ * job can be throttled to a maximum number of rows per second. The id of the
+ * last purged chunk is stored in a state file, so that an interrupted purge is
+ * resumed after a restart, as soon as the datasource is configured.
+ */
 @Configurable
-public class DeleteDeletedDataHandler implements AbstractDeleteDeletedDataHandler, DeleteDataHelper, Constructable {
+public class DeleteDeletedDataHandler
+        implements AbstractDeleteDeletedDataHandler, DeleteDataHelper, Constructable, Destroyable {
 
     private static final Logger LOG = LoggerFactory.getLogger(DeleteDeletedDataHandler.class);
+
+    private static final String STATE_FILE = "purge-deleted-observations.properties";
+
+    private static final String STATE_LAST_ID = "lastId";
+
+    private static final String LOWER = "lower";
+
+    private static final String UPPER = "upper";
+
+    private static final long CONNECTION_RETRY_INTERVAL = 5000;
+
     private HibernateSessionHolder sessionHolder;
 
     @Inject
@@ -61,13 +106,63 @@ public class DeleteDeletedDataHandler implements AbstractDeleteDeletedDataHandle
     @Inject
     private ConnectionProvider connectionProvider;
 
+    @Inject
+    private ConfigLocationProvider configLocationProvider;
+
+    private int chunkSize = 10000;
+
+    private int rowsPerSecond;
+
+    private ExecutorService executor;
+
+    private volatile DeleteDeletedDataProgress progress;
+
+    @Setting(SosSettings.PURGE_CHUNK_SIZE)
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize != null && chunkSize > 0 ? chunkSize : 10000;
+    }
+
+    @Setting(SosSettings.PURGE_ROWS_PER_SECOND)
+    public void setRowsPerSecond(Integer rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond != null && rowsPerSecond > 0 ? rowsPerSecond : 0;
+    }
+
+    protected synchronized void initForTesting(DaoFactory daoFactory, ConnectionProvider connectionProvider,
+            ConfigLocationProvider configLocationProvider) {
+        this.daoFactory = daoFactory;
+        this.connectionProvider = connectionProvider;
+        this.configLocationProvider = configLocationProvider;
+    }
+
     @Override
     public void init() {
         sessionHolder = new HibernateSessionHolder(connectionProvider);
+        executor = Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("52n-purge"));
+        Optional<Long> lastId = readState();
+        if (lastId.isPresent()) {
+            LOG.info("Resuming the purge of deleted observations after id {}", lastId.get());
+            startPurge(lastId.get());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     @Override
     public synchronized void deleteDeletedData() throws OwsExceptionReport {
+        if (isPurgeRunning()) {
+            LOG.info("The purge of deleted observations is already running!");
+            return;
+        }
         Session session = null;
         Transaction transaction = null;
         try {
@@ -83,7 +178,6 @@ public class DeleteDeletedDataHandler implements AbstractDeleteDeletedDataHandle
                     deleteDataset(dataset, session);
                 }
             }
-            deleteDeletedObservations(session);
             session.flush();
             transaction.commit();
         } catch (HibernateException he) {
@@ -94,6 +188,24 @@ public class DeleteDeletedDataHandler implements AbstractDeleteDeletedDataHandle
         } finally {
             getHibernateSessionHolder().returnSession(session);
         }
+        purgeDeletedObservations();
+    }
+
+    /**
+     * Start the background purge of the observations that are flagged as
+     * deleted, if it is not already running.
+     */
+    public synchronized void purgeDeletedObservations() {
+        if (isPurgeRunning()) {
+            LOG.info("The purge of deleted observations is already running!");
+        } else {
+            startPurge(0L);
+        }
+    }
+
+    @Override
+    public Optional<DeleteDeletedDataProgress> getProgress() {
+        return Optional.ofNullable(progress);
     }
 
     @Override
@@ -115,4 +227,200 @@ public class DeleteDeletedDataHandler implements AbstractDeleteDeletedDataHandle
         return sessionHolder;
     }
 
+    private boolean isPurgeRunning() {
+        DeleteDeletedDataProgress current = this.progress;
+        return current != null && current.isRunning();
+    }
+
+    private synchronized void startPurge(long lastId) {
+        this.progress = new DeleteDeletedDataProgress(true, 0, 0, lastId, DateTime.now(), null, null);
+        executor.execute(() -> purge(lastId));
+    }
+
+    private void purge(long startId) {
+        DateTime started = progress.getStarted();
+        long lastId = startId;
+        long deleted = 0;
+        try {
+            awaitConnectionProvider();
+            long total = countDeletedObservations(startId);
+            writeState(lastId);
+            Optional<Long> lower = getNextDeletedObservationId(lastId);
+            while (lower.isPresent()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                long chunkStart = System.nanoTime();
+                // the id range (lower - 1, lower - 1 + chunkSize]
+                long upper = lower.get() - 1 + chunkSize;
+                int count = purgeChunk(lower.get() - 1, upper);
+                lastId = upper;
+                deleted += count;
+                writeState(lastId);
+                this.progress = new DeleteDeletedDataProgress(true, deleted, Math.max(0, total - deleted), lastId,
+                        started, null, null);
+                LOG.debug("Purged {} deleted observations up to id {}", count, lastId);
+                throttle(count, chunkStart);
+                lower = getNextDeletedObservationId(lastId);
+            }
+            deleteState();
+            this.progress = new DeleteDeletedDataProgress(false, deleted, 0, lastId, started, DateTime.now(), null);
+            LOG.info("Purged {} deleted observations", deleted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.progress = new DeleteDeletedDataProgress(false, deleted, 0, lastId, started, DateTime.now(),
+                    "Interrupted");
+            LOG.info("The purge of deleted observations was interrupted after id {}", lastId);
+        } catch (OwsExceptionReport | IOException | RuntimeException e) {
+            // any failure has to end the run, otherwise later purges are blocked
+            this.progress = new DeleteDeletedDataProgress(false, deleted, 0, lastId, started, DateTime.now(),
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+            LOG.error("Error while purging the deleted observations!", e);
+        }
+    }
+
+    /**
+     * Wait until the connection provider delivers connections. A purge that is
+     * resumed while the service starts may run before the datasource is
+     * configured.
+     *
+     * @throws InterruptedException
+     *             if the purge is interrupted while waiting
+     */
+    private void awaitConnectionProvider() throws InterruptedException {
+        while (!isConnectionProviderReady()) {
+            LOG.debug("Waiting for the datasource to purge the deleted observations");
+            TimeUnit.MILLISECONDS.sleep(CONNECTION_RETRY_INTERVAL);
+        }
+    }
+
+    private boolean isConnectionProviderReady() {
+        Object connection = null;
+        try {
+            connection = connectionProvider.getConnection();
+            return connection != null;
+        } catch (ConnectionProviderException | RuntimeException e) {
+            LOG.debug("The datasource is not available", e);
+            return false;
+        } finally {
+            if (connection != null) {
+                connectionProvider.returnConnection(connection);
+            }
+        }
+    }
+
+    protected int purgeChunk(long lower, long upper) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = getHibernateSessionHolder().getSession();
+            transaction = session.beginTransaction();
+            Query<?> q = session.createQuery("select " + DataEntity.PROPERTY_ID + ", "
+                    + DataEntity.PROPERTY_DATASET_ID + FROM_PARAMETER + getObservationEntityName()
+                    + getDeletedRangeRestriction());
+            q.setParameter(DataEntity.PROPERTY_DELETED, true);
+            q.setParameter(LOWER, lower);
+            q.setParameter(UPPER, upper);
+            Map<Long, Long> observations = new LinkedHashMap<>();
+            for (Object[] row : (List<Object[]>) q.list()) {
+                observations.put((Long) row[0], (Long) row[1]);
+            }
+            if (!observations.isEmpty()) {
+                deleteObservations(observations.keySet(), session);
+                checkSeriesForFirstLatest(new LinkedHashSet<>(observations.values()), session);
+            }
+            transaction.commit();
+            return observations.size();
+        } catch (RuntimeException | OwsExceptionReport e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            getHibernateSessionHolder().returnSession(session);
+        }
+    }
+
+    private long countDeletedObservations(long lastId) {
+        Session session = null;
+        try {
+            session = getHibernateSessionHolder().getSession();
+            Query<?> q = session.createQuery("select count(" + DataEntity.PROPERTY_ID + ")" + FROM_PARAMETER
+                    + getObservationEntityName() + WHERE_PARAMETER + DataEntity.PROPERTY_DELETED + EQUAL_PARAMETER
+                    + DataEntity.PROPERTY_DELETED + AND_PARAMETER + DataEntity.PROPERTY_ID + " > :" + LOWER);
+            q.setParameter(DataEntity.PROPERTY_DELETED, true);
+            q.setParameter(LOWER, lastId);
+            Object count = q.uniqueResult();
+            return count instanceof Number ? ((Number) count).longValue() : 0;
+        } finally {
+            getHibernateSessionHolder().returnSession(session);
+        }
+    }
+
+    private Optional<Long> getNextDeletedObservationId(long lastId) {
+        Session session = null;
+        try {
+            session = getHibernateSessionHolder().getSession();
+            Query<?> q = session.createQuery("select min(" + DataEntity.PROPERTY_ID + ")" + FROM_PARAMETER
+                    + getObservationEntityName() + WHERE_PARAMETER + DataEntity.PROPERTY_DELETED + EQUAL_PARAMETER
+                    + DataEntity.PROPERTY_DELETED + AND_PARAMETER + DataEntity.PROPERTY_ID + " > :" + LOWER);
+            q.setParameter(DataEntity.PROPERTY_DELETED, true);
+            q.setParameter(LOWER, lastId);
+            Object id = q.uniqueResult();
+            return id instanceof Number ? Optional.of(((Number) id).longValue()) : Optional.empty();
+        } finally {
+            getHibernateSessionHolder().returnSession(session);
+        }
+    }
+
+    private String getDeletedRangeRestriction() {
+        return WHERE_PARAMETER + DataEntity.PROPERTY_DELETED + EQUAL_PARAMETER + DataEntity.PROPERTY_DELETED
+                + AND_PARAMETER + DataEntity.PROPERTY_ID + " > :" + LOWER + AND_PARAMETER + DataEntity.PROPERTY_ID
+                + " <= :" + UPPER;
+    }
+
+    private void throttle(int count, long chunkStart) throws InterruptedException {
+        if (rowsPerSecond > 0 && count > 0) {
+            long minimum = TimeUnit.SECONDS.toNanos(count) / rowsPerSecond;
+            long remaining = minimum - (System.nanoTime() - chunkStart);
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+        }
+    }
+
+    private Path getStateFile() {
+        return Paths.get(configLocationProvider.get(), STATE_FILE);
+    }
+
+    private Optional<Long> readState() {
+        Path file = getStateFile();
+        if (Files.isRegularFile(file)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+                return Optional.of(Long.valueOf(properties.getProperty(STATE_LAST_ID, "0")));
+            } catch (IOException | NumberFormatException e) {
+                LOG.warn("Could not read the purge state file {}", file, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void writeState(long lastId) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(STATE_LAST_ID, Long.toString(lastId));
+        // replace the state file atomically, an interrupted write must not lose the progress
+        Path file = getStateFile();
+        Path tmp = file.resolveSibling(STATE_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "Progress of the purge of deleted observations");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteState() throws IOException {
+        Files.deleteIfExists(getStateFile());
+    }
+
 }
@@ -30,20 +30,8 @@ package org.n52.sos.ds.hibernate.admin;
 
 import javax.inject.Inject;
 
-import org.hibernate.Criteria;
-import org.hibernate.HibernateException;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
-import org.hibernate.criterion.Restrictions;
-import org.n52.iceland.ds.ConnectionProvider;
-import org.n52.series.db.beans.DataEntity;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.DeleteDeletedObservationDAO;
-import org.n52.sos.ds.hibernate.HibernateSessionHolder;
-import org.n52.sos.ds.hibernate.util.HibernateHelper;
-import org.n52.sos.ds.hibernate.util.ScrollableIterable;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
@@ -55,53 +43,19 @@ import org.slf4j.LoggerFactory;
 @Deprecated
 public class HibernateDeleteDeletedObservationsDAO implements DeleteDeletedObservationDAO {
 
-    private static final Logger LOG = LoggerFactory.getLogger(HibernateDeleteDeletedObservationsDAO.class);
-    private HibernateSessionHolder sessionHolder;
+    private DeleteDeletedDataHandler deleteDeletedDataHandler;
 
     @Inject
-    public void setConnectionProvider(ConnectionProvider connectionProvider) {
-        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
-    }
-
-    @Override
-    public void deleteDeletedObservations() throws OwsExceptionReport {
-        Session session = null;
-        Transaction transaction = null;
-        try {
-            session = sessionHolder.getSession();
-            transaction = session.beginTransaction();
-            ScrollableIterable<DataEntity<?>> sr = ScrollableIterable.fromCriteria(getCriteria(session));
-            try {
-                for (DataEntity<?> o : sr) {
-                    session.delete(o);
-                }
-            } finally {
-                sr.close();
-            }
-
-            session.flush();
-            transaction.commit();
-        } catch (HibernateException he) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
-            throw he;
-        } finally {
-            sessionHolder.returnSession(session);
-        }
+    public void setDeleteDeletedDataHandler(DeleteDeletedDataHandler deleteDeletedDataHandler) {
+        this.deleteDeletedDataHandler = deleteDeletedDataHandler;
     }
 
     /**
-     * Get Hibernate Criteria for deleted observations and supported concept
-     *
-     * @param session
-     *            Hibernate session
-     * @return Criteria to query deleted observations
+     * Starts the chunked background purge of the deleted observations, see
+     * {@link DeleteDeletedDataHandler#purgeDeletedObservations()}.
      */
-    private Criteria getCriteria(Session session) {
-        final Criteria criteria = session.createCriteria(DataEntity.class);
-        criteria.add(Restrictions.eq(DataEntity.PROPERTY_DELETED, true));
-        LOG.trace("QUERY getCriteria(): {}", HibernateHelper.getSqlString(criteria));
-        return criteria;
+    @Override
+    public void deleteDeletedObservations() throws OwsExceptionReport {
+        deleteDeletedDataHandler.purgeDeletedObservations();
     }
 }
@@ -96,6 +96,8 @@ public abstract class AbstractObservationDao implements HibernateDao {
 
     private int chunkSize;
 
+    private boolean keysetPagination = true;
+
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
         this.encoderRepository = encoderRepository;
@@ -139,6 +141,26 @@ public abstract class AbstractObservationDao implements HibernateDao {
         return chunkSize;
     }
 
+    /**
+     * Set whether chunks should be queried with keyset pagination
+     *
+     * @param keysetPagination
+     *            <code>true</code>, if keyset pagination should be used
+     */
+    @Setting(HibernateStreamingSettings.KEYSET_PAGINATION)
+    public void setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    /**
+     * Is keyset pagination enabled
+     *
+     * @return <code>true</code>, if keyset pagination should be used
+     */
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
     /**
      * Get ObservationConstellations and check if size limit is exceeded
      *
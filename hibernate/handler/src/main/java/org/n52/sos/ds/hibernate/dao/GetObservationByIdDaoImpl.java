@@ -61,7 +61,6 @@ import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.OmObservationCreatorContext;
 import org.n52.sos.ds.hibernate.values.series.HibernateChunkSeriesStreamingValue;
-import org.n52.sos.ds.hibernate.values.series.HibernateSeriesStreamingValue;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.ObservationEncoder;
@@ -221,10 +220,11 @@ public class GetObservationByIdDaoImpl extends AbstractObservationDao
                             getProcedureDescriptionFormat(request.getResponseFormat()), observationCreatorContext,
                             session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue =
+            HibernateChunkSeriesStreamingValue streamingValue =
                     new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory, request,
                             series.getId(), observationCreatorContext.getBindingRepository(), getChunkSize());
             streamingValue.setResponseFormat(request.getResponseFormat());
+            streamingValue.setKeysetPagination(isKeysetPagination());
             streamingValue.setObservationTemplate(observationTemplate);
             observationTemplate.setValue(streamingValue);
             result.add(observationTemplate);
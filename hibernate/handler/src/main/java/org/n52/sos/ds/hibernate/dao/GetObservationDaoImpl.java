@@ -29,12 +29,19 @@
 package org.n52.sos.ds.hibernate.dao;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -50,6 +57,7 @@ import org.n52.iceland.exception.ows.concrete.NotYetSupportedException;
 import org.n52.iceland.i18n.I18NSettings;
 import org.n52.janmayen.http.HTTPStatus;
 import org.n52.janmayen.i18n.LocaleHelper;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.shetland.ogc.gml.time.IndeterminateValue;
@@ -62,12 +70,13 @@ import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.sos.response.GetObservationResponse;
 import org.n52.shetland.ogc.sos.response.GlobalObservationResponseValues;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
-import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
 import org.n52.sos.ds.hibernate.util.ObservationTimeExtrema;
+import org.n52.sos.ds.hibernate.util.QueryHelper;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.OmObservationCreatorContext;
 import org.n52.sos.ds.hibernate.values.series.HibernateChunkSeriesStreamingValue;
-import org.n52.sos.ds.hibernate.values.series.HibernateSeriesStreamingValue;
+import org.n52.sos.metrics.MetricsRegistry;
+import org.n52.sos.service.SosSettings;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.ObservationEncoder;
@@ -75,15 +84,17 @@ import org.n52.svalbard.encode.XmlEncoderKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 @Configurable
-public class GetObservationDaoImpl extends AbstractObservationDao implements org.n52.sos.ds.dao.GetObservationDao {
+public class GetObservationDaoImpl extends AbstractObservationDao
+        implements org.n52.sos.ds.dao.GetObservationDao, Destroyable {
     private static final Logger LOGGER = LoggerFactory.getLogger(GetObservationDaoImpl.class);
 
     private static final String LOG_TIME_TO_QUERY = "Time to query observations needs {} ms!";
 
+    private static final String DAO_NAME = "GetObservationDao";
+
     private HibernateSessionHolder sessionHolder;
 
     private ProfileHandler profileHandler;
@@ -92,10 +103,14 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
 
     private OmObservationCreatorContext observationCreatorContext;
 
+    private MetricsRegistry metricsRegistry = MetricsRegistry.disabled();
+
     private boolean overallExtrema;
 
     private Locale defaultLanguage;
 
+    private final PartitionedExecutor executor = new PartitionedExecutor("52n-getobservation");
+
     @Inject
     public void setDaoFactory(DaoFactory daoFactory) {
         this.daoFactory = daoFactory;
@@ -111,6 +126,11 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         this.profileHandler = profileHandler;
     }
 
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry != null ? metricsRegistry : MetricsRegistry.disabled();
+    }
+
     @Inject
     public void setOmObservationCreatorContext(OmObservationCreatorContext observationCreatorContext) {
         this.observationCreatorContext = observationCreatorContext;
@@ -126,6 +146,24 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         this.defaultLanguage = LocaleHelper.decode(defaultLanguage);
     }
 
+    /**
+     * Set the number of threads used to create the observations of the
+     * series concurrently. A value of {@code 1} or less creates them
+     * sequentially.
+     *
+     * @param threads
+     *            the number of threads
+     */
+    @Setting(SosSettings.GET_OBSERVATION_THREAD_COUNT)
+    public void setThreadCount(Integer threads) {
+        executor.setThreadCount(threads != null ? threads : 1);
+    }
+
+    @Override
+    public void destroy() {
+        executor.destroy();
+    }
+
     @Override
     public GetObservationResponse queryObservationData(GetObservationRequest request, GetObservationResponse response)
             throws OwsExceptionReport {
@@ -154,11 +192,16 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
     private GetObservationResponse getObservations(GetObservationRequest request, GetObservationResponse response,
             Session session) throws OwsExceptionReport {
         List<OmObservation> observations = new ArrayList<>();
+        long start = metricsRegistry.start();
         try {
             if (!request.hasFirstLatestTemporalFilter()) {
                 observations.addAll(querySeriesObservationForStreaming(request, response, session));
+                metricsRegistry.recordSince(start, MetricsRegistry.DAO_DURATION, MetricsRegistry.LABEL_DAO, DAO_NAME,
+                        MetricsRegistry.LABEL_METHOD, "querySeriesObservationForStreaming");
             } else {
                 observations.addAll(querySeriesObservation(request, session));
+                metricsRegistry.recordSince(start, MetricsRegistry.DAO_DURATION, MetricsRegistry.LABEL_DAO, DAO_NAME,
+                        MetricsRegistry.LABEL_METHOD, "querySeriesObservation");
             }
             response.setObservationCollection(ObservationStream.of(observations));
             return response;
@@ -191,80 +234,110 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         final long start = System.currentTimeMillis();
         List<String> features = request.getFeatureIdentifiers();
 
-        Collection<DataEntity<?>> seriesObservations = Lists.newArrayList();
-        AbstractSeriesDAO seriesDAO = daoFactory.getSeriesDAO();
+        // only dataset columns are read here, the first and latest observations are loaded with the datasets
+        List<DatasetEntity> serieses = daoFactory.getSeriesDAO().getSeries(request, features, session);
+        Map<Long, List<FirstLatest>> requested = new LinkedHashMap<>();
+        int index = 0;
         for (IndeterminateValue sosIndeterminateTime : request.getFirstLatestTemporalFilter()) {
-            for (DatasetEntity series : getSeries(seriesDAO, request, features, sosIndeterminateTime, session)) {
-                if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST)) {
-                    seriesObservations.add(series.getFirstObservation());
-                } else if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST)) {
-                    seriesObservations.add(series.getLastObservation());
+            boolean first = sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST);
+            if (first || sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST)) {
+                for (DatasetEntity series : filterExtrema(serieses, first)) {
+                    requested.computeIfAbsent(series.getId(), id -> new ArrayList<>())
+                            .add(new FirstLatest(index++, series.getId(), first));
                 }
             }
         }
 
+        List<FirstLatestResult> created;
+        List<Long> ids = new ArrayList<>(requested.keySet());
+        if (executor.isParallel(ids.size())) {
+            created = executor.process(ids, partition -> inReadOnlySession(s -> createFirstLatest(
+                    load(DatasetEntity.class, DatasetEntity.PROPERTY_ID, partition, DatasetEntity::getId, s),
+                    requested, request, requestedLocale, pdf, s)));
+        } else {
+            created = createFirstLatest(serieses.stream().filter(d -> requested.containsKey(d.getId()))
+                    .collect(Collectors.toList()), requested, request, requestedLocale, pdf, session);
+        }
+        // restore the order of the requested first/latest values
+        created.sort(Comparator.comparingInt(FirstLatestResult::getIndex));
+
         final List<OmObservation> result = new LinkedList<>();
         if (profileHandler.getActiveProfile().isShowMetadataOfEmptyObservations()) {
-            // create a map of series to check by id, so we don't need to fetch
-            // each observation's series from the database
-            Map<Long, DatasetEntity> seriesToCheckMap = Maps.newHashMap();
-            for (DatasetEntity series : seriesDAO.getSeries(request, features, session)) {
-                seriesToCheckMap.put(series.getId(), series);
+            // add "result" observations for the series without matching observations
+            Set<Long> withObservations = created.stream().filter(FirstLatestResult::hasObservation)
+                    .map(FirstLatestResult::getDataset).collect(Collectors.toSet());
+            for (DatasetEntity series : serieses) {
+                if (!withObservations.contains(series.getId())) {
+                    HibernateObservationUtilities.createSosObservationFromSeries(series, request, requestedLocale,
+                            pdf, observationCreatorContext, session).forEachRemaining(result::add);
+                }
             }
+        }
+        created.forEach(r -> result.addAll(r.getObservations()));
+        LOGGER.debug(LOG_TIME_TO_QUERY, System.currentTimeMillis() - start);
+        return result;
+    }
 
-            // check observations and remove any series found from the map
-            for (DataEntity<?> seriesObs : seriesObservations) {
-                long seriesId = seriesObs.getDataset().getId();
-                if (seriesToCheckMap.containsKey(seriesId)) {
-                    seriesToCheckMap.remove(seriesId);
+    /**
+     * Create the requested first and latest observations of the datasets.
+     * Equal first and latest observations of a dataset are created only once.
+     *
+     * @param datasets
+     *            the datasets
+     * @param requested
+     *            the requested first and latest observations by dataset id
+     * @param request
+     *            the GetObservation request
+     * @param requestedLocale
+     *            the requested locale
+     * @param pdf
+     *            the procedure description format
+     * @param session
+     *            Hibernate session
+     * @return the created observations in the order of the datasets
+     * @throws OwsExceptionReport
+     *             If an error occurs.
+     * @throws ConverterException
+     *             If an error occurs during sensor description creation.
+     */
+    private List<FirstLatestResult> createFirstLatest(List<DatasetEntity> datasets,
+            Map<Long, List<FirstLatest>> requested, GetObservationRequest request, Locale requestedLocale,
+            String pdf, Session session) throws OwsExceptionReport, ConverterException {
+        List<FirstLatestResult> result = new ArrayList<>();
+        for (DatasetEntity dataset : datasets) {
+            Set<Long> createdObservations = new HashSet<>();
+            for (FirstLatest firstLatest : requested.get(dataset.getId())) {
+                DataEntity<?> observation =
+                        firstLatest.isFirst() ? dataset.getFirstObservation() : dataset.getLastObservation();
+                List<OmObservation> observations = new ArrayList<>();
+                if (observation != null && createdObservations.add(observation.getId())) {
+                    HibernateObservationUtilities.createSosObservationsFromObservations(
+                            Collections.singletonList(observation), request, requestedLocale, pdf,
+                            observationCreatorContext, session).forEachRemaining(observations::add);
                 }
-            }
-            // now we're left with the series without matching observations in
-            // the check map,
-            // add "result" observations for them
-            for (DatasetEntity series : seriesToCheckMap.values()) {
-                HibernateObservationUtilities.createSosObservationFromSeries(series, request, requestedLocale, pdf,
-                        observationCreatorContext, session).forEachRemaining(result::add);
+                result.add(new FirstLatestResult(firstLatest, observation != null, observations));
             }
         }
-
-        LOGGER.debug(LOG_TIME_TO_QUERY, System.currentTimeMillis() - start);
-        toSosObservation(new ArrayList<>(seriesObservations), request, requestedLocale, pdf, observationCreatorContext,
-                session).forEachRemaining(result::add);
         return result;
     }
 
-    private List<DatasetEntity> getSeries(AbstractSeriesDAO seriesDAO, GetObservationRequest request,
-            List<String> features, IndeterminateValue sosIndeterminateTime, Session session) throws OwsExceptionReport {
+    private List<DatasetEntity> filterExtrema(List<DatasetEntity> serieses, boolean first) {
         if (!overallExtrema) {
-            return seriesDAO.getSeries(request, features, session);
+            return serieses;
         }
-        Date first = null;
-        Date last = null;
+        Date extremum = null;
         List<DatasetEntity> list = new LinkedList<>();
-        for (DatasetEntity dataset : seriesDAO.getSeries(request, features, session)) {
-            if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST)) {
-                if (first == null) {
-                    first = dataset.getFirstValueAt();
-                    list.add(dataset);
-                } else if (dataset.getFirstValueAt().equals(first)) {
-                    list.add(dataset);
-                } else if (dataset.getFirstValueAt().before(first)) {
-                    list.clear();
-                    first = dataset.getFirstValueAt();
-                    list.add(dataset);
-                }
-            } else if (sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST)) {
-                if (last == null) {
-                    last = dataset.getLastValueAt();
-                    list.add(dataset);
-                } else if (dataset.getLastValueAt().equals(last)) {
-                    list.add(dataset);
-                } else if (dataset.getLastValueAt().after(last)) {
-                    list.clear();
-                    last = dataset.getLastValueAt();
-                    list.add(dataset);
-                }
+        for (DatasetEntity dataset : serieses) {
+            Date time = first ? dataset.getFirstValueAt() : dataset.getLastValueAt();
+            if (time == null) {
+                continue;
+            } else if (extremum == null || time.equals(extremum)) {
+                extremum = time;
+                list.add(dataset);
+            } else if (first ? time.before(extremum) : time.after(extremum)) {
+                list.clear();
+                extremum = time;
+                list.add(dataset);
             }
         }
         return list;
@@ -292,31 +365,74 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         List<DatasetEntity> serieses = daoFactory.getSeriesDAO().getSeries(request, features, session);
         checkMaxNumberOfReturnedSeriesSize(serieses.size());
         int maxNumberOfValuesPerSeries = getMaxNumberOfValuesPerSeries(serieses.size());
+        if (executor.isParallel(serieses.size())) {
+            List<Long> ids = serieses.stream().map(DatasetEntity::getId).collect(Collectors.toList());
+            result.addAll(executor.process(ids, partition -> inReadOnlySession(s -> createObservationTemplates(
+                    load(DatasetEntity.class, DatasetEntity.PROPERTY_ID, partition, DatasetEntity::getId, s),
+                    request, temporalFilterCriterion, maxNumberOfValuesPerSeries, s))));
+        } else {
+            result.addAll(createObservationTemplates(serieses, request, temporalFilterCriterion,
+                    maxNumberOfValuesPerSeries, session));
+        }
+
+        ObservationTimeExtrema timeExtrema =
+                daoFactory.getValueTimeDAO().getTimeExtremaForSeries(serieses, temporalFilterCriterion, session);
+        if (timeExtrema.isSetPhenomenonTimes()) {
+            response.setGlobalObservationValues(
+                    new GlobalObservationResponseValues().setPhenomenonTime(timeExtrema.getPhenomenonTime()));
+        }
+        LOGGER.debug(LOG_TIME_TO_QUERY, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private List<OmObservation> createObservationTemplates(List<DatasetEntity> serieses,
+            GetObservationRequest request, Criterion temporalFilterCriterion, int maxNumberOfValuesPerSeries,
+            Session session) throws OwsExceptionReport, ConverterException {
+        List<OmObservation> result = new ArrayList<>(serieses.size());
         for (DatasetEntity series : serieses) {
             ObservationStream createSosObservationFromSeries =
                     HibernateObservationUtilities.createSosObservationFromSeries(series, request,
                             getRequestedLocale(request), getProcedureDescriptionFormat(request.getResponseFormat()),
                             observationCreatorContext, session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue =
+            HibernateChunkSeriesStreamingValue streamingValue =
                     new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory, request,
                             series.getId(), observationCreatorContext.getBindingRepository(), getChunkSize());
             streamingValue.setResponseFormat(request.getResponseFormat());
+            streamingValue.setKeysetPagination(isKeysetPagination());
             streamingValue.setTemporalFilterCriterion(temporalFilterCriterion);
             streamingValue.setObservationTemplate(observationTemplate);
             streamingValue.setMaxNumberOfValues(maxNumberOfValuesPerSeries);
             observationTemplate.setValue(streamingValue);
             result.add(observationTemplate);
         }
+        return result;
+    }
 
-        ObservationTimeExtrema timeExtrema =
-                daoFactory.getValueTimeDAO().getTimeExtremaForSeries(serieses, temporalFilterCriterion, session);
-        if (timeExtrema.isSetPhenomenonTimes()) {
-            response.setGlobalObservationValues(
-                    new GlobalObservationResponseValues().setPhenomenonTime(timeExtrema.getPhenomenonTime()));
+    /**
+     * Process with an own read-only session, used by the worker threads.
+     */
+    private <T> List<T> inReadOnlySession(SessionProcessor<T> processor)
+            throws OwsExceptionReport, ConverterException {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            session.setDefaultReadOnly(true);
+            return processor.process(session);
+        } finally {
+            sessionHolder.returnSession(session);
         }
-        LOGGER.debug(LOG_TIME_TO_QUERY, System.currentTimeMillis() - start);
-        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> List<E> load(Class<?> type, String idProperty, List<Long> ids, Function<E, Long> idFunction,
+            Session session) {
+        Map<Long, E> entities = Maps.newHashMapWithExpectedSize(ids.size());
+        for (E entity : (List<E>) session.createCriteria(type)
+                .add(QueryHelper.getCriterionForObjects(idProperty, ids)).list()) {
+            entities.put(idFunction.apply(entity), entity);
+        }
+        return ids.stream().map(entities::get).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
     private String getProcedureDescriptionFormat(String responseFormat) {
@@ -331,4 +447,65 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
     public Locale getDefaultLanguage() {
         return defaultLanguage;
     }
+
+    /**
+     * Processes entities with the passed session.
+     *
+     * @param <T>
+     *            the result type
+     */
+    @FunctionalInterface
+    private interface SessionProcessor<T> {
+        List<T> process(Session session) throws OwsExceptionReport, ConverterException;
+    }
+
+    /**
+     * A requested first or latest observation of a dataset.
+     */
+    private static final class FirstLatest {
+        private final int index;
+        private final long dataset;
+        private final boolean first;
+
+        FirstLatest(int index, long dataset, boolean first) {
+            this.index = index;
+            this.dataset = dataset;
+            this.first = first;
+        }
+
+        boolean isFirst() {
+            return first;
+        }
+    }
+
+    /**
+     * The observations created for a requested first or latest observation.
+     */
+    private static final class FirstLatestResult {
+        private final FirstLatest requested;
+        private final boolean observation;
+        private final List<OmObservation> observations;
+
+        FirstLatestResult(FirstLatest requested, boolean observation, List<OmObservation> observations) {
+            this.requested = requested;
+            this.observation = observation;
+            this.observations = observations;
+        }
+
+        int getIndex() {
+            return requested.index;
+        }
+
+        long getDataset() {
+            return requested.dataset;
+        }
+
+        boolean hasObservation() {
+            return observation;
+        }
+
+        List<OmObservation> getObservations() {
+            return observations;
+        }
+    }
 }
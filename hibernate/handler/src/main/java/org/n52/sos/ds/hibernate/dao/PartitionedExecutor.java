@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.n52.iceland.convert.ConverterException;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+/**
+ * Splits a list of items into one partition per thread, processes the partitions concurrently and merges the results
+ * in the order of the partitions.
+ *
+ * @since 5.3.2
+ */
+class PartitionedExecutor implements Destroyable {
+
+    private final String threadGroup;
+
+    private volatile Pool pool = new Pool(null, 1);
+
+    PartitionedExecutor(String threadGroup) {
+        this.threadGroup = threadGroup;
+    }
+
+    /**
+     * Set the number of threads. A value of {@code 1} or less processes all items in the calling thread. Running
+     * {@link #process(List, PartitionProcessor)} calls finish on the previous threads.
+     *
+     * @param threads
+     *            the number of threads
+     */
+    synchronized void setThreadCount(int threads) {
+        Pool old = this.pool;
+        if (threads > 1) {
+            this.pool = new Pool(Executors.newFixedThreadPool(threads, new GroupedAndNamedThreadFactory(threadGroup)),
+                    threads);
+        } else {
+            this.pool = new Pool(null, 1);
+        }
+        if (old.executor != null) {
+            old.executor.shutdown();
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        Pool old = this.pool;
+        this.pool = new Pool(null, 1);
+        if (old.executor != null) {
+            old.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param size
+     *            the number of items
+     * @return if the items would be processed concurrently
+     */
+    boolean isParallel(int size) {
+        return size > 1 && pool.executor != null;
+    }
+
+    /**
+     * Process the items. The results of the partitions are merged in the order of the partitions, so a processor
+     * that keeps the order of its partition keeps the order of the items. The first failing partition in this order
+     * determines the thrown exception.
+     *
+     * @param <I>
+     *            the item type
+     * @param <T>
+     *            the result type
+     * @param items
+     *            the items
+     * @param processor
+     *            the processor of a partition
+     * @return the merged results
+     * @throws OwsExceptionReport
+     *             If a partition fails.
+     * @throws ConverterException
+     *             If a partition fails.
+     */
+    <I, T> List<T> process(List<I> items, PartitionProcessor<I, T> processor)
+            throws OwsExceptionReport, ConverterException {
+        Pool current = this.pool;
+        if (current.executor == null || items.size() <= 1) {
+            return processor.process(items);
+        }
+        int partitionSize = (items.size() + current.threads - 1) / current.threads;
+        List<Future<List<T>>> futures = new ArrayList<>(current.threads);
+        try {
+            for (List<I> partition : Lists.partition(items, partitionSize)) {
+                futures.add(submit(current.executor, () -> processor.process(partition)));
+            }
+            List<T> result = new ArrayList<>(items.size());
+            for (Future<List<T>> future : futures) {
+                try {
+                    result.addAll(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    Throwables.throwIfInstanceOf(cause, OwsExceptionReport.class);
+                    Throwables.throwIfInstanceOf(cause, ConverterException.class);
+                    Throwables.throwIfUnchecked(cause);
+                    throw new NoApplicableCodeException().causedBy(cause);
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Processing was interrupted");
+        } finally {
+            // do not interrupt running partitions, they hold pooled sessions
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private static <T> Future<T> submit(ExecutorService executor, Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            // the executor was retired by a concurrent thread count change
+            FutureTask<T> future = new FutureTask<>(task);
+            future.run();
+            return future;
+        }
+    }
+
+    /**
+     * Processes a partition of items.
+     *
+     * @param <I>
+     *            the item type
+     * @param <T>
+     *            the result type
+     */
+    @FunctionalInterface
+    interface PartitionProcessor<I, T> {
+        List<T> process(List<I> partition) throws OwsExceptionReport, ConverterException;
+    }
+
+    private static final class Pool {
+        private final ExecutorService executor;
+        private final int threads;
+
+        Pool(ExecutorService executor, int threads) {
+            this.executor = executor;
+            this.threads = threads;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.sos.service.SosSettings;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Registry of locks used by the transactional handlers to serialize write
+ * access to the database. If dataset locking is disabled (default), all
+ * transactional requests are serialized by a single lock. Otherwise only
+ * requests that modify the same dataset (procedure, observable property,
+ * feature of interest and offering constellation) are serialized, so that
+ * independent sensors can be processed in parallel with their own sessions.
+ *
+ * @since 5.3.2
+ */
+@Configurable
+public class DatasetLocks {
+
+    private static final int DEFAULT_STRIPES = 256;
+
+    private static final Joiner KEY_JOINER = Joiner.on('|').useForNull("");
+
+    private final Lock globalLock = new ReentrantLock();
+
+    private final Striped<Lock> stripes;
+
+    private boolean datasetLocking;
+
+    public DatasetLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public DatasetLocks(int stripes) {
+        this.stripes = Striped.lazyWeakLock(stripes);
+    }
+
+    @Setting(SosSettings.DATASET_LOCKING)
+    public synchronized void setDatasetLocking(boolean datasetLocking) {
+        this.datasetLocking = datasetLocking;
+    }
+
+    public synchronized boolean isDatasetLocking() {
+        return datasetLocking;
+    }
+
+    /**
+     * Acquire the locks for the keys. The locks are acquired in a consistent
+     * order, so concurrent callers with overlapping keys can not deadlock.
+     *
+     * @param keys
+     *            the keys to lock, e.g. created by
+     *            {@link #datasetKey(String, String, String, String)}
+     * @return the acquired locks which have to be released by calling
+     *         {@link Lease#close()}
+     */
+    public Lease lock(Set<String> keys) {
+        List<Lock> locks;
+        if (isDatasetLocking()) {
+            locks = ImmutableList.copyOf(stripes.bulkGet(keys));
+        } else {
+            locks = Collections.singletonList(globalLock);
+        }
+        return new Lease(locks);
+    }
+
+    /**
+     * Create the lock key for a dataset constellation
+     *
+     * @param procedure
+     *            the procedure identifier
+     * @param observableProperty
+     *            the observable property identifier
+     * @param feature
+     *            the feature of interest identifier
+     * @param offering
+     *            the offering identifier
+     * @return the lock key
+     */
+    public static String datasetKey(String procedure, String observableProperty, String feature, String offering) {
+        return KEY_JOINER.join("dataset", procedure, observableProperty, feature, offering);
+    }
+
+    /**
+     * Create the lock key for a feature of interest. Features are shared
+     * between datasets, so the insertion of a new feature has to be
+     * serialized as well.
+     *
+     * @param feature
+     *            the feature of interest identifier
+     * @return the lock key
+     */
+    public static String featureKey(String feature) {
+        return KEY_JOINER.join("feature", feature);
+    }
+
+    /**
+     * Locks held for the duration of a transactional request.
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private final List<Lock> locks;
+
+        private int acquired;
+
+        private Lease(List<Lock> locks) {
+            this.locks = locks;
+            try {
+                for (Lock lock : locks) {
+                    lock.lock();
+                    acquired++;
+                }
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            ListIterator<Lock> it = locks.listIterator(acquired);
+            while (it.hasPrevious()) {
+                it.previous().unlock();
+            }
+            acquired = 0;
+        }
+    }
+}
@@ -28,10 +28,12 @@
  */
 package org.n52.sos.ds.hibernate.util;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -90,6 +92,7 @@ import org.n52.shetland.ogc.swe.simpleType.SweTime;
 import org.n52.shetland.ogc.swe.simpleType.SweTimeRange;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.n52.sos.ds.hibernate.util.observation.ObservationValueCreator;
 import org.n52.sos.ds.hibernate.util.observation.SweAbstractDataComponentCreator;
 import org.n52.sos.util.GeometryHandler;
@@ -144,95 +147,176 @@ public class ResultHandlingHelper implements HibernateUnproxy {
     public String createResultValuesFromObservations(final Collection<DataEntity<?>> observations,
             final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
             String noDataPlaceholder, Session session) throws OwsExceptionReport {
-        final Map<Integer, String> valueOrder = getValueOrderMap(sosResultStructure.get()
-                .get());
-        return createResultValuesFromObservations(observations, sosResultEncoding, sosResultStructure,
-                noDataPlaceholder, valueOrder, true, null, session);
-    }
-
-    private String createResultValuesFromObservations(final Collection<DataEntity<?>> observations,
-            final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
-            String noDataPlaceholder, Map<Integer, String> valueOrder, boolean addCount,
-            VerticalMetadataEntity vertical, Session session) throws OwsExceptionReport {
         final StringBuilder builder = new StringBuilder();
         if (CollectionHelper.isNotEmpty(observations)) {
-            final String tokenSeparator = getTokenSeparator(sosResultEncoding.get()
-                    .get());
-            final String blockSeparator = getBlockSeparator(sosResultEncoding.get()
-                    .get());
-            if (addCount) {
-                addElementCount(builder, observations.size(), blockSeparator);
+            try {
+                builder.append(observations.size());
+                addResultValuesFromObservations(builder, observations.iterator(), true, sosResultEncoding,
+                        sosResultStructure, noDataPlaceholder, getValueOrderMap(sosResultStructure.get().get()),
+                        null, false, session);
+            } catch (IOException ioe) {
+                throw new NoApplicableCodeException().causedBy(ioe);
             }
-            for (final DataEntity<?> obs : observations) {
-                DataEntity<?> observation = unproxy(obs, session);
-                if (observation instanceof ProfileDataEntity) {
-                    builder.append(createResultValuesFromObservations(((ProfileDataEntity) observation).getValue(),
-                            sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false,
-                            ((ProfileDataEntity) observation).getDataset()
-                                    .getVerticalMetadata(),
-                            session));
-                    builder.append(blockSeparator);
-                } else {
-                    for (final Entry<Integer, String> entry : valueOrder.entrySet()) {
-                        final String definition = entry.getValue();
-                        switch (definition) {
-                            case OmConstants.PHENOMENON_TIME:
-                                builder.append(getTimeStringForPhenomenonTime(observation.getSamplingTimeStart(),
-                                        observation.getSamplingTimeEnd(), noDataPlaceholder));
-                                break;
-                            case OmConstants.RESULT_TIME:
-                                builder.append(
-                                        getTimeStringForResultTime(observation.getResultTime(), noDataPlaceholder));
-                                break;
-                            case OmConstants.PARAM_NAME_SAMPLING_GEOMETRY:
-                                builder.append(
-                                        getSamplingGeometry(observation, tokenSeparator, sosResultStructure.get()
-                                                .get(), noDataPlaceholder));
-                                break;
-                            case OmConstants.OM_PARAMETER:
-                            case OmConstants.PARAMETER:
-                                builder.append(getParameters(observation, tokenSeparator, sosResultStructure.get()
-                                        .get(), vertical));
-                                break;
-                            case OM_PROCEDURE:
-                                if (observation.getDataset()
-                                        .getProcedure() != null && observation.getDataset()
-                                                .getProcedure()
-                                                .isSetIdentifier()) {
-                                    builder.append(observation.getDataset()
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Write result values from observations according to ResultEncoding and
+     * ResultStructure. The observations are consumed one by one and evicted
+     * from the session after they are written, so neither the observation
+     * entities nor the result values are kept in memory.
+     *
+     * @param out
+     *            The target of the result values
+     * @param observations
+     *            Observations to create result values from, e.g. from a
+     *            {@link ScrollableIterable}
+     * @param count
+     *            The number of observations, written as element count
+     * @param sosResultEncoding
+     *            The ResultEncoding
+     * @param sosResultStructure
+     *            The ResultStructure
+     * @param noDataPlaceholder
+     *            The placeholder for missing values
+     * @param session
+     *            The Hibernate session
+     * @throws IOException
+     *             If writing fails
+     * @throws OwsExceptionReport
+     *             If creation fails
+     */
+    public void writeResultValuesFromObservations(final Appendable out, final Iterator<DataEntity<?>> observations,
+            long count, final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
+            String noDataPlaceholder, Session session) throws IOException, OwsExceptionReport {
+        if (count > 0 && observations.hasNext()) {
+            out.append(String.valueOf(count));
+            addResultValuesFromObservations(out, observations, true, sosResultEncoding, sosResultStructure,
+                    noDataPlaceholder, getValueOrderMap(sosResultStructure.get().get()), null, true, session);
+        }
+    }
+
+    /**
+     * Write result values from observations according to the decoded result
+     * template. The value order of the template's ResultStructure is created
+     * once and reused by subsequent requests for the template.
+     *
+     * @param out
+     *            The target of the result values
+     * @param observations
+     *            Observations to create result values from
+     * @param count
+     *            The number of observations, written as element count
+     * @param template
+     *            The decoded result template
+     * @param noDataPlaceholder
+     *            The placeholder for missing values
+     * @param session
+     *            The Hibernate session
+     * @throws IOException
+     *             If writing fails
+     * @throws OwsExceptionReport
+     *             If creation fails
+     */
+    public void writeResultValuesFromObservations(final Appendable out, final Iterator<DataEntity<?>> observations,
+            long count, final ResultTemplateRegistry.Template template, String noDataPlaceholder, Session session)
+            throws IOException, OwsExceptionReport {
+        if (count > 0 && observations.hasNext()) {
+            out.append(String.valueOf(count));
+            addResultValuesFromObservations(out, observations, true, template.getResultEncoding(),
+                    template.getResultStructure(), noDataPlaceholder, template.getValueOrder(this::getValueOrderMap),
+                    null, true, session);
+        }
+    }
+
+    /**
+     * Append the blocks of the observations, each block is preceded by the
+     * block separator if something was written before.
+     *
+     * @return if a block separator is required before the next block
+     */
+    private boolean addResultValuesFromObservations(final Appendable out,
+            final Iterator<DataEntity<?>> observations, boolean separate, final SosResultEncoding sosResultEncoding,
+            final SosResultStructure sosResultStructure, String noDataPlaceholder, Map<Integer, String> valueOrder,
+            VerticalMetadataEntity vertical, boolean evict, Session session) throws IOException, OwsExceptionReport {
+        final String tokenSeparator = getTokenSeparator(sosResultEncoding.get()
+                .get());
+        final String blockSeparator = getBlockSeparator(sosResultEncoding.get()
+                .get());
+        boolean separateBlock = separate;
+        while (observations.hasNext()) {
+            final DataEntity<?> obs = observations.next();
+            DataEntity<?> observation = unproxy(obs, session);
+            if (observation instanceof ProfileDataEntity) {
+                separateBlock = addResultValuesFromObservations(out,
+                        ((ProfileDataEntity) observation).getValue().iterator(), separateBlock, sosResultEncoding,
+                        sosResultStructure, noDataPlaceholder, valueOrder, ((ProfileDataEntity) observation)
+                                .getDataset()
+                                .getVerticalMetadata(),
+                        false, session);
+            } else {
+                if (separateBlock) {
+                    out.append(blockSeparator);
+                }
+                separateBlock = true;
+                boolean separateToken = false;
+                for (final Entry<Integer, String> entry : valueOrder.entrySet()) {
+                    if (separateToken) {
+                        out.append(tokenSeparator);
+                    }
+                    separateToken = true;
+                    final String definition = entry.getValue();
+                    switch (definition) {
+                        case OmConstants.PHENOMENON_TIME:
+                            out.append(String.valueOf(getTimeStringForPhenomenonTime(
+                                    observation.getSamplingTimeStart(), observation.getSamplingTimeEnd(),
+                                    noDataPlaceholder)));
+                            break;
+                        case OmConstants.RESULT_TIME:
+                            out.append(String.valueOf(
+                                    getTimeStringForResultTime(observation.getResultTime(), noDataPlaceholder)));
+                            break;
+                        case OmConstants.PARAM_NAME_SAMPLING_GEOMETRY:
+                            out.append(getSamplingGeometry(observation, tokenSeparator, sosResultStructure.get()
+                                    .get(), noDataPlaceholder));
+                            break;
+                        case OmConstants.OM_PARAMETER:
+                        case OmConstants.PARAMETER:
+                            out.append(getParameters(observation, tokenSeparator, sosResultStructure.get()
+                                    .get(), vertical));
+                            break;
+                        case OM_PROCEDURE:
+                            if (observation.getDataset()
+                                    .getProcedure() != null && observation.getDataset()
                                             .getProcedure()
-                                            .getIdentifier());
-                                } else {
-                                    builder.append("");
-                                }
-                                break;
-                            case OM_FEATURE_OF_INTEREST:
-                                if (observation.getDataset()
-                                        .getFeature() != null && observation.getDataset()
-                                                .getFeature()
-                                                .isSetIdentifier()) {
-                                    builder.append(observation.getDataset()
+                                            .isSetIdentifier()) {
+                                out.append(observation.getDataset()
+                                        .getProcedure()
+                                        .getIdentifier());
+                            }
+                            break;
+                        case OM_FEATURE_OF_INTEREST:
+                            if (observation.getDataset()
+                                    .getFeature() != null && observation.getDataset()
                                             .getFeature()
-                                            .getIdentifier());
-                                } else {
-                                    builder.append("");
-                                }
-                                break;
-                            default:
-                                builder.append(getValueAsStringForObservedProperty(observation, definition));
-                                break;
-                        }
-                        builder.append(tokenSeparator);
+                                            .isSetIdentifier()) {
+                                out.append(observation.getDataset()
+                                        .getFeature()
+                                        .getIdentifier());
+                            }
+                            break;
+                        default:
+                            out.append(getValueAsStringForObservedProperty(observation, definition));
+                            break;
                     }
-                    builder.delete(builder.lastIndexOf(tokenSeparator), builder.length());
-                    builder.append(blockSeparator);
                 }
             }
-            if (builder.length() > 0) {
-                builder.delete(builder.lastIndexOf(blockSeparator), builder.length());
+            if (evict) {
+                session.evict(obs);
             }
         }
-        return builder.toString();
+        return separateBlock;
     }
 
     /**
@@ -326,11 +410,6 @@ public class ResultHandlingHelper implements HibernateUnproxy {
         return -1;
     }
 
-    private void addElementCount(final StringBuilder builder, final int size, final String blockSeparator) {
-        builder.append(String.valueOf(size));
-        builder.append(blockSeparator);
-    }
-
     private Object getTimeStringForResultTime(final Date resultTime, String noDataPlaceholder) {
         if (resultTime != null) {
             return DateTimeHelper.formatDateTime2IsoString(new DateTime(resultTime, DateTimeZone.UTC));
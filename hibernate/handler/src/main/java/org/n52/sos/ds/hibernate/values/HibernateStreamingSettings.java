@@ -39,4 +39,6 @@ public interface HibernateStreamingSettings {
 
     String CHUNK_SIZE = "service.streaming.datasource.chunkSize";
 
+    String KEYSET_PAGINATION = "service.streaming.datasource.keysetPagination";
+
 }
@@ -31,6 +31,7 @@ package org.n52.sos.ds.hibernate.values.series;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -44,6 +45,7 @@ import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 
@@ -68,6 +70,10 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     private int currentResultSize;
 
+    private boolean keysetPagination;
+
+    private DataEntity<?> lastValue;
+
     /**
      * constructor
      *
@@ -89,6 +95,23 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         this.chunkSize = chunkSize;
     }
 
+    /**
+     * Set whether the chunks should be queried with keyset (seek) pagination,
+     * continuing from the last queried value, instead of row offsets. Keyset
+     * pagination is not applied for requests with result filter.
+     *
+     * @param keysetPagination
+     *            <code>true</code>, if keyset pagination should be used
+     */
+    public void setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    private boolean isKeysetPagination() {
+        return keysetPagination && !(request instanceof GetObservationRequest
+                && ((GetObservationRequest) request).hasResultFilter());
+    }
+
     @Override
     public boolean hasNext() throws OwsExceptionReport {
         boolean next = false;
@@ -162,8 +185,14 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         try {
             session = getSession();
             // query with temporal filter
-            Collection<DataEntity<?>> resutltValues = new ArrayList<>();
-            if (temporalFilterCriterion != null) {
+            List<DataEntity<?>> resutltValues = new ArrayList<>();
+            if (isKeysetPagination()) {
+                resutltValues.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series,
+                        temporalFilterCriterion, chunkSize, lastValue, session));
+                if (!resutltValues.isEmpty()) {
+                    lastValue = resutltValues.get(resutltValues.size() - 1);
+                }
+            } else if (temporalFilterCriterion != null) {
                 resutltValues.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series,
                         temporalFilterCriterion, chunkSize, currentRow, session));
             } else {
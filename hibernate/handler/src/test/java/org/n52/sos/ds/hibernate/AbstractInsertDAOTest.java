@@ -110,6 +110,7 @@ import org.n52.sos.cache.InMemoryCacheImpl;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.cache.ctrl.DefaultContentModificationListener;
 import org.n52.sos.cache.ctrl.SosContentCacheControllerImpl;
+import org.n52.sos.ds.ResultTemplateRegistry;
 import org.n52.sos.ds.SosCacheFeederHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.GetObservationDaoImpl;
@@ -122,6 +123,7 @@ import org.n52.sos.ds.hibernate.util.procedure.HibernateProcedureCreationContext
 import org.n52.sos.ds.hibernate.util.procedure.generator.HibernateProcedureDescriptionGeneratorFactoryRepository;
 import org.n52.sos.event.events.SensorDeletion;
 import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.metrics.MetricsRegistry;
 import org.n52.sos.request.operator.SosInsertObservationOperatorV20;
 import org.n52.sos.service.ProcedureDescriptionSettings;
 import org.n52.sos.util.GeometryHandler;
@@ -292,6 +294,10 @@ public abstract class AbstractInsertDAOTest extends HibernateTestCase {
 
     protected final BindingRepository bindingRepository = new BindingRepository();
 
+    protected final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    protected final ResultTemplateRegistry resultTemplateRegistry = new ResultTemplateRegistry();
+
     protected final AdditionalObservationCreatorRepository additionalObservationCreatorRepository =
             new AdditionalObservationCreatorRepository();
 
@@ -350,6 +356,8 @@ public abstract class AbstractInsertDAOTest extends HibernateTestCase {
         cacheFeeder.setConnectionProvider(holder);
         cacheFeeder.setI18NDAORepository(i18NDAORepository);
         cacheFeeder.setGeometryHandler(geometryHandler);
+        cacheFeeder.setResultTemplateRegistry(resultTemplateRegistry);
+        resultTemplateRegistry.setDecoderRepository(decoderRepository);
         initEncoder();
         initDecoder();
         bindingRepository.setComponentFactories(Optional.empty());
@@ -372,6 +380,7 @@ public abstract class AbstractInsertDAOTest extends HibernateTestCase {
         DefaultContentModificationListener defaultContentModificationListener =
                 new DefaultContentModificationListener(cacheFeeder, contentCacheController);
         defaultContentModificationListener.setConverterRepository(converterRepository);
+        defaultContentModificationListener.setResultTemplateRegistry(resultTemplateRegistry);
         serviceEventBus.register(defaultContentModificationListener);
         ctx = new HibernateProcedureCreationContext(serviceMetadataRepository, decoderRepository, factoryRepository,
                 i18NDAORepository, daoFactory, converterRepository, null, bindingRepository, null,
@@ -382,6 +391,7 @@ public abstract class AbstractInsertDAOTest extends HibernateTestCase {
                 featureQueryHandler, converterRepository, factoryRepository, geometryHandler, decoderRepository, null,
                 bindingRepository);
         observationCtx.setDefaultLanguage("eng");
+        observationCtx.setMetricsRegistry(metricsRegistry);
         Session session = null;
         try {
             session = getSession();
@@ -435,18 +445,22 @@ public abstract class AbstractInsertDAOTest extends HibernateTestCase {
         insertResultDAO.initForTesting(daoFactory, this);
         insertResultDAO.setCacheController(contentCacheController);
         insertResultDAO.setDecoderRepository(decoderRepository);
+        insertResultDAO.setResultTemplateRegistry(resultTemplateRegistry);
         insertResultDAO.init();
         getObsDAO.setConnectionProvider(this);
         getObsDAO.setDaoFactory(daoFactory);
         getObsDAO.setEncoderRepository(encoderRepository);
         getObsDAO.setDefaultLanguage("eng");
         getObsDAO.setOmObservationCreatorContext(observationCtx);
+        getObsDAO.setMetricsRegistry(metricsRegistry);
         getResultTemplateHandler.setConnectionProvider(this);
         getResultTemplateHandler.setDecoderRepository(decoderRepository);
+        getResultTemplateHandler.setResultTemplateRegistry(resultTemplateRegistry);
         getResultTemplateHandler.setDaoFactory(daoFactory);
         getResultTemplateHandler.init();
         getResultHandler.setConnectionProvider(this);
         getResultHandler.setDecoderRepository(decoderRepository);
+        getResultHandler.setResultTemplateRegistry(resultTemplateRegistry);
         getResultHandler.setDaoFactory(daoFactory);
         getResultHandler.setProfileHandler(new ProfileHanlderMock());
         getResultHandler.init();
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.collection.IsEmptyCollection;
+import org.hamcrest.core.Is;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.iceland.coding.SupportedTypeRepository;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.ds.cache.base.BulkCacheUpdate;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.util.GeometryHandler;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the cache content and the duration of the bulk and the parallel complete cache update and checks that the
+ * number of queries of the bulk update does not grow with the number of offerings.
+ *
+ * @since 5.3.2
+ */
+public class BulkCacheUpdateDAOTest extends AbstractObservationInsertDAOTest {
+
+    private static final String PROCEDURE = "procedure";
+
+    private static final String OFFERING = "offering";
+
+    private static final String OBSPROP = "obsprop";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkCacheUpdateDAOTest.class);
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        Session session = null;
+        try {
+            session = getSession();
+            HibernateMetadataCache.init(session);
+            insertSensor(PROCEDURE1, OFFERING1, OBSPROP1, null, OmConstants.OBS_TYPE_MEASUREMENT);
+            insertSensor(PROCEDURE2, OFFERING2, OBSPROP2, PROCEDURE1, OmConstants.OBS_TYPE_MEASUREMENT);
+            insertSensor(PROCEDURE3, OFFERING3, OBSPROP3, PROCEDURE2, OmConstants.OBS_TYPE_MEASUREMENT);
+            InsertObservationRequest req = new InsertObservationRequest();
+            req.setAssignedSensorId(PROCEDURE3);
+            req.setOfferings(Lists.newArrayList(OFFERING3));
+            OmObservation obs = new OmObservation();
+            obs.setObservationConstellation(getOmObsConst(PROCEDURE3, OBSPROP3, TEMP_UNIT, OFFERING3, FEATURE3,
+                    OmConstants.OBS_TYPE_MEASUREMENT, session));
+            obs.setResultTime(new TimeInstant(OBS_TIME));
+            SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<BigDecimal>();
+            obsVal.setPhenomenonTime(new TimeInstant(OBS_TIME));
+            obsVal.setValue(new QuantityValue(Double.valueOf(OBS_VAL), TEMP_UNIT));
+            obs.setValue(obsVal);
+            req.setObservation(Lists.newArrayList(obs));
+            insertObservationDAO.insertObservation(req);
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void shouldFillTheSameCacheAsTheParallelUpdate() throws OwsExceptionReport {
+        InMemoryCacheImpl parallel = update(false);
+        InMemoryCacheImpl bulk = update(true);
+
+        MatcherAssert.assertThat(bulk.getOfferings(), Is.is(parallel.getOfferings()));
+        MatcherAssert.assertThat(bulk.getPublishedOfferings(), Is.is(parallel.getPublishedOfferings()));
+        MatcherAssert.assertThat(bulk.getProcedures(), Is.is(parallel.getProcedures()));
+        MatcherAssert.assertThat(bulk.getPublishedProcedures(), Is.is(parallel.getPublishedProcedures()));
+        MatcherAssert.assertThat(bulk.getFeaturesOfInterest(), Is.is(parallel.getFeaturesOfInterest()));
+        MatcherAssert.assertThat(bulk.getObservableProperties(), Is.is(parallel.getObservableProperties()));
+        for (String offering : parallel.getOfferings()) {
+            MatcherAssert.assertThat(bulk.getObservationTypesForOffering(offering),
+                    Is.is(parallel.getObservationTypesForOffering(offering)));
+            MatcherAssert.assertThat(bulk.getProceduresForOffering(offering),
+                    Is.is(parallel.getProceduresForOffering(offering)));
+            MatcherAssert.assertThat(bulk.getFeaturesOfInterestForOffering(offering),
+                    Is.is(parallel.getFeaturesOfInterestForOffering(offering)));
+            MatcherAssert.assertThat(bulk.getObservablePropertiesForOffering(offering),
+                    Is.is(parallel.getObservablePropertiesForOffering(offering)));
+        }
+        for (String procedure : parallel.getProcedures()) {
+            MatcherAssert.assertThat(bulk.getOfferingsForProcedure(procedure),
+                    Is.is(parallel.getOfferingsForProcedure(procedure)));
+        }
+    }
+
+    @Test
+    public void shouldNotQueryPerOffering() throws OwsExceptionReport, EncodingException {
+        long statements = countBulkUpdateStatements();
+        for (int i = 4; i <= 6; i++) {
+            insertSensor(PROCEDURE + i, OFFERING + i, OBSPROP + i, PROCEDURE1, OmConstants.OBS_TYPE_MEASUREMENT);
+        }
+        MatcherAssert.assertThat(countBulkUpdateStatements(), Is.is(statements));
+    }
+
+    /**
+     * Execute the {@link BulkCacheUpdate} and count the prepared JDBC statements.
+     */
+    private long countBulkUpdateStatements() throws OwsExceptionReport {
+        Session session = null;
+        Statistics statistics = null;
+        try {
+            session = getSession();
+            statistics = session.getSessionFactory().getStatistics();
+            statistics.setStatisticsEnabled(true);
+            statistics.clear();
+            InMemoryCacheImpl target = new InMemoryCacheImpl();
+            target.setSupportedTypeRepository(Mockito.mock(SupportedTypeRepository.class));
+            GeometryHandler geometryHandler = new GeometryHandler();
+            geometryHandler.setAuthority("EPSG");
+            geometryHandler.setStorageEpsg(4326);
+            geometryHandler.setSpatialDatasource(true);
+            geometryHandler.init();
+            BulkCacheUpdate update = new BulkCacheUpdate(Locale.ENGLISH, geometryHandler, null);
+            update.setCache(target);
+            update.setErrors(Lists.newArrayList());
+            update.setSession(session);
+            update.execute();
+            MatcherAssert.assertThat(update.getErrors(), IsEmptyCollection.empty());
+            MatcherAssert.assertThat(target.getOfferings().isEmpty(), Is.is(false));
+            long statements = statistics.getPrepareStatementCount();
+            LOGGER.info("Bulk cache update for {} offerings prepared {} statements", target.getOfferings().size(),
+                    statements);
+            return statements;
+        } finally {
+            if (statistics != null) {
+                statistics.setStatisticsEnabled(false);
+            }
+            returnSession(session);
+        }
+    }
+
+    private InMemoryCacheImpl update(boolean bulkUpdate) throws OwsExceptionReport {
+        InMemoryCacheImpl target = new InMemoryCacheImpl();
+        target.setSupportedTypeRepository(Mockito.mock(SupportedTypeRepository.class));
+        cacheFeeder.setBulkUpdate(bulkUpdate);
+        long start = System.nanoTime();
+        cacheFeeder.updateCache(target);
+        LOGGER.info("{} cache update took {} ms", bulkUpdate ? "Bulk" : "Parallel",
+                (System.nanoTime() - start) / 1000000);
+        return target;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.sos.ds.hibernate.util.DatasetLocks;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Multi-threaded load test for the InsertObservation handler with dataset
+ * locking. Each thread inserts observations for its own sensor, so the
+ * inserts must be able to hold their locks at the same time.
+ */
+public class ConcurrentInsertObservationDAOTest extends AbstractInsertDAOTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentInsertObservationDAOTest.class);
+
+    private static final int THREADS = 4;
+
+    private static final int OBSERVATIONS_PER_THREAD = 50;
+
+    private static final String PREFIX = "concurrent_";
+
+    private final RendezvousDatasetLocks datasetLocks = new RendezvousDatasetLocks();
+
+    private final List<OmObservationConstellation> constellations = Lists.newArrayList();
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        datasetLocks.setDatasetLocking(true);
+        insertObservationDAO.setDatasetLocks(datasetLocks);
+        Session session = null;
+        try {
+            session = getSession();
+            for (int i = 0; i < THREADS; i++) {
+                insertSensor(PREFIX + PROCEDURE1 + i, PREFIX + OFFERING1 + i, PREFIX + OBSPROP1 + i, null,
+                        OmConstants.OBS_TYPE_MEASUREMENT);
+                constellations.add(getOmObsConst(PREFIX + PROCEDURE1 + i, PREFIX + OBSPROP1 + i, TEMP_UNIT,
+                        PREFIX + OFFERING1 + i, PREFIX + FEATURE3 + i, OmConstants.OBS_TYPE_MEASUREMENT, session));
+            }
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void testConcurrentInsertObservation() throws Exception {
+        long sequential = insert(1, TIME1);
+        long parallel = insert(THREADS, TIME2.plusDays(1));
+        LOGGER.info("Inserted {} observations in {} ms with 1 thread and in {} ms with {} threads",
+                THREADS * OBSERVATIONS_PER_THREAD, sequential, parallel, THREADS);
+        assertThat(countObservations(), is(2L * THREADS * OBSERVATIONS_PER_THREAD));
+    }
+
+    @Test
+    public void testConcurrentInsertObservationWithGlobalLock() throws Exception {
+        datasetLocks.setDatasetLocking(false);
+        insert(THREADS, TIME1);
+        assertThat(countObservations(), is((long) THREADS * OBSERVATIONS_PER_THREAD));
+    }
+
+    @Test
+    public void testIndependentDatasetsAreInsertedConcurrently() throws Exception {
+        // both inserts wait inside the critical section until the other one arrived as well
+        List<Boolean> met = rendezvous(TimeUnit.SECONDS.toMillis(30));
+        assertThat(met, contains(true, true));
+        assertThat(countObservations(), is(2L));
+    }
+
+    @Test
+    public void testIndependentDatasetsAreSerializedWithGlobalLock() throws Exception {
+        datasetLocks.setDatasetLocking(false);
+        // the first insert gives up waiting, only then the second one enters the critical section
+        List<Boolean> met = rendezvous(500);
+        assertThat(met, containsInAnyOrder(false, true));
+        assertThat(countObservations(), is(2L));
+    }
+
+    /**
+     * Insert one observation for each of two sensors concurrently. Each
+     * insert waits after acquiring its locks until both inserts hold their
+     * locks or the timeout elapsed.
+     *
+     * @return if the inserts met inside the critical section
+     */
+    private List<Boolean> rendezvous(long timeoutMillis) throws Exception {
+        datasetLocks.arm(2, timeoutMillis);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Callable<Void>> tasks = Lists.newArrayList();
+            for (OmObservationConstellation constellation : constellations.subList(0, 2)) {
+                tasks.add(() -> {
+                    insertObservation(constellation, TIME1);
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                // rethrows exceptions of the worker
+                future.get();
+            }
+            return datasetLocks.getMet();
+        } finally {
+            datasetLocks.arm(0, 0);
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Insert {@link #OBSERVATIONS_PER_THREAD} observations for each sensor
+     * with the given number of threads.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    private long insert(int threads, DateTime start) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(constellations.size());
+            for (OmObservationConstellation constellation : constellations) {
+                tasks.add(() -> {
+                    for (int i = 0; i < OBSERVATIONS_PER_THREAD; i++) {
+                        insertObservation(constellation, start.plusMinutes(i));
+                    }
+                    return null;
+                });
+            }
+            long begin = System.currentTimeMillis();
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                // rethrows exceptions of the worker
+                future.get();
+            }
+            return System.currentTimeMillis() - begin;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private void insertObservation(OmObservationConstellation constellation, DateTime time)
+            throws OwsExceptionReport {
+        OmObservation obs = new OmObservation();
+        obs.setObservationConstellation(constellation);
+        obs.setResultTime(new TimeInstant(time));
+        SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<BigDecimal>();
+        obsVal.setPhenomenonTime(new TimeInstant(time));
+        obsVal.setValue(new QuantityValue(Double.valueOf(OBS_VAL), TEMP_UNIT));
+        obs.setValue(obsVal);
+        InsertObservationRequest req = new InsertObservationRequest();
+        req.setAssignedSensorId(constellation.getProcedureIdentifier());
+        req.setOfferings(Lists.newArrayList(constellation.getOfferings()));
+        req.setObservation(Lists.newArrayList(obs));
+        insertObservationDAO.insertObservation(req);
+    }
+
+    private long countObservations() {
+        Session session = null;
+        try {
+            session = getSession();
+            return ((Number) session.createCriteria(DataEntity.class).setProjection(Projections.rowCount())
+                    .uniqueResult()).longValue();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    /**
+     * {@link DatasetLocks} that lets the holders of leases wait for each
+     * other inside the critical section.
+     */
+    private static class RendezvousDatasetLocks extends DatasetLocks {
+
+        private final List<Boolean> met = new CopyOnWriteArrayList<>();
+
+        private volatile CountDownLatch inside;
+
+        private volatile long timeoutMillis;
+
+        void arm(int parties, long timeoutMillis) {
+            this.met.clear();
+            this.timeoutMillis = timeoutMillis;
+            this.inside = parties > 0 ? new CountDownLatch(parties) : null;
+        }
+
+        List<Boolean> getMet() {
+            return Lists.newArrayList(met);
+        }
+
+        @Override
+        public Lease lock(Set<String> keys) {
+            Lease lease = super.lock(keys);
+            CountDownLatch latch = inside;
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    met.add(latch.await(timeoutMillis, TimeUnit.MILLISECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    met.add(false);
+                }
+            }
+            return lease;
+        }
+    }
+
+    @Override
+    protected void assertInsertionAftermath(boolean afterCacheUpdate) throws OwsExceptionReport {
+        for (int i = 0; i < THREADS; i++) {
+            assertThat(getCache().getProceduresForOffering(PREFIX + OFFERING1 + i), contains(PREFIX + PROCEDURE1 + i));
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.parameter.ParameterEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Test for the set-based deletion of observations by identifier.
+ */
+public class DeleteObservationDAOTest extends AbstractInsertDAOTest {
+
+    private static final int OBSERVATIONS = 20;
+
+    private static final int DELETED = 10;
+
+    private static final String PREFIX = "bulk_delete_";
+
+    private final DeleteObservationHandler deleteObservationDAO = new DeleteObservationHandler();
+
+    private final List<String> identifiers = Lists.newArrayList();
+
+    private OmObservationConstellation constellation;
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        deleteObservationDAO.initForTesting(daoFactory, this);
+        insertSensor(PREFIX + PROCEDURE1, PREFIX + OFFERING1, PREFIX + OBSPROP1, null,
+                OmConstants.OBS_TYPE_MEASUREMENT);
+        Session session = null;
+        try {
+            session = getSession();
+            constellation = getOmObsConst(PREFIX + PROCEDURE1, PREFIX + OBSPROP1, TEMP_UNIT, PREFIX + OFFERING1,
+                    PREFIX + FEATURE3, OmConstants.OBS_TYPE_MEASUREMENT, session);
+        } finally {
+            returnSession(session);
+        }
+        for (int i = 0; i < OBSERVATIONS; i++) {
+            identifiers.add(PREFIX + i);
+            insertObservation(constellation, PREFIX + i, TIME1.plusMinutes(i), false);
+        }
+    }
+
+    @Test
+    public void testFlagObservationsAsDeleted() throws OwsExceptionReport {
+        delete();
+        assertThat(countObservations(false), is((long) OBSERVATIONS - DELETED));
+        assertThat(countObservations(true), is((long) DELETED));
+        assertFirstValueAt(TIME1.plusMinutes(DELETED));
+    }
+
+    @Test
+    public void testDeleteObservationsPhysically() throws OwsExceptionReport {
+        deleteObservationDAO.setDeletePhysically(true);
+        delete();
+        assertThat(countObservations(false), is((long) OBSERVATIONS - DELETED));
+        assertThat(countObservations(true), is(0L));
+        assertFirstValueAt(TIME1.plusMinutes(DELETED));
+    }
+
+    @Test
+    public void testDeleteObservationsWithParametersPhysically() throws OwsExceptionReport {
+        deleteObservationDAO.setDeletePhysically(true);
+        List<String> withParameters = Lists.newArrayList();
+        for (int i = 0; i < DELETED; i++) {
+            withParameters.add(PREFIX + "parameter_" + i);
+            insertObservation(constellation, PREFIX + "parameter_" + i, TIME1.plusMinutes(OBSERVATIONS + i), true);
+        }
+        assertThat(countParameters(), greaterThan(0L));
+        delete(withParameters);
+        assertThat(countObservations(false), is((long) OBSERVATIONS));
+        assertThat(countObservations(true), is(0L));
+        assertThat(countParameters(), is(0L));
+    }
+
+    private void delete() throws OwsExceptionReport {
+        delete(identifiers.subList(0, DELETED));
+    }
+
+    private void delete(List<String> toDelete) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = getSession();
+            transaction = session.beginTransaction();
+            Map<Long, Long> observations = deleteObservationDAO
+                    .getObservationIdsByIdentifier(toDelete, session);
+            assertThat(observations.size(), is(toDelete.size()));
+            deleteObservationDAO.deleteObservations(observations.keySet(), session);
+            deleteObservationDAO.checkSeriesForFirstLatest(observations.values(), session);
+            transaction.commit();
+        } catch (RuntimeException | OwsExceptionReport e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private void insertObservation(OmObservationConstellation constellation, String identifier, DateTime time,
+            boolean parameters) throws OwsExceptionReport {
+        OmObservation obs = new OmObservation();
+        obs.setIdentifier(identifier);
+        obs.setObservationConstellation(constellation);
+        obs.setResultTime(new TimeInstant(time));
+        SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<BigDecimal>();
+        obsVal.setPhenomenonTime(new TimeInstant(time));
+        obsVal.setValue(new QuantityValue(Double.valueOf(OBS_VAL), TEMP_UNIT));
+        obs.setValue(obsVal);
+        if (parameters) {
+            addParameter(obs);
+        }
+        InsertObservationRequest req = new InsertObservationRequest();
+        req.setAssignedSensorId(constellation.getProcedureIdentifier());
+        req.setOfferings(Lists.newArrayList(constellation.getOfferings()));
+        req.setObservation(Lists.newArrayList(obs));
+        insertObservationDAO.insertObservation(req);
+    }
+
+    private long countObservations(boolean deleted) {
+        Session session = null;
+        try {
+            session = getSession();
+            return ((Number) session.createCriteria(DataEntity.class)
+                    .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, deleted))
+                    .setProjection(Projections.rowCount()).uniqueResult()).longValue();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private long countParameters() {
+        Session session = null;
+        try {
+            session = getSession();
+            return ((Number) session.createCriteria(ParameterEntity.class)
+                    .setProjection(Projections.rowCount()).uniqueResult()).longValue();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private void assertFirstValueAt(DateTime time) {
+        Session session = null;
+        try {
+            session = getSession();
+            for (DatasetEntity dataset : (List<DatasetEntity>) session.createCriteria(DatasetEntity.class).list()) {
+                if (dataset.getFirstObservation() != null && dataset.getFirstObservation().getIdentifier() != null
+                        && dataset.getFirstObservation().getIdentifier().startsWith(PREFIX)) {
+                    assertThat(new DateTime(dataset.getFirstValueAt()).isEqual(time), is(true));
+                    assertThat(dataset.getFirstObservation().getIdentifier(), is(PREFIX + DELETED));
+                }
+            }
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Override
+    protected void assertInsertionAftermath(boolean afterCacheUpdate) throws OwsExceptionReport {
+        assertThat(getCache().getProceduresForOffering(PREFIX + OFFERING1), contains(PREFIX + PROCEDURE1));
+    }
+
+}
@@ -31,10 +31,15 @@ package org.n52.sos.ds.hibernate;
 import java.util.List;
 
 import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.SosResultEncoding;
@@ -54,12 +59,24 @@ import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
 import org.n52.sos.event.events.ResultInsertion;
 import org.n52.sos.event.events.ResultTemplateInsertion;
 import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
 
 import net.opengis.swe.x20.DataRecordDocument;
 import net.opengis.swe.x20.TextEncodingDocument;
 
 public class InsertResultInsertDAOTest extends AbstractObservationInsertDAOTest {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(InsertResultInsertDAOTest.class);
+
+    private static final String UNFOLDED_RESULT_TEMPLATE = "unfolded_result_template";
+
+    private static final int WARM_UP_VALUES = 100;
+
+    private final int values = Integer.getInteger("insertResultValues", 1000);
+
     @Before
     public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
         super.setUp();
@@ -93,6 +110,87 @@ public class InsertResultInsertDAOTest extends AbstractObservationInsertDAOTest
         checkObservation(OFFERING3, PROCEDURE3, OBSPROP3, TIME3, PROCEDURE3, OBSPROP3, FEATURE3, VAL3, TEMP_UNIT);
     }
 
+    /**
+     * Inserts the same number of values once via the column plan of the result
+     * template and once unfolded to observations (use -DinsertResultValues=x
+     * to change the number of values).
+     */
+    @Test
+    public void testInsertResultThroughput() throws OwsExceptionReport, ConverterException, EncodingException {
+        insertResultTemplate(RESULT_TEMPLATE, PROCEDURE3, OFFERING3, OBSPROP3, FEATURE3);
+        insertResultTemplate(UNFOLDED_RESULT_TEMPLATE, PROCEDURE2, OFFERING2, OBSPROP2, FEATURE3);
+        long unfoldedTime;
+        long columnPlanTime;
+        try {
+            insertResultDAO.setUseColumnPlan(false);
+            insertResultValues(UNFOLDED_RESULT_TEMPLATE, 0, WARM_UP_VALUES);
+            unfoldedTime = insertResultValues(UNFOLDED_RESULT_TEMPLATE, WARM_UP_VALUES, values);
+        } finally {
+            insertResultDAO.setUseColumnPlan(true);
+        }
+        insertResultValues(RESULT_TEMPLATE, 0, WARM_UP_VALUES);
+        columnPlanTime = insertResultValues(RESULT_TEMPLATE, WARM_UP_VALUES, values);
+        LOGGER.info("Inserted {} result values: {} obs/s with the column plan, {} obs/s unfolded", values,
+                values * 1000L / Math.max(columnPlanTime, 1), values * 1000L / Math.max(unfoldedTime, 1));
+
+        assertThat(countObservations(PROCEDURE3), is((long) WARM_UP_VALUES + values));
+        assertThat(countObservations(PROCEDURE2), is((long) WARM_UP_VALUES + values));
+        assertDataset(PROCEDURE3);
+        assertDataset(PROCEDURE2);
+        assertThat(columnPlanTime, lessThan(unfoldedTime));
+    }
+
+    /**
+     * Insert the values with the minute offset as phenomenon time and value.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    private long insertResultValues(String template, int offset, int count) throws OwsExceptionReport {
+        List<DateTime> times = Lists.newArrayListWithCapacity(count);
+        List<Double> obsValues = Lists.newArrayListWithCapacity(count);
+        for (int i = offset; i < offset + count; i++) {
+            times.add(TIME1.plusMinutes(i));
+            obsValues.add(Double.valueOf(i));
+        }
+        InsertResultRequest req = new InsertResultRequest();
+        req.setTemplateIdentifier(template);
+        req.setResultValues(makeResultValueString(times, obsValues));
+        long begin = System.currentTimeMillis();
+        insertResultDAO.insertResult(req);
+        return System.currentTimeMillis() - begin;
+    }
+
+    private long countObservations(String procedure) {
+        Session session = null;
+        try {
+            session = getSession();
+            return ((Number) session.createCriteria(DataEntity.class)
+                    .createCriteria(DataEntity.PROPERTY_DATASET)
+                    .createCriteria(DatasetEntity.PROPERTY_PROCEDURE)
+                    .add(Restrictions.eq(ProcedureEntity.IDENTIFIER, procedure))
+                    .setProjection(Projections.rowCount()).uniqueResult()).longValue();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private void assertDataset(String procedure) {
+        Session session = null;
+        try {
+            session = getSession();
+            DatasetEntity dataset = (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                    .createCriteria(DatasetEntity.PROPERTY_PROCEDURE)
+                    .add(Restrictions.eq(ProcedureEntity.IDENTIFIER, procedure))
+                    .uniqueResult();
+            int last = WARM_UP_VALUES + values - 1;
+            assertThat(new DateTime(dataset.getFirstValueAt()).getMillis(), is(TIME1.getMillis()));
+            assertThat(new DateTime(dataset.getLastValueAt()).getMillis(), is(TIME1.plusMinutes(last).getMillis()));
+            assertThat(dataset.getLastQuantityValue().doubleValue(), is((double) last));
+        } finally {
+            returnSession(session);
+        }
+    }
+
     private void insertResultTemplate(String identifier, String procedureId, String offeringId, String obsPropId,
             String featureId) throws OwsExceptionReport, ConverterException, EncodingException {
         InsertResultTemplateRequest req = new InsertResultTemplateRequest();
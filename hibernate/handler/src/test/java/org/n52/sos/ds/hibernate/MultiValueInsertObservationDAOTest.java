@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Inserts many values for one dataset with a single InsertObservation request
+ * and checks that the first/last values of the dataset, which are only
+ * written once per flush, are correct. The throughput is compared with the
+ * insertion that updates the dataset for each value (use
+ * -DmultiValueObservations=x to change the number of values).
+ */
+public class MultiValueInsertObservationDAOTest extends AbstractInsertDAOTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiValueInsertObservationDAOTest.class);
+
+    private static final String PREFIX = "multi_";
+
+    private static final String DEFERRED = "deferred_";
+
+    private static final String DIRECT = "direct_";
+
+    private final int values = Integer.getInteger("multiValueObservations", 500);
+
+    private OmObservationConstellation deferred;
+
+    private OmObservationConstellation direct;
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        Session session = null;
+        try {
+            session = getSession();
+            deferred = insertSensorAndGetConstellation(DEFERRED, session);
+            direct = insertSensorAndGetConstellation(DIRECT, session);
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void testInsertObservationWithManyValues() throws OwsExceptionReport {
+        List<OmObservation> observations = createObservations(deferred);
+        InsertObservationRequest req = new InsertObservationRequest();
+        req.setAssignedSensorId(deferred.getProcedureIdentifier());
+        req.setOfferings(Lists.newArrayList(deferred.getOfferings()));
+        req.setObservation(observations);
+        long begin = System.currentTimeMillis();
+        insertObservationDAO.insertObservation(req);
+        long deferredTime = System.currentTimeMillis() - begin;
+
+        long directTime = insertDirect(createObservations(direct));
+
+        LOGGER.info("Inserted {} values: {} obs/s with one dataset update per flush, "
+                + "{} obs/s with one dataset update per value", values, perSecond(deferredTime),
+                perSecond(directTime));
+        assertDataset(deferred.getProcedureIdentifier());
+        assertDataset(direct.getProcedureIdentifier());
+    }
+
+    private OmObservationConstellation insertSensorAndGetConstellation(String prefix, Session session)
+            throws OwsExceptionReport, ConverterException {
+        insertSensor(PREFIX + prefix + PROCEDURE1, PREFIX + prefix + OFFERING1, PREFIX + prefix + OBSPROP1, null,
+                OmConstants.OBS_TYPE_MEASUREMENT);
+        return getOmObsConst(PREFIX + prefix + PROCEDURE1, PREFIX + prefix + OBSPROP1, TEMP_UNIT,
+                PREFIX + prefix + OFFERING1, PREFIX + prefix + FEATURE3, OmConstants.OBS_TYPE_MEASUREMENT, session);
+    }
+
+    /**
+     * Create the observations in random order, the value is the minute
+     * offset of the phenomenon time.
+     */
+    private List<OmObservation> createObservations(OmObservationConstellation constellation) {
+        List<OmObservation> observations = Lists.newArrayListWithCapacity(values);
+        for (int i = 0; i < values; i++) {
+            DateTime time = TIME1.plusMinutes(i);
+            OmObservation obs = new OmObservation();
+            obs.setObservationConstellation(constellation);
+            obs.setResultTime(new TimeInstant(time));
+            SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<BigDecimal>();
+            obsVal.setPhenomenonTime(new TimeInstant(time));
+            obsVal.setValue(new QuantityValue(Double.valueOf(i), TEMP_UNIT));
+            obs.setValue(obsVal);
+            observations.add(obs);
+        }
+        Collections.shuffle(observations, new Random(values));
+        return observations;
+    }
+
+    /**
+     * Insert the observations with the dataset update for each value.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    private long insertDirect(List<OmObservation> observations) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = getSession();
+            transaction = session.beginTransaction();
+            String offering = direct.getOfferings().iterator().next();
+            long begin = System.currentTimeMillis();
+            for (OmObservation observation : observations) {
+                DatasetEntity dataset = daoFactory.getSeriesDAO().checkSeries(direct, offering, session,
+                        Sos2Constants.InsertObservationParams.observationType.name());
+                AbstractFeatureEntity feature =
+                        daoFactory.getFeatureOfInterestDAO().checkOrInsert(direct.getFeatureOfInterest(), session);
+                daoFactory.getObservationDAO().insertObservationSingleValue(dataset, feature, observation, session);
+            }
+            session.flush();
+            transaction.commit();
+            return System.currentTimeMillis() - begin;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private void assertDataset(String procedure) {
+        Session session = null;
+        try {
+            session = getSession();
+            DatasetEntity dataset = (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                    .createCriteria(DatasetEntity.PROPERTY_PROCEDURE)
+                    .add(Restrictions.eq(ProcedureEntity.IDENTIFIER, procedure))
+                    .uniqueResult();
+            assertThat(new DateTime(dataset.getFirstValueAt()).getMillis(), is(TIME1.getMillis()));
+            assertThat(new DateTime(dataset.getLastValueAt()).getMillis(),
+                    is(TIME1.plusMinutes(values - 1).getMillis()));
+            assertThat(dataset.getFirstQuantityValue(), comparesEqualTo(BigDecimal.ZERO));
+            assertThat(dataset.getLastQuantityValue(), comparesEqualTo(BigDecimal.valueOf(values - 1)));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private long perSecond(long millis) {
+        return values * 1000L / Math.max(millis, 1);
+    }
+
+    @Override
+    protected void assertInsertionAftermath(boolean afterCacheUpdate) throws OwsExceptionReport {
+        assertThat(getCache().getProceduresForOffering(PREFIX + DEFERRED + OFFERING1),
+                contains(PREFIX + DEFERRED + PROCEDURE1));
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.hamcrest.core.Is;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.sos.ds.ResultTemplateRegistry;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+public class ResultTemplateRegistryDAOTest extends AbstractInsertDAOTest {
+
+    private static final String TEMPLATE_1 = "template1";
+
+    private static final String TEMPLATE_2 = "template2";
+
+    private String structure;
+
+    private String changedStructure;
+
+    private String encoding;
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        structure = createDataRecordString(createRecord(OBSPROP1));
+        changedStructure = createDataRecordString(createRecord(OBSPROP1, OBSPROP2));
+        encoding = createTextEncodingString(getTextEncoding());
+        resultTemplateRegistry.clear();
+    }
+
+    @Test
+    public void shouldReturnRegisteredTemplate() throws OwsExceptionReport {
+        resultTemplateRegistry.register(TEMPLATE_1, structure, encoding);
+        MatcherAssert.assertThat(resultTemplateRegistry.size(), Is.is(1));
+
+        ResultTemplateRegistry.Template template = get(TEMPLATE_1, structure);
+        MatcherAssert.assertThat(template.getIdentifier(), Is.is(TEMPLATE_1));
+        MatcherAssert.assertThat(template.getTokenSeparator(), Is.is(TOKEN_SEPARATOR));
+        MatcherAssert.assertThat(template.getBlockSeparator(), Is.is(BLOCK_SEPARATOR));
+        MatcherAssert.assertThat(getFieldCount(template), Is.is(2));
+        MatcherAssert.assertThat(get(TEMPLATE_1, structure), Matchers.sameInstance(template));
+    }
+
+    @Test
+    public void shouldNotDecodeUnchangedTemplateAgain() throws OwsExceptionReport {
+        resultTemplateRegistry.register(TEMPLATE_1, structure, encoding);
+        ResultTemplateRegistry.Template template = get(TEMPLATE_1, structure);
+        resultTemplateRegistry.register(TEMPLATE_1, structure, encoding);
+        MatcherAssert.assertThat(get(TEMPLATE_1, structure), Matchers.sameInstance(template));
+    }
+
+    @Test
+    public void shouldDecodeTemplateAgainIfXmlDiffers() throws OwsExceptionReport {
+        resultTemplateRegistry.register(TEMPLATE_1, structure, encoding);
+        ResultTemplateRegistry.Template template = get(TEMPLATE_1, structure);
+
+        ResultTemplateRegistry.Template changed = get(TEMPLATE_1, changedStructure);
+        MatcherAssert.assertThat(changed, Matchers.not(Matchers.sameInstance(template)));
+        MatcherAssert.assertThat(getFieldCount(changed), Is.is(3));
+        MatcherAssert.assertThat(resultTemplateRegistry.size(), Is.is(1));
+        MatcherAssert.assertThat(get(TEMPLATE_1, changedStructure), Matchers.sameInstance(changed));
+    }
+
+    @Test
+    public void shouldRetainExistingTemplates() throws OwsExceptionReport {
+        resultTemplateRegistry.register(TEMPLATE_1, structure, encoding);
+        resultTemplateRegistry.register(TEMPLATE_2, structure, encoding);
+        ResultTemplateRegistry.Template template = get(TEMPLATE_1, structure);
+        ResultTemplateRegistry.Template removed = get(TEMPLATE_2, structure);
+
+        resultTemplateRegistry.retain(Collections.singleton(TEMPLATE_1));
+        MatcherAssert.assertThat(resultTemplateRegistry.size(), Is.is(1));
+        MatcherAssert.assertThat(get(TEMPLATE_1, structure), Matchers.sameInstance(template));
+        MatcherAssert.assertThat(get(TEMPLATE_2, structure), Matchers.not(Matchers.sameInstance(removed)));
+    }
+
+    @Test
+    public void shouldInvalidateTemplates() throws OwsExceptionReport {
+        resultTemplateRegistry.register(TEMPLATE_1, structure, encoding);
+        resultTemplateRegistry.register(TEMPLATE_2, structure, encoding);
+        ResultTemplateRegistry.Template template = get(TEMPLATE_1, structure);
+
+        resultTemplateRegistry.invalidate(TEMPLATE_1);
+        MatcherAssert.assertThat(resultTemplateRegistry.size(), Is.is(1));
+        MatcherAssert.assertThat(get(TEMPLATE_1, structure), Matchers.not(Matchers.sameInstance(template)));
+
+        resultTemplateRegistry.invalidate(Arrays.asList(TEMPLATE_1, TEMPLATE_2));
+        MatcherAssert.assertThat(resultTemplateRegistry.size(), Is.is(0));
+    }
+
+    @Test
+    public void shouldNotRegisterTemplateWithoutXml() {
+        resultTemplateRegistry.register(TEMPLATE_1, structure, encoding);
+        resultTemplateRegistry.register(TEMPLATE_1, null, encoding);
+        MatcherAssert.assertThat(resultTemplateRegistry.size(), Is.is(0));
+    }
+
+    private ResultTemplateRegistry.Template get(String identifier, String resultStructure)
+            throws OwsExceptionReport {
+        return resultTemplateRegistry.get(identifier, resultStructure, encoding, decoderRepository);
+    }
+
+    private int getFieldCount(ResultTemplateRegistry.Template template) {
+        SweAbstractDataComponent component = template.getResultStructure().get().get();
+        MatcherAssert.assertThat(component, Matchers.instanceOf(SweDataRecord.class));
+        return ((SweDataRecord) component).getFields().size();
+    }
+
+    private SweDataRecord createRecord(String... observableProperties) {
+        SweDataRecord record = new SweDataRecord();
+        SweTime time = new SweTime();
+        time.setUom(OmConstants.PHEN_UOM_ISO8601);
+        time.setDefinition(OmConstants.PHENOMENON_TIME);
+        record.addField(new SweField("time", time));
+        for (String observableProperty : observableProperties) {
+            SweQuantity quantity = new SweQuantity();
+            quantity.setDefinition(observableProperty);
+            quantity.setUom(TEMP_UNIT);
+            record.addField(new SweField(observableProperty, quantity));
+        }
+        return record;
+    }
+}
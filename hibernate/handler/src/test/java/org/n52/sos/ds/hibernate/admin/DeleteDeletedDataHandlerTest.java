@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.admin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.sos.ds.DeleteDeletedDataProgress;
+import org.n52.sos.ds.hibernate.AbstractInsertDAOTest;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Test for the chunked background purge of deleted observations.
+ */
+public class DeleteDeletedDataHandlerTest extends AbstractInsertDAOTest {
+
+    private static final int OBSERVATIONS = 20;
+
+    private static final int DELETED = 10;
+
+    private static final String PREFIX = "purge_";
+
+    private static final String STATE_FILE = "purge-deleted-observations.properties";
+
+    private static final long TIMEOUT = 30000;
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final List<String> identifiers = Lists.newArrayList();
+
+    private final List<DeleteDeletedDataHandler> handlers = Lists.newArrayList();
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        insertSensor(PREFIX + PROCEDURE1, PREFIX + OFFERING1, PREFIX + OBSPROP1, null,
+                OmConstants.OBS_TYPE_MEASUREMENT);
+        Session session = null;
+        OmObservationConstellation constellation;
+        try {
+            session = getSession();
+            constellation = getOmObsConst(PREFIX + PROCEDURE1, PREFIX + OBSPROP1, TEMP_UNIT, PREFIX + OFFERING1,
+                    PREFIX + FEATURE3, OmConstants.OBS_TYPE_MEASUREMENT, session);
+        } finally {
+            returnSession(session);
+        }
+        for (int i = 0; i < OBSERVATIONS; i++) {
+            identifiers.add(PREFIX + i);
+            insertObservation(constellation, PREFIX + i, TIME1.plusMinutes(i));
+        }
+        flagAsDeleted(identifiers.subList(0, DELETED));
+    }
+
+    @After
+    public void destroyHandlers() {
+        handlers.forEach(DeleteDeletedDataHandler::destroy);
+    }
+
+    @Test
+    public void testPurgeInChunks() throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler();
+        handler.setChunkSize(3);
+        init(handler).purgeDeletedObservations();
+        DeleteDeletedDataProgress progress = awaitFinished(handler);
+        assertThat(progress.getError().isPresent(), is(false));
+        assertThat(progress.getDeleted(), is((long) DELETED));
+        assertThat(handler.counts.stream().mapToInt(Integer::intValue).sum(), is(DELETED));
+        assertThat(handler.counts, everyItem(lessThanOrEqualTo(3)));
+        assertThat(countObservations(true), is(0L));
+        assertThat(countObservations(false), is((long) OBSERVATIONS - DELETED));
+        assertThat(Files.exists(getStateFile()), is(false));
+    }
+
+    @Test
+    public void testResumeFromStateFile() throws IOException, InterruptedException {
+        List<Long> ids = getDeletedObservationIds();
+        long lastId = ids.get(DELETED / 2 - 1);
+        writeState(lastId);
+        DeleteDeletedDataHandler handler = init(new DeleteDeletedDataHandler());
+        DeleteDeletedDataProgress progress = awaitFinished(handler);
+        assertThat(progress.getError().isPresent(), is(false));
+        assertThat(progress.getDeleted(), is((long) DELETED - DELETED / 2));
+        // the observations before the stored id are not part of the resumed purge
+        assertThat(getDeletedObservationIds(), is(ids.subList(0, DELETED / 2)));
+        assertThat(Files.exists(getStateFile()), is(false));
+    }
+
+    @Test
+    public void testErrorEndsPurge() throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler();
+        handler.fail = true;
+        init(handler).purgeDeletedObservations();
+        DeleteDeletedDataProgress progress = awaitFinished(handler);
+        assertThat(progress.getError(), is(Optional.of("failure")));
+        assertThat(countObservations(true), is((long) DELETED));
+        // a failed purge does not block the next run
+        handler.fail = false;
+        handler.purgeDeletedObservations();
+        progress = awaitFinished(handler);
+        assertThat(progress.getError().isPresent(), is(false));
+        assertThat(countObservations(true), is(0L));
+    }
+
+    @Test
+    public void testInterruptKeepsState() throws InterruptedException {
+        DeleteDeletedDataHandler handler = new DeleteDeletedDataHandler();
+        handler.setChunkSize(1);
+        handler.setRowsPerSecond(1);
+        init(handler).purgeDeletedObservations();
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        while (handler.getProgress().get().getDeleted() < 1 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        handler.destroy();
+        DeleteDeletedDataProgress progress = handler.getProgress().get();
+        assertThat(progress.isRunning(), is(false));
+        assertThat(progress.getError().isPresent(), is(true));
+        assertThat(countObservations(true), is(both(greaterThan(0L)).and(lessThan((long) DELETED))));
+        assertThat(Files.exists(getStateFile()), is(true));
+        // a restart resumes the purge from the state file
+        DeleteDeletedDataHandler resumed = init(new DeleteDeletedDataHandler());
+        progress = awaitFinished(resumed);
+        assertThat(progress.getError().isPresent(), is(false));
+        assertThat(countObservations(true), is(0L));
+        assertThat(countObservations(false), is((long) OBSERVATIONS - DELETED));
+    }
+
+    private DeleteDeletedDataHandler init(DeleteDeletedDataHandler handler) {
+        handler.initForTesting(daoFactory, this, tempFolder.getRoot()::getAbsolutePath);
+        handler.init();
+        handlers.add(handler);
+        return handler;
+    }
+
+    private DeleteDeletedDataProgress awaitFinished(DeleteDeletedDataHandler handler) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < timeout) {
+            Optional<DeleteDeletedDataProgress> progress = handler.getProgress();
+            if (progress.isPresent() && !progress.get().isRunning()) {
+                return progress.get();
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("The purge did not finish in time");
+    }
+
+    private Path getStateFile() {
+        return tempFolder.getRoot().toPath().resolve(STATE_FILE);
+    }
+
+    private void writeState(long lastId) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("lastId", Long.toString(lastId));
+        try (OutputStream out = Files.newOutputStream(getStateFile())) {
+            properties.store(out, null);
+        }
+    }
+
+    private void flagAsDeleted(List<String> deleted) {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = getSession();
+            transaction = session.beginTransaction();
+            for (DataEntity<?> observation : (List<DataEntity<?>>) session.createCriteria(DataEntity.class)
+                    .add(Restrictions.in(DataEntity.PROPERTY_IDENTIFIER, deleted)).list()) {
+                observation.setDeleted(true);
+            }
+            transaction.commit();
+        } catch (RuntimeException e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private List<Long> getDeletedObservationIds() {
+        Session session = null;
+        try {
+            session = getSession();
+            return session.createCriteria(DataEntity.class)
+                    .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, true))
+                    .setProjection(Projections.property(DataEntity.PROPERTY_ID))
+                    .addOrder(Order.asc(DataEntity.PROPERTY_ID)).list();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private long countObservations(boolean deleted) {
+        Session session = null;
+        try {
+            session = getSession();
+            return ((Number) session.createCriteria(DataEntity.class)
+                    .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, deleted))
+                    .setProjection(Projections.rowCount()).uniqueResult()).longValue();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private void insertObservation(OmObservationConstellation constellation, String identifier, DateTime time)
+            throws OwsExceptionReport {
+        OmObservation obs = new OmObservation();
+        obs.setIdentifier(identifier);
+        obs.setObservationConstellation(constellation);
+        obs.setResultTime(new TimeInstant(time));
+        SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<BigDecimal>();
+        obsVal.setPhenomenonTime(new TimeInstant(time));
+        obsVal.setValue(new QuantityValue(Double.valueOf(OBS_VAL), TEMP_UNIT));
+        obs.setValue(obsVal);
+        InsertObservationRequest req = new InsertObservationRequest();
+        req.setAssignedSensorId(constellation.getProcedureIdentifier());
+        req.setOfferings(Lists.newArrayList(constellation.getOfferings()));
+        req.setObservation(Lists.newArrayList(obs));
+        insertObservationDAO.insertObservation(req);
+    }
+
+    @Override
+    protected void assertInsertionAftermath(boolean afterCacheUpdate) throws OwsExceptionReport {
+        assertThat(getCache().getProceduresForOffering(PREFIX + OFFERING1), contains(PREFIX + PROCEDURE1));
+    }
+
+    /**
+     * Records the size of the purged chunks and optionally fails.
+     */
+    private static class RecordingHandler extends DeleteDeletedDataHandler {
+
+        private final List<Integer> counts = Lists.newCopyOnWriteArrayList();
+
+        private volatile boolean fail;
+
+        @Override
+        protected int purgeChunk(long lower, long upper) throws OwsExceptionReport {
+            if (fail) {
+                throw new IllegalStateException("failure");
+            }
+            int count = super.purgeChunk(lower, upper);
+            counts.add(count);
+            return count;
+        }
+    }
+
+}
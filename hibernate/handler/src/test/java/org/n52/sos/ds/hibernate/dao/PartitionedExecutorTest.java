@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.hamcrest.core.Is;
+import org.junit.After;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+public class PartitionedExecutorTest {
+
+    private final PartitionedExecutor executor = new PartitionedExecutor("52n-test");
+
+    @After
+    public void destroy() {
+        executor.destroy();
+    }
+
+    @Test
+    public void shouldProcessInCallingThreadWithoutThreads() throws OwsExceptionReport, ConverterException {
+        List<Integer> items = items(10);
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        List<Integer> result = executor.process(items, partition -> {
+            threads.add(Thread.currentThread());
+            return partition;
+        });
+        MatcherAssert.assertThat(executor.isParallel(items.size()), Is.is(false));
+        MatcherAssert.assertThat(result, Is.is(items));
+        MatcherAssert.assertThat(threads, Matchers.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void shouldCreateOnePartitionPerThread() throws OwsExceptionReport, ConverterException {
+        executor.setThreadCount(3);
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        executor.process(items(10), partition -> {
+            sizes.add(partition.size());
+            return partition;
+        });
+        MatcherAssert.assertThat(executor.isParallel(10), Is.is(true));
+        MatcherAssert.assertThat(sizes, Matchers.containsInAnyOrder(4, 4, 2));
+    }
+
+    @Test
+    public void shouldMergeInOrderOfPartitions() throws OwsExceptionReport, ConverterException {
+        executor.setThreadCount(4);
+        List<Integer> items = items(20);
+        // later partitions finish first
+        List<Integer> result = executor.process(items, partition -> {
+            sleep(100 - partition.get(0) * 5);
+            return partition;
+        });
+        MatcherAssert.assertThat(result, Is.is(items));
+    }
+
+    @Test(expected = InvalidParameterValueException.class)
+    public void shouldPropagateOwsExceptionReport() throws OwsExceptionReport, ConverterException {
+        executor.setThreadCount(2);
+        executor.process(items(10), partition -> {
+            if (partition.contains(7)) {
+                throw new InvalidParameterValueException("parameter", "7");
+            }
+            return partition;
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldPropagateUncheckedException() throws OwsExceptionReport, ConverterException {
+        executor.setThreadCount(2);
+        executor.process(items(10), partition -> {
+            throw new IllegalStateException();
+        });
+    }
+
+    @Test
+    public void shouldFinishRunningProcessingAfterThreadCountChange() throws OwsExceptionReport, ConverterException {
+        executor.setThreadCount(2);
+        List<Integer> items = items(10);
+        List<Integer> result = executor.process(items, partition -> {
+            executor.setThreadCount(3);
+            sleep(10);
+            return partition;
+        });
+        MatcherAssert.assertThat(result, Is.is(items));
+        MatcherAssert.assertThat(executor.process(items, partition -> Collections.singletonList(partition.size())),
+                Matchers.contains(4, 4, 2));
+    }
+
+    private static List<Integer> items(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -54,8 +54,9 @@ import org.n52.sos.ds.HibernateDatasourceConstants;
 //import org.n52.sos.ds.hibernate.type.ConfigurableTimestampType;
 //import org.n52.sos.ds.hibernate.type.IsoTimeStringType;
 //import org.n52.sos.ds.hibernate.type.UtcTimestampType;
-//import org.n52.sos.ds.hibernate.util.HibernateConstants;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.metrics.MetricsRegistry;
 import org.n52.sos.service.DriverCleanupListener;
 
 public abstract class UnspecifiedSessionFactoryProvider
@@ -70,6 +71,7 @@ public abstract class UnspecifiedSessionFactoryProvider
     private static Configuration configuration;
     private DriverCleanupListener driverCleanupListener;
     private DatabaseSettingsHandler databaseSettingsHandler;
+    private MetricsRegistry metricsRegistry;
 
     @Inject
     public void setDriverCleanupListener(DriverCleanupListener driverCleanupListener) {
@@ -81,6 +83,11 @@ public abstract class UnspecifiedSessionFactoryProvider
         this.databaseSettingsHandler = databaseSettingsHandler;
     }
 
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
     protected Configuration getConfiguration() {
         return configuration;
     }
@@ -162,6 +169,9 @@ public abstract class UnspecifiedSessionFactoryProvider
             LOGGER.debug("Instantiating configuration and session factory");
             configuration = getConfiguration(properties);
             configuration.mergeProperties(properties);
+            if (metricsRegistry != null) {
+                configuration.getProperties().put(HibernateConstants.METRICS_REGISTRY, metricsRegistry);
+            }
 
             /*
              * set timestamp mapping to a special type to ensure time is always
@@ -174,4 +174,10 @@ public interface HibernateConstants {
 
     String JDBC_TIME_ZONE = AvailableSettings.JDBC_TIME_ZONE;
 
+    /*
+     * Not a Hibernate property: the MetricsRegistry instance passed to the
+     * connection provider to record the connection pool wait time.
+     */
+    String METRICS_REGISTRY = "sos.metrics.registry";
+
 }
@@ -193,6 +193,28 @@ public final class HibernateHelper {
         return lists;
     }
 
+    /**
+     * Get the number of inserted entities after which the session should be
+     * flushed. The minimum is rounded up to a multiple of the JDBC batch size,
+     * so that the inserts of a flush are sent in full batches.
+     *
+     * @param session
+     *            Hibernate session
+     * @param minimum
+     *            the minimum number of entities per flush
+     * @return the flush size
+     */
+    public static int getFlushSize(Session session, int minimum) {
+        Integer batchSize = session.getJdbcBatchSize();
+        if (batchSize == null) {
+            batchSize = session.getSessionFactory().getSessionFactoryOptions().getJdbcBatchSize();
+        }
+        if (batchSize == null || batchSize <= 1) {
+            return minimum;
+        }
+        return ((minimum + batchSize - 1) / batchSize) * batchSize;
+    }
+
     /**
      * Check if the requested function is supported by the requested dialect
      *
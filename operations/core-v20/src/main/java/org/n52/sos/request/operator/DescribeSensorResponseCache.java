@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.shetland.ogc.swe.simpleType.SweAbstractSimpleType;
+import org.n52.sos.cache.SosContentCache;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+import org.n52.sos.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Optional cache for {@link DescribeSensorResponse}s in front of the {@link SosDescribeSensorOperatorV20}. Entries
+ * are keyed on procedure, procedure description format, valid time, requested language and extensions of the checked
+ * request and contain the converted, enriched and post processed procedure descriptions, so a hit skips the data
+ * source, the description enrichments and the response modifiers and only has to be encoded.
+ * <p>
+ * The key additionally contains a fingerprint of the offerings, observable properties, features of interest and
+ * related procedures the content cache lists for the procedure. A cache update that changes these, e.g. an
+ * observation insertion for a new feature, changes the key and the outdated entry is not used anymore. The fingerprint
+ * is computed once per procedure and content cache update time. Entries are invalidated by sensor insertions,
+ * modifications and deletions of the procedure and by complete cache updates. Every invalidation increments a
+ * generation counter and responses of requests that were started before an invalidation are not stored.
+ *
+ * @since 5.3.2
+ */
+@Configurable
+public class DescribeSensorResponseCache implements EventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DescribeSensorResponseCache.class);
+
+    private static final String CACHE_NAME = "describeSensor";
+
+    private static final Set<Class<? extends Event>> TYPES = ImmutableSet.of(SensorInsertion.class,
+            SensorModification.class, SensorDeletion.class, UpdateCache.class);
+
+    private static final int DEFAULT_SIZE = 1000;
+
+    private static final int DEFAULT_TTL = 3600;
+
+    private boolean enabled;
+
+    private int size = DEFAULT_SIZE;
+
+    private int ttl = DEFAULT_TTL;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ConcurrentMap<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    private volatile Cache<Key, CachedResponse> cache = build(DEFAULT_SIZE, DEFAULT_TTL);
+
+    private MetricsRegistry metricsRegistry = MetricsRegistry.disabled();
+
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry != null ? metricsRegistry : MetricsRegistry.disabled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Setting(CoreProfileOperatorSettings.DESCRIBE_SENSOR_RESPONSE_CACHE)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            invalidateAll();
+        }
+    }
+
+    @Setting(CoreProfileOperatorSettings.DESCRIBE_SENSOR_RESPONSE_CACHE_SIZE)
+    public synchronized void setSize(Integer size) {
+        this.size = size != null && size > 0 ? size : DEFAULT_SIZE;
+        this.cache = build(this.size, this.ttl);
+    }
+
+    @Setting(CoreProfileOperatorSettings.DESCRIBE_SENSOR_RESPONSE_CACHE_TTL)
+    public synchronized void setTtl(Integer ttl) {
+        this.ttl = ttl != null && ttl > 0 ? ttl : DEFAULT_TTL;
+        this.cache = build(this.size, this.ttl);
+    }
+
+    /**
+     * Creates the cache key for the checked request.
+     *
+     * @param request
+     *            the checked request
+     * @param contentCache
+     *            the content cache to fingerprint the procedure with
+     * @return the key
+     */
+    public Key createKey(DescribeSensorRequest request, SosContentCache contentCache) {
+        // captured before the data source is queried to detect invalidations while the request is processed
+        long currentGeneration = this.generation.get();
+        String procedure = request.getProcedure();
+        StringBuilder builder = new StringBuilder()
+                .append(request.getService()).append('|')
+                .append(request.getVersion()).append('|')
+                .append(procedure).append('|')
+                .append(request.getProcedureDescriptionFormat()).append('|')
+                .append(canonicalize(request.getValidTime())).append('|')
+                .append(request.getRequestedLanguage()).append('|');
+        if (request.getExtensions() != null && request.getExtensions().getExtensions() != null) {
+            for (Extension<?> extension : request.getExtensions().getExtensions()) {
+                builder.append(extension.getDefinition()).append(',')
+                        .append(extension.getIdentifier()).append(',')
+                        .append(canonicalize(extension.getValue())).append(';');
+            }
+        }
+        return new Key(builder.toString(), procedure, fingerprint(procedure, contentCache), currentGeneration);
+    }
+
+    /**
+     * Get a fresh response with copies of the cached procedure descriptions of the key.
+     *
+     * @param key
+     *            the key
+     * @return the response or {@link Optional#empty()} if there is no entry for the key
+     */
+    public Optional<DescribeSensorResponse> get(Key key) {
+        CachedResponse cached = this.cache.getIfPresent(key);
+        metricsRegistry.recordCacheAccess(CACHE_NAME, cached != null);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        LOGGER.debug("Serving DescribeSensor response from cache for {}", key);
+        return Optional.of(cached.toResponse());
+    }
+
+    /**
+     * Stores the processed response. The response is not stored if the cache was invalidated since the key was
+     * created. As the cache keeps the procedure descriptions of the passed response, the returned response has to be
+     * used instead of the passed one.
+     *
+     * @param key
+     *            the key
+     * @param response
+     *            the processed response
+     * @return the response to return to the client
+     */
+    public OwsServiceResponse put(Key key, OwsServiceResponse response) {
+        if (!(response instanceof DescribeSensorResponse)
+                || !((DescribeSensorResponse) response).isSetProcedureDescriptions()
+                || key.generation != this.generation.get()) {
+            return response;
+        }
+        Cache<Key, CachedResponse> current = this.cache;
+        CachedResponse cached = new CachedResponse((DescribeSensorResponse) response);
+        current.put(key, cached);
+        if (key.generation != this.generation.get()) {
+            // invalidated concurrently, the invalidation may have missed the new entry
+            current.asMap().remove(key, cached);
+        }
+        return cached.toResponse();
+    }
+
+    /**
+     * Invalidates all entries of the procedure.
+     *
+     * @param procedure
+     *            the procedure
+     */
+    public void invalidate(String procedure) {
+        if (procedure == null) {
+            invalidateAll();
+        } else {
+            this.generation.incrementAndGet();
+            this.fingerprints.remove(procedure);
+            this.cache.asMap().keySet().removeIf(key -> procedure.equals(key.procedure));
+        }
+    }
+
+    public void invalidateAll() {
+        this.generation.incrementAndGet();
+        this.fingerprints.clear();
+        this.cache.invalidateAll();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        // even an empty cache has to be invalidated as requests may currently be processed
+        if (event instanceof SensorInsertion) {
+            invalidate(((SensorInsertion) event).getResponse().getAssignedProcedure());
+        } else if (event instanceof SensorModification) {
+            invalidate(((SensorModification) event).getRequest().getProcedureIdentifier());
+        } else if (event instanceof SensorDeletion) {
+            invalidate(((SensorDeletion) event).getRequest().getProcedureIdentifier());
+        } else {
+            invalidateAll();
+        }
+    }
+
+    private Fingerprint fingerprint(String procedure, SosContentCache contentCache) {
+        // read before the values, so values changed by a concurrent update are recomputed after the update
+        DateTime updated = contentCache.getLastUpdateTime();
+        Fingerprint fingerprint = this.fingerprints.get(procedure);
+        if (fingerprint != null && Objects.equals(fingerprint.updated, updated)) {
+            return fingerprint;
+        }
+        Set<String> offerings = contentCache.getOfferingsForProcedure(procedure);
+        Set<String> features = new TreeSet<>();
+        for (String offering : offerings) {
+            features.addAll(contentCache.getFeaturesOfInterestForOffering(offering));
+        }
+        fingerprint = new Fingerprint(updated, ImmutableList.of(sorted(offerings), sorted(features),
+                sorted(contentCache.getObservablePropertiesForProcedure(procedure)),
+                sorted(contentCache.getParentProcedures(procedure, false, false)),
+                sorted(contentCache.getChildProcedures(procedure, false, false))));
+        this.fingerprints.put(procedure, fingerprint);
+        return fingerprint;
+    }
+
+    private static Set<String> sorted(Set<String> values) {
+        return values == null ? Collections.emptySet() : ImmutableSet.copyOf(new TreeSet<>(values));
+    }
+
+    private static Cache<Key, CachedResponse> build(int size, int ttl) {
+        return CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+    }
+
+    private static String canonicalize(Time time) {
+        if (time instanceof TimeInstant) {
+            TimeInstant instant = (TimeInstant) time;
+            return instant.getValue() + "/" + instant.getIndeterminateValue();
+        } else if (time instanceof TimePeriod) {
+            TimePeriod period = (TimePeriod) time;
+            return period.getStart() + "/" + period.getStartIndet() + "--" + period.getEnd() + "/"
+                    + period.getEndIndet();
+        }
+        return String.valueOf(time);
+    }
+
+    private static String canonicalize(Object value) {
+        if (value instanceof SweAbstractSimpleType) {
+            return String.valueOf(((SweAbstractSimpleType<?>) value).getValue());
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * The content cache state of a procedure at the time of a content cache update. Equality is defined by the
+     * values, the update time is only used to decide whether the fingerprint has to be recomputed.
+     */
+    private static final class Fingerprint {
+        private final DateTime updated;
+        private final List<Set<String>> values;
+        private final int hashCode;
+
+        Fingerprint(DateTime updated, List<Set<String>> values) {
+            this.updated = updated;
+            this.values = values;
+            this.hashCode = values.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            return obj instanceof Fingerprint && hashCode == ((Fingerprint) obj).hashCode
+                    && values.equals(((Fingerprint) obj).values);
+        }
+
+        @Override
+        public String toString() {
+            return values.toString();
+        }
+    }
+
+    /**
+     * Key of the cache. Equality is defined by the canonical form of the request and the fingerprint of the
+     * procedure's content cache state, the procedure is used to match invalidations.
+     */
+    public static final class Key {
+        private final String canonical;
+        private final String procedure;
+        private final Fingerprint fingerprint;
+        private final long generation;
+
+        Key(String canonical, String procedure, Fingerprint fingerprint, long generation) {
+            this.canonical = canonical;
+            this.procedure = procedure;
+            this.fingerprint = fingerprint;
+            this.generation = generation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(canonical, fingerprint);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return canonical.equals(that.canonical) && fingerprint.equals(that.fingerprint);
+        }
+
+        @Override
+        public String toString() {
+            return canonical + "#" + fingerprint;
+        }
+    }
+
+    /**
+     * The processed response. The procedure descriptions are never handed out, every response created from this entry
+     * gets its own copies of the description wrappers. The wrapped descriptions are shared and are only read by the
+     * encoders.
+     */
+    private static final class CachedResponse {
+        private final String service;
+        private final String version;
+        private final String outputFormat;
+        private final MediaType contentType;
+        private final Extensions extensions;
+        private final List<SosProcedureDescription<?>> descriptions;
+
+        CachedResponse(DescribeSensorResponse response) {
+            this.service = response.getService();
+            this.version = response.getVersion();
+            this.outputFormat = response.getOutputFormat();
+            this.contentType = response.getContentType();
+            this.extensions = response.getExtensions();
+            this.descriptions = ImmutableList.copyOf(response.getProcedureDescriptions());
+        }
+
+        DescribeSensorResponse toResponse() {
+            DescribeSensorResponse response = new DescribeSensorResponse();
+            response.setService(service);
+            response.setVersion(version);
+            response.setOutputFormat(outputFormat);
+            if (contentType != null) {
+                response.setContentType(contentType);
+            }
+            if (extensions != null) {
+                response.setExtensions(extensions);
+            }
+            List<SosProcedureDescription<?>> copies = new ArrayList<>(descriptions.size());
+            for (SosProcedureDescription<?> description : descriptions) {
+                copies.add(copy(description));
+            }
+            response.setSensorDescriptions(copies);
+            return response;
+        }
+
+        private static <T extends AbstractFeature> SosProcedureDescription<?> copy(
+                SosProcedureDescription<T> description) {
+            if (description.getProcedureDescription() == null) {
+                return description;
+            }
+            SosProcedureDescription<T> copy = new SosProcedureDescription<>(description.getProcedureDescription());
+            copy.add(description);
+            copy.setIdentifier(description.getIdentifierCodeWithAuthority());
+            copy.setDescriptionFormat(description.getDescriptionFormat());
+            if (description.isSetXml()) {
+                copy.setXml(description.getXml());
+            }
+            return copy;
+        }
+    }
+}
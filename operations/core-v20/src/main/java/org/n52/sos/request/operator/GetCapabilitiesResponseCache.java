@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesResponse;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.SosCapabilities;
+import org.n52.shetland.ogc.swe.simpleType.SweAbstractSimpleType;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+import org.n52.sos.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Optional cache for dynamic {@link GetCapabilitiesResponse}s in front of the {@link SosGetCapabilitiesOperatorV20}.
+ * Entries are keyed on service, version, accepted versions, sections, requested language, extensions and the
+ * visibility of the transactional operations and contain the processed capabilities, so a hit skips the data source,
+ * the offering creation and the response modifiers and only has to be encoded.
+ * <p>
+ * The cache is not maintained incrementally. Every complete or partial update of the content cache, e.g. each
+ * observation insertion, sets its last update time, which is the <code>updateSequence</code> of the capabilities.
+ * An entry created before the last update is still served for the configured maximum staleness, after that it is
+ * rebuilt as a whole. With a maximum staleness of <code>0</code> only entries of the current content cache state are
+ * used. Entries are dropped on cache updates and sensor insertions, modifications and deletions. Changes of the
+ * service configuration are only picked up after the TTL.
+ *
+ * @since 5.3.2
+ */
+@Configurable
+public class GetCapabilitiesResponseCache implements EventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GetCapabilitiesResponseCache.class);
+
+    private static final String CACHE_NAME = "getCapabilities";
+
+    private static final Set<Class<? extends Event>> TYPES = ImmutableSet.of(SensorInsertion.class,
+            SensorModification.class, SensorDeletion.class, UpdateCache.class);
+
+    private static final int DEFAULT_SIZE = 50;
+
+    private static final int DEFAULT_TTL = 3600;
+
+    private static final int DEFAULT_MAX_STALENESS = 60;
+
+    private boolean enabled;
+
+    private int size = DEFAULT_SIZE;
+
+    private int ttl = DEFAULT_TTL;
+
+    private long maxStaleness = TimeUnit.SECONDS.toNanos(DEFAULT_MAX_STALENESS);
+
+    private Ticker ticker = Ticker.systemTicker();
+
+    private volatile Cache<Key, CachedResponse> cache = build(DEFAULT_SIZE, DEFAULT_TTL);
+
+    private MetricsRegistry metricsRegistry = MetricsRegistry.disabled();
+
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry != null ? metricsRegistry : MetricsRegistry.disabled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Setting(CoreProfileOperatorSettings.GET_CAPABILITIES_RESPONSE_CACHE)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            invalidateAll();
+        }
+    }
+
+    @Setting(CoreProfileOperatorSettings.GET_CAPABILITIES_RESPONSE_CACHE_SIZE)
+    public synchronized void setSize(Integer size) {
+        this.size = size != null && size > 0 ? size : DEFAULT_SIZE;
+        this.cache = build(this.size, this.ttl);
+    }
+
+    @Setting(CoreProfileOperatorSettings.GET_CAPABILITIES_RESPONSE_CACHE_TTL)
+    public synchronized void setTtl(Integer ttl) {
+        this.ttl = ttl != null && ttl > 0 ? ttl : DEFAULT_TTL;
+        this.cache = build(this.size, this.ttl);
+    }
+
+    @Setting(CoreProfileOperatorSettings.GET_CAPABILITIES_RESPONSE_CACHE_MAX_STALENESS)
+    public void setMaxStaleness(Integer maxStaleness) {
+        this.maxStaleness = TimeUnit.SECONDS.toNanos(
+                maxStaleness != null && maxStaleness >= 0 ? maxStaleness : DEFAULT_MAX_STALENESS);
+    }
+
+    @VisibleForTesting
+    void setTicker(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    /**
+     * Creates the cache key for the checked request.
+     *
+     * @param request
+     *            the checked request
+     * @param showTransactionalOperations
+     *            if the transactional operations are listed for the request
+     * @return the key
+     */
+    public Key createKey(GetCapabilitiesRequest request, boolean showTransactionalOperations) {
+        StringBuilder builder = new StringBuilder()
+                .append(request.getService()).append('|')
+                .append(request.getVersion()).append('|')
+                .append(request.getAcceptVersions()).append('|')
+                .append(request.getCapabilitiesId()).append('|')
+                .append(request.getRequestedLanguage()).append('|')
+                .append(showTransactionalOperations).append('|');
+        if (request.isSetSections()) {
+            builder.append(new TreeSet<>(request.getSections()));
+        }
+        builder.append('|');
+        if (request.getExtensions() != null && request.getExtensions().getExtensions() != null) {
+            for (Extension<?> extension : request.getExtensions().getExtensions()) {
+                builder.append(extension.getDefinition()).append(',')
+                        .append(extension.getIdentifier()).append(',')
+                        .append(canonicalize(extension.getValue())).append(';');
+            }
+        }
+        return new Key(builder.toString());
+    }
+
+    /**
+     * Get a fresh response for the cached capabilities of the key. Entries created before the last update of the
+     * content cache are only returned within the maximum staleness.
+     *
+     * @param key
+     *            the key
+     * @param lastUpdateTime
+     *            the current last update time of the content cache
+     * @return the response or {@link Optional#empty()} if there is no usable entry for the key
+     */
+    public Optional<GetCapabilitiesResponse> get(Key key, DateTime lastUpdateTime) {
+        CachedResponse cached = this.cache.getIfPresent(key);
+        if (cached != null && !cached.isUsable(lastUpdateTime, ticker.read(), maxStaleness)) {
+            this.cache.asMap().remove(key, cached);
+            cached = null;
+        }
+        metricsRegistry.recordCacheAccess(CACHE_NAME, cached != null);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        LOGGER.debug("Serving GetCapabilities response from cache for {}", key);
+        return Optional.of(cached.toResponse());
+    }
+
+    /**
+     * Stores the processed response.
+     *
+     * @param key
+     *            the key
+     * @param lastUpdateTime
+     *            the last update time of the content cache before the response was created
+     * @param response
+     *            the processed response
+     * @return the response to return to the client
+     */
+    public OwsServiceResponse put(Key key, DateTime lastUpdateTime, OwsServiceResponse response) {
+        if (response instanceof GetCapabilitiesResponse
+                && ((GetCapabilitiesResponse) response).getCapabilities() instanceof SosCapabilities) {
+            this.cache.put(key, new CachedResponse((GetCapabilitiesResponse) response, lastUpdateTime,
+                    ticker.read()));
+        }
+        return response;
+    }
+
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (this.cache.size() > 0) {
+            invalidateAll();
+        }
+    }
+
+    private static Cache<Key, CachedResponse> build(int size, int ttl) {
+        return CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+    }
+
+    private static String canonicalize(Object value) {
+        if (value instanceof SweAbstractSimpleType) {
+            return String.valueOf(((SweAbstractSimpleType<?>) value).getValue());
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Key of the cache. Equality is defined by the canonical form of the request.
+     */
+    public static final class Key {
+        private final String canonical;
+
+        Key(String canonical) {
+            this.canonical = canonical;
+        }
+
+        @Override
+        public int hashCode() {
+            return canonical.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && canonical.equals(((Key) obj).canonical);
+        }
+
+        @Override
+        public String toString() {
+            return canonical;
+        }
+    }
+
+    /**
+     * The processed response. Each response created from this entry gets its own copy of the capabilities and of
+     * the offering collection, the section objects themselves are shared and not modified after the response
+     * modifiers were applied.
+     */
+    private static final class CachedResponse {
+        private final String service;
+        private final String version;
+        private final MediaType contentType;
+        private final Extensions extensions;
+        private final SosCapabilities capabilities;
+        private final DateTime lastUpdateTime;
+        private final long created;
+
+        CachedResponse(GetCapabilitiesResponse response, DateTime lastUpdateTime, long created) {
+            this.service = response.getService();
+            this.version = response.getVersion();
+            this.contentType = response.getContentType();
+            this.extensions = response.getExtensions();
+            this.capabilities = copy((SosCapabilities) response.getCapabilities());
+            this.lastUpdateTime = lastUpdateTime;
+            this.created = created;
+        }
+
+        boolean isUsable(DateTime currentUpdateTime, long now, long maxStaleness) {
+            return Objects.equals(lastUpdateTime, currentUpdateTime) || now - created <= maxStaleness;
+        }
+
+        GetCapabilitiesResponse toResponse() {
+            GetCapabilitiesResponse response = new GetCapabilitiesResponse(service, version);
+            if (contentType != null) {
+                response.setContentType(contentType);
+            }
+            if (extensions != null) {
+                response.setExtensions(extensions);
+            }
+            response.setCapabilities(copy(capabilities));
+            return response;
+        }
+
+        private static SosCapabilities copy(SosCapabilities capabilities) {
+            SosCapabilities copy = new SosCapabilities(capabilities.getService(), capabilities.getVersion(), null,
+                    null, null, null, null, null, null, null);
+            capabilities.getUpdateSequence().ifPresent(copy::setUpdateSequence);
+            capabilities.getServiceIdentification().ifPresent(copy::setServiceIdentification);
+            capabilities.getServiceProvider().ifPresent(copy::setServiceProvider);
+            capabilities.getOperationsMetadata().ifPresent(copy::setOperationsMetadata);
+            capabilities.getFilterCapabilities().ifPresent(copy::setFilterCapabilities);
+            capabilities.getContents().ifPresent(contents -> copy.setContents(new ArrayList<>(contents)));
+            copy.setExtensions(capabilities.getExtensions());
+            return copy;
+        }
+    }
+}
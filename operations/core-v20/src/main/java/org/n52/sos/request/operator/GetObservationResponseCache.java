@@ -0,0 +1,559 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.AbstractThrowingIterator;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.filter.SpatialFilter;
+import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.response.AbstractStreaming;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+import org.n52.shetland.ogc.sos.response.GlobalObservationResponseValues;
+import org.n52.shetland.ogc.swe.simpleType.SweAbstractSimpleType;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+import org.n52.sos.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Optional cache for {@link GetObservationResponse}s in front of the {@link SosGetObservationOperatorV20}. Entries
+ * are keyed on the canonicalized (checked and normalized) {@link GetObservationRequest} and contain the fully
+ * processed and materialized observations, so a hit skips the data source and the response modifiers and only has
+ * to be encoded.
+ * <p>
+ * Entries are evicted by their number of observations and age and are invalidated by observation insertions, result
+ * insertions, observation deletions, sensor modifications and sensor deletions if the request of the entry matches the
+ * affected datasets. Streamed observation values are read into single observations while they are counted, responses
+ * with more observations than configured are not cached. Every invalidation increments a generation counter and
+ * responses of requests that were started before an invalidation are not stored, as they may already be outdated.
+ *
+ * @since 5.3.2
+ */
+@Configurable
+public class GetObservationResponseCache implements EventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GetObservationResponseCache.class);
+
+    private static final String CACHE_NAME = "getObservation";
+
+    private static final Set<Class<? extends Event>> TYPES = ImmutableSet.of(ObservationInsertion.class,
+            ResultInsertion.class, DeleteObservationEvent.class, SensorModification.class, SensorDeletion.class,
+            UpdateCache.class);
+
+    private static final int DEFAULT_SIZE = 100;
+
+    private static final int DEFAULT_TTL = 60;
+
+    private static final int DEFAULT_MAX_OBSERVATIONS = 1000;
+
+    private boolean enabled;
+
+    private int size = DEFAULT_SIZE;
+
+    private int ttl = DEFAULT_TTL;
+
+    private volatile int maxObservations = DEFAULT_MAX_OBSERVATIONS;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Cache<Key, CachedResponse> cache = build(DEFAULT_SIZE, DEFAULT_TTL, DEFAULT_MAX_OBSERVATIONS);
+
+    private MetricsRegistry metricsRegistry = MetricsRegistry.disabled();
+
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry != null ? metricsRegistry : MetricsRegistry.disabled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Setting(CoreProfileOperatorSettings.GET_OBSERVATION_RESPONSE_CACHE)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            invalidateAll();
+        }
+    }
+
+    @Setting(CoreProfileOperatorSettings.GET_OBSERVATION_RESPONSE_CACHE_SIZE)
+    public synchronized void setSize(Integer size) {
+        this.size = size != null && size > 0 ? size : DEFAULT_SIZE;
+        this.cache = build(this.size, this.ttl, this.maxObservations);
+    }
+
+    @Setting(CoreProfileOperatorSettings.GET_OBSERVATION_RESPONSE_CACHE_TTL)
+    public synchronized void setTtl(Integer ttl) {
+        this.ttl = ttl != null && ttl > 0 ? ttl : DEFAULT_TTL;
+        this.cache = build(this.size, this.ttl, this.maxObservations);
+    }
+
+    @Setting(CoreProfileOperatorSettings.GET_OBSERVATION_RESPONSE_CACHE_MAX_OBSERVATIONS)
+    public synchronized void setMaxObservations(Integer maxObservations) {
+        this.maxObservations = maxObservations != null && maxObservations > 0 ? maxObservations
+                : DEFAULT_MAX_OBSERVATIONS;
+        this.cache = build(this.size, this.ttl, this.maxObservations);
+    }
+
+    /**
+     * Creates the cache key for the checked request. Has to be called before the request is passed to the operation
+     * handler as the handlers may modify the request.
+     *
+     * @param request
+     *            the checked request
+     * @return the key or {@link Optional#empty()} if the request can not be cached
+     */
+    public Optional<Key> createKey(GetObservationRequest request) {
+        if (request.hasResultFilter()) {
+            return Optional.empty();
+        }
+        // captured before the data source is queried to detect invalidations while the request is processed
+        long currentGeneration = this.generation.get();
+        SortedSet<String> offerings = sorted(request.getOfferings());
+        SortedSet<String> procedures = sorted(request.getProcedures());
+        SortedSet<String> observedProperties = sorted(request.getObservedProperties());
+        SortedSet<String> features = sorted(request.getFeatureIdentifiers());
+        StringBuilder builder = new StringBuilder()
+                .append(request.getService()).append('|')
+                .append(request.getVersion()).append('|')
+                .append(request.getResponseFormat()).append('|')
+                .append(request.getResultModel()).append('|')
+                .append(offerings).append('|')
+                .append(procedures).append('|')
+                .append(observedProperties).append('|')
+                .append(features).append('|');
+        SpatialFilter spatialFilter = request.getSpatialFilter();
+        if (spatialFilter != null) {
+            builder.append(spatialFilter.getOperator()).append(',')
+                    .append(spatialFilter.getValueReference()).append(',')
+                    .append(spatialFilter.getGeometry());
+        }
+        builder.append('|');
+        if (request.getTemporalFilters() != null) {
+            for (TemporalFilter temporalFilter : request.getTemporalFilters()) {
+                builder.append(temporalFilter.getOperator()).append(',')
+                        .append(temporalFilter.getValueReference()).append(',')
+                        .append(canonicalize(temporalFilter.getTime())).append(';');
+            }
+        }
+        builder.append('|');
+        if (request.getExtensions() != null && request.getExtensions().getExtensions() != null) {
+            for (Extension<?> extension : request.getExtensions().getExtensions()) {
+                builder.append(extension.getDefinition()).append(',')
+                        .append(extension.getIdentifier()).append(',')
+                        .append(canonicalize(extension.getValue())).append(';');
+            }
+        }
+        // a spatial filter is resolved to features by the handler, so every feature may be affected
+        return Optional.of(new Key(builder.toString(), offerings, procedures, observedProperties,
+                spatialFilter != null ? Collections.emptySortedSet() : features, currentGeneration));
+    }
+
+    /**
+     * Get a fresh copy of the cached response for the key. The observations of the response are copies and may be
+     * modified.
+     *
+     * @param key
+     *            the key
+     * @return the response or {@link Optional#empty()} if there is no entry for the key
+     */
+    public Optional<GetObservationResponse> get(Key key) {
+        CachedResponse cached = this.cache.getIfPresent(key);
+        metricsRegistry.recordCacheAccess(CACHE_NAME, cached != null);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        LOGGER.debug("Serving GetObservation response from cache for {}", key);
+        return Optional.of(cached.toResponse());
+    }
+
+    /**
+     * Materializes and stores the processed response. As the observation stream of the response is consumed by this
+     * method, the returned response has to be used instead of the passed one. Streamed observation values are read
+     * into single observations. The response is not stored if the cache was invalidated since the key was created or
+     * if it contains more observations than configured.
+     *
+     * @param key
+     *            the key
+     * @param response
+     *            the processed response
+     * @return the response to return to the client
+     * @throws OwsExceptionReport
+     *             if the observations could not be read
+     */
+    public OwsServiceResponse put(Key key, OwsServiceResponse response) throws OwsExceptionReport {
+        if (!(response instanceof GetObservationResponse) || key.generation != this.generation.get()) {
+            return response;
+        }
+        GetObservationResponse getObservationResponse = (GetObservationResponse) response;
+        ObservationStream stream = getObservationResponse.getObservationCollection();
+        List<OmObservation> observations = new ArrayList<>();
+        if (stream != null) {
+            int limit = this.maxObservations;
+            while (stream.hasNext()) {
+                OmObservation observation = stream.next();
+                if (observation.getValue() instanceof AbstractStreaming) {
+                    AbstractStreaming values = (AbstractStreaming) observation.getValue();
+                    while (values.hasNext()) {
+                        observations.add(values.next());
+                        if (observations.size() > limit) {
+                            // the rest of the values is streamed by the observation itself
+                            return notCached(key, getObservationResponse, observations,
+                                    values.hasNext() ? observation : null, stream);
+                        }
+                    }
+                } else {
+                    observations.add(observation);
+                    if (observations.size() > limit) {
+                        return notCached(key, getObservationResponse, observations, null, stream);
+                    }
+                }
+            }
+        }
+        Cache<Key, CachedResponse> current = this.cache;
+        CachedResponse cached = new CachedResponse(getObservationResponse, observations);
+        if (key.generation == this.generation.get()) {
+            current.put(key, cached);
+            if (key.generation != this.generation.get()) {
+                // invalidated concurrently, the invalidation may have missed the new entry
+                current.asMap().remove(key, cached);
+            }
+        }
+        return cached.toResponse();
+    }
+
+    private static GetObservationResponse notCached(Key key, GetObservationResponse response,
+            List<OmObservation> read, OmObservation partial, ObservationStream remaining) {
+        LOGGER.debug("Not caching GetObservation response for {}", key);
+        response.setObservationCollection(new ConcatenatedObservationStream(read, partial, remaining));
+        return response;
+    }
+
+    /**
+     * Invalidates all entries whose request matches the dataset. A {@code null} or empty parameter matches every
+     * request.
+     *
+     * @param procedure
+     *            the procedure of the dataset
+     * @param observableProperty
+     *            the observable property of the dataset
+     * @param offerings
+     *            the offerings of the dataset
+     * @param feature
+     *            the feature of interest of the dataset
+     */
+    public void invalidate(String procedure, String observableProperty, Collection<String> offerings,
+            String feature) {
+        this.generation.incrementAndGet();
+        this.cache.asMap().keySet()
+                .removeIf(key -> key.matches(procedure, observableProperty, offerings, feature));
+    }
+
+    public void invalidateAll() {
+        this.generation.incrementAndGet();
+        this.cache.invalidateAll();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        // even an empty cache has to be invalidated as requests may currently be processed
+        if (event instanceof ObservationInsertion) {
+            ObservationInsertion e = (ObservationInsertion) event;
+            invalidate(e.getRequest().getObservations(), e.getRequest().getOfferings());
+        } else if (event instanceof ResultInsertion) {
+            invalidate(((ResultInsertion) event).getResponse().getObservations(), null);
+        } else if (event instanceof DeleteObservationEvent && ((DeleteObservationEvent) event)
+                .isSetDeletedObservation()) {
+            invalidate(Collections.singleton(((DeleteObservationEvent) event).getDeletedObservation()), null);
+        } else if (event instanceof SensorModification) {
+            invalidate(((SensorModification) event).getRequest().getProcedureIdentifier(), null, null, null);
+        } else if (event instanceof SensorDeletion) {
+            invalidate(((SensorDeletion) event).getRequest().getProcedureIdentifier(), null, null, null);
+        } else {
+            invalidateAll();
+        }
+    }
+
+    private void invalidate(Collection<OmObservation> observations, Collection<String> offerings) {
+        if (observations == null) {
+            invalidateAll();
+            return;
+        }
+        for (OmObservation observation : observations) {
+            OmObservationConstellation constellation = observation.getObservationConstellation();
+            if (constellation == null) {
+                invalidateAll();
+                return;
+            }
+            Set<String> affectedOfferings = new TreeSet<>();
+            if (offerings != null) {
+                affectedOfferings.addAll(offerings);
+            }
+            if (constellation.getOfferings() != null) {
+                affectedOfferings.addAll(constellation.getOfferings());
+            }
+            invalidate(constellation.getProcedureIdentifier(), constellation.getObservablePropertyIdentifier(),
+                    affectedOfferings, constellation.getFeatureOfInterestIdentifier());
+        }
+    }
+
+    private static Cache<Key, CachedResponse> build(int size, int ttl, int maxObservations) {
+        // entries are weighted by their number of observations, an empty response weighs as much as one observation
+        return CacheBuilder.newBuilder()
+                .maximumWeight((long) size * maxObservations)
+                .weigher((Key key, CachedResponse value) -> Math.max(1, value.observations.size()))
+                .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private static SortedSet<String> sorted(Collection<String> values) {
+        return values == null ? Collections.emptySortedSet() : Collections.unmodifiableSortedSet(new TreeSet<>(
+                values));
+    }
+
+    private static String canonicalize(Time time) {
+        if (time instanceof TimeInstant) {
+            TimeInstant instant = (TimeInstant) time;
+            return instant.getValue() + "/" + instant.getIndeterminateValue();
+        } else if (time instanceof TimePeriod) {
+            TimePeriod period = (TimePeriod) time;
+            return period.getStart() + "/" + period.getStartIndet() + "--" + period.getEnd() + "/"
+                    + period.getEndIndet();
+        }
+        return String.valueOf(time);
+    }
+
+    private static String canonicalize(Object value) {
+        if (value instanceof SweAbstractSimpleType) {
+            return String.valueOf(((SweAbstractSimpleType<?>) value).getValue());
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Key of the cache. Equality is defined by the canonical form of the request, the parameter sets are used to
+     * match invalidations.
+     */
+    public static final class Key {
+        private final String canonical;
+        private final Set<String> offerings;
+        private final Set<String> procedures;
+        private final Set<String> observedProperties;
+        private final Set<String> features;
+        private final long generation;
+
+        Key(String canonical, Set<String> offerings, Set<String> procedures, Set<String> observedProperties,
+                Set<String> features, long generation) {
+            this.canonical = canonical;
+            this.offerings = offerings;
+            this.procedures = procedures;
+            this.observedProperties = observedProperties;
+            this.features = features;
+            this.generation = generation;
+        }
+
+        boolean matches(String procedure, String observableProperty, Collection<String> offerings, String feature) {
+            return matches(this.procedures, procedure) && matches(this.observedProperties, observableProperty)
+                    && matchesOfferings(offerings) && matches(this.features, feature);
+        }
+
+        private boolean matchesOfferings(Collection<String> affected) {
+            if (this.offerings.isEmpty() || affected == null || affected.isEmpty()) {
+                return true;
+            }
+            // offerings may be requested as "offering/procedure"
+            return this.offerings.stream()
+                    .map(offering -> offering.split(SosConstants.SEPARATOR_4_OFFERINGS)[0])
+                    .anyMatch(affected::contains);
+        }
+
+        private static boolean matches(Set<String> requested, String affected) {
+            return requested.isEmpty() || affected == null || requested.contains(affected);
+        }
+
+        @Override
+        public int hashCode() {
+            return canonical.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && canonical.equals(((Key) obj).canonical);
+        }
+
+        @Override
+        public String toString() {
+            return canonical;
+        }
+    }
+
+    /**
+     * The materialized response. The observations are never handed out, every response created from this entry gets
+     * its own copies.
+     */
+    private static final class CachedResponse {
+        private final String service;
+        private final String version;
+        private final String responseFormat;
+        private final String resultModel;
+        private final MediaType contentType;
+        private final Extensions extensions;
+        private final GlobalObservationResponseValues globalObservationValues;
+        private final List<OmObservation> observations;
+
+        CachedResponse(GetObservationResponse response, List<OmObservation> observations) {
+            this.service = response.getService();
+            this.version = response.getVersion();
+            this.responseFormat = response.getResponseFormat();
+            this.resultModel = response.getResultModel();
+            this.contentType = response.getContentType();
+            this.extensions = response.getExtensions();
+            this.globalObservationValues = response.getGlobalObservationValues();
+            this.observations = ImmutableList.copyOf(observations);
+        }
+
+        GetObservationResponse toResponse() {
+            GetObservationResponse response = new GetObservationResponse();
+            response.setService(service);
+            response.setVersion(version);
+            response.setResponseFormat(responseFormat);
+            response.setResultModel(resultModel);
+            if (contentType != null) {
+                response.setContentType(contentType);
+            }
+            if (extensions != null) {
+                response.setExtensions(extensions);
+            }
+            if (globalObservationValues != null) {
+                response.setGlobalObservationValues(globalObservationValues);
+            }
+            List<OmObservation> copies = new ArrayList<>(observations.size());
+            for (OmObservation observation : observations) {
+                copies.add(copy(observation));
+            }
+            response.setObservationCollection(ObservationStream.of(copies));
+            return response;
+        }
+
+        private static OmObservation copy(OmObservation observation) {
+            OmObservation copy = observation.copyTo(new OmObservation());
+            if (observation.getObservationConstellation() != null) {
+                copy.setObservationConstellation(observation.getObservationConstellation().copy());
+            }
+            if (observation.getValue() instanceof SingleObservationValue) {
+                copy.setValue(copy((SingleObservationValue<?>) observation.getValue()));
+            }
+            return copy;
+        }
+
+        private static <T> SingleObservationValue<T> copy(SingleObservationValue<T> value) {
+            return new SingleObservationValue<>(value.getPhenomenonTime(), value.getValue());
+        }
+    }
+
+    /**
+     * {@link ObservationStream} of already read observations followed by the partially read observation with streamed
+     * values, if any, and the remaining observations of a stream.
+     */
+    private static final class ConcatenatedObservationStream
+            extends AbstractThrowingIterator<OmObservation, OwsExceptionReport> implements ObservationStream {
+        private final Iterator<OmObservation> read;
+        private OmObservation partial;
+        private final ObservationStream remaining;
+
+        ConcatenatedObservationStream(List<OmObservation> read, OmObservation partial, ObservationStream remaining) {
+            this.read = read.iterator();
+            this.partial = partial;
+            this.remaining = remaining;
+        }
+
+        @Override
+        protected OmObservation computeNext() throws OwsExceptionReport {
+            if (this.read.hasNext()) {
+                return this.read.next();
+            }
+            if (this.partial != null) {
+                OmObservation observation = this.partial;
+                this.partial = null;
+                return observation;
+            }
+            if (this.remaining.hasNext()) {
+                return this.remaining.next();
+            }
+            return endOfData();
+        }
+    }
+}
@@ -41,6 +41,7 @@ import javax.inject.Inject;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.binding.BindingRepository;
+import org.n52.iceland.event.events.ResponseEvent;
 import org.n52.janmayen.http.MediaTypes;
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.CodeType;
@@ -109,6 +110,8 @@ public class SosDescribeSensorOperatorV20 extends
 
     private boolean encodeFullChildrenInDescribeSensor;
 
+    private DescribeSensorResponseCache responseCache;
+
     public SosDescribeSensorOperatorV20() {
         super(OPERATION_NAME, DescribeSensorRequest.class);
         postProcessor = new PostProcessor();
@@ -123,6 +126,11 @@ public class SosDescribeSensorOperatorV20 extends
         this.bindingRepository = bindingRepository;
     }
 
+    @Inject
+    public void setResponseCache(DescribeSensorResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
     @Inject
     public void setSosHelperL(SosHelper sosHelper) {
         this.sosHelper = sosHelper;
@@ -156,6 +164,20 @@ public class SosDescribeSensorOperatorV20 extends
         // should be transformed (CRS support)
     }
 
+    @Override
+    protected OwsServiceResponse handleRequest(DescribeSensorRequest request) throws OwsExceptionReport {
+        if (responseCache == null || !responseCache.isEnabled()) {
+            return super.handleRequest(request);
+        }
+        DescribeSensorResponseCache.Key key = responseCache.createKey(request, getCache());
+        Optional<DescribeSensorResponse> cached = responseCache.get(key);
+        if (cached.isPresent()) {
+            getServiceEventBus().submit(new ResponseEvent(cached.get()));
+            return cached.get();
+        }
+        return responseCache.put(key, super.handleRequest(request));
+    }
+
     @Override
     protected void checkParameters(DescribeSensorRequest sosRequest) throws OwsExceptionReport {
         CompositeOwsException exceptions = new CompositeOwsException();
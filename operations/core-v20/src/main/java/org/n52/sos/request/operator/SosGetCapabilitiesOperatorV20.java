@@ -29,12 +29,18 @@
 package org.n52.sos.request.operator;
 
 import java.util.Collections;
+import java.util.Optional;
 import java.util.Set;
 
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.n52.iceland.event.events.ResponseEvent;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
 import org.n52.shetland.ogc.ows.service.GetCapabilitiesResponse;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.sos.ds.AbstractGetCapabilitiesHandler;
@@ -53,10 +59,17 @@ public class SosGetCapabilitiesOperatorV20 extends
     private static final Set<String> CONFORMANCE_CLASSES = Collections
             .singleton(ConformanceClasses.SOS_V2_CORE_PROFILE);
 
+    private GetCapabilitiesResponseCache responseCache;
+
     public SosGetCapabilitiesOperatorV20() {
         super(OPERATION_NAME, GetCapabilitiesRequest.class);
     }
 
+    @Inject
+    public void setResponseCache(GetCapabilitiesResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
     @Override
     public Set<String> getConformanceClasses(String service, String version) {
         if (SosConstants.SOS.equals(service) && Sos2Constants.SERVICEVERSION.equals(version)) {
@@ -70,6 +83,23 @@ public class SosGetCapabilitiesOperatorV20 extends
         return getOperationHandler().getCapabilities(request);
     }
 
+    @Override
+    protected OwsServiceResponse handleRequest(GetCapabilitiesRequest request) throws OwsExceptionReport {
+        if (responseCache == null || !responseCache.isEnabled()
+                || !getOperationHandler().isDynamicCapabilitiesRequest(request)) {
+            return super.handleRequest(request);
+        }
+        GetCapabilitiesResponseCache.Key key = responseCache.createKey(request,
+                getOperationHandler().isShowTransactionalOperations(request));
+        DateTime lastUpdateTime = getCache().getLastUpdateTime();
+        Optional<GetCapabilitiesResponse> cached = responseCache.get(key, lastUpdateTime);
+        if (cached.isPresent()) {
+            getServiceEventBus().submit(new ResponseEvent(cached.get()));
+            return cached.get();
+        }
+        return responseCache.put(key, lastUpdateTime, super.handleRequest(request));
+    }
+
     @Override
     public Metadata getSosOperationDefinition() {
         return Metadatas.GET_CAPABILITIES;
@@ -32,10 +32,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 
+import javax.inject.Inject;
+
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.event.events.ResponseEvent;
 import org.n52.shetland.ogc.SupportedType;
 import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
 import org.n52.shetland.ogc.filter.TemporalFilter;
@@ -46,6 +50,7 @@ import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
 import org.n52.shetland.ogc.ows.exception.MissingParameterValueException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.sos.ExtendedIndeterminateTime;
 import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
@@ -84,10 +89,17 @@ public class SosGetObservationOperatorV20 extends
 
     private boolean blockRequestsWithoutRestriction;
 
+    private GetObservationResponseCache responseCache;
+
     public SosGetObservationOperatorV20() {
         super(SosConstants.Operations.GetObservation.name(), GetObservationRequest.class);
     }
 
+    @Inject
+    public void setResponseCache(GetObservationResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
     @Override
     public Set<String> getConformanceClasses(String service, String version) {
         if (SosConstants.SOS.equals(service) && Sos2Constants.SERVICEVERSION.equals(version)) {
@@ -103,6 +115,23 @@ public class SosGetObservationOperatorV20 extends
         return sosResponse;
     }
 
+    @Override
+    protected OwsServiceResponse handleRequest(GetObservationRequest request) throws OwsExceptionReport {
+        if (responseCache == null || !responseCache.isEnabled()) {
+            return super.handleRequest(request);
+        }
+        Optional<GetObservationResponseCache.Key> key = responseCache.createKey(request);
+        if (!key.isPresent()) {
+            return super.handleRequest(request);
+        }
+        Optional<GetObservationResponse> cached = responseCache.get(key.get());
+        if (cached.isPresent()) {
+            getServiceEventBus().submit(new ResponseEvent(cached.get()));
+            return cached.get();
+        }
+        return responseCache.put(key.get(), super.handleRequest(request));
+    }
+
     @Override
     protected void checkParameters(GetObservationRequest request) throws OwsExceptionReport {
         final CompositeOwsException exceptions = new CompositeOwsException();
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.Collections;
+
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.hamcrest.core.Is;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.request.UpdateSensorRequest;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.sos.cache.SosContentCache;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.metrics.MetricsRegistry;
+
+/**
+ * @since 5.3.2
+ */
+public class DescribeSensorResponseCacheTest {
+    private static final String PROCEDURE_1 = "procedure-1";
+
+    private static final String PROCEDURE_2 = "procedure-2";
+
+    private static final String FORMAT = "http://www.opengis.net/sensorml/2.0";
+
+    private DescribeSensorResponseCache cache;
+
+    private SosContentCache contentCache;
+
+    @Before
+    public void setUp() {
+        cache = new DescribeSensorResponseCache();
+        cache.setMetricsRegistry(new MetricsRegistry());
+        cache.setEnabled(true);
+        contentCache = Mockito.mock(SosContentCache.class);
+        Mockito.when(contentCache.getOfferingsForProcedure(Mockito.anyString()))
+                .thenReturn(Collections.singleton("offering"));
+        Mockito.when(contentCache.getFeaturesOfInterestForOffering("offering"))
+                .thenReturn(Collections.singleton("feature-1"));
+        Mockito.when(contentCache.getLastUpdateTime()).thenReturn(new DateTime(1000L));
+    }
+
+    @Test
+    public void should_return_fresh_responses_for_cached_entry() {
+        DescribeSensorResponseCache.Key key = cache.createKey(request(PROCEDURE_1), contentCache);
+        MatcherAssert.assertThat(cache.get(key).isPresent(), Is.is(false));
+        SosProcedureDescription<?> description = description(PROCEDURE_1);
+        cache.put(key, response(description));
+
+        DescribeSensorResponse first = cache.get(cache.createKey(request(PROCEDURE_1), contentCache)).get();
+        DescribeSensorResponse second = cache.get(key).get();
+        MatcherAssert.assertThat(first == second, Is.is(false));
+        MatcherAssert.assertThat(first.getOutputFormat(), Is.is(FORMAT));
+        SosProcedureDescription<?> firstDescription = first.getProcedureDescriptions().get(0);
+        SosProcedureDescription<?> secondDescription = second.getProcedureDescriptions().get(0);
+        MatcherAssert.assertThat(firstDescription == secondDescription, Is.is(false));
+        MatcherAssert.assertThat(firstDescription.getIdentifier(), Is.is(description.getIdentifier()));
+        MatcherAssert.assertThat(firstDescription.getDescriptionFormat(), Is.is(FORMAT));
+        // modifications of a response must not affect the cached entry
+        firstDescription.setDescriptionFormat("other");
+        MatcherAssert.assertThat(cache.get(key).get().getProcedureDescriptions().get(0).getDescriptionFormat(),
+                Is.is(FORMAT));
+    }
+
+    @Test
+    public void should_miss_if_features_of_procedure_changed() {
+        DescribeSensorResponseCache.Key key = cache.createKey(request(PROCEDURE_1), contentCache);
+        cache.put(key, response(description(PROCEDURE_1)));
+        Mockito.when(contentCache.getFeaturesOfInterestForOffering("offering"))
+                .thenReturn(Collections.singleton("feature-2"));
+        // the fingerprint is only recomputed after a content cache update
+        MatcherAssert.assertThat(cache.createKey(request(PROCEDURE_1), contentCache), Is.is(key));
+        Mockito.when(contentCache.getLastUpdateTime()).thenReturn(new DateTime(2000L));
+        DescribeSensorResponseCache.Key changed = cache.createKey(request(PROCEDURE_1), contentCache);
+        MatcherAssert.assertThat(changed.equals(key), Is.is(false));
+        MatcherAssert.assertThat(cache.get(changed).isPresent(), Is.is(false));
+    }
+
+    @Test
+    public void should_hit_if_unchanged_procedure_state_was_updated() {
+        DescribeSensorResponseCache.Key key = cache.createKey(request(PROCEDURE_1), contentCache);
+        cache.put(key, response(description(PROCEDURE_1)));
+        Mockito.when(contentCache.getLastUpdateTime()).thenReturn(new DateTime(2000L));
+        MatcherAssert.assertThat(cache.get(cache.createKey(request(PROCEDURE_1), contentCache)).isPresent(),
+                Is.is(true));
+    }
+
+    @Test
+    public void should_not_store_responses_of_requests_started_before_an_invalidation() {
+        DescribeSensorResponseCache.Key key = cache.createKey(request(PROCEDURE_1), contentCache);
+        UpdateSensorRequest request = new UpdateSensorRequest();
+        request.setProcedureIdentifier(PROCEDURE_1);
+        cache.handle(new SensorModification(request, null));
+        cache.put(key, response(description(PROCEDURE_1)));
+        MatcherAssert.assertThat(cache.get(key).isPresent(), Is.is(false));
+    }
+
+    @Test
+    public void should_invalidate_entries_of_procedure_only() {
+        DescribeSensorResponseCache.Key key1 = cache.createKey(request(PROCEDURE_1), contentCache);
+        DescribeSensorResponseCache.Key key2 = cache.createKey(request(PROCEDURE_2), contentCache);
+        cache.put(key1, response(description(PROCEDURE_1)));
+        cache.put(key2, response(description(PROCEDURE_2)));
+
+        cache.invalidate(PROCEDURE_1);
+
+        MatcherAssert.assertThat(cache.get(key1).isPresent(), Is.is(false));
+        MatcherAssert.assertThat(cache.get(key2).isPresent(), Is.is(true));
+    }
+
+    private static DescribeSensorRequest request(String procedure) {
+        DescribeSensorRequest request = new DescribeSensorRequest();
+        request.setService("SOS");
+        request.setVersion("2.0.0");
+        request.setProcedure(procedure);
+        request.setProcedureDescriptionFormat(FORMAT);
+        return request;
+    }
+
+    private static SosProcedureDescription<?> description(String procedure) {
+        SosProcedureDescription<?> description =
+                new SosProcedureDescription<>(new SosProcedureDescriptionUnknownType(procedure, FORMAT, null));
+        description.setDescriptionFormat(FORMAT);
+        return description;
+    }
+
+    private static DescribeSensorResponse response(SosProcedureDescription<?> description) {
+        DescribeSensorResponse response = new DescribeSensorResponse();
+        response.setService("SOS");
+        response.setVersion("2.0.0");
+        response.setOutputFormat(FORMAT);
+        response.addSensorDescription(description);
+        return response;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesResponse;
+import org.n52.shetland.ogc.sos.SosCapabilities;
+import org.n52.sos.event.events.UpdateCache;
+import org.n52.sos.metrics.MetricsRegistry;
+
+import com.google.common.base.Ticker;
+
+/**
+ * @since 5.3.2
+ */
+public class GetCapabilitiesResponseCacheTest {
+
+    private static final DateTime UPDATE = new DateTime(1000L);
+
+    private static final DateTime NEXT_UPDATE = new DateTime(2000L);
+
+    private GetCapabilitiesResponseCache cache;
+
+    private long now;
+
+    @Before
+    public void setUp() {
+        cache = new GetCapabilitiesResponseCache();
+        cache.setMetricsRegistry(new MetricsRegistry());
+        cache.setEnabled(true);
+        cache.setMaxStaleness(60);
+        cache.setTicker(new Ticker() {
+            @Override
+            public long read() {
+                return now;
+            }
+        });
+    }
+
+    @Test
+    public void should_return_fresh_responses_for_cached_entry() {
+        GetCapabilitiesResponseCache.Key key = cache.createKey(request(), true);
+        MatcherAssert.assertThat(cache.get(key, UPDATE).isPresent(), Is.is(false));
+        cache.put(key, UPDATE, response());
+
+        GetCapabilitiesResponse first = cache.get(cache.createKey(request(), true), UPDATE).get();
+        GetCapabilitiesResponse second = cache.get(key, UPDATE).get();
+        MatcherAssert.assertThat(first == second, Is.is(false));
+        MatcherAssert.assertThat(first.getCapabilities() == second.getCapabilities(), Is.is(false));
+        MatcherAssert.assertThat(first.getVersion(), Is.is("2.0.0"));
+        MatcherAssert.assertThat(first.getCapabilities().getUpdateSequence().get(), Is.is("1"));
+    }
+
+    @Test
+    public void should_not_share_modifications_of_returned_capabilities() {
+        GetCapabilitiesResponseCache.Key key = cache.createKey(request(), true);
+        cache.put(key, UPDATE, response());
+        cache.get(key, UPDATE).get().getCapabilities().setUpdateSequence("modified");
+        MatcherAssert.assertThat(cache.get(key, UPDATE).get().getCapabilities().getUpdateSequence().get(),
+                Is.is("1"));
+    }
+
+    @Test
+    public void should_hit_after_cache_update_within_max_staleness() {
+        GetCapabilitiesResponseCache.Key key = cache.createKey(request(), true);
+        cache.put(key, UPDATE, response());
+        now += TimeUnit.SECONDS.toNanos(60);
+        MatcherAssert.assertThat(cache.get(key, NEXT_UPDATE).isPresent(), Is.is(true));
+    }
+
+    @Test
+    public void should_miss_after_cache_update_and_max_staleness() {
+        GetCapabilitiesResponseCache.Key key = cache.createKey(request(), true);
+        cache.put(key, UPDATE, response());
+        now += TimeUnit.SECONDS.toNanos(61);
+        MatcherAssert.assertThat(cache.get(key, UPDATE).isPresent(), Is.is(true));
+        MatcherAssert.assertThat(cache.get(key, NEXT_UPDATE).isPresent(), Is.is(false));
+        MatcherAssert.assertThat(cache.get(key, UPDATE).isPresent(), Is.is(false));
+    }
+
+    @Test
+    public void should_miss_after_cache_update_without_max_staleness() {
+        cache.setMaxStaleness(0);
+        GetCapabilitiesResponseCache.Key key = cache.createKey(request(), true);
+        cache.put(key, UPDATE, response());
+        now += 1;
+        MatcherAssert.assertThat(cache.get(key, NEXT_UPDATE).isPresent(), Is.is(false));
+    }
+
+    @Test
+    public void should_distinguish_transactional_visibility() {
+        GetCapabilitiesResponseCache.Key key = cache.createKey(request(), true);
+        cache.put(key, UPDATE, response());
+        MatcherAssert.assertThat(cache.get(cache.createKey(request(), false), UPDATE).isPresent(), Is.is(false));
+    }
+
+    @Test
+    public void should_invalidate_on_event() {
+        GetCapabilitiesResponseCache.Key key = cache.createKey(request(), true);
+        cache.put(key, UPDATE, response());
+        cache.handle(new UpdateCache());
+        MatcherAssert.assertThat(cache.get(key, UPDATE).isPresent(), Is.is(false));
+    }
+
+    @Test
+    public void should_work_without_metrics_registry() {
+        GetCapabilitiesResponseCache withoutMetrics = new GetCapabilitiesResponseCache();
+        withoutMetrics.setEnabled(true);
+        GetCapabilitiesResponseCache.Key key = withoutMetrics.createKey(request(), true);
+        withoutMetrics.put(key, UPDATE, response());
+        MatcherAssert.assertThat(withoutMetrics.get(key, UPDATE).isPresent(), Is.is(true));
+    }
+
+    private static GetCapabilitiesRequest request() {
+        GetCapabilitiesRequest request = new GetCapabilitiesRequest("SOS");
+        request.setVersion("2.0.0");
+        return request;
+    }
+
+    private static GetCapabilitiesResponse response() {
+        GetCapabilitiesResponse response = new GetCapabilitiesResponse("SOS", "2.0.0");
+        response.setCapabilities(new SosCapabilities("SOS", "2.0.0", "1", null, null, null, null, null, null, null));
+        return response;
+    }
+}
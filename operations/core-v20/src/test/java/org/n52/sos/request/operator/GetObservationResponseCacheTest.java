@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.Collections;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.UpdateSensorRequest;
+import org.n52.shetland.ogc.sos.response.AbstractStreaming;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.metrics.MetricsRegistry;
+
+import com.google.common.collect.Lists;
+
+/**
+ * @since 5.3.2
+ */
+public class GetObservationResponseCacheTest {
+    private static final String PROCEDURE_1 = "procedure-1";
+
+    private static final String PROCEDURE_2 = "procedure-2";
+
+    private static final String OFFERING = "offering";
+
+    private static final String PROPERTY = "property";
+
+    private GetObservationResponseCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new GetObservationResponseCache();
+        cache.setMetricsRegistry(new MetricsRegistry());
+        cache.setEnabled(true);
+    }
+
+    @Test
+    public void should_create_equal_keys_for_reordered_parameters() {
+        GetObservationResponseCache.Key key1 = cache.createKey(request(PROCEDURE_1, PROCEDURE_2)).get();
+        GetObservationResponseCache.Key key2 = cache.createKey(request(PROCEDURE_2, PROCEDURE_1)).get();
+        MatcherAssert.assertThat(key1, Is.is(key2));
+        MatcherAssert.assertThat(key1.hashCode(), Is.is(key2.hashCode()));
+        MatcherAssert.assertThat(key1.equals(cache.createKey(request(PROCEDURE_1)).get()), Is.is(false));
+    }
+
+    @Test
+    public void should_return_fresh_responses_for_cached_entry() throws OwsExceptionReport {
+        GetObservationResponseCache.Key key = cache.createKey(request(PROCEDURE_1)).get();
+        MatcherAssert.assertThat(cache.get(key).isPresent(), Is.is(false));
+        OmObservation observation = observation(PROCEDURE_1);
+        GetObservationResponse response = (GetObservationResponse) cache.put(key, response(observation));
+        OmObservation returned = response.getObservationCollection().next();
+        MatcherAssert.assertThat(returned.getObservationConstellation().getProcedureIdentifier(), Is.is(PROCEDURE_1));
+        // modifications of a response must not affect the cached entry
+        returned.getObservationConstellation().setProcedure(new SosProcedureDescriptionUnknownType(PROCEDURE_2));
+
+        for (int i = 0; i < 2; i++) {
+            GetObservationResponse cached = cache.get(key).get();
+            MatcherAssert.assertThat(cached.getService(), Is.is("SOS"));
+            MatcherAssert.assertThat(cached.getObservationCollection().hasNext(), Is.is(true));
+            OmObservation copy = cached.getObservationCollection().next();
+            MatcherAssert.assertThat(copy == observation, Is.is(false));
+            MatcherAssert.assertThat(copy.getObservationConstellation().getProcedureIdentifier(),
+                    Is.is(PROCEDURE_1));
+            MatcherAssert.assertThat(cached.getObservationCollection().hasNext(), Is.is(false));
+        }
+    }
+
+    @Test
+    public void should_not_store_responses_of_requests_started_before_an_invalidation() throws OwsExceptionReport {
+        GetObservationResponseCache.Key key = cache.createKey(request(PROCEDURE_1)).get();
+        cache.invalidate(PROCEDURE_2, null, null, null);
+        GetObservationResponse response = (GetObservationResponse) cache.put(key, response(observation(PROCEDURE_1)));
+        MatcherAssert.assertThat(response.getObservationCollection().hasNext(), Is.is(true));
+        MatcherAssert.assertThat(cache.get(key).isPresent(), Is.is(false));
+
+        key = cache.createKey(request(PROCEDURE_1)).get();
+        cache.put(key, response(observation(PROCEDURE_1)));
+        MatcherAssert.assertThat(cache.get(key).isPresent(), Is.is(true));
+    }
+
+    @Test
+    public void should_not_store_responses_exceeding_the_observation_limit() throws OwsExceptionReport {
+        cache.setMaxObservations(2);
+        GetObservationResponseCache.Key key = cache.createKey(request(PROCEDURE_1)).get();
+        GetObservationResponse response = response(observation(PROCEDURE_1));
+        response.setObservationCollection(ObservationStream.of(Lists.newArrayList(observation(PROCEDURE_1),
+                observation(PROCEDURE_1), observation(PROCEDURE_1))));
+        GetObservationResponse returned = (GetObservationResponse) cache.put(key, response);
+        int count = 0;
+        while (returned.getObservationCollection().hasNext()) {
+            returned.getObservationCollection().next();
+            count++;
+        }
+        MatcherAssert.assertThat(count, Is.is(3));
+        MatcherAssert.assertThat(cache.get(key).isPresent(), Is.is(false));
+    }
+
+    @Test
+    public void should_serve_identical_streaming_request_from_cache() throws OwsExceptionReport {
+        AbstractStreaming values = streaming(observation(PROCEDURE_1), observation(PROCEDURE_1),
+                observation(PROCEDURE_1));
+        GetObservationResponseCache.Key key = cache.createKey(request(PROCEDURE_1)).get();
+        GetObservationResponse returned = (GetObservationResponse) cache.put(key, response(streamed(values)));
+        MatcherAssert.assertThat(count(returned), Is.is(3));
+
+        GetObservationResponseCache.Key second = cache.createKey(request(PROCEDURE_1)).get();
+        GetObservationResponse cached = cache.get(second).get();
+        MatcherAssert.assertThat(count(cached), Is.is(3));
+        // the values are only read once by the first request
+        Mockito.verify(values, Mockito.times(3)).next();
+    }
+
+    @Test
+    public void should_stream_remaining_values_exceeding_the_observation_limit() throws OwsExceptionReport {
+        cache.setMaxObservations(2);
+        AbstractStreaming values = streaming(observation(PROCEDURE_1), observation(PROCEDURE_1),
+                observation(PROCEDURE_1), observation(PROCEDURE_1));
+        OmObservation streamed = streamed(values);
+        GetObservationResponseCache.Key key = cache.createKey(request(PROCEDURE_1)).get();
+        GetObservationResponse returned = (GetObservationResponse) cache.put(key, response(streamed));
+        ObservationStream observations = returned.getObservationCollection();
+        for (int i = 0; i < 3; i++) {
+            MatcherAssert.assertThat(observations.next() == streamed, Is.is(false));
+        }
+        // the partially read observation streams the remaining value
+        MatcherAssert.assertThat(observations.next() == streamed, Is.is(true));
+        Mockito.verify(values, Mockito.times(3)).next();
+        MatcherAssert.assertThat(observations.hasNext(), Is.is(false));
+        MatcherAssert.assertThat(cache.get(key).isPresent(), Is.is(false));
+    }
+
+    @Test
+    public void should_invalidate_entries_of_modified_sensors() throws OwsExceptionReport {
+        GetObservationResponseCache.Key key1 = cache.createKey(request(PROCEDURE_1)).get();
+        GetObservationResponseCache.Key key2 = cache.createKey(request(PROCEDURE_2)).get();
+        cache.put(key1, response(observation(PROCEDURE_1)));
+        cache.put(key2, response(observation(PROCEDURE_2)));
+        UpdateSensorRequest request = new UpdateSensorRequest();
+        request.setProcedureIdentifier(PROCEDURE_1);
+
+        cache.handle(new SensorModification(request, null));
+
+        MatcherAssert.assertThat(cache.get(key1).isPresent(), Is.is(false));
+        MatcherAssert.assertThat(cache.get(key2).isPresent(), Is.is(true));
+    }
+
+    @Test
+    public void should_invalidate_matching_entries_only() throws OwsExceptionReport {
+        GetObservationResponseCache.Key key1 = cache.createKey(request(PROCEDURE_1)).get();
+        GetObservationResponseCache.Key key2 = cache.createKey(request(PROCEDURE_2)).get();
+        GetObservationResponseCache.Key all = cache.createKey(request()).get();
+        cache.put(key1, response(new OmObservation()));
+        cache.put(key2, response(new OmObservation()));
+        cache.put(all, response(new OmObservation()));
+
+        cache.invalidate(PROCEDURE_1, PROPERTY, Collections.singleton(OFFERING), "feature");
+
+        MatcherAssert.assertThat(cache.get(key1).isPresent(), Is.is(false));
+        MatcherAssert.assertThat(cache.get(key2).isPresent(), Is.is(true));
+        MatcherAssert.assertThat(cache.get(all).isPresent(), Is.is(false));
+
+        cache.invalidate(PROCEDURE_2, "other-property", null, null);
+        MatcherAssert.assertThat(cache.get(key2).isPresent(), Is.is(true));
+    }
+
+    @Test
+    public void should_clear_entries_if_disabled() throws OwsExceptionReport {
+        GetObservationResponseCache.Key key = cache.createKey(request(PROCEDURE_1)).get();
+        cache.put(key, response(new OmObservation()));
+        cache.setEnabled(false);
+        MatcherAssert.assertThat(cache.get(key).isPresent(), Is.is(false));
+    }
+
+    private static GetObservationRequest request(String... procedures) {
+        GetObservationRequest request = new GetObservationRequest();
+        request.setService("SOS");
+        request.setVersion("2.0.0");
+        request.setResponseFormat("http://www.opengis.net/om/2.0");
+        request.setOfferings(Lists.newArrayList(OFFERING));
+        request.setObservedProperties(Lists.newArrayList(PROPERTY));
+        request.setProcedures(Lists.newArrayList(procedures));
+        return request;
+    }
+
+    private static OmObservation observation(String procedure) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SosProcedureDescriptionUnknownType(procedure));
+        constellation.setObservableProperty(new OmObservableProperty(PROPERTY));
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        return observation;
+    }
+
+    private static AbstractStreaming streaming(OmObservation first, OmObservation... others)
+            throws OwsExceptionReport {
+        AbstractStreaming values = Mockito.mock(AbstractStreaming.class);
+        Boolean[] hasNext = new Boolean[others.length + 1];
+        for (int i = 0; i < others.length; i++) {
+            hasNext[i] = true;
+        }
+        hasNext[others.length] = false;
+        Mockito.when(values.hasNext()).thenReturn(true, hasNext);
+        Mockito.when(values.next()).thenReturn(first, others);
+        return values;
+    }
+
+    private static OmObservation streamed(AbstractStreaming values) {
+        OmObservation observation = observation(PROCEDURE_1);
+        observation.setValue(values);
+        return observation;
+    }
+
+    private static int count(GetObservationResponse response) throws OwsExceptionReport {
+        int count = 0;
+        while (response.getObservationCollection().hasNext()) {
+            response.getObservationCollection().next();
+            count++;
+        }
+        return count;
+    }
+
+    private static GetObservationResponse response(OmObservation observation) {
+        GetObservationResponse response = new GetObservationResponse();
+        response.setService("SOS");
+        response.setVersion("2.0.0");
+        response.setObservationCollection(ObservationStream.of(Lists.newArrayList(observation)));
+        return response;
+    }
+}
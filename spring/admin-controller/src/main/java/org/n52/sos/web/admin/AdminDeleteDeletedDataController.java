@@ -33,10 +33,13 @@ import java.util.Optional;
 import javax.inject.Inject;
 
 import org.n52.iceland.exception.ows.concrete.NoImplementationFoundException;
+import org.n52.janmayen.Json;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.AbstractDeleteDeletedDataHandler;
+import org.n52.sos.ds.DeleteDeletedDataProgress;
 import org.n52.sos.ds.DeleteDeletedObservationDAO;
 import org.n52.sos.web.common.ControllerConstants;
+import org.n52.sos.web.common.JSONConstants;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -45,6 +48,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 /**
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
  * @since 4.0.0
@@ -77,4 +82,22 @@ public class AdminDeleteDeletedDataController extends AbstractAdminController {
     public void delete() throws NoImplementationFoundException, OwsExceptionReport {
         getHandler().deleteDeletedData();
     }
+
+    @ResponseBody
+    @RequestMapping(method = RequestMethod.GET, produces = ControllerConstants.MEDIA_TYPE_APPLICATION_JSON)
+    public String progress() throws NoImplementationFoundException {
+        ObjectNode json = Json.nodeFactory().objectNode();
+        Optional<DeleteDeletedDataProgress> progress = getHandler().getProgress();
+        json.put(JSONConstants.RUNNING_KEY, progress.map(DeleteDeletedDataProgress::isRunning).orElse(false));
+        if (progress.isPresent()) {
+            DeleteDeletedDataProgress p = progress.get();
+            json.put(JSONConstants.DELETED_KEY, p.getDeleted())
+                    .put(JSONConstants.REMAINING_KEY, p.getRemaining())
+                    .put(JSONConstants.LAST_ID_KEY, p.getLastId())
+                    .put(JSONConstants.STARTED_KEY, p.getStarted().toString());
+            p.getFinished().ifPresent(finished -> json.put(JSONConstants.FINISHED_KEY, finished.toString()));
+            p.getError().ifPresent(error -> json.put(JSONConstants.ERROR_KEY, error));
+        }
+        return Json.print(json);
+    }
 }
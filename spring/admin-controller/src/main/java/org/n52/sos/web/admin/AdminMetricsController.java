@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import javax.inject.Inject;
+
+import org.n52.janmayen.Json;
+import org.n52.sos.metrics.MetricsExporter;
+import org.n52.sos.metrics.MetricsRegistry;
+import org.n52.sos.web.common.AbstractController;
+import org.n52.sos.web.common.ControllerConstants;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exposes the latency and throughput metrics of the {@link MetricsRegistry} as JSON and in the Prometheus text
+ * format.
+ *
+ * @since 5.3.2
+ */
+@Controller
+public class AdminMetricsController extends AbstractController {
+
+    @Inject
+    private MetricsRegistry metricsRegistry;
+
+    @ResponseBody
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS,
+                    method = RequestMethod.GET,
+                    produces = "application/json; charset=UTF-8")
+    public String getMetrics() {
+        return Json.print(new MetricsExporter(metricsRegistry).toJson());
+    }
+
+    @ResponseBody
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS_PROMETHEUS,
+                    method = RequestMethod.GET,
+                    produces = MetricsExporter.PROMETHEUS_CONTENT_TYPE)
+    public String getPrometheusMetrics() {
+        return new MetricsExporter(metricsRegistry).toPrometheus();
+    }
+
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS_RESET, method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reset() {
+        metricsRegistry.reset();
+    }
+}
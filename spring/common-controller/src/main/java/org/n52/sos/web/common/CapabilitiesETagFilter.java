@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.common;
+
+import java.util.Enumeration;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * {@link ShallowEtagHeaderFilter} that is restricted to KVP GetCapabilities requests. The encoded capabilities are
+ * buffered to compute an <code>ETag</code> and a <code>304 Not Modified</code> without a body is returned if it
+ * matches the <code>If-None-Match</code> header of the request. All other requests, e.g. streamed GetObservation
+ * responses, pass the filter unbuffered.
+ *
+ * @since 5.3.2
+ */
+public class CapabilitiesETagFilter extends ShallowEtagHeaderFilter {
+
+    private static final String REQUEST_PARAMETER = "request";
+
+    private static final String GET_CAPABILITIES = "GetCapabilities";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        Enumeration<String> names = request.getParameterNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            if (REQUEST_PARAMETER.equalsIgnoreCase(name)) {
+                return !GET_CAPABILITIES.equalsIgnoreCase(request.getParameter(name));
+            }
+        }
+        return true;
+    }
+}
@@ -49,4 +49,11 @@ public interface JSONConstants {
     String ACTIVE_KEY = "active";
     String VERSION_KEY = "version";
     String OPERATION_KEY = "operation";
+    String RUNNING_KEY = "running";
+    String DELETED_KEY = "deleted";
+    String REMAINING_KEY = "remaining";
+    String LAST_ID_KEY = "lastId";
+    String STARTED_KEY = "started";
+    String FINISHED_KEY = "finished";
+    String ERROR_KEY = "error";
 }
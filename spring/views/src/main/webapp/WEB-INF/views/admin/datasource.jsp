@@ -53,6 +53,7 @@
         <button data-target="#confirmDialogClear" data-toggle="modal" title="Clear Datasource" class="btn btn-danger">Clear Datasource</button>
         <a href="<c:url value="/admin/reset" />" title="Reset Datasource Configuration" class="btn btn-warning">Reset Datasource Configuration</a>
     </div>
+    <p id="deleteDeletedProgress" class="hide"></p>
 </div>
 
 <div>
@@ -202,6 +203,32 @@
         }*/
 
         if (supportsDeleteDeleted) {
+            var $deleteDeletedProgress = $("#deleteDeletedProgress");
+            var pollDeleteDeletedProgress = function() {
+                $.ajax({
+                    "url": "<c:url value="/admin/datasource/deleteDeletedData" />",
+                    "type": "GET",
+                    "dataType": "json",
+                    "global": false
+                }).done(function(progress) {
+                    if (progress.started === undefined) {
+                        return;
+                    }
+                    var text = progress.deleted + " deleted observations purged";
+                    if (progress.running) {
+                        text += ", about " + progress.remaining + " remaining (last id " + progress.lastId + ")";
+                    } else if (progress.error) {
+                        text += ", stopped at id " + progress.lastId + ": " + progress.error;
+                    } else {
+                        text += ", finished at " + progress.finished;
+                    }
+                    $deleteDeletedProgress.text(text).removeClass("hide");
+                    if (progress.running) {
+                        window.setTimeout(pollDeleteDeletedProgress, 2000);
+                    }
+                });
+            };
+            pollDeleteDeletedProgress();
             $("#delete").click(function() {
                 $deleteDeletedDialog.find("button").attr("disabled", true);
                 $.ajax({
@@ -217,9 +244,10 @@
                     $deleteDeletedDialog.find("button").removeAttr("disabled");
                     $deleteDeletedDialog.modal("hide");
                 }).done(function() {
-                    showSuccess("The deleted data were deleted.");
+                    showSuccess("The deleted datasets were deleted, the deleted observations are purged in the background.");
                     $deleteDeletedDialog.find("button").removeAttr("disabled");
                     $deleteDeletedDialog.modal("hide");
+                    pollDeleteDeletedProgress();
                 });
             });
         } else {
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos.queue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.n52.iceland.statistics.api.ElasticsearchSettings;
+import org.n52.iceland.statistics.api.mappings.ServiceEventDataMapping;
+import org.n52.iceland.statistics.impl.ElasticsearchDataHandler;
+
+/**
+ * {@link StatisticsSink} that indexes each batch of documents with a single Elasticsearch bulk request using the
+ * client of the {@link ElasticsearchDataHandler}. The documents get the same timestamp and instance fields the data
+ * handler adds to single documents.
+ *
+ * @since 5.3.2
+ */
+public class ElasticsearchBulkStatisticsSink implements StatisticsSink {
+
+    private final ElasticsearchDataHandler dataHandler;
+
+    private final ElasticsearchSettings settings;
+
+    public ElasticsearchBulkStatisticsSink(ElasticsearchDataHandler dataHandler, ElasticsearchSettings settings) {
+        this.dataHandler = Objects.requireNonNull(dataHandler);
+        this.settings = Objects.requireNonNull(settings);
+    }
+
+    @Override
+    public void write(List<Map<String, Object>> documents) throws IOException {
+        if (documents.isEmpty()) {
+            return;
+        }
+        RestHighLevelClient client = dataHandler.getClient();
+        if (client == null) {
+            throw new IOException("Elasticsearch client is not initialized");
+        }
+        BulkRequest request = new BulkRequest();
+        DateTime timestamp = DateTime.now(DateTimeZone.UTC);
+        for (Map<String, Object> document : documents) {
+            // the queued documents may be shared with the collecting code
+            Map<String, Object> source = new HashMap<>(document);
+            source.putIfAbsent(ServiceEventDataMapping.TIMESTAMP_FIELD.getName(), timestamp);
+            source.put(ServiceEventDataMapping.UUID_FIELD.getName(), settings.getUuid());
+            request.add(new IndexRequest(settings.getIndexId(), settings.getTypeId()).source(source));
+        }
+        BulkResponse response = client.bulk(request, RequestOptions.DEFAULT);
+        if (response.hasFailures()) {
+            throw new IOException(response.buildFailureMessage());
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos.queue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.action.index.IndexResponse;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.statistics.api.interfaces.datahandler.IStatisticsDataHandler;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * {@link IStatisticsDataHandler} that decouples the statistics collection from the indexing. Documents are put into
+ * a bounded queue and a background worker writes them in batches to a {@link StatisticsSink} once the batch size or
+ * the flush interval is reached. If the queue is full, documents are either dropped or the caller blocks until
+ * there is space or the handler is destroyed.
+ *
+ * @since 5.3.2
+ */
+@Configurable
+public class QueuedStatisticsDataHandler implements IStatisticsDataHandler, Constructable, Destroyable {
+
+    public static final String QUEUE_CAPACITY = "statistics.queue.capacity";
+
+    public static final String QUEUE_BATCH_SIZE = "statistics.queue.batch_size";
+
+    public static final String QUEUE_FLUSH_INTERVAL = "statistics.queue.flush_interval";
+
+    public static final String QUEUE_BLOCK_WHEN_FULL = "statistics.queue.block_when_full";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueuedStatisticsDataHandler.class);
+
+    private static final int DEFAULT_CAPACITY = 10000;
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
+    private static final long DROP_LOG_INTERVAL = 1000;
+
+    private static final long ENQUEUE_WAIT = 100;
+
+    /**
+     * Marker to wake up the worker on shutdown, compared by identity.
+     */
+    private static final Map<String, Object> STOP = new HashMap<>(0);
+
+    private final IStatisticsDataHandler dataHandler;
+
+    private final StatisticsSink sink;
+
+    private final AtomicLong received = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong flushed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private int capacity = DEFAULT_CAPACITY;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+    private boolean blockWhenFull;
+
+    private BlockingQueue<Map<String, Object>> queue;
+
+    private ExecutorService executor;
+
+    private volatile boolean running;
+
+    /**
+     * @param dataHandler
+     *            the data handler that decides if statistics are collected
+     * @param sink
+     *            the sink the queued documents are written to
+     */
+    public QueuedStatisticsDataHandler(IStatisticsDataHandler dataHandler, StatisticsSink sink) {
+        this.dataHandler = Objects.requireNonNull(dataHandler);
+        this.sink = Objects.requireNonNull(sink);
+    }
+
+    @Setting(QUEUE_CAPACITY)
+    public void setCapacity(Integer capacity) {
+        if (capacity != null && capacity > 0) {
+            this.capacity = capacity;
+        }
+    }
+
+    @Setting(QUEUE_BATCH_SIZE)
+    public void setBatchSize(Integer batchSize) {
+        if (batchSize != null && batchSize > 0) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    @Setting(QUEUE_FLUSH_INTERVAL)
+    public void setFlushInterval(Integer flushInterval) {
+        if (flushInterval != null && flushInterval > 0) {
+            this.flushInterval = flushInterval;
+        }
+    }
+
+    @Setting(QUEUE_BLOCK_WHEN_FULL)
+    public void setBlockWhenFull(Boolean blockWhenFull) {
+        this.blockWhenFull = blockWhenFull != null && blockWhenFull;
+    }
+
+    @Override
+    public void init() {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.running = true;
+        this.executor = Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("52n-statistics-queue"));
+        this.executor.execute(this::work);
+        LOGGER.debug("Statistics queue started (capacity {}, batch size {}, flush interval {} ms, block {})",
+                capacity, batchSize, flushInterval, blockWhenFull);
+    }
+
+    @Override
+    public void destroy() {
+        this.running = false;
+        if (executor != null) {
+            queue.offer(STOP);
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(flushInterval * 2, TimeUnit.MILLISECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        LOGGER.info("Statistics queue stopped (received {}, flushed {}, dropped {}, failed {})", getReceivedCount(),
+                getFlushedCount(), getDroppedCount(), getFailedCount());
+    }
+
+    @Override
+    public IndexResponse persist(Map<String, Object> dataMap) {
+        if (dataMap == null || !isLoggingEnabled()) {
+            return null;
+        }
+        received.incrementAndGet();
+        if (!running || !enqueue(dataMap)) {
+            long count = dropped.incrementAndGet();
+            if (count % DROP_LOG_INTERVAL == 1) {
+                LOGGER.warn("Statistics queue is full, {} documents dropped so far", count);
+            }
+        }
+        // the document is indexed asynchronously
+        return null;
+    }
+
+    @Override
+    public boolean isLoggingEnabled() {
+        return dataHandler.isLoggingEnabled();
+    }
+
+    /**
+     * @return the number of documents passed to {@link #persist(Map)}
+     */
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    /**
+     * @return the number of documents dropped because the queue was full or the handler was destroyed
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of documents written to the sink
+     */
+    public long getFlushedCount() {
+        return flushed.get();
+    }
+
+    /**
+     * @return the number of documents the sink failed to write
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of documents waiting in the queue
+     */
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    private boolean enqueue(Map<String, Object> dataMap) {
+        if (!blockWhenFull) {
+            return queue.offer(dataMap);
+        }
+        try {
+            // wait in steps so callers are released once the handler is destroyed
+            while (running) {
+                if (queue.offer(dataMap, ENQUEUE_WAIT, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void work() {
+        List<Map<String, Object>> batch = Lists.newArrayListWithCapacity(batchSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        long lastFlush = System.nanoTime();
+        try {
+            while (running) {
+                long wait = Math.max(0, flushIntervalNanos - (System.nanoTime() - lastFlush));
+                Map<String, Object> document = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (document != null) {
+                    batch.add(document);
+                    queue.drainTo(batch, batchSize - batch.size());
+                    batch.removeIf(d -> d == STOP);
+                }
+                if (batch.size() >= batchSize || System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                    flush(batch);
+                    lastFlush = System.nanoTime();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // write what is left on shutdown
+        queue.drainTo(batch);
+        batch.removeIf(d -> d == STOP);
+        flush(batch);
+    }
+
+    private void flush(List<Map<String, Object>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            sink.write(batch);
+            flushed.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            LOGGER.warn("Could not write {} statistics documents", batch.size(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+}
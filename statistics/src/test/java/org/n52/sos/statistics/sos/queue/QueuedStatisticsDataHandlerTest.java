@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2012-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.statistics.sos.queue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.n52.iceland.statistics.api.interfaces.datahandler.IStatisticsDataHandler;
+
+public class QueuedStatisticsDataHandlerTest {
+
+    private static final long TIMEOUT = 5000;
+
+    private IStatisticsDataHandler dataHandler;
+
+    private InMemorySink sink;
+
+    private QueuedStatisticsDataHandler handler;
+
+    @Before
+    public void setUp() {
+        dataHandler = Mockito.mock(IStatisticsDataHandler.class);
+        Mockito.when(dataHandler.isLoggingEnabled()).thenReturn(true);
+        sink = new InMemorySink();
+        handler = new QueuedStatisticsDataHandler(dataHandler, sink);
+    }
+
+    @After
+    public void tearDown() {
+        sink.release();
+        handler.destroy();
+    }
+
+    @Test
+    public void shouldWriteBatchesOfBatchSize() throws InterruptedException {
+        handler.setBatchSize(2);
+        handler.setFlushInterval(60000);
+        handler.init();
+        for (int i = 0; i < 4; i++) {
+            handler.persist(document(i));
+        }
+        awaitFlushed(4);
+        MatcherAssert.assertThat(sink.documents.size(), Is.is(4));
+        MatcherAssert.assertThat(sink.batches.get(), Is.is(2));
+        Mockito.verify(dataHandler, Mockito.never()).persist(Mockito.anyMap());
+    }
+
+    @Test
+    public void shouldDropDocumentsWhenQueueIsFull() throws InterruptedException {
+        handler.setCapacity(1);
+        handler.setBatchSize(1);
+        sink.block();
+        handler.init();
+        handler.persist(document(1));
+        // the worker is blocked in the sink
+        MatcherAssert.assertThat(sink.entered.await(TIMEOUT, TimeUnit.MILLISECONDS), Is.is(true));
+        handler.persist(document(2));
+        handler.persist(document(3));
+        MatcherAssert.assertThat(handler.getReceivedCount(), Is.is(3L));
+        MatcherAssert.assertThat(handler.getDroppedCount(), Is.is(1L));
+        sink.release();
+        awaitFlushed(2);
+        MatcherAssert.assertThat(sink.documents.size(), Is.is(2));
+    }
+
+    @Test
+    public void shouldReleaseBlockedCallersOnDestroy() throws InterruptedException {
+        handler.setCapacity(1);
+        handler.setBatchSize(1);
+        handler.setFlushInterval(100);
+        handler.setBlockWhenFull(true);
+        sink.block();
+        handler.init();
+        handler.persist(document(1));
+        MatcherAssert.assertThat(sink.entered.await(TIMEOUT, TimeUnit.MILLISECONDS), Is.is(true));
+        handler.persist(document(2));
+        Thread caller = new Thread(() -> handler.persist(document(3)));
+        caller.start();
+        handler.destroy();
+        caller.join(TIMEOUT);
+        MatcherAssert.assertThat(caller.isAlive(), Is.is(false));
+        MatcherAssert.assertThat(handler.getDroppedCount(), Is.is(1L));
+    }
+
+    @Test
+    public void shouldWriteRemainingDocumentsOnDestroy() {
+        handler.setBatchSize(100);
+        handler.setFlushInterval(60000);
+        handler.init();
+        for (int i = 0; i < 3; i++) {
+            handler.persist(document(i));
+        }
+        handler.destroy();
+        MatcherAssert.assertThat(handler.getFlushedCount(), Is.is(3L));
+        MatcherAssert.assertThat(sink.documents.size(), Is.is(3));
+    }
+
+    @Test
+    public void shouldIgnoreDocumentsIfLoggingIsDisabled() {
+        Mockito.when(dataHandler.isLoggingEnabled()).thenReturn(false);
+        handler.init();
+        handler.persist(document(1));
+        handler.destroy();
+        MatcherAssert.assertThat(handler.getReceivedCount(), Is.is(0L));
+        MatcherAssert.assertThat(sink.documents.isEmpty(), Is.is(true));
+    }
+
+    private void awaitFlushed(long count) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (handler.getFlushedCount() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static Map<String, Object> document(int i) {
+        return Collections.singletonMap("id", i);
+    }
+
+    private static class InMemorySink implements StatisticsSink {
+
+        private final List<Map<String, Object>> documents = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private volatile CountDownLatch blocker = new CountDownLatch(0);
+
+        private final AtomicInteger batches = new AtomicInteger();
+
+        @Override
+        public void write(List<Map<String, Object>> batch) {
+            entered.countDown();
+            try {
+                blocker.await(TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            documents.addAll(batch);
+            batches.incrementAndGet();
+        }
+
+        void block() {
+            blocker = new CountDownLatch(1);
+        }
+
+        void release() {
+            blocker.countDown();
+        }
+    }
+
+}